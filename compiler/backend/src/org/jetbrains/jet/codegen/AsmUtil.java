@@ -22,6 +22,7 @@ import com.intellij.openapi.util.Pair;
 import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.AnnotationVisitor;
 import org.jetbrains.asm4.Label;
 import org.jetbrains.asm4.MethodVisitor;
 import org.jetbrains.asm4.Type;
@@ -29,11 +30,13 @@ import org.jetbrains.asm4.commons.InstructionAdapter;
 import org.jetbrains.jet.codegen.binding.CalculatedClosure;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.codegen.state.JetTypeMapper;
+import org.jetbrains.jet.descriptors.serialization.BitEncoding;
 import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.calls.model.ResolvedCall;
 import org.jetbrains.jet.lang.resolve.java.*;
 import org.jetbrains.jet.lang.resolve.java.descriptor.JavaCallableMemberDescriptor;
+import org.jetbrains.jet.lang.resolve.kotlin.KotlinDataAttribute;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.types.JetType;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
@@ -353,6 +356,13 @@ public class AsmUtil {
         v.invokespecial("java/lang/StringBuilder", "<init>", "()V");
     }
 
+    public static void genStringBuilderConstructor(InstructionAdapter v, int capacity) {
+        v.visitTypeInsn(NEW, "java/lang/StringBuilder");
+        v.dup();
+        v.iconst(capacity);
+        v.invokespecial("java/lang/StringBuilder", "<init>", "(I)V");
+    }
+
     public static void genInvokeAppendMethod(InstructionAdapter v, Type type) {
         type = stringValueOfOrStringBuilderAppendType(type);
         v.invokevirtual("java/lang/StringBuilder", "append", "(" + type.getDescriptor() + ")Ljava/lang/StringBuilder;");
@@ -658,6 +668,28 @@ public class AsmUtil {
         }
     }
 
+    /**
+     * Writes serialized descriptors either to the "data" argument of the Kotlin class or package annotation,
+     * or to the class file attribute if binary metadata is requested
+     */
+    public static void writeKotlinData(
+            @NotNull ClassBuilder builder,
+            @NotNull AnnotationVisitor kotlinAnnotation,
+            @NotNull byte[] data,
+            boolean binaryMetadata
+    ) {
+        if (binaryMetadata) {
+            builder.getVisitor().visitAttribute(new KotlinDataAttribute(data));
+            return;
+        }
+
+        AnnotationVisitor array = kotlinAnnotation.visitArray(JvmAnnotationNames.DATA_FIELD_NAME);
+        for (String string : BitEncoding.encodeBytes(data)) {
+            array.visit(null, string);
+        }
+        array.visitEnd();
+    }
+
     @NotNull
     public static String asmDescByFqNameWithoutInnerClasses(@NotNull FqName fqName) {
         return asmTypeByFqNameWithoutInnerClasses(fqName).getDescriptor();
@@ -27,8 +27,16 @@ public abstract class ClassBuilder {
 
     private String thisName;
 
+    // Written in defineClass(), read by ClassHierarchyOracle
+    private int access;
+    private String superName;
+
     private final JvmSerializationBindings serializationBindings = new JvmSerializationBindings();
 
+    // Notified when the class is complete, see ClassFileFactory#setSink()
+    @Nullable
+    private Runnable endListener = null;
+
     public static class Concrete extends ClassBuilder {
         private final ClassVisitor v;
 
@@ -87,6 +95,13 @@ public abstract class ClassBuilder {
 
     public void done() {
         getVisitor().visitEnd();
+        if (endListener != null) {
+            endListener.run();
+        }
+    }
+
+    /* package */ void setEndListener(@NotNull Runnable endListener) {
+        this.endListener = endListener;
     }
 
     @NotNull
@@ -102,6 +117,8 @@ public abstract class ClassBuilder {
             @NotNull String[] interfaces
     ) {
         thisName = name;
+        this.access = access;
+        this.superName = superName;
         getVisitor().visit(version, access, name, signature, superName, interfaces);
     }
 
@@ -122,4 +139,16 @@ public abstract class ClassBuilder {
         assert thisName != null : "This name isn't set";
         return thisName;
     }
+
+    /**
+     * @return the internal name of the superclass, or null if the class is not defined yet
+     */
+    @Nullable
+    /* package */ String getSuperName() {
+        return superName;
+    }
+
+    /* package */ int getAccess() {
+        return access;
+    }
 }
@@ -34,8 +34,8 @@ public class ClassBuilderFactories {
         }
 
         @Override
-        public ClassBuilder newClassBuilder() {
-            return new TraceBuilder(new BinaryClassWriter());
+        public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
+            return new TraceBuilder(new BinaryClassWriter(classHierarchy));
         }
 
         @Override
@@ -62,7 +62,7 @@ public class ClassBuilderFactories {
         }
 
         @Override
-        public ClassBuilder newClassBuilder() {
+        public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
             return new ClassBuilder.Concrete(new TraceClassVisitor(new PrintWriter(new StringWriter())));
         }
 
@@ -90,8 +90,8 @@ public class ClassBuilderFactories {
         }
 
         @Override
-        public ClassBuilder newClassBuilder() {
-            return new ClassBuilder.Concrete(new BinaryClassWriter());
+        public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
+            return new ClassBuilder.Concrete(new BinaryClassWriter(classHierarchy));
         }
 
         @Override
@@ -110,19 +110,17 @@ public class ClassBuilderFactories {
     }
 
     private static class BinaryClassWriter extends ClassWriter {
-        public BinaryClassWriter() {
+        private final ClassHierarchyOracle classHierarchy;
+
+        public BinaryClassWriter(@NotNull ClassHierarchyOracle classHierarchy) {
             super(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+            this.classHierarchy = classHierarchy;
         }
 
         @Override
         protected String getCommonSuperClass(String type1, String type2) {
-            try {
-                return super.getCommonSuperClass(type1, type2);
-            }
-            catch (Throwable t) {
-                // @todo we might need at some point do more sophisticated handling
-                return "java/lang/Object";
-            }
+            // The default implementation loads the classes with the compiler's class loader
+            return classHierarchy.getCommonSuperClass(type1, type2);
         }
     }
 
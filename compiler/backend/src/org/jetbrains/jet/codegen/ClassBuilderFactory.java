@@ -22,7 +22,7 @@ public interface ClassBuilderFactory {
     @NotNull
     ClassBuilderMode getClassBuilderMode();
 
-    ClassBuilder newClassBuilder();
+    ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy);
 
     String asText(ClassBuilder builder);
 
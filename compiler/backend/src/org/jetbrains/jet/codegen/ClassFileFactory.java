@@ -23,11 +23,14 @@ import com.intellij.psi.PsiFile;
 import com.intellij.util.Function;
 import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Opcodes;
 import org.jetbrains.asm4.Type;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.codegen.state.GenerationStateAware;
 import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
 import org.jetbrains.jet.lang.psi.JetFile;
+import org.jetbrains.jet.lang.resolve.java.JvmAbi;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 
 import javax.inject.Inject;
@@ -43,10 +46,14 @@ public final class ClassFileFactory extends GenerationStateAware {
 
     private final Map<FqName, NamespaceCodegen> ns2codegen = new HashMap<FqName, NamespaceCodegen>();
     private final Map<String, ClassBuilderAndSourceFileList> generators = new LinkedHashMap<String, ClassBuilderAndSourceFileList>();
+    private final Map<String, SharedNameTable> sharedNameTables = new LinkedHashMap<String, SharedNameTable>();
+    private final ClassHierarchyOracle classHierarchy;
+    private ClassFileSink sink = null;
     private boolean isDone = false;
 
     public ClassFileFactory(@NotNull GenerationState state) {
         super(state);
+        this.classHierarchy = new ClassHierarchyOracle(this, state);
     }
 
 
@@ -62,45 +69,155 @@ public final class ClassFileFactory extends GenerationStateAware {
 
     @NotNull
     private ClassBuilder newVisitor(@NotNull Type asmType, @NotNull Collection<? extends PsiFile> sourceFiles) {
-        String outputFilePath = asmType.getInternalName() + ".class";
+        final String outputFilePath = asmType.getInternalName() + ".class";
         state.getProgress().reportOutput(toIoFilesIgnoringNonPhysical(sourceFiles), new File(outputFilePath));
-        ClassBuilder answer = builderFactory.newClassBuilder();
-        generators.put(outputFilePath, new ClassBuilderAndSourceFileList(answer, sourceFiles));
+        ClassBuilder answer = builderFactory.newClassBuilder(classHierarchy);
+        final ClassBuilderAndSourceFileList generator = new ClassBuilderAndSourceFileList(answer, sourceFiles);
+        generators.put(outputFilePath, generator);
+        answer.setEndListener(new Runnable() {
+            @Override
+            public void run() {
+                onClassGenerated(outputFilePath, generator);
+            }
+        });
         return answer;
     }
 
+    /**
+     * Makes the factory pass each class file to the given sink as soon as the class is generated and drop its contents.
+     * Files which are complete only when all classes are generated are passed to the sink by {@link #flushToSink()}.
+     * Written files are still listed by {@link #files()}, but their contents are not available anymore
+     */
+    public void setSink(@NotNull ClassFileSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Finishes generation and passes all files which are not written yet to the sink
+     */
+    public void flushToSink() {
+        assert sink != null : "No sink to flush to";
+        done();
+        for (Map.Entry<String, ClassBuilderAndSourceFileList> entry : generators.entrySet()) {
+            if (!entry.getValue().isWritten()) {
+                writeToSink(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, SharedNameTable> entry : sharedNameTables.entrySet()) {
+            sink.write(entry.getKey(), getSourceFiles(entry.getKey()), entry.getValue().toBytes());
+        }
+    }
+
+    private void onClassGenerated(@NotNull String outputFilePath, @NotNull ClassBuilderAndSourceFileList generator) {
+        // Classes in a jar with binary metadata refer to the checksums of shared name tables, which are complete only when all classes
+        // are generated. Other outputs don't use shared tables, see getSharedNameTable()
+        if (sink == null || (state.isBinaryMetadata() && sink.isArchive())) return;
+
+        writeToSink(outputFilePath, generator);
+    }
+
+    private void writeToSink(@NotNull String outputFilePath, @NotNull ClassBuilderAndSourceFileList generator) {
+        byte[] bytes = builderFactory.asBytes(generator.getClassBuilder());
+        generator.release();
+        sink.write(outputFilePath, getSourceFiles(outputFilePath), bytes);
+    }
+
+    /**
+     * @return the superclass of the class with the given internal name generated in this compilation,
+     * or null if there is no such class or it is not defined yet
+     */
+    @Nullable
+    ClassHierarchyOracle.ClassInfo getGeneratedClassInfo(@NotNull String internalName) {
+        ClassBuilderAndSourceFileList generator = generators.get(internalName + ".class");
+        return generator != null ? generator.getClassInfo() : null;
+    }
+
+    /**
+     * @return the name table shared by all classes of the package of the given class, or null if the class should contain its own
+     * name table. Tables are shared only with {@link GenerationState#isBinaryMetadata()} and only if the output is a jar:
+     * in an output directory a table could be overwritten by a later compilation of a part of the package, leaving
+     * the other classes with a table they can't be read with
+     */
+    @Nullable
+    public SharedNameTable getSharedNameTable(@NotNull Type asmType) {
+        if (!state.isBinaryMetadata() || sink == null || !sink.isArchive()) return null;
+
+        String internalName = asmType.getInternalName();
+        int lastSlash = internalName.lastIndexOf('/');
+        String outputFilePath = (lastSlash < 0 ? "" : internalName.substring(0, lastSlash + 1)) + JvmAbi.SHARED_NAME_TABLE_FILE_NAME;
+
+        SharedNameTable table = sharedNameTables.get(outputFilePath);
+        if (table == null) {
+            table = new SharedNameTable();
+            sharedNameTables.put(outputFilePath, table);
+        }
+        return table;
+    }
+
     private void done() {
         if (!isDone) {
             isDone = true;
+            removeUnusedSharedNameTables();
             for (NamespaceCodegen codegen : ns2codegen.values()) {
                 codegen.done();
             }
         }
     }
 
+    private void removeUnusedSharedNameTables() {
+        for (Iterator<Map.Entry<String, SharedNameTable>> iterator = sharedNameTables.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, SharedNameTable> entry = iterator.next();
+            SharedNameTable table = entry.getValue();
+            if (table.isUsed()) {
+                state.getProgress().reportOutput(toIoFilesIgnoringNonPhysical(table.getSourceFiles()), new File(entry.getKey()));
+            }
+            else {
+                iterator.remove();
+            }
+        }
+    }
+
     public String asText(String file) {
         done();
-        return builderFactory.asText(generators.get(file).classBuilder);
+        SharedNameTable table = sharedNameTables.get(file);
+        if (table != null) {
+            return table.asText();
+        }
+        return builderFactory.asText(generators.get(file).getClassBuilder());
     }
 
     public byte[] asBytes(String file) {
         done();
-        return builderFactory.asBytes(generators.get(file).classBuilder);
+        SharedNameTable table = sharedNameTables.get(file);
+        if (table != null) {
+            return table.toBytes();
+        }
+        return builderFactory.asBytes(generators.get(file).getClassBuilder());
     }
 
     public List<String> files() {
         done();
-        return new ArrayList<String>(generators.keySet());
+        List<String> result = new ArrayList<String>(generators.keySet());
+        result.addAll(sharedNameTables.keySet());
+        return result;
     }
 
     public List<File> getSourceFiles(String relativeClassFilePath) {
-        ClassBuilderAndSourceFileList pair = generators.get(relativeClassFilePath);
-        if (pair == null) {
-            throw new IllegalStateException("No record for binary file " + relativeClassFilePath);
+        Collection<? extends PsiFile> sourceFiles;
+        SharedNameTable table = sharedNameTables.get(relativeClassFilePath);
+        if (table != null) {
+            sourceFiles = table.getSourceFiles();
+        }
+        else {
+            ClassBuilderAndSourceFileList pair = generators.get(relativeClassFilePath);
+            if (pair == null) {
+                throw new IllegalStateException("No record for binary file " + relativeClassFilePath);
+            }
+            sourceFiles = pair.sourceFiles;
         }
 
         return ContainerUtil.mapNotNull(
-                pair.sourceFiles,
+                sourceFiles,
                 new Function<PsiFile, File>() {
                     @Override
                     public File fun(PsiFile file) {
@@ -177,13 +294,41 @@ public final class ClassFileFactory extends GenerationStateAware {
     }
 
     private static class ClassBuilderAndSourceFileList {
-        private final ClassBuilder classBuilder;
+        // null after the class is written to the sink, only its superclass is kept then
+        private ClassBuilder classBuilder;
+        private ClassHierarchyOracle.ClassInfo writtenClassInfo;
         private final Collection<? extends PsiFile> sourceFiles;
 
         private ClassBuilderAndSourceFileList(ClassBuilder classBuilder, Collection<? extends PsiFile> sourceFiles) {
             this.classBuilder = classBuilder;
             this.sourceFiles = sourceFiles;
         }
+
+        @NotNull
+        private ClassBuilder getClassBuilder() {
+            if (classBuilder == null) {
+                throw new IllegalStateException("Class has already been written to the output");
+            }
+            return classBuilder;
+        }
+
+        private boolean isWritten() {
+            return classBuilder == null;
+        }
+
+        private void release() {
+            writtenClassInfo = getClassInfo();
+            classBuilder = null;
+        }
+
+        @Nullable
+        private ClassHierarchyOracle.ClassInfo getClassInfo() {
+            if (classBuilder == null) return writtenClassInfo;
+
+            String superName = classBuilder.getSuperName();
+            if (superName == null) return null;
+            return new ClassHierarchyOracle.ClassInfo(superName, (classBuilder.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+        }
     }
 
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Receives generated files from {@link ClassFileFactory} as soon as they are complete, see {@link ClassFileFactory#setSink(ClassFileSink)}
+ */
+public interface ClassFileSink {
+    void write(@NotNull String relativePath, @NotNull List<File> sourceFiles, @NotNull byte[] bytes);
+
+    /**
+     * @return true if all files are written to a single archive which is created anew, so that files shared by several classes
+     * can't go out of sync with the classes written by another compilation
+     */
+    boolean isArchive();
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.search.GlobalSearchScope;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.codegen.state.GenerationState;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.jetbrains.jet.codegen.CodegenUtil.getSuperClass;
+import static org.jetbrains.jet.codegen.CodegenUtil.isInterface;
+
+/**
+ * Answers the common superclass queries of ASM's frame computation without loading classes. Classes already generated in this
+ * compilation are looked up in the class file factory, other classes declared in the sources are described by their descriptors,
+ * and library classes are found on the class path via Java PSI, i.e. read from class file stubs the same way the Java resolver does.
+ */
+public final class ClassHierarchyOracle {
+    private static final Logger LOG = Logger.getInstance(ClassHierarchyOracle.class);
+
+    private static final String OBJECT = "java/lang/Object";
+
+    /* package */ static final class ClassInfo {
+        private static final ClassInfo UNKNOWN = new ClassInfo(null, false);
+        private static final ClassInfo ROOT = new ClassInfo(null, false);
+
+        private final String superName;
+        private final boolean isInterface;
+
+        /* package */ ClassInfo(@Nullable String superName, boolean isInterface) {
+            this.superName = superName;
+            this.isInterface = isInterface;
+        }
+    }
+
+    private final ClassFileFactory factory;
+    private final GenerationState state;
+
+    // Library classes don't change during compilation, so their lookups are cached, including the failed ones
+    private final ConcurrentMap<String, ClassInfo> libraryClasses = new ConcurrentHashMap<String, ClassInfo>();
+
+    public ClassHierarchyOracle(@NotNull ClassFileFactory factory, @NotNull GenerationState state) {
+        this.factory = factory;
+        this.state = state;
+    }
+
+    /**
+     * @return the nearest common superclass of the given classes, as required by {@link org.jetbrains.asm4.ClassWriter#getCommonSuperClass}.
+     * java/lang/Object is returned if one of the classes is an interface or unknown, unknown classes are logged
+     */
+    @NotNull
+    public String getCommonSuperClass(@NotNull String type1, @NotNull String type2) {
+        if (type1.equals(type2)) return type1;
+
+        ClassInfo info1 = getClassInfo(type1);
+        ClassInfo info2 = getClassInfo(type2);
+        if (info1 == ClassInfo.UNKNOWN || info2 == ClassInfo.UNKNOWN || info1.isInterface || info2.isInterface) {
+            return OBJECT;
+        }
+
+        Set<String> superClasses1 = new HashSet<String>();
+        for (String current = type1; current != null; current = getClassInfo(current).superName) {
+            superClasses1.add(current);
+        }
+        for (String current = type2; current != null; current = getClassInfo(current).superName) {
+            if (superClasses1.contains(current)) return current;
+        }
+        return OBJECT;
+    }
+
+    @NotNull
+    private ClassInfo getClassInfo(@NotNull String internalName) {
+        if (OBJECT.equals(internalName)) return ClassInfo.ROOT;
+
+        ClassInfo generatedClass = factory.getGeneratedClassInfo(internalName);
+        if (generatedClass != null) return generatedClass;
+
+        // '$' is treated as a nested class separator here, which is the case for all classes the frames can mention in practice.
+        // Names of the found classes are checked to be the same as the requested one
+        String fqName = internalName.replace('/', '.').replace('$', '.');
+
+        ClassInfo sourceClass = findSourceClass(internalName, fqName);
+        if (sourceClass != null) return sourceClass;
+
+        ClassInfo info = libraryClasses.get(internalName);
+        if (info == null) {
+            info = findLibraryClass(internalName, fqName);
+            if (libraryClasses.putIfAbsent(internalName, info) == null && info == ClassInfo.UNKNOWN) {
+                // Frames computed with java/lang/Object instead of the real common superclass may fail verification
+                LOG.warn("Class " + internalName + " is not found on the class path, " +
+                         OBJECT + " is used as its common superclass with other classes in stack map frames");
+            }
+        }
+        return info;
+    }
+
+    @Nullable
+    private ClassInfo findSourceClass(@NotNull String internalName, @NotNull String fqName) {
+        ClassDescriptor descriptor = state.getBindingContext().get(BindingContext.FQNAME_TO_CLASS_DESCRIPTOR, new FqName(fqName));
+        if (descriptor == null || !internalName.equals(state.getTypeMapper().mapClass(descriptor).getInternalName())) return null;
+
+        if (isInterface(descriptor)) return new ClassInfo(OBJECT, true);
+        return new ClassInfo(state.getTypeMapper().mapType(getSuperClass(descriptor)).getInternalName(), false);
+    }
+
+    @NotNull
+    private ClassInfo findLibraryClass(@NotNull String internalName, @NotNull String fqName) {
+        Project project = state.getProject();
+        PsiClass psiClass = JavaPsiFacade.getInstance(project).findClass(fqName, GlobalSearchScope.allScope(project));
+        if (psiClass == null || !internalName.equals(getInternalName(psiClass))) return ClassInfo.UNKNOWN;
+
+        PsiClass superClass = psiClass.getSuperClass();
+        String superName = superClass != null ? getInternalName(superClass) : null;
+        return new ClassInfo(superName != null ? superName : OBJECT, psiClass.isInterface());
+    }
+
+    @Nullable
+    private static String getInternalName(@NotNull PsiClass psiClass) {
+        PsiClass containingClass = psiClass.getContainingClass();
+        if (containingClass != null) {
+            String containingName = getInternalName(containingClass);
+            return containingName != null ? containingName + "$" + psiClass.getName() : null;
+        }
+        String qualifiedName = psiClass.getQualifiedName();
+        return qualifiedName != null ? qualifiedName.replace('.', '/') : null;
+    }
+}
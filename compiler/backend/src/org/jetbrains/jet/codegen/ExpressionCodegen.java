@@ -36,6 +36,8 @@ import org.jetbrains.jet.codegen.binding.CalculatedClosure;
 import org.jetbrains.jet.codegen.binding.CodegenBinding;
 import org.jetbrains.jet.codegen.binding.MutableClosure;
 import org.jetbrains.jet.codegen.context.*;
+import org.jetbrains.jet.codegen.intrinsics.ArrayIndices;
+import org.jetbrains.jet.codegen.intrinsics.Concat;
 import org.jetbrains.jet.codegen.intrinsics.IntrinsicMethod;
 import org.jetbrains.jet.codegen.signature.JvmMethodSignature;
 import org.jetbrains.jet.codegen.state.GenerationState;
@@ -81,7 +83,6 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
     private static final String CLASS_NO_PATTERN_MATCHED_EXCEPTION = "jet/NoPatternMatchedException";
     private static final String CLASS_TYPE_CAST_EXCEPTION = "jet/TypeCastException";
-    public static final Set<DeclarationDescriptor> INTEGRAL_RANGES = KotlinBuiltIns.getInstance().getIntegralRanges();
 
     private int myLastLineNumber = -1;
 
@@ -109,6 +110,12 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
      */
     private final Map<JetElement, StackValue.Local> tempVariables = Maps.newHashMap();
 
+    /*
+     * The beginning of the body of a tail-recursive function, recursive calls in tail position jump here (see TailRecursionCodegen)
+     */
+    @Nullable
+    private Label tailRecursionStart = null;
+
     public CalculatedClosure generateObjectLiteral(GenerationState state, JetObjectLiteralExpression literal) {
         JetObjectDeclaration objectDeclaration = literal.getObjectDeclaration();
 
@@ -224,6 +231,17 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         return localVariableNames;
     }
 
+    public void markTailRecursionStart() {
+        assert tailRecursionStart == null : "Tail recursion start is already marked";
+        tailRecursionStart = new Label();
+        v.mark(tailRecursionStart);
+    }
+
+    @Nullable
+    Label getTailRecursionStart() {
+        return tailRecursionStart;
+    }
+
     @Nullable
     @Override
     public MemberCodegen getParentCodegen() {
@@ -491,6 +509,14 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
 
         JetExpression loopRange = forExpression.getLoopRange();
+        assert loopRange != null;
+        // Is it a "n downTo 0 step 2" or so
+        ProgressionLiteral progressionLiteral = getProgressionLiteral(loopRange);
+        if (progressionLiteral != null) {
+            generateForLoop(new ForInProgressionLiteralLoopGenerator(forExpression, progressionLiteral));
+            return StackValue.none();
+        }
+
         JetType loopRangeType = bindingContext.get(BindingContext.EXPRESSION_TYPE, loopRange);
         assert loopRangeType != null;
         Type asmLoopRangeType = asmType(loopRangeType);
@@ -678,15 +704,15 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
                 task.run();
             }
         }
+    }
 
-        // This method consumes range/progression from stack
-        // The result is stored to local variable
-        protected void generateRangeOrProgressionProperty(Type loopRangeType, String getterName, Type elementType, int varToStore) {
-            Type boxedType = boxType(elementType);
-            v.invokevirtual(loopRangeType.getInternalName(), getterName, "()" + boxedType.getDescriptor());
-            StackValue.coerce(boxedType, elementType, v);
-            v.store(varToStore, elementType);
-        }
+    // This method consumes range/progression from stack
+    // The result is stored to local variable
+    private void generateRangeOrProgressionProperty(Type loopRangeType, String getterName, Type elementType, int varToStore) {
+        Type boxedType = boxType(elementType);
+        v.invokevirtual(loopRangeType.getInternalName(), getterName, "()" + boxedType.getDescriptor());
+        StackValue.coerce(boxedType, elementType, v);
+        v.store(varToStore, elementType);
     }
 
     private class IteratorForLoopGenerator extends AbstractForLoopGenerator {
@@ -993,13 +1019,13 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
-    private class ForInProgressionExpressionLoopGenerator extends AbstractForInProgressionOrRangeLoopGenerator {
-        private int incrementVar;
-        private Type incrementType;
+    private abstract class AbstractForInProgressionLoopGenerator extends AbstractForInProgressionOrRangeLoopGenerator {
+        protected int incrementVar;
+        protected Type incrementType;
 
         private int finalVar;
 
-        private ForInProgressionExpressionLoopGenerator(@NotNull JetForExpression forExpression) {
+        private AbstractForInProgressionLoopGenerator(@NotNull JetForExpression forExpression) {
             super(forExpression);
         }
 
@@ -1014,25 +1040,14 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
             incrementVar = createLoopTempVariable(asmElementType);
 
-            JetType loopRangeType = bindingContext.get(EXPRESSION_TYPE, forExpression.getLoopRange());
-            assert loopRangeType != null;
-            Type asmLoopRangeType = asmType(loopRangeType);
-
-            Collection<VariableDescriptor> incrementProp = loopRangeType.getMemberScope().getProperties(Name.identifier("increment"));
-            assert incrementProp.size() == 1 : loopRangeType + " " + incrementProp.size();
-            incrementType = asmType(incrementProp.iterator().next().getType());
-
-            gen(forExpression.getLoopRange(), asmLoopRangeType);
-            v.dup();
-            v.dup();
-
-            generateRangeOrProgressionProperty(asmLoopRangeType, "getStart", asmElementType, loopParameterVar);
-            generateRangeOrProgressionProperty(asmLoopRangeType, "getEnd", asmElementType, endVar);
-            generateRangeOrProgressionProperty(asmLoopRangeType, "getIncrement", incrementType, incrementVar);
+            storeProgressionParts();
 
             storeFinalVar();
         }
 
+        // Stores the first element to loopParameterVar, the end to endVar and the increment of type incrementType to incrementVar
+        protected abstract void storeProgressionParts();
+
         private void storeFinalVar() {
             if (!isIntegerProgression) {
                 finalVar = -1;
@@ -1146,6 +1161,271 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
+    private class ForInProgressionExpressionLoopGenerator extends AbstractForInProgressionLoopGenerator {
+        private ForInProgressionExpressionLoopGenerator(@NotNull JetForExpression forExpression) {
+            super(forExpression);
+        }
+
+        @Override
+        protected void storeProgressionParts() {
+            JetType loopRangeType = bindingContext.get(EXPRESSION_TYPE, forExpression.getLoopRange());
+            assert loopRangeType != null;
+            Type asmLoopRangeType = asmType(loopRangeType);
+
+            Collection<VariableDescriptor> incrementProp = loopRangeType.getMemberScope().getProperties(Name.identifier("increment"));
+            assert incrementProp.size() == 1 : loopRangeType + " " + incrementProp.size();
+            incrementType = asmType(incrementProp.iterator().next().getType());
+
+            gen(forExpression.getLoopRange(), asmLoopRangeType);
+            v.dup();
+            v.dup();
+
+            generateRangeOrProgressionProperty(asmLoopRangeType, "getStart", asmElementType, loopParameterVar);
+            generateRangeOrProgressionProperty(asmLoopRangeType, "getEnd", asmElementType, endVar);
+            generateRangeOrProgressionProperty(asmLoopRangeType, "getIncrement", incrementType, incrementVar);
+        }
+    }
+
+    private class ForInProgressionLiteralLoopGenerator extends AbstractForInProgressionLoopGenerator {
+        private final ProgressionLiteral progression;
+
+        private ForInProgressionLiteralLoopGenerator(@NotNull JetForExpression forExpression, @NotNull ProgressionLiteral progression) {
+            super(forExpression);
+            this.progression = progression;
+        }
+
+        @Override
+        protected void storeProgressionParts() {
+            incrementType = asmElementType.getSort() == Type.LONG ? Type.LONG_TYPE : Type.INT_TYPE;
+            progression.store(loopParameterVar, endVar, incrementVar, asmElementType, incrementType);
+        }
+    }
+
+    /**
+     * Integral progression built by a chain of calls of downTo(), step(), reversed() or indices, e.g. "(0..n).reversed() step 2".
+     * The loop computes the start, the end and the increment directly instead of creating the progression and its iterator
+     */
+    private abstract class ProgressionLiteral {
+        // Evaluates the progression, storing its parts to the given variables
+        public abstract void store(int startVar, int endVar, int incrementVar, @NotNull Type elementType, @NotNull Type incrementType);
+    }
+
+    @Nullable
+    private ProgressionLiteral getProgressionLiteral(@NotNull JetExpression expression) {
+        JetType type = bindingContext.get(EXPRESSION_TYPE, expression);
+        if (type == null || !RangeCodegenUtil.isIntegralRangeOrProgression(type)) return null;
+
+        JetExpression deparenthesized = JetPsiUtil.deparenthesize(expression);
+
+        // a.reversed(), a.indices
+        if (deparenthesized instanceof JetDotQualifiedExpression) {
+            JetDotQualifiedExpression qualified = (JetDotQualifiedExpression) deparenthesized;
+            JetExpression selector = qualified.getSelectorExpression();
+            final JetExpression receiver = qualified.getReceiverExpression();
+            if (selector instanceof JetSimpleNameExpression) {
+                ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, selector);
+                if (resolvedCall != null) {
+                    ProgressionLiteral indices = getIndicesLiteral(receiver, resolvedCall.getResultingDescriptor());
+                    if (indices != null) return indices;
+                }
+            }
+            else if (selector instanceof JetCallExpression && ((JetCallExpression) selector).getValueArguments().isEmpty()) {
+                ResolvedCall<? extends CallableDescriptor> resolvedCall =
+                        bindingContext.get(RESOLVED_CALL, ((JetCallExpression) selector).getCalleeExpression());
+                if (resolvedCall != null && RangeCodegenUtil.isStdlibRangeExtension(resolvedCall.getResultingDescriptor(), "reversed")) {
+                    final ProgressionLiteral reversed = getProgressionLiteralOrInstance(receiver);
+                    if (reversed != null) {
+                        return new ProgressionLiteral() {
+                            @Override
+                            public void store(int startVar, int endVar, int incrementVar, @NotNull Type elementType, @NotNull Type incrementType) {
+                                reversed.store(endVar, startVar, incrementVar, elementType, incrementType);
+                                v.load(incrementVar, incrementType);
+                                v.neg(incrementType);
+                                v.store(incrementVar, incrementType);
+                            }
+                        };
+                    }
+                }
+            }
+        }
+
+        // a downTo b, a step b
+        final RangeCodegenUtil.BinaryCall binaryCall = RangeCodegenUtil.getRangeAsBinaryCall(expression);
+        if (binaryCall == null || binaryCall.left == null || binaryCall.right == null) return null;
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, binaryCall.op);
+        if (resolvedCall == null) return null;
+
+        if (RangeCodegenUtil.isStdlibRangeExtension(resolvedCall.getResultingDescriptor(), "downTo")) {
+            return new ProgressionLiteral() {
+                @Override
+                public void store(int startVar, int endVar, int incrementVar, @NotNull Type elementType, @NotNull Type incrementType) {
+                    gen(binaryCall.left, elementType);
+                    v.store(startVar, elementType);
+                    gen(binaryCall.right, elementType);
+                    v.store(endVar, elementType);
+                    genIncrementConstant(incrementType, -1);
+                    v.store(incrementVar, incrementType);
+                }
+            };
+        }
+
+        if (RangeCodegenUtil.isStdlibRangeExtension(resolvedCall.getResultingDescriptor(), "step")) {
+            final ProgressionLiteral stepped = getProgressionLiteralOrInstance(binaryCall.left);
+            if (stepped == null) return null;
+            return new ProgressionLiteral() {
+                @Override
+                public void store(int startVar, int endVar, int incrementVar, @NotNull Type elementType, @NotNull Type incrementType) {
+                    stepped.store(startVar, endVar, incrementVar, elementType, incrementType);
+                    int stepVar = myFrameMap.enterTemp(incrementType);
+                    gen(binaryCall.right, incrementType);
+                    v.store(stepVar, incrementType);
+                    genCheckStepIsPositive(stepVar, incrementType);
+
+                    // increment = if (increment > 0) step else -step
+                    Label positive = new Label();
+                    Label done = new Label();
+                    v.load(incrementVar, incrementType);
+                    genCompareWithZero(incrementType);
+                    v.ifgt(positive);
+                    v.load(stepVar, incrementType);
+                    v.neg(incrementType);
+                    v.goTo(done);
+                    v.mark(positive);
+                    v.load(stepVar, incrementType);
+                    v.mark(done);
+                    v.store(incrementVar, incrementType);
+
+                    myFrameMap.leaveTemp(incrementType);
+                }
+            };
+        }
+
+        if (RangeCodegenUtil.isOptimizableRangeTo(resolvedCall.getResultingDescriptor())) {
+            return new ProgressionLiteral() {
+                @Override
+                public void store(int startVar, int endVar, int incrementVar, @NotNull Type elementType, @NotNull Type incrementType) {
+                    gen(binaryCall.left, elementType);
+                    v.store(startVar, elementType);
+                    gen(binaryCall.right, elementType);
+                    v.store(endVar, elementType);
+                    genIncrementConstant(incrementType, 1);
+                    v.store(incrementVar, incrementType);
+                }
+            };
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the literal for the given expression, or a progression reading the parts of an existing range or progression object
+     */
+    @Nullable
+    private ProgressionLiteral getProgressionLiteralOrInstance(@NotNull final JetExpression expression) {
+        ProgressionLiteral literal = getProgressionLiteral(expression);
+        if (literal != null) return literal;
+
+        JetType type = bindingContext.get(EXPRESSION_TYPE, expression);
+        if (type == null || !RangeCodegenUtil.isIntegralRangeOrProgression(type)) return null;
+        final Type asmRangeType = asmType(type);
+        return new ProgressionLiteral() {
+            @Override
+            public void store(int startVar, int endVar, int incrementVar, @NotNull Type elementType, @NotNull Type incrementType) {
+                gen(expression, asmRangeType);
+                v.dup();
+                v.dup();
+                generateRangeOrProgressionProperty(asmRangeType, "getStart", elementType, startVar);
+                generateRangeOrProgressionProperty(asmRangeType, "getEnd", elementType, endVar);
+                generateRangeOrProgressionProperty(asmRangeType, "getIncrement", incrementType, incrementVar);
+            }
+        };
+    }
+
+    @Nullable
+    private ProgressionLiteral getIndicesLiteral(@NotNull final JetExpression receiver, @NotNull CallableDescriptor descriptor) {
+        if (!"indices".equals(descriptor.getName().asString())) return null;
+
+        final Type asmReceiverType;
+        final boolean isArray;
+        CallableDescriptor original = descriptor.getOriginal();
+        if (original instanceof CallableMemberDescriptor &&
+            state.getIntrinsics().getIntrinsic((CallableMemberDescriptor) original) instanceof ArrayIndices) {
+            JetType receiverType = bindingContext.get(EXPRESSION_TYPE, receiver);
+            if (receiverType == null) return null;
+            asmReceiverType = asmType(receiverType);
+            isArray = true;
+        }
+        else if (RangeCodegenUtil.isStdlibRangeExtension(descriptor, "indices")) {
+            // Collection<*>.indices or Int.indices
+            ReceiverParameterDescriptor receiverParameter = descriptor.getReceiverParameter();
+            assert receiverParameter != null : descriptor;
+            asmReceiverType = asmType(receiverParameter.getType());
+            if (asmReceiverType.getSort() != Type.INT && !asmReceiverType.getInternalName().equals("java/util/Collection")) return null;
+            isArray = false;
+        }
+        else {
+            return null;
+        }
+
+        return new ProgressionLiteral() {
+            @Override
+            public void store(int startVar, int endVar, int incrementVar, @NotNull Type elementType, @NotNull Type incrementType) {
+                gen(receiver, asmReceiverType);
+                if (isArray) {
+                    v.arraylength();
+                }
+                else if (asmReceiverType.getSort() != Type.INT) {
+                    v.invokeinterface("java/util/Collection", "size", "()I");
+                }
+                // 0..size-1
+                v.iconst(1);
+                v.sub(Type.INT_TYPE);
+                v.store(endVar, Type.INT_TYPE);
+
+                v.iconst(0);
+                v.store(startVar, Type.INT_TYPE);
+                v.iconst(1);
+                v.store(incrementVar, Type.INT_TYPE);
+            }
+        };
+    }
+
+    private void genIncrementConstant(@NotNull Type incrementType, int value) {
+        if (incrementType.getSort() == Type.LONG) {
+            v.lconst(value);
+        }
+        else {
+            v.iconst(value);
+        }
+    }
+
+    // Replaces the value on the stack with its comparison with zero, as the first operand of ifgt() and friends
+    private void genCompareWithZero(@NotNull Type type) {
+        if (type.getSort() == Type.LONG) {
+            v.lconst(0L);
+            v.lcmp();
+        }
+    }
+
+    private void genCheckStepIsPositive(int stepVar, @NotNull Type stepType) {
+        Label positive = new Label();
+        v.load(stepVar, stepType);
+        genCompareWithZero(stepType);
+        v.ifgt(positive);
+
+        // The same exception as thrown by step() from the standard library
+        v.anew(Type.getObjectType("java/lang/IllegalArgumentException"));
+        v.dup();
+        v.aconst("Step must be positive, was: ");
+        v.load(stepVar, stepType);
+        v.invokestatic("java/lang/String", "valueOf", Type.getMethodDescriptor(JAVA_STRING_TYPE, stepType));
+        v.invokevirtual("java/lang/String", "concat", "(Ljava/lang/String;)Ljava/lang/String;");
+        v.invokespecial("java/lang/IllegalArgumentException", "<init>", "(Ljava/lang/String;)V");
+        v.athrow();
+
+        v.mark(positive);
+    }
+
 
     @Override
     public StackValue visitBreakExpression(@NotNull JetBreakExpression expression, StackValue receiver) {
@@ -1237,47 +1517,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
     @Override
     public StackValue visitStringTemplateExpression(@NotNull JetStringTemplateExpression expression, StackValue receiver) {
-        StringBuilder constantValue = new StringBuilder("");
-        JetStringTemplateEntry[] entries = expression.getEntries();
-
-        if (entries.length == 1 && entries[0] instanceof JetStringTemplateEntryWithExpression) {
-            JetExpression expr = entries[0].getExpression();
-            return genToString(v, gen(expr), expressionType(expr));
-        }
-
-        for (JetStringTemplateEntry entry : entries) {
-            if (entry instanceof JetLiteralStringTemplateEntry) {
-                constantValue.append(entry.getText());
-            }
-            else if (entry instanceof JetEscapeStringTemplateEntry) {
-                constantValue.append(((JetEscapeStringTemplateEntry) entry).getUnescapedValue());
-            }
-            else {
-                constantValue = null;
-                break;
-            }
-        }
-        if (constantValue != null) {
-            Type type = expressionType(expression);
-            return StackValue.constant(constantValue.toString(), type);
-        }
-        else {
-            genStringBuilderConstructor(v);
-            for (JetStringTemplateEntry entry : entries) {
-                if (entry instanceof JetStringTemplateEntryWithExpression) {
-                    invokeAppend(entry.getExpression());
-                }
-                else {
-                    String text = entry instanceof JetEscapeStringTemplateEntry
-                                  ? ((JetEscapeStringTemplateEntry) entry).getUnescapedValue()
-                                  : entry.getText();
-                    v.aconst(text);
-                    genInvokeAppendMethod(v, JAVA_STRING_TYPE);
-                }
-            }
-            v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
-            return StackValue.onStack(AsmTypeConstants.JAVA_STRING_TYPE);
-        }
+        return genStringConcatenation(Collections.<JetExpression>singletonList(expression));
     }
 
     @Override
@@ -2011,7 +2251,13 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         Callable callable = resolveToCallable(fd, superCall);
         if (callable instanceof CallableMethod) {
             CallableMethod callableMethod = (CallableMethod) callable;
-            invokeMethodWithArguments(callableMethod, resolvedCall, call, receiver);
+            if (superCall) {
+                invokeMethodWithArguments(callableMethod, resolvedCall, call, receiver);
+            }
+            else if (!TailRecursionCodegen.generateTailCallIfPossible(this, callableMethod, resolvedCall, call, receiver) &&
+                     !InlineCodegen.inlineCallIfPossible(this, fd, callableMethod, resolvedCall, call, receiver)) {
+                invokeMethodWithArguments(callableMethod, resolvedCall, call, receiver);
+            }
 
             Type callReturnType = callableMethod.getSignature().getAsmMethod().getReturnType();
             return returnValueAsStackValue(fd, callReturnType);
@@ -2313,7 +2559,7 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         return false;
     }
 
-    private int pushMethodArguments(@NotNull ResolvedCall resolvedCall, List<Type> valueParameterTypes) {
+    int pushMethodArguments(@NotNull ResolvedCall resolvedCall, List<Type> valueParameterTypes) {
         @SuppressWarnings("unchecked")
         List<ResolvedValueArgument> valueArguments = resolvedCall.getValueArgumentsByIndex();
         CallableDescriptor fd = resolvedCall.getResultingDescriptor();
@@ -2684,10 +2930,11 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
 
     private StackValue generateIn(JetBinaryExpression expression) {
         boolean inverted = expression.getOperationReference().getReferencedNameElementType() == JetTokens.NOT_IN;
-        if (isIntRangeExpr(expression.getRight())) {
-            StackValue leftValue = StackValue.expression(Type.INT_TYPE, expression.getLeft(), this);
-            JetBinaryExpression rangeExpression = (JetBinaryExpression) expression.getRight();
-            getInIntRange(leftValue, rangeExpression, inverted);
+        RangeCodegenUtil.BinaryCall rangeLiteral = getPrimitiveRangeLiteral(expression.getRight());
+        if (rangeLiteral != null) {
+            Type elementType = getInElementType(expression.getOperationReference());
+            StackValue leftValue = StackValue.expression(elementType, expression.getLeft(), this);
+            generateInPrimitiveRange(leftValue, rangeLiteral, elementType, inverted);
         }
         else {
             invokeFunctionByReference(expression.getOperationReference());
@@ -2698,42 +2945,64 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         return StackValue.onStack(Type.BOOLEAN_TYPE);
     }
 
-    private void getInIntRange(StackValue leftValue, JetBinaryExpression rangeExpression, boolean inverted) {
-        v.iconst(1);
-        // 1
-        leftValue.put(Type.INT_TYPE, v);
-        // 1 l
-        v.dup2();
-        // 1 l 1 l
+    /**
+     * Generates start <= element && element <= end without creating a range: the element and the bounds are evaluated
+     * exactly once, in this order, as in the original (non-short-circuit) check
+     */
+    private void generateInPrimitiveRange(
+            @NotNull StackValue element,
+            @NotNull RangeCodegenUtil.BinaryCall rangeLiteral,
+            @NotNull Type elementType,
+            boolean inverted
+    ) {
+        int elementLocal = myFrameMap.enterTemp(elementType);
+        element.put(elementType, v);
+        v.store(elementLocal, elementType);
 
-        //noinspection ConstantConditions
-        gen(rangeExpression.getLeft(), Type.INT_TYPE);
-        // 1 l 1 l r
-        Label lok = new Label();
-        v.ificmpge(lok);
-        // 1 l 1
-        v.pop();
-        v.iconst(0);
-        v.mark(lok);
-        // 1 l c
-        v.dupX2();
-        // c 1 l c
-        v.pop();
-        // c 1 l
+        int startLocal = myFrameMap.enterTemp(elementType);
+        gen(rangeLiteral.left, elementType);
+        v.store(startLocal, elementType);
 
-        gen(rangeExpression.getRight(), Type.INT_TYPE);
-        // c 1 l r
-        Label rok = new Label();
-        v.ificmple(rok);
-        // c 1
-        v.pop();
-        v.iconst(0);
-        v.mark(rok);
-        // c c
+        gen(rangeLiteral.right, elementType);
+        // end
 
-        v.and(Type.INT_TYPE);
-        if (inverted) {
-            genInvertBoolean(v);
+        Label outside = new Label();
+        v.load(elementLocal, elementType);
+        // end element
+        genJumpIfLess(elementType, outside);
+
+        v.load(elementLocal, elementType);
+        v.load(startLocal, elementType);
+        // element start
+        genJumpIfLess(elementType, outside);
+
+        Label done = new Label();
+        v.iconst(inverted ? 0 : 1);
+        v.goTo(done);
+        v.mark(outside);
+        v.iconst(inverted ? 1 : 0);
+        v.mark(done);
+
+        myFrameMap.leaveTemp(elementType);
+        myFrameMap.leaveTemp(elementType);
+    }
+
+    /**
+     * Pops two values of the given primitive type and jumps if the first one is less than the second one.
+     * Comparisons with NaN jump too, so that NaN is never in a range
+     */
+    private void genJumpIfLess(@NotNull Type type, @NotNull Label label) {
+        int sort = type.getSort();
+        if (sort == Type.LONG) {
+            v.lcmp();
+            v.iflt(label);
+        }
+        else if (sort == Type.FLOAT || sort == Type.DOUBLE) {
+            v.cmpl(type);
+            v.iflt(label);
+        }
+        else {
+            v.ificmplt(label);
         }
     }
 
@@ -2960,25 +3229,133 @@ public class ExpressionCodegen extends JetVisitor<StackValue, StackValue> implem
         }
     }
 
-    public void invokeAppend(JetExpression expr) {
-        if (expr instanceof JetBinaryExpression) {
-            JetBinaryExpression binaryExpression = (JetBinaryExpression) expr;
-            if (binaryExpression.getOperationToken() == JetTokens.PLUS) {
-                JetExpression left = binaryExpression.getLeft();
-                JetExpression right = binaryExpression.getRight();
-                Type leftType = expressionType(left);
-                Type rightType = expressionType(right);
+    /**
+     * Generates the concatenation of the string representations of the operands with a single StringBuilder:
+     * nested templates and String.plus calls are flattened, adjacent constant parts are merged into one literal
+     * and the builder is presized by the length of the literal parts.
+     */
+    @NotNull
+    public StackValue genStringConcatenation(@NotNull List<JetExpression> operands) {
+        List<Object> parts = new ArrayList<Object>();
+        for (JetExpression operand : operands) {
+            collectStringConcatenationParts(operand, parts);
+        }
+
+        if (parts.isEmpty()) {
+            return StackValue.constant("", JAVA_STRING_TYPE);
+        }
+        if (parts.size() == 1) {
+            Object part = parts.get(0);
+            if (part instanceof String) {
+                return StackValue.constant(part, JAVA_STRING_TYPE);
+            }
+            JetExpression expression = (JetExpression) part;
+            return genToString(v, gen(expression), expressionType(expression));
+        }
+
+        int literalLength = 0;
+        for (Object part : parts) {
+            if (part instanceof String) {
+                literalLength += ((String) part).length();
+            }
+        }
+        if (literalLength > 0) {
+            genStringBuilderConstructor(v, literalLength + 16);
+        }
+        else {
+            genStringBuilderConstructor(v);
+        }
+
+        appendStringConcatenationParts(parts);
+        v.invokevirtual("java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+        return StackValue.onStack(JAVA_STRING_TYPE);
+    }
+
+    public void invokeAppend(@NotNull JetExpression expression) {
+        List<Object> parts = new ArrayList<Object>();
+        collectStringConcatenationParts(expression, parts);
+        appendStringConcatenationParts(parts);
+    }
+
+    private void appendStringConcatenationParts(@NotNull List<Object> parts) {
+        for (Object part : parts) {
+            if (part instanceof String) {
+                v.aconst(part);
+                genInvokeAppendMethod(v, JAVA_STRING_TYPE);
+            }
+            else {
+                JetExpression expression = (JetExpression) part;
+                Type type = expressionType(expression);
+                gen(expression, type);
+                genInvokeAppendMethod(v, type.getSort() == Type.ARRAY ? OBJECT_TYPE : type);
+            }
+        }
+    }
+
+    private void collectStringConcatenationParts(@NotNull JetExpression operand, @NotNull List<Object> parts) {
+        JetExpression expression = JetPsiUtil.deparenthesize(operand);
+        if (expression == null) {
+            expression = operand;
+        }
 
-                if (leftType.equals(JAVA_STRING_TYPE) && rightType.equals(JAVA_STRING_TYPE)) {
-                    invokeAppend(left);
-                    invokeAppend(right);
-                    return;
+        CompileTimeConstant<?> constant = bindingContext.get(COMPILE_TIME_VALUE, expression);
+        if (constant != null) {
+            Object value = constant.getValue();
+            if (value instanceof String || value instanceof Number || value instanceof Character || value instanceof Boolean) {
+                addStringConcatenationLiteral(String.valueOf(value), parts);
+                return;
+            }
+        }
+
+        if (expression instanceof JetStringTemplateExpression) {
+            for (JetStringTemplateEntry entry : ((JetStringTemplateExpression) expression).getEntries()) {
+                if (entry instanceof JetStringTemplateEntryWithExpression) {
+                    JetExpression entryExpression = entry.getExpression();
+                    if (entryExpression != null) {
+                        collectStringConcatenationParts(entryExpression, parts);
+                    }
+                }
+                else if (entry instanceof JetEscapeStringTemplateEntry) {
+                    addStringConcatenationLiteral(((JetEscapeStringTemplateEntry) entry).getUnescapedValue(), parts);
+                }
+                else {
+                    addStringConcatenationLiteral(entry.getText(), parts);
                 }
             }
+            return;
+        }
+
+        if (isStringConcatenation(expression)) {
+            JetBinaryExpression binaryExpression = (JetBinaryExpression) expression;
+            collectStringConcatenationParts(binaryExpression.getLeft(), parts);
+            collectStringConcatenationParts(binaryExpression.getRight(), parts);
+            return;
         }
-        Type exprType = expressionType(expr);
-        gen(expr, exprType);
-        genInvokeAppendMethod(v, exprType.getSort() == Type.ARRAY ? OBJECT_TYPE : exprType);
+
+        parts.add(expression);
+    }
+
+    private static void addStringConcatenationLiteral(@NotNull String text, @NotNull List<Object> parts) {
+        if (text.isEmpty()) return;
+        int last = parts.size() - 1;
+        if (last >= 0 && parts.get(last) instanceof String) {
+            parts.set(last, parts.get(last) + text);
+        }
+        else {
+            parts.add(text);
+        }
+    }
+
+    private boolean isStringConcatenation(@NotNull JetExpression expression) {
+        if (!(expression instanceof JetBinaryExpression)) return false;
+        JetBinaryExpression binaryExpression = (JetBinaryExpression) expression;
+        if (binaryExpression.getOperationToken() != JetTokens.PLUS || binaryExpression.getRight() == null) return false;
+
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, binaryExpression.getOperationReference());
+        if (resolvedCall == null) return false;
+        CallableDescriptor original = resolvedCall.getResultingDescriptor().getOriginal();
+        return original instanceof CallableMemberDescriptor &&
+               state.getIntrinsics().getIntrinsic((CallableMemberDescriptor) original) instanceof Concat;
     }
 
     @Nullable
@@ -3714,6 +4091,73 @@ The "returned" value of try expression with no finally is either the last expres
         Label end = new Label();
         boolean hasElse = JetPsiUtil.checkWhenExpressionHasSingleElse(expression);
 
+        SwitchCodegenUtil.SwitchTable switchTable =
+                subjectLocal != -1 ? SwitchCodegenUtil.buildSwitchTable(expression, subjectType, subjectJetType, bindingContext) : null;
+        if (switchTable != null) {
+            generateWhenAsSwitch(expression, switchTable, StackValue.local(subjectLocal, subjectType), resultType, hasElse, isStatement, end);
+        }
+        else {
+            generateWhenAsChain(expression, subjectType, subjectLocal, resultType, hasElse, isStatement, end);
+        }
+
+        markLineNumber(expression);
+        v.mark(end);
+
+        myFrameMap.leaveTemp(subjectType);
+        tempVariables.remove(expr);
+        return StackValue.onStack(resultType);
+    }
+
+    private void generateWhenAsSwitch(
+            @NotNull JetWhenExpression expression,
+            @NotNull SwitchCodegenUtil.SwitchTable switchTable,
+            @NotNull StackValue subject,
+            @NotNull Type resultType,
+            boolean hasElse,
+            boolean isStatement,
+            @NotNull Label end
+    ) {
+        List<JetWhenEntry> entries = expression.getEntries();
+        Label[] entryLabels = new Label[entries.size()];
+        Label noMatch = null;
+        for (int i = 0; i < entryLabels.length; i++) {
+            entryLabels[i] = new Label();
+            if (entries.get(i).isElse()) {
+                noMatch = entryLabels[i];
+            }
+        }
+        if (noMatch == null) {
+            noMatch = new Label();
+        }
+
+        switchTable.generateDispatch(v, subject, entryLabels, noMatch);
+
+        for (int i = 0; i < entryLabels.length; i++) {
+            JetWhenEntry whenEntry = entries.get(i);
+            FrameMap.Mark mark = myFrameMap.mark();
+            v.mark(entryLabels[i]);
+            gen(whenEntry.getExpression(), resultType);
+            mark.dropTo();
+            if (!whenEntry.isElse()) {
+                v.goTo(end);
+            }
+        }
+
+        if (!hasElse) {
+            v.mark(noMatch);
+            generateWhenNoMatch(expression, isStatement);
+        }
+    }
+
+    private void generateWhenAsChain(
+            @NotNull JetWhenExpression expression,
+            @NotNull Type subjectType,
+            int subjectLocal,
+            @NotNull Type resultType,
+            boolean hasElse,
+            boolean isStatement,
+            @NotNull Label end
+    ) {
         Label nextCondition = null;
         for (JetWhenEntry whenEntry : expression.getEntries()) {
             if (nextCondition != null) {
@@ -3744,25 +4188,22 @@ The "returned" value of try expression with no finally is either the last expres
         }
         if (!hasElse && nextCondition != null) {
             v.mark(nextCondition);
-            if (!isStatement) {
-                // a result is expected
-                if (Boolean.TRUE.equals(bindingContext.get(BindingContext.EXHAUSTIVE_WHEN, expression))) {
-                    // when() is supposed to be exhaustive
-                    throwNewException(CLASS_NO_PATTERN_MATCHED_EXCEPTION);
-                }
-                else {
-                    // non-exhaustive when() with no else -> Unit must be expected
-                    StackValue.putUnitInstance(v);
-                }
-            }
+            generateWhenNoMatch(expression, isStatement);
         }
+    }
 
-        markLineNumber(expression);
-        v.mark(end);
-
-        myFrameMap.leaveTemp(subjectType);
-        tempVariables.remove(expr);
-        return StackValue.onStack(resultType);
+    private void generateWhenNoMatch(@NotNull JetWhenExpression expression, boolean isStatement) {
+        if (!isStatement) {
+            // a result is expected
+            if (Boolean.TRUE.equals(bindingContext.get(BindingContext.EXHAUSTIVE_WHEN, expression))) {
+                // when() is supposed to be exhaustive
+                throwNewException(CLASS_NO_PATTERN_MATCHED_EXCEPTION);
+            }
+            else {
+                // non-exhaustive when() with no else -> Unit must be expected
+                StackValue.putUnitInstance(v);
+            }
+        }
     }
 
     private StackValue generateWhenCondition(Type subjectType, int subjectLocal, JetWhenCondition condition) {
@@ -3774,8 +4215,10 @@ The "returned" value of try expression with no finally is either the last expres
             }
             JetSimpleNameExpression operationReference = conditionInRange.getOperationReference();
             boolean inverted = operationReference.getReferencedNameElementType() == JetTokens.NOT_IN;
-            if (isIntRangeExpr(rangeExpression)) {
-                getInIntRange(new StackValue.Local(subjectLocal, subjectType), (JetBinaryExpression) rangeExpression, inverted);
+            RangeCodegenUtil.BinaryCall rangeLiteral = getPrimitiveRangeLiteral(rangeExpression);
+            if (rangeLiteral != null) {
+                generateInPrimitiveRange(StackValue.local(subjectLocal, subjectType), rangeLiteral, getInElementType(operationReference),
+                                         inverted);
             }
             else {
                 //FunctionDescriptor op =
@@ -3811,17 +4254,29 @@ The "returned" value of try expression with no finally is either the last expres
         invokeFunction(call, StackValue.none(), resolvedCall);
     }
 
-    private boolean isIntRangeExpr(JetExpression rangeExpression) {
-        if (rangeExpression instanceof JetBinaryExpression) {
-            JetBinaryExpression binaryExpression = (JetBinaryExpression) rangeExpression;
-            if (binaryExpression.getOperationReference().getReferencedNameElementType() == JetTokens.RANGE) {
-                JetType jetType = bindingContext.get(BindingContext.EXPRESSION_TYPE, rangeExpression);
-                assert jetType != null;
-                DeclarationDescriptor descriptor = jetType.getConstructor().getDeclarationDescriptor();
-                return INTEGRAL_RANGES.contains(descriptor);
-            }
-        }
-        return false;
+    /**
+     * @return the operands of a rangeTo() call on primitive numbers (e.g. "a..b" or "a.rangeTo(b)"), or null if the range is something else
+     */
+    @Nullable
+    private RangeCodegenUtil.BinaryCall getPrimitiveRangeLiteral(@Nullable JetExpression rangeExpression) {
+        if (rangeExpression == null) return null;
+        RangeCodegenUtil.BinaryCall binaryCall = RangeCodegenUtil.getRangeAsBinaryCall(rangeExpression);
+        if (binaryCall == null || binaryCall.left == null || binaryCall.right == null) return null;
+
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, binaryCall.op);
+        if (resolvedCall == null || !RangeCodegenUtil.isOptimizableRangeTo(resolvedCall.getResultingDescriptor())) return null;
+
+        JetType rangeType = bindingContext.get(BindingContext.EXPRESSION_TYPE, rangeExpression);
+        return rangeType != null && RangeCodegenUtil.isRange(rangeType) ? binaryCall : null;
+    }
+
+    @NotNull
+    private Type getInElementType(@NotNull JetSimpleNameExpression operationReference) {
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = bindingContext.get(RESOLVED_CALL, operationReference);
+        assert resolvedCall != null : "contains() should be resolved for " + operationReference.getText();
+        List<ValueParameterDescriptor> parameters = resolvedCall.getResultingDescriptor().getValueParameters();
+        assert parameters.size() == 1 : "contains() should have a single parameter: " + resolvedCall.getResultingDescriptor();
+        return asmType(parameters.get(0).getType());
     }
 
     private void throwNewException(@NotNull String className) {
@@ -32,6 +32,7 @@ import org.jetbrains.jet.codegen.binding.CodegenBinding;
 import org.jetbrains.jet.codegen.context.CodegenContext;
 import org.jetbrains.jet.codegen.context.MethodContext;
 import org.jetbrains.jet.codegen.context.NamespaceFacadeContext;
+import org.jetbrains.jet.codegen.optimization.OptimizationMethodVisitor;
 import org.jetbrains.jet.codegen.signature.JvmMethodParameterKind;
 import org.jetbrains.jet.codegen.signature.JvmMethodParameterSignature;
 import org.jetbrains.jet.codegen.signature.JvmMethodSignature;
@@ -103,12 +104,17 @@ public class FunctionCodegen extends ParentCodegenAwareImpl {
     ) {
         Method asmMethod = jvmSignature.getAsmMethod();
 
+        int flags = getMethodAsmFlags(functionDescriptor, methodContext.getContextKind());
         MethodVisitor mv = v.newMethod(origin,
-                                       getMethodAsmFlags(functionDescriptor, methodContext.getContextKind()),
+                                       flags,
                                        asmMethod.getName(),
                                        asmMethod.getDescriptor(),
                                        jvmSignature.getGenericsSignature(),
                                        null);
+        if (state.getClassBuilderMode() == ClassBuilderMode.FULL && !isAbstractMethod(functionDescriptor, methodContext.getContextKind())) {
+            mv = new OptimizationMethodVisitor(mv, flags, asmMethod.getName(), asmMethod.getDescriptor(),
+                                               jvmSignature.getGenericsSignature(), null);
+        }
 
         if (owner instanceof NamespaceFacadeContext) {
             Type ownerType = ((NamespaceFacadeContext) owner).getDelegateToClassType();
@@ -412,6 +418,8 @@ public class FunctionCodegen extends ParentCodegenAwareImpl {
     public static void endVisit(MethodVisitor mv, @Nullable String description, @Nullable PsiElement method) {
         try {
             mv.visitMaxs(-1, -1);
+            // Methods are optimized and written out at the end, see OptimizationMethodVisitor
+            mv.visitEnd();
         }
         catch (ProcessCanceledException e) {
             throw e;
@@ -425,7 +433,6 @@ public class FunctionCodegen extends ParentCodegenAwareImpl {
                     t.getMessage(),
                     t, method);
         }
-        mv.visitEnd();
     }
 
     static void generateBridgeIfNeeded(
@@ -25,7 +25,9 @@ import org.jetbrains.jet.codegen.signature.JvmMethodSignature;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.codegen.state.JetTypeMapper;
 import org.jetbrains.jet.lang.descriptors.CallableDescriptor;
+import org.jetbrains.jet.lang.descriptors.FunctionDescriptor;
 import org.jetbrains.jet.lang.psi.JetDeclarationWithBody;
+import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -80,6 +82,9 @@ public abstract class FunctionGenerationStrategy {
 
         @Override
         public void doGenerateBody(@NotNull ExpressionCodegen codegen, @NotNull JvmMethodSignature signature) {
+            if (callableDescriptor instanceof FunctionDescriptor && DescriptorUtils.isTailRecursive((FunctionDescriptor) callableDescriptor)) {
+                codegen.markTailRecursionStart();
+            }
             codegen.returnExpression(declaration.getBodyExpression());
         }
     }
@@ -39,7 +39,6 @@ import org.jetbrains.jet.codegen.context.MethodContext;
 import org.jetbrains.jet.codegen.signature.*;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.codegen.state.JetTypeMapper;
-import org.jetbrains.jet.descriptors.serialization.BitEncoding;
 import org.jetbrains.jet.descriptors.serialization.ClassData;
 import org.jetbrains.jet.descriptors.serialization.DescriptorSerializer;
 import org.jetbrains.jet.descriptors.serialization.ProtoBuf;
@@ -213,19 +212,25 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
 
     @Override
     protected void generateKotlinAnnotation() {
-        DescriptorSerializer serializer = new DescriptorSerializer(new JavaSerializerExtension(v.getSerializationBindings()));
+        JavaSerializerExtension extension = new JavaSerializerExtension(v.getSerializationBindings());
 
-        ProtoBuf.Class classProto = serializer.classProto(descriptor).build();
-
-        ClassData data = new ClassData(createNameResolver(serializer.getNameTable()), classProto);
-
-        AnnotationVisitor av = v.getVisitor().visitAnnotation(asmDescByFqNameWithoutInnerClasses(JvmAnnotationNames.KOTLIN_CLASS), true);
+        AnnotationVisitor av = v.newAnnotation(asmDescByFqNameWithoutInnerClasses(JvmAnnotationNames.KOTLIN_CLASS), true);
         av.visit(JvmAnnotationNames.ABI_VERSION_FIELD_NAME, JvmAbi.VERSION);
-        AnnotationVisitor array = av.visitArray(JvmAnnotationNames.DATA_FIELD_NAME);
-        for (String string : BitEncoding.encodeBytes(data.toBytes())) {
-            array.visit(null, string);
+
+        SharedNameTable nameTable = state.getFactory().getSharedNameTable(classAsmType);
+        if (nameTable != null) {
+            DescriptorSerializer serializer = new DescriptorSerializer(nameTable.getNameTable(), extension);
+            writeKotlinData(v, av, serializer.classProto(descriptor).build().toByteArray(), true);
+            nameTable.addUser(Collections.singletonList(myClass.getContainingFile()));
+            v.getVisitor().visitAttribute(nameTable.createChecksumAttribute());
         }
-        array.visitEnd();
+        else {
+            DescriptorSerializer serializer = new DescriptorSerializer(extension);
+            ProtoBuf.Class classProto = serializer.classProto(descriptor).build();
+            ClassData data = new ClassData(createNameResolver(serializer.getNameTable()), classProto);
+            writeKotlinData(v, av, data.toBytes(), state.isBinaryMetadata());
+        }
+
         av.visitEnd();
     }
 
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Label;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.InstructionAdapter;
+import org.jetbrains.asm4.commons.Method;
+import org.jetbrains.asm4.tree.*;
+import org.jetbrains.jet.codegen.state.GenerationState;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.calls.model.ExpressionValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.model.VariableAsFunctionResolvedCall;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.jetbrains.asm4.Opcodes.*;
+import static org.jetbrains.jet.lang.resolve.java.AsmTypeConstants.OBJECT_TYPE;
+
+/**
+ * Copies the bytecode of library functions marked as inline to their call sites (see {@link GenerationState#isInlineFunctions()}).
+ *
+ * Function literals passed to the parameters which the callee only invokes are not turned into closures: their bodies are
+ * generated right where the callee invokes them. Everything else falls back to a usual call:
+ * functions declared in the sources being compiled, members, calls with default or vararg arguments and functions which
+ * can't be copied to another class (see {@link InlineFunction})
+ */
+public final class InlineCodegen {
+    private InlineCodegen() {
+    }
+
+    /**
+     * @return true if the call was inlined and its result is on the stack
+     */
+    public static boolean inlineCallIfPossible(
+            @NotNull ExpressionCodegen codegen,
+            @NotNull FunctionDescriptor fd,
+            @NotNull CallableMethod callableMethod,
+            @NotNull ResolvedCall<? extends CallableDescriptor> resolvedCall,
+            @NotNull Call call,
+            @NotNull StackValue receiver
+    ) {
+        GenerationState state = codegen.getState();
+        if (!state.isInlineFunctions() || state.getClassBuilderMode() != ClassBuilderMode.FULL) return false;
+        if (!(fd instanceof SimpleFunctionDescriptor) || !((SimpleFunctionDescriptor) fd).isInline()) return false;
+        if (callableMethod.getInvokeOpcode() != INVOKESTATIC || callableMethod.getGenerateCalleeType() != null) return false;
+        if (resolvedCall instanceof VariableAsFunctionResolvedCall) return false;
+
+        BindingContext bindingContext = codegen.getBindingContext();
+        if (BindingContextUtils.descriptorToDeclaration(bindingContext, fd.getOriginal()) != null) return false;
+
+        List<ResolvedValueArgument> arguments = resolvedCall.getValueArgumentsByIndex();
+        List<ValueParameterDescriptor> parameters = fd.getValueParameters();
+        if (arguments.size() != parameters.size()) return false;
+
+        JetExpression[] argumentExpressions = new JetExpression[arguments.size()];
+        for (int i = 0; i < arguments.size(); i++) {
+            ResolvedValueArgument argument = arguments.get(i);
+            if (!(argument instanceof ExpressionValueArgument)) return false;
+            ValueArgument valueArgument = ((ExpressionValueArgument) argument).getValueArgument();
+            argumentExpressions[i] = valueArgument != null ? valueArgument.getArgumentExpression() : null;
+            if (argumentExpressions[i] == null) return false;
+        }
+
+        Method asmMethod = callableMethod.getSignature().getAsmMethod();
+        InlineFunction function = state.getInlineFunctionLoader().loadStaticFunction(callableMethod.getOwner(), asmMethod);
+        if (function == null) return false;
+
+        // The receiver, if any, is the first parameter of the static method
+        Type[] argumentTypes = asmMethod.getArgumentTypes();
+        int offset = argumentTypes.length - parameters.size();
+        if (offset < 0 || offset > 1) return false;
+
+        StackValue receiverValue = StackValue.receiver(resolvedCall, receiver, codegen, callableMethod);
+        if (offset == 0 && receiverValue.type != Type.VOID_TYPE) return false;
+
+        JetFunctionLiteral[] literals = new JetFunctionLiteral[parameters.size()];
+        for (int i = 0; i < parameters.size(); i++) {
+            if (function.isInvokedOnly(offset + i)) {
+                literals[i] = getInlinableLiteral(bindingContext, parameters.get(i), argumentExpressions[i]);
+            }
+        }
+
+        if (function.hasTryCatchBlocks() && !isStatementLike(call.getCallElement())) {
+            // Handlers start with an empty stack, so the values which the caller put on the stack before the call would be lost
+            return false;
+        }
+
+        new Inliner(codegen, function, literals).inline(receiverValue, argumentExpressions, argumentTypes, offset);
+        return true;
+    }
+
+    @Nullable
+    private static JetFunctionLiteral getInlinableLiteral(
+            @NotNull BindingContext bindingContext,
+            @NotNull ValueParameterDescriptor parameter,
+            @NotNull JetExpression argumentExpression
+    ) {
+        if (!KotlinBuiltIns.getInstance().isFunctionType(parameter.getType())) return null;
+
+        JetExpression expression = JetPsiUtil.deparenthesize(argumentExpression);
+        if (!(expression instanceof JetFunctionLiteralExpression)) return null;
+        if (Boolean.TRUE.equals(bindingContext.get(BindingContext.BLOCK, (JetFunctionLiteralExpression) expression))) return null;
+
+        JetFunctionLiteral literal = ((JetFunctionLiteralExpression) expression).getFunctionLiteral();
+        FunctionDescriptor descriptor = bindingContext.get(BindingContext.FUNCTION, literal);
+        if (descriptor == null || descriptor.getReceiverParameter() != null || descriptor.getReturnType() == null) return null;
+
+        JetBlockExpression body = literal.getBodyExpression();
+        return body != null && isSimpleBody(body) ? literal : null;
+    }
+
+    /**
+     * The body of a literal is generated in the frame of the caller, so it may not declare anything which would need
+     * the enclosing closure class, or return from it
+     */
+    private static boolean isSimpleBody(@NotNull JetBlockExpression body) {
+        final boolean[] simple = new boolean[] {true};
+        body.accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitJetElement(JetElement element) {
+                if (element instanceof JetFunctionLiteralExpression ||
+                    element instanceof JetObjectLiteralExpression ||
+                    element instanceof JetClassOrObject ||
+                    element instanceof JetNamedFunction ||
+                    element instanceof JetCallableReferenceExpression ||
+                    element instanceof JetReturnExpression ||
+                    element instanceof JetTryExpression) {
+                    simple[0] = false;
+                    return;
+                }
+                super.visitJetElement(element);
+            }
+        });
+        return simple[0];
+    }
+
+    /**
+     * @return true if nothing is left on the stack by the enclosing expressions when the given call is generated
+     */
+    private static boolean isStatementLike(@NotNull PsiElement callElement) {
+        PsiElement current = callElement;
+        while (true) {
+            PsiElement parent = current.getParent();
+            if (parent instanceof JetQualifiedExpression) {
+                if (((JetQualifiedExpression) parent).getSelectorExpression() != current) return false;
+            }
+            else if (parent instanceof JetProperty) {
+                return ((JetProperty) parent).isLocal() && ((JetProperty) parent).getInitializer() == current;
+            }
+            else if (parent instanceof JetDeclarationWithBody) {
+                return !(parent instanceof JetFunctionLiteral);
+            }
+            else if (!(parent instanceof JetParenthesizedExpression ||
+                       parent instanceof JetBlockExpression ||
+                       parent instanceof JetContainerNode ||
+                       parent instanceof JetIfExpression ||
+                       parent instanceof JetLoopExpression ||
+                       parent instanceof JetTryExpression ||
+                       parent instanceof JetCatchClause ||
+                       parent instanceof JetFinallySection ||
+                       parent instanceof JetReturnExpression)) {
+                return false;
+            }
+            current = parent;
+        }
+    }
+
+    private static class Inliner {
+        private final ExpressionCodegen codegen;
+        private final InstructionAdapter v;
+        private final FrameMap frameMap;
+        private final InlineFunction function;
+        private final JetFunctionLiteral[] literals;
+
+        private final Map<LabelNode, Label> labels = new HashMap<LabelNode, Label>();
+
+        private Inliner(@NotNull ExpressionCodegen codegen, @NotNull InlineFunction function, @NotNull JetFunctionLiteral[] literals) {
+            this.codegen = codegen;
+            this.v = codegen.v;
+            this.frameMap = codegen.myFrameMap;
+            this.function = function;
+            this.literals = literals;
+        }
+
+        public void inline(
+                @NotNull StackValue receiverValue,
+                @NotNull JetExpression[] argumentExpressions,
+                @NotNull Type[] argumentTypes,
+                int offset
+        ) {
+            MethodNode method = function.getMethod();
+
+            // The locals of the callee are shifted by the first free slot of the caller
+            FrameMap.Mark mark = frameMap.mark();
+            int base = 0;
+            for (int i = 0; i < method.maxLocals; i++) {
+                int index = frameMap.enterTemp(Type.INT_TYPE);
+                if (i == 0) base = index;
+            }
+
+            if (offset == 1) {
+                receiverValue.put(receiverValue.type, v);
+                StackValue.coerce(receiverValue.type, argumentTypes[0], v);
+            }
+            for (int i = 0; i < argumentExpressions.length; i++) {
+                if (literals[i] == null) {
+                    codegen.gen(argumentExpressions[i], argumentTypes[offset + i]);
+                }
+            }
+            for (int i = argumentTypes.length - 1; i >= 0; i--) {
+                if (i < offset || literals[i - offset] == null) {
+                    v.store(base + function.getParameterSlot(i), argumentTypes[i]);
+                }
+            }
+
+            Label end = new Label();
+            for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+                copyInstruction(insn, base, offset, end);
+            }
+            v.mark(end);
+
+            for (TryCatchBlockNode block : method.tryCatchBlocks) {
+                v.visitTryCatchBlock(getLabel(block.start), getLabel(block.end), getLabel(block.handler), block.type);
+            }
+
+            mark.dropTo();
+        }
+
+        private void copyInstruction(@NotNull AbstractInsnNode insn, int base, int offset, @NotNull Label end) {
+            int invoked = function.getInvokedParameter(insn);
+            if (invoked >= offset && literals[invoked - offset] != null) {
+                generateLiteralBody(literals[invoked - offset], Type.getArgumentTypes(((MethodInsnNode) insn).desc).length);
+                return;
+            }
+            int loaded = function.getLoadedParameter(insn);
+            if (loaded >= offset && literals[loaded - offset] != null) {
+                // The literal is never materialized, its body replaces the invocation
+                return;
+            }
+
+            int opcode = insn.getOpcode();
+            switch (insn.getType()) {
+                case AbstractInsnNode.LABEL:
+                    v.visitLabel(getLabel((LabelNode) insn));
+                    break;
+                case AbstractInsnNode.LINE:
+                case AbstractInsnNode.FRAME:
+                    break;
+                case AbstractInsnNode.VAR_INSN:
+                    v.visitVarInsn(opcode, base + ((VarInsnNode) insn).var);
+                    break;
+                case AbstractInsnNode.IINC_INSN:
+                    v.visitIincInsn(base + ((IincInsnNode) insn).var, ((IincInsnNode) insn).incr);
+                    break;
+                case AbstractInsnNode.JUMP_INSN:
+                    v.visitJumpInsn(opcode, getLabel(((JumpInsnNode) insn).label));
+                    break;
+                case AbstractInsnNode.TABLESWITCH_INSN: {
+                    TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+                    v.visitTableSwitchInsn(tableSwitch.min, tableSwitch.max, getLabel(tableSwitch.dflt), getLabels(tableSwitch.labels));
+                    break;
+                }
+                case AbstractInsnNode.LOOKUPSWITCH_INSN: {
+                    LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+                    int[] keys = new int[lookupSwitch.keys.size()];
+                    for (int i = 0; i < keys.length; i++) {
+                        keys[i] = lookupSwitch.keys.get(i);
+                    }
+                    v.visitLookupSwitchInsn(getLabel(lookupSwitch.dflt), keys, getLabels(lookupSwitch.labels));
+                    break;
+                }
+                default:
+                    if (opcode >= IRETURN && opcode <= RETURN) {
+                        // The result, if any, is the only value on the stack (see InlineFunction)
+                        v.goTo(end);
+                    }
+                    else {
+                        insn.accept(v);
+                    }
+            }
+        }
+
+        /**
+         * Generates the body of the literal in place of an invocation of the corresponding parameter: the arguments of the
+         * invocation are on the stack, the result is left on the stack as an object
+         */
+        private void generateLiteralBody(@NotNull JetFunctionLiteral literal, int arity) {
+            FunctionDescriptor descriptor = codegen.getBindingContext().get(BindingContext.FUNCTION, literal);
+            assert descriptor != null : "Function literal is not resolved: " + literal.getText();
+            List<ValueParameterDescriptor> parameters = descriptor.getValueParameters();
+            assert parameters.size() == arity : "Wrong number of arguments for " + literal.getText() + ": " + arity;
+
+            int[] arguments = new int[arity];
+            for (int i = 0; i < arity; i++) {
+                arguments[i] = frameMap.enterTemp(OBJECT_TYPE);
+            }
+            for (int i = arity - 1; i >= 0; i--) {
+                v.store(arguments[i], OBJECT_TYPE);
+            }
+
+            for (int i = 0; i < arity; i++) {
+                ValueParameterDescriptor parameter = parameters.get(i);
+                Type type = codegen.typeMapper.mapType(parameter);
+                int index = frameMap.enter(parameter, type);
+                v.load(arguments[i], OBJECT_TYPE);
+                StackValue.coerce(OBJECT_TYPE, type, v);
+                v.store(index, type);
+            }
+
+            //noinspection ConstantConditions
+            Type returnType = codegen.typeMapper.mapReturnType(descriptor.getReturnType());
+            //noinspection ConstantConditions
+            codegen.gen(literal.getBodyExpression(), returnType);
+            StackValue.coerce(returnType, OBJECT_TYPE, v);
+
+            for (int i = arity - 1; i >= 0; i--) {
+                frameMap.leave(parameters.get(i));
+            }
+            for (int i = 0; i < arity; i++) {
+                frameMap.leaveTemp(OBJECT_TYPE);
+            }
+        }
+
+        @NotNull
+        private Label getLabel(@NotNull LabelNode node) {
+            Label label = labels.get(node);
+            if (label == null) {
+                label = new Label();
+                labels.put(node, label);
+            }
+            return label;
+        }
+
+        @NotNull
+        private Label[] getLabels(@NotNull List<LabelNode> nodes) {
+            Label[] result = new Label[nodes.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = getLabel(nodes.get(i));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.tree.*;
+import org.jetbrains.asm4.tree.analysis.Analyzer;
+import org.jetbrains.asm4.tree.analysis.AnalyzerException;
+import org.jetbrains.asm4.tree.analysis.Frame;
+import org.jetbrains.asm4.tree.analysis.SourceInterpreter;
+import org.jetbrains.asm4.tree.analysis.SourceValue;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static org.jetbrains.asm4.Opcodes.*;
+
+/**
+ * Analyzed bytecode of a static library function which can be copied to a call site by {@link InlineCodegen}.
+ *
+ * A parameter of a function type is "invoked only" if the function does nothing with it but call its invoke(): such invocations
+ * can be replaced with the body of a function literal passed as the argument, so that no closure is created at the call site
+ */
+public final class InlineFunction {
+    private static final Pattern FUNCTION_TRAIT = Pattern.compile("jet/Function\\d+");
+
+    private final MethodNode method;
+    private final Type[] parameterTypes;
+    private final int[] parameterSlots;
+    private final boolean[] invokedOnly;
+
+    // Loads of invoked only parameters and the invocations consuming them, mapped to the parameter indices
+    private final Map<AbstractInsnNode, Integer> parameterLoads;
+    private final Map<AbstractInsnNode, Integer> parameterInvocations;
+
+    private InlineFunction(
+            @NotNull MethodNode method,
+            @NotNull Type[] parameterTypes,
+            @NotNull int[] parameterSlots,
+            @NotNull boolean[] invokedOnly,
+            @NotNull Map<AbstractInsnNode, Integer> parameterLoads,
+            @NotNull Map<AbstractInsnNode, Integer> parameterInvocations
+    ) {
+        this.method = method;
+        this.parameterTypes = parameterTypes;
+        this.parameterSlots = parameterSlots;
+        this.invokedOnly = invokedOnly;
+        this.parameterLoads = parameterLoads;
+        this.parameterInvocations = parameterInvocations;
+    }
+
+    @NotNull
+    public MethodNode getMethod() {
+        return method;
+    }
+
+    @NotNull
+    public Type getParameterType(int index) {
+        return parameterTypes[index];
+    }
+
+    public int getParameterSlot(int index) {
+        return parameterSlots[index];
+    }
+
+    public boolean isInvokedOnly(int parameterIndex) {
+        return invokedOnly[parameterIndex];
+    }
+
+    /**
+     * @return the index of the invoked only parameter loaded by the instruction, or -1
+     */
+    public int getLoadedParameter(@NotNull AbstractInsnNode insn) {
+        Integer index = parameterLoads.get(insn);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @return the index of the invoked only parameter invoked by the instruction, or -1
+     */
+    public int getInvokedParameter(@NotNull AbstractInsnNode insn) {
+        Integer index = parameterInvocations.get(insn);
+        return index != null ? index : -1;
+    }
+
+    public boolean hasTryCatchBlocks() {
+        return !method.tryCatchBlocks.isEmpty();
+    }
+
+    /**
+     * @return the analyzed function, or null if the method can't be copied to another class
+     */
+    @Nullable
+    static InlineFunction analyze(@NotNull ClassNode owner, @NotNull MethodNode method, @NotNull InlineFunctionLoader loader) {
+        AbstractInsnNode[] insns = method.instructions.toArray();
+        String ownerPackage = getPackage(owner.name);
+        for (AbstractInsnNode insn : insns) {
+            int opcode = insn.getOpcode();
+            if (opcode == JSR || opcode == RET || opcode == INVOKEDYNAMIC) return null;
+            if (!isAccessibleOutsidePackage(insn, ownerPackage, loader)) return null;
+        }
+
+        Frame<SourceValue>[] frames;
+        try {
+            frames = new Analyzer<SourceValue>(new SourceInterpreter()).analyze(owner.name, method);
+        }
+        catch (AnalyzerException e) {
+            return null;
+        }
+
+        // Returns are replaced with jumps to the end of the inlined code, so nothing but the result may be left on the stack
+        int resultSize = Type.getReturnType(method.desc) == Type.VOID_TYPE ? 0 : 1;
+        for (int i = 0; i < insns.length; i++) {
+            int opcode = insns[i].getOpcode();
+            if (opcode >= IRETURN && opcode <= RETURN && frames[i] != null && frames[i].getStackSize() != resultSize) return null;
+        }
+
+        Type[] parameterTypes = Type.getArgumentTypes(method.desc);
+        int[] parameterSlots = new int[parameterTypes.length];
+        Map<Integer, Integer> slotToParameter = new HashMap<Integer, Integer>();
+        int slot = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterSlots[i] = slot;
+            if (parameterTypes[i].getSort() == Type.OBJECT) {
+                slotToParameter.put(slot, i);
+            }
+            slot += parameterTypes[i].getSize();
+        }
+
+        Map<AbstractInsnNode, Integer> parameterLoads = new HashMap<AbstractInsnNode, Integer>();
+        Map<AbstractInsnNode, Integer> parameterInvocations = new HashMap<AbstractInsnNode, Integer>();
+        for (int i = 0; i < insns.length; i++) {
+            if (!isFunctionInvocation(insns[i]) || frames[i] == null) continue;
+
+            Frame<SourceValue> frame = frames[i];
+            int depth = frame.getStackSize() - Type.getArgumentTypes(((MethodInsnNode) insns[i]).desc).length - 1;
+            Set<AbstractInsnNode> sources = frame.getStack(depth).insns;
+            if (sources.size() != 1) continue;
+
+            AbstractInsnNode load = sources.iterator().next();
+            if (load.getOpcode() != ALOAD) continue;
+            Integer parameter = slotToParameter.get(((VarInsnNode) load).var);
+            if (parameter == null || !isKeptOnStack(load, i, depth, insns, frames)) continue;
+
+            parameterLoads.put(load, parameter);
+            parameterInvocations.put(insns[i], parameter);
+        }
+
+        boolean[] invokedOnly = new boolean[parameterTypes.length];
+        for (Integer parameter : slotToParameter.values()) {
+            invokedOnly[parameter] = true;
+        }
+        for (AbstractInsnNode insn : insns) {
+            int var = insn instanceof VarInsnNode ? ((VarInsnNode) insn).var : insn instanceof IincInsnNode ? ((IincInsnNode) insn).var : -1;
+            Integer parameter = slotToParameter.get(var);
+            if (parameter != null && !parameterLoads.containsKey(insn)) {
+                invokedOnly[parameter] = false;
+            }
+        }
+
+        return new InlineFunction(method, parameterTypes, parameterSlots, invokedOnly, parameterLoads, parameterInvocations);
+    }
+
+    private static boolean isFunctionInvocation(@NotNull AbstractInsnNode insn) {
+        if (insn.getOpcode() != INVOKEINTERFACE) return false;
+        MethodInsnNode call = (MethodInsnNode) insn;
+        return call.name.equals("invoke") && FUNCTION_TRAIT.matcher(call.owner).matches();
+    }
+
+    /**
+     * @return true if the value loaded by the instruction stays at the given depth of the stack untouched until the invocation
+     */
+    private static boolean isKeptOnStack(
+            @NotNull AbstractInsnNode load,
+            int invocationIndex,
+            int depth,
+            @NotNull AbstractInsnNode[] insns,
+            @NotNull Frame<SourceValue>[] frames
+    ) {
+        int loadIndex = Arrays.asList(insns).indexOf(load);
+        if (loadIndex < 0 || loadIndex >= invocationIndex) return false;
+
+        for (int i = loadIndex + 1; i <= invocationIndex; i++) {
+            Frame<SourceValue> frame = frames[i];
+            if (frame == null) continue;
+            if (frame.getStackSize() <= depth) return false;
+
+            Set<AbstractInsnNode> sources = frame.getStack(depth).insns;
+            if (sources.size() != 1 || !sources.contains(load)) return false;
+
+            // A copy of the value could be made and used elsewhere
+            int opcode = insns[i].getOpcode();
+            if (opcode >= DUP && opcode <= SWAP && frame.getStackSize() - 4 <= depth) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Inlined code is executed in another class, so the classes and members of the function's own package that it refers to
+     * must be public. Other packages could only be accessed by the function if they were public anyway
+     */
+    private static boolean isAccessibleOutsidePackage(
+            @NotNull AbstractInsnNode insn,
+            @NotNull String ownerPackage,
+            @NotNull InlineFunctionLoader loader
+    ) {
+        String className;
+        String memberName = null;
+        String memberDesc = null;
+        boolean isField = false;
+        if (insn instanceof TypeInsnNode) {
+            className = getClassName(((TypeInsnNode) insn).desc);
+        }
+        else if (insn instanceof MultiANewArrayInsnNode) {
+            className = getClassName(((MultiANewArrayInsnNode) insn).desc);
+        }
+        else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof Type) {
+            className = getClassName(((Type) ((LdcInsnNode) insn).cst).getDescriptor());
+        }
+        else if (insn instanceof FieldInsnNode) {
+            FieldInsnNode field = (FieldInsnNode) insn;
+            className = field.owner;
+            memberName = field.name;
+            memberDesc = field.desc;
+            isField = true;
+        }
+        else if (insn instanceof MethodInsnNode) {
+            MethodInsnNode call = (MethodInsnNode) insn;
+            className = getClassName(call.owner);
+            memberName = call.name;
+            memberDesc = call.desc;
+        }
+        else {
+            return true;
+        }
+
+        if (className == null || !getPackage(className).equals(ownerPackage)) return true;
+
+        ClassNode classNode = loader.loadClass(className);
+        if (classNode == null || (classNode.access & ACC_PUBLIC) == 0) return false;
+        if (memberName == null) return true;
+
+        if (isField) {
+            for (FieldNode field : classNode.fields) {
+                if (field.name.equals(memberName) && field.desc.equals(memberDesc)) {
+                    return (field.access & ACC_PUBLIC) != 0;
+                }
+            }
+            return false;
+        }
+
+        MethodNode member = InlineFunctionLoader.findMethod(classNode, memberName, memberDesc);
+        return member != null && (member.access & ACC_PUBLIC) != 0;
+    }
+
+    /**
+     * @return the internal name of the class referred to by an internal name or a descriptor, or null for primitive types and arrays of them
+     */
+    @Nullable
+    private static String getClassName(@NotNull String internalNameOrDescriptor) {
+        if (!internalNameOrDescriptor.startsWith("[")) return internalNameOrDescriptor;
+
+        Type elementType = Type.getType(internalNameOrDescriptor).getElementType();
+        return elementType.getSort() == Type.OBJECT ? elementType.getInternalName() : null;
+    }
+
+    @NotNull
+    private static String getPackage(@NotNull String internalName) {
+        int lastSlash = internalName.lastIndexOf('/');
+        return lastSlash < 0 ? "" : internalName.substring(0, lastSlash);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.ClassReader;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.Method;
+import org.jetbrains.asm4.tree.AbstractInsnNode;
+import org.jetbrains.asm4.tree.ClassNode;
+import org.jetbrains.asm4.tree.MethodInsnNode;
+import org.jetbrains.asm4.tree.MethodNode;
+import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileFinder;
+import org.jetbrains.jet.utils.ExceptionUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.jetbrains.asm4.Opcodes.*;
+
+/**
+ * Loads the bytecode of library functions to be inlined, see {@link InlineCodegen}. Classes are found with {@link VirtualFileFinder},
+ * i.e. only Kotlin classes from the class path are available. Loaded classes and analyzed functions are cached for the whole compilation
+ */
+public final class InlineFunctionLoader {
+    @Nullable
+    private final VirtualFileFinder virtualFileFinder;
+
+    private final Map<String, Ref<ClassNode>> classes = new HashMap<String, Ref<ClassNode>>();
+    private final Map<String, Ref<InlineFunction>> functions = new HashMap<String, Ref<InlineFunction>>();
+
+    public InlineFunctionLoader(@NotNull Project project) {
+        this.virtualFileFinder = ServiceManager.getService(project, VirtualFileFinder.class);
+    }
+
+    /**
+     * @return the analyzed body of the given static method, or null if its class is not found or the method can't be inlined
+     */
+    @Nullable
+    public InlineFunction loadStaticFunction(@NotNull Type owner, @NotNull Method method) {
+        String key = owner.getInternalName() + "." + method.getName() + method.getDescriptor();
+        Ref<InlineFunction> cached = functions.get(key);
+        if (cached == null) {
+            cached = Ref.create(doLoadStaticFunction(owner.getInternalName(), method));
+            functions.put(key, cached);
+        }
+        return cached.get();
+    }
+
+    @Nullable
+    private InlineFunction doLoadStaticFunction(@NotNull String ownerInternalName, @NotNull Method method) {
+        ClassNode classNode = loadClass(ownerInternalName);
+        MethodNode methodNode = classNode == null ? null : findMethod(classNode, method.getName(), method.getDescriptor());
+        if (methodNode == null || (methodNode.access & ACC_STATIC) == 0) return null;
+
+        // Functions of a namespace facade delegate to the class of the file where they are declared
+        MethodInsnNode delegateCall = findStaticDelegateCall(methodNode);
+        if (delegateCall != null) {
+            classNode = loadClass(delegateCall.owner);
+            methodNode = classNode == null ? null : findMethod(classNode, method.getName(), method.getDescriptor());
+            if (methodNode == null || (methodNode.access & ACC_STATIC) == 0) return null;
+        }
+
+        return InlineFunction.analyze(classNode, methodNode, this);
+    }
+
+    /**
+     * @return the contents of the given Kotlin class without debug information, or null if there's no such class on the class path
+     */
+    @Nullable
+    ClassNode loadClass(@NotNull String internalName) {
+        Ref<ClassNode> cached = classes.get(internalName);
+        if (cached == null) {
+            cached = Ref.create(doLoadClass(internalName));
+            classes.put(internalName, cached);
+        }
+        return cached.get();
+    }
+
+    @Nullable
+    private ClassNode doLoadClass(@NotNull String internalName) {
+        if (virtualFileFinder == null) return null;
+
+        VirtualFile file = virtualFileFinder.find(JvmClassName.byInternalName(internalName).getFqNameForClassNameWithoutDollars());
+        if (file == null) return null;
+
+        ClassNode classNode = new ClassNode();
+        try {
+            new ClassReader(file.contentsToByteArray()).accept(classNode, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.rethrow(e);
+        }
+        // Classes with the same FQ name but a different internal name, e.g. nested ones, are not what we are looking for
+        return internalName.equals(classNode.name) ? classNode : null;
+    }
+
+    @Nullable
+    static MethodNode findMethod(@NotNull ClassNode classNode, @NotNull String name, @NotNull String desc) {
+        for (MethodNode method : classNode.methods) {
+            if (method.name.equals(name) && method.desc.equals(desc)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the call in a method which only passes its parameters to a static method with the same signature, or null
+     */
+    @Nullable
+    private static MethodInsnNode findStaticDelegateCall(@NotNull MethodNode method) {
+        MethodInsnNode call = null;
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            int opcode = insn.getOpcode();
+            if (opcode < 0) continue; // labels, line numbers and frames
+
+            if (call == null && opcode >= ILOAD && opcode <= ALOAD) continue;
+
+            if (call == null && opcode == INVOKESTATIC) {
+                call = (MethodInsnNode) insn;
+                if (!call.name.equals(method.name) || !call.desc.equals(method.desc)) return null;
+                continue;
+            }
+
+            if (call != null && opcode >= IRETURN && opcode <= RETURN) return call;
+
+            return null;
+        }
+        return null;
+    }
+}
@@ -29,7 +29,6 @@ import org.jetbrains.asm4.Type;
 import org.jetbrains.jet.codegen.context.CodegenContext;
 import org.jetbrains.jet.codegen.context.FieldOwnerContext;
 import org.jetbrains.jet.codegen.state.GenerationState;
-import org.jetbrains.jet.descriptors.serialization.BitEncoding;
 import org.jetbrains.jet.descriptors.serialization.DescriptorSerializer;
 import org.jetbrains.jet.descriptors.serialization.PackageData;
 import org.jetbrains.jet.descriptors.serialization.ProtoBuf;
@@ -50,6 +49,7 @@ import java.util.List;
 import static org.jetbrains.asm4.Opcodes.*;
 import static org.jetbrains.jet.codegen.AsmUtil.asmDescByFqNameWithoutInnerClasses;
 import static org.jetbrains.jet.codegen.AsmUtil.asmTypeByFqNameWithoutInnerClasses;
+import static org.jetbrains.jet.codegen.AsmUtil.writeKotlinData;
 import static org.jetbrains.jet.descriptors.serialization.NameSerializationUtil.createNameResolver;
 import static org.jetbrains.jet.lang.resolve.java.PackageClassUtils.getPackageClassFqName;
 
@@ -146,21 +146,32 @@ public class NamespaceCodegen extends MemberCodegen {
             if (file.isScript()) return;
         }
 
-        DescriptorSerializer serializer = new DescriptorSerializer(new JavaSerializerExtension(bindings));
+        JavaSerializerExtension extension = new JavaSerializerExtension(bindings);
+
+        SharedNameTable nameTable = state.getFactory().getSharedNameTable(asmTypeByFqNameWithoutInnerClasses(getPackageClassFqName(name)));
+        DescriptorSerializer serializer = nameTable != null
+                                          ? new DescriptorSerializer(nameTable.getNameTable(), extension)
+                                          : new DescriptorSerializer(extension);
+
         ProtoBuf.Package packageProto = serializer.packageProto(descriptor).build();
 
         if (packageProto.getMemberCount() == 0) return;
 
-        PackageData data = new PackageData(createNameResolver(serializer.getNameTable()), packageProto);
-
         AnnotationVisitor av =
                 v.getClassBuilder().newAnnotation(asmDescByFqNameWithoutInnerClasses(JvmAnnotationNames.KOTLIN_PACKAGE), true);
         av.visit(JvmAnnotationNames.ABI_VERSION_FIELD_NAME, JvmAbi.VERSION);
-        AnnotationVisitor array = av.visitArray(JvmAnnotationNames.DATA_FIELD_NAME);
-        for (String string : BitEncoding.encodeBytes(data.toBytes())) {
-            array.visit(null, string);
+
+        if (nameTable != null) {
+            writeKotlinData(v.getClassBuilder(), av, packageProto.toByteArray(), true);
+            // The table is written only if some class refers to it, i.e. if the package has members to serialize
+            nameTable.addUser(files);
+            v.getClassBuilder().getVisitor().visitAttribute(nameTable.createChecksumAttribute());
+        }
+        else {
+            PackageData data = new PackageData(createNameResolver(serializer.getNameTable()), packageProto);
+            writeKotlinData(v.getClassBuilder(), av, data.toBytes(), state.isBinaryMetadata());
         }
-        array.visitEnd();
+
         av.visitEnd();
     }
 
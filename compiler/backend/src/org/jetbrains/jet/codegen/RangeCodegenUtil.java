@@ -21,6 +21,8 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.descriptors.CallableDescriptor;
 import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
 import org.jetbrains.jet.lang.psi.*;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.name.FqName;
@@ -37,6 +39,8 @@ public class RangeCodegenUtil {
     private static final ImmutableMap<FqName, PrimitiveType> RANGE_TO_ELEMENT_TYPE;
     private static final ImmutableMap<FqName, PrimitiveType> PROGRESSION_TO_ELEMENT_TYPE;
 
+    private static final FqName STDLIB_PACKAGE_FQ_NAME = new FqName("kotlin");
+
     static {
         ImmutableMap.Builder<FqName, PrimitiveType> rangeBuilder = ImmutableMap.builder();
         ImmutableMap.Builder<FqName, PrimitiveType> progressionBuilder = ImmutableMap.builder();
@@ -60,10 +64,15 @@ public class RangeCodegenUtil {
 
     @Nullable
     public static BinaryCall getRangeAsBinaryCall(@NotNull JetForExpression forExpression) {
-        // We are looking for rangeTo() calls
-        // Other binary operations will succeed too, but will be filtered out later (by examining a resolvedCall)
         JetExpression rangeExpression = forExpression.getLoopRange();
         assert rangeExpression != null;
+        return getRangeAsBinaryCall(rangeExpression);
+    }
+
+    @Nullable
+    public static BinaryCall getRangeAsBinaryCall(@NotNull JetExpression rangeExpression) {
+        // We are looking for rangeTo() calls
+        // Other binary operations will succeed too, but will be filtered out later (by examining a resolvedCall)
         JetExpression loopRange = JetPsiUtil.deparenthesize(rangeExpression);
         if (loopRange instanceof JetQualifiedExpression) {
             // a.rangeTo(b)
@@ -112,6 +121,25 @@ public class RangeCodegenUtil {
         return map.get(DescriptorUtils.getFQName(declarationDescriptor).toSafe());
     }
 
+    public static boolean isIntegralRangeOrProgression(@NotNull JetType rangeType) {
+        if (rangeType.isNullable()) return false;
+        PrimitiveType elementType = getPrimitiveRangeElementType(rangeType);
+        if (elementType == null) {
+            elementType = getPrimitiveProgressionElementType(rangeType);
+        }
+        return elementType != null && elementType != PrimitiveType.FLOAT && elementType != PrimitiveType.DOUBLE;
+    }
+
+    /**
+     * @return true if the descriptor is one of the top-level extensions from the standard library building ranges and progressions,
+     * such as downTo(), step(), reversed() and indices
+     */
+    public static boolean isStdlibRangeExtension(@NotNull CallableDescriptor descriptor, @NotNull String name) {
+        if (!name.equals(descriptor.getName().asString()) || descriptor.getReceiverParameter() == null) return false;
+        DeclarationDescriptor containing = descriptor.getContainingDeclaration();
+        return containing instanceof NamespaceDescriptor && DescriptorUtils.getFQName(containing).equals(STDLIB_PACKAGE_FQ_NAME.toUnsafe());
+    }
+
     public static boolean isOptimizableRangeTo(CallableDescriptor rangeTo) {
         if ("rangeTo".equals(rangeTo.getName().asString())) {
             if (isPrimitiveNumberClassDescriptor(rangeTo.getContainingDeclaration())) {
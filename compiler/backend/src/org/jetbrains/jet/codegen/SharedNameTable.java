@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Attribute;
+import org.jetbrains.jet.descriptors.serialization.NameSerializationUtil;
+import org.jetbrains.jet.descriptors.serialization.NameTable;
+import org.jetbrains.jet.lang.resolve.kotlin.KotlinNameTableAttribute;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Names used in serialized descriptors of all classes of a package generated to a jar. Stored once in the file
+ * {@link org.jetbrains.jet.lang.resolve.java.JvmAbi#SHARED_NAME_TABLE_FILE_NAME} instead of a separate table in each class.
+ * The table is written only if some class actually refers to it
+ */
+public final class SharedNameTable {
+    private final NameTable nameTable = new NameTable();
+    private final Set<PsiFile> sourceFiles = new LinkedHashSet<PsiFile>();
+
+    private boolean used = false;
+    private byte[] bytes = null;
+
+    @NotNull
+    public NameTable getNameTable() {
+        assert bytes == null : "Shared name table is already written";
+        return nameTable;
+    }
+
+    /**
+     * Records that a class generated from the given files refers to this table
+     */
+    synchronized void addUser(@NotNull Collection<? extends PsiFile> files) {
+        sourceFiles.addAll(files);
+        used = true;
+    }
+
+    synchronized boolean isUsed() {
+        return used;
+    }
+
+    @NotNull
+    synchronized Collection<PsiFile> getSourceFiles() {
+        return sourceFiles;
+    }
+
+    /**
+     * @return an attribute to write to each class using this table. The checksum is computed when the class file is written,
+     * i.e. after all classes are generated and the table is complete
+     */
+    @NotNull
+    public Attribute createChecksumAttribute() {
+        return new KotlinNameTableAttribute(0) {
+            @Override
+            public int getChecksum() {
+                return NameSerializationUtil.computeChecksum(toBytes());
+            }
+        };
+    }
+
+    @NotNull
+    public synchronized byte[] toBytes() {
+        if (bytes == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            NameSerializationUtil.serializeNameTable(out, nameTable);
+            bytes = out.toByteArray();
+        }
+        return bytes;
+    }
+
+    @NotNull
+    public String asText() {
+        StringBuilder sb = new StringBuilder();
+        for (String name : nameTable.getSimpleNames()) {
+            sb.append(name).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import com.intellij.psi.PsiElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Label;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.InstructionAdapter;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.constants.*;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lexer.JetTokens;
+
+import java.util.*;
+
+/**
+ * Compiles when() over constants to tableswitch/lookupswitch instead of a chain of comparisons.
+ *
+ * Subjects of type Int, Short, Byte and Char are switched on directly, String subjects on their hash codes (with equals() checks
+ * in each bucket), subjects of an enum class compiled together with the when() on the ordinals of its entries. Enum classes from
+ * libraries are not supported: their entries could be reordered after the code is compiled
+ */
+public class SwitchCodegenUtil {
+    private enum Kind {
+        INT, STRING, ENUM
+    }
+
+    public static class SwitchTable {
+        private final Kind kind;
+        private final Type subjectType;
+        // Keys in the order of the entries, mapped to the indices of the entries they select
+        private final Map<Object, Integer> entryByKey;
+
+        private SwitchTable(@NotNull Kind kind, @NotNull Type subjectType, @NotNull Map<Object, Integer> entryByKey) {
+            this.kind = kind;
+            this.subjectType = subjectType;
+            this.entryByKey = entryByKey;
+        }
+
+        /**
+         * Jumps to the label of the entry selected by the subject, or to noMatch
+         */
+        public void generateDispatch(
+                @NotNull InstructionAdapter v,
+                @NotNull StackValue subject,
+                @NotNull Label[] entryLabels,
+                @NotNull Label noMatch
+        ) {
+            if (kind != Kind.INT) {
+                subject.put(subjectType, v);
+                v.ifnull(noMatch);
+            }
+            subject.put(subjectType, v);
+
+            if (kind == Kind.STRING) {
+                generateStringDispatch(v, subject, entryLabels, noMatch);
+                return;
+            }
+
+            if (kind == Kind.ENUM) {
+                v.invokevirtual(subjectType.getInternalName(), "ordinal", "()I");
+            }
+            SortedMap<Integer, Label> targets = new TreeMap<Integer, Label>();
+            for (Map.Entry<Object, Integer> entry : entryByKey.entrySet()) {
+                targets.put((Integer) entry.getKey(), entryLabels[entry.getValue()]);
+            }
+            generateSwitch(v, targets, noMatch);
+        }
+
+        private void generateStringDispatch(
+                @NotNull InstructionAdapter v,
+                @NotNull StackValue subject,
+                @NotNull Label[] entryLabels,
+                @NotNull Label noMatch
+        ) {
+            Map<Integer, List<String>> buckets = new LinkedHashMap<Integer, List<String>>();
+            for (Object key : entryByKey.keySet()) {
+                String string = (String) key;
+                List<String> bucket = buckets.get(string.hashCode());
+                if (bucket == null) {
+                    bucket = new ArrayList<String>(1);
+                    buckets.put(string.hashCode(), bucket);
+                }
+                bucket.add(string);
+            }
+
+            SortedMap<Integer, Label> bucketLabels = new TreeMap<Integer, Label>();
+            for (Integer hashCode : buckets.keySet()) {
+                bucketLabels.put(hashCode, new Label());
+            }
+
+            v.invokevirtual("java/lang/String", "hashCode", "()I");
+            generateSwitch(v, bucketLabels, noMatch);
+
+            for (Map.Entry<Integer, Label> bucketLabel : bucketLabels.entrySet()) {
+                v.mark(bucketLabel.getValue());
+                for (String string : buckets.get(bucketLabel.getKey())) {
+                    subject.put(subjectType, v);
+                    v.aconst(string);
+                    v.invokevirtual("java/lang/String", "equals", "(Ljava/lang/Object;)Z");
+                    v.ifne(entryLabels[entryByKey.get(string)]);
+                }
+                v.goTo(noMatch);
+            }
+        }
+    }
+
+    private SwitchCodegenUtil() {
+    }
+
+    /**
+     * @return the table of the given when() if all its conditions are constants of a supported subject type, or null
+     */
+    @Nullable
+    public static SwitchTable buildSwitchTable(
+            @NotNull JetWhenExpression expression,
+            @NotNull Type subjectType,
+            @Nullable JetType subjectJetType,
+            @NotNull BindingContext bindingContext
+    ) {
+        Kind kind;
+        List<JetEnumEntry> enumEntries = null;
+        switch (subjectType.getSort()) {
+            case Type.INT:
+            case Type.SHORT:
+            case Type.BYTE:
+            case Type.CHAR:
+                kind = Kind.INT;
+                break;
+            case Type.OBJECT:
+                if (subjectType.getInternalName().equals("java/lang/String")) {
+                    kind = Kind.STRING;
+                    break;
+                }
+                enumEntries = subjectJetType != null ? getEnumEntries(subjectJetType, bindingContext) : null;
+                if (enumEntries == null) return null;
+                kind = Kind.ENUM;
+                break;
+            default:
+                return null;
+        }
+
+        Map<Object, Integer> entryByKey = new LinkedHashMap<Object, Integer>();
+        List<JetWhenEntry> entries = expression.getEntries();
+        for (int i = 0; i < entries.size(); i++) {
+            for (JetWhenCondition condition : entries.get(i).getConditions()) {
+                if (!(condition instanceof JetWhenConditionWithExpression)) return null;
+                JetExpression conditionExpression = ((JetWhenConditionWithExpression) condition).getExpression();
+                if (conditionExpression == null) return null;
+
+                Object key;
+                if (kind == Kind.ENUM) {
+                    key = getEnumOrdinal(conditionExpression, enumEntries, bindingContext);
+                }
+                else {
+                    CompileTimeConstant<?> constant = getConstant(conditionExpression, bindingContext);
+                    key = kind == Kind.STRING ? getStringKey(constant) : getIntKey(constant, subjectType);
+                }
+                if (key == null) return null;
+
+                // The first entry with the key wins, as with the sequential checks
+                if (!entryByKey.containsKey(key)) {
+                    entryByKey.put(key, i);
+                }
+            }
+        }
+
+        return entryByKey.isEmpty() ? null : new SwitchTable(kind, subjectType, entryByKey);
+    }
+
+    /**
+     * Generates tableswitch if the keys are dense enough, lookupswitch otherwise (the same estimate as javac uses)
+     */
+    public static void generateSwitch(@NotNull InstructionAdapter v, @NotNull SortedMap<Integer, Label> targets, @NotNull Label defaultLabel) {
+        if (targets.isEmpty()) {
+            v.pop();
+            v.goTo(defaultLabel);
+            return;
+        }
+
+        int[] keys = new int[targets.size()];
+        Label[] labels = new Label[targets.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Label> target : targets.entrySet()) {
+            keys[i] = target.getKey();
+            labels[i] = target.getValue();
+            i++;
+        }
+
+        long low = keys[0];
+        long high = keys[keys.length - 1];
+        long tableCost = 4 + (high - low + 1) + 3 * 3;
+        long lookupCost = 3 + 2L * keys.length + 3L * keys.length;
+        if (tableCost <= lookupCost) {
+            Label[] table = new Label[(int) (high - low + 1)];
+            Arrays.fill(table, defaultLabel);
+            for (int j = 0; j < keys.length; j++) {
+                table[(int) (keys[j] - low)] = labels[j];
+            }
+            v.tableswitch((int) low, (int) high, defaultLabel, table);
+        }
+        else {
+            v.lookupswitch(defaultLabel, keys, labels);
+        }
+    }
+
+    @Nullable
+    private static CompileTimeConstant<?> getConstant(@NotNull JetExpression expression, @NotNull BindingContext bindingContext) {
+        JetExpression deparenthesized = JetPsiUtil.deparenthesize(expression);
+        if (deparenthesized == null) return null;
+
+        CompileTimeConstant<?> constant = bindingContext.get(BindingContext.COMPILE_TIME_VALUE, deparenthesized);
+        if (constant != null) return constant;
+
+        // Negative literals are calls to minus()
+        if (deparenthesized instanceof JetPrefixExpression) {
+            JetPrefixExpression prefixExpression = (JetPrefixExpression) deparenthesized;
+            JetExpression baseExpression = prefixExpression.getBaseExpression();
+            if (prefixExpression.getOperationReference().getReferencedNameElementType() == JetTokens.MINUS && baseExpression != null) {
+                CompileTimeConstant<?> base = bindingContext.get(BindingContext.COMPILE_TIME_VALUE, JetPsiUtil.deparenthesize(baseExpression));
+                if (base instanceof IntValue) {
+                    return new IntValue(-((IntValue) base).getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Integer getIntKey(@Nullable CompileTimeConstant<?> constant, @NotNull Type subjectType) {
+        if (subjectType.getSort() == Type.CHAR) {
+            return constant instanceof CharValue ? (int) ((CharValue) constant).getValue().charValue() : null;
+        }
+        if (constant instanceof IntValue || constant instanceof ShortValue || constant instanceof ByteValue) {
+            return ((Number) constant.getValue()).intValue();
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String getStringKey(@Nullable CompileTimeConstant<?> constant) {
+        return constant instanceof StringValue ? ((StringValue) constant).getValue() : null;
+    }
+
+    /**
+     * @return the entries of an enum class declared in the sources being compiled, in the order of their ordinals
+     */
+    @Nullable
+    private static List<JetEnumEntry> getEnumEntries(@NotNull JetType subjectType, @NotNull BindingContext bindingContext) {
+        ClassifierDescriptor descriptor = subjectType.getConstructor().getDeclarationDescriptor();
+        if (!(descriptor instanceof ClassDescriptor) || ((ClassDescriptor) descriptor).getKind() != ClassKind.ENUM_CLASS) return null;
+
+        PsiElement declaration = BindingContextUtils.classDescriptorToDeclaration(bindingContext, (ClassDescriptor) descriptor);
+        if (!(declaration instanceof JetClass)) return null;
+
+        List<JetEnumEntry> result = new ArrayList<JetEnumEntry>();
+        for (JetDeclaration member : ((JetClass) declaration).getDeclarations()) {
+            if (member instanceof JetEnumEntry) {
+                result.add((JetEnumEntry) member);
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    private static Integer getEnumOrdinal(
+            @NotNull JetExpression expression,
+            @NotNull List<JetEnumEntry> enumEntries,
+            @NotNull BindingContext bindingContext
+    ) {
+        JetExpression reference = JetPsiUtil.deparenthesize(expression);
+        if (reference instanceof JetDotQualifiedExpression) {
+            JetDotQualifiedExpression qualifiedExpression = (JetDotQualifiedExpression) reference;
+            if (!isQualifier(qualifiedExpression.getReceiverExpression(), bindingContext)) return null;
+            reference = qualifiedExpression.getSelectorExpression();
+        }
+        if (!(reference instanceof JetSimpleNameExpression)) return null;
+
+        DeclarationDescriptor target = bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) reference);
+        if (!(target instanceof VariableDescriptorForObject)) return null;
+        ClassDescriptor entry = ((VariableDescriptorForObject) target).getObjectClass();
+        if (entry.getKind() != ClassKind.ENUM_ENTRY) return null;
+
+        int ordinal = enumEntries.indexOf(BindingContextUtils.classDescriptorToDeclaration(bindingContext, entry));
+        return ordinal >= 0 ? ordinal : null;
+    }
+
+    /**
+     * @return true if evaluating the expression has no side effects, i.e. it only names a package, a class or its class object
+     */
+    private static boolean isQualifier(@Nullable JetExpression expression, @NotNull BindingContext bindingContext) {
+        if (expression instanceof JetDotQualifiedExpression) {
+            JetDotQualifiedExpression qualifiedExpression = (JetDotQualifiedExpression) expression;
+            return isQualifier(qualifiedExpression.getReceiverExpression(), bindingContext) &&
+                   isQualifier(qualifiedExpression.getSelectorExpression(), bindingContext);
+        }
+        if (expression instanceof JetSimpleNameExpression) {
+            DeclarationDescriptor target = bindingContext.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) expression);
+            if (target instanceof VariableDescriptorForObject) {
+                ClassKind kind = ((VariableDescriptorForObject) target).getObjectClass().getKind();
+                return kind == ClassKind.CLASS_OBJECT || kind == ClassKind.ENUM_CLASS;
+            }
+            return target instanceof ClassDescriptor || target instanceof NamespaceDescriptor;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.Label;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.asm4.commons.InstructionAdapter;
+import org.jetbrains.jet.codegen.context.MethodContext;
+import org.jetbrains.jet.lang.descriptors.CallableDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.ValueParameterDescriptor;
+import org.jetbrains.jet.lang.psi.Call;
+import org.jetbrains.jet.lang.psi.JetCallExpression;
+import org.jetbrains.jet.lang.psi.JetElement;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.model.VariableAsFunctionResolvedCall;
+
+import java.util.List;
+
+/**
+ * Compiles recursive calls in tail position of functions annotated with kotlin.tailRecursive into jumps to the beginning
+ * of the function body. Such calls are found by the frontend (see {@link BindingContext#TAIL_RECURSION_CALL}).
+ *
+ * The arguments are evaluated as for a usual call and then stored to the slots of the parameters, in reverse order
+ * because of the stack. The instance the function is called on is always the same, so it is simply popped.
+ */
+public final class TailRecursionCodegen {
+    private TailRecursionCodegen() {
+    }
+
+    /**
+     * @return true if the call was compiled to a jump, the code after it is unreachable
+     */
+    public static boolean generateTailCallIfPossible(
+            @NotNull ExpressionCodegen codegen,
+            @NotNull CallableMethod callableMethod,
+            @NotNull ResolvedCall<? extends CallableDescriptor> resolvedCall,
+            @NotNull Call call,
+            @NotNull StackValue receiver
+    ) {
+        Label bodyStart = codegen.getTailRecursionStart();
+        if (bodyStart == null) return false;
+
+        JetElement callElement = call.getCallElement();
+        if (!(callElement instanceof JetCallExpression)) return false;
+        if (!Boolean.TRUE.equals(codegen.getBindingContext().get(BindingContext.TAIL_RECURSION_CALL, (JetCallExpression) callElement))) {
+            return false;
+        }
+        if (callableMethod.getGenerateCalleeType() != null || resolvedCall instanceof VariableAsFunctionResolvedCall) return false;
+
+        MethodContext context = codegen.context;
+        DeclarationDescriptor function = context.getContextDescriptor();
+        if (!(function instanceof CallableDescriptor) || function.getOriginal() != resolvedCall.getResultingDescriptor().getOriginal()) {
+            return false;
+        }
+
+        // Parameters captured by closures live in Ref wrappers created before the body starts
+        List<ValueParameterDescriptor> parameters = ((CallableDescriptor) function).getValueParameters();
+        for (ValueParameterDescriptor parameter : parameters) {
+            if (codegen.typeMapper.getSharedVarType(parameter) != null) return false;
+        }
+
+        InstructionAdapter v = codegen.v;
+
+        StackValue receiverValue = StackValue.receiver(resolvedCall, receiver, codegen, callableMethod);
+        receiverValue.put(receiverValue.type, v);
+
+        List<Type> parameterTypes = callableMethod.getValueParameterTypes();
+        int mask = codegen.pushMethodArguments(resolvedCall, parameterTypes);
+        assert mask == 0 : "Tail calls relying on default arguments should not be recorded: " + callElement.getText();
+
+        for (int i = parameters.size() - 1; i >= 0; i--) {
+            v.store(codegen.myFrameMap.getIndex(parameters.get(i)), parameterTypes.get(i));
+        }
+
+        if (resolvedCall.getReceiverArgument().exists()) {
+            Type receiverType = callableMethod.getReceiverClass();
+            assert receiverType != null : "No receiver type for a call with a receiver argument: " + callElement.getText();
+            v.store(context.getContextKind() == OwnerKind.NAMESPACE ? 0 : 1, receiverType);
+        }
+        if (resolvedCall.getThisObject().exists()) {
+            v.pop();
+        }
+
+        v.goTo(bodyStart);
+        return true;
+    }
+}
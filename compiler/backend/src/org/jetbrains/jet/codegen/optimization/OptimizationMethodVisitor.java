@@ -0,0 +1,59 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.asm4.tree.MethodNode;
+
+/**
+ * Collects the whole method into a tree, optimizes it on {@link #visitEnd()} and only then passes it to the actual visitor
+ */
+public class OptimizationMethodVisitor extends MethodVisitor {
+    private final MethodNode methodNode;
+    private final MethodVisitor delegate;
+
+    public OptimizationMethodVisitor(
+            @NotNull MethodVisitor delegate,
+            int access,
+            @NotNull String name,
+            @NotNull String desc,
+            @Nullable String signature,
+            @Nullable String[] exceptions
+    ) {
+        this(delegate, new MethodNode(access, name, desc, signature, exceptions));
+    }
+
+    private OptimizationMethodVisitor(@NotNull MethodVisitor delegate, @NotNull MethodNode methodNode) {
+        super(Opcodes.ASM4, methodNode);
+        this.methodNode = methodNode;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void visitEnd() {
+        super.visitEnd();
+
+        if (methodNode.instructions.size() > 0) {
+            new RedundantBoxingMethodTransformer().transform(methodNode);
+        }
+
+        methodNode.accept(delegate);
+    }
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen.optimization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.*;
+import org.jetbrains.asm4.commons.InstructionAdapter;
+import org.jetbrains.asm4.tree.*;
+import org.jetbrains.asm4.tree.analysis.Analyzer;
+import org.jetbrains.asm4.tree.analysis.AnalyzerException;
+import org.jetbrains.asm4.tree.analysis.Frame;
+import org.jetbrains.asm4.tree.analysis.SourceInterpreter;
+import org.jetbrains.asm4.tree.analysis.SourceValue;
+
+import java.util.*;
+
+import static org.jetbrains.asm4.Opcodes.*;
+
+/**
+ * Removes boxing of values which never leave the method as objects.
+ *
+ * A value boxed with valueOf() is kept primitive if all it ever goes through are casts to its own class, Number or Object,
+ * null checks, stores to and loads from locals which hold nothing else, and it ends up unboxed or popped. Values passed to
+ * other methods, returned, compared by reference or mixed with other objects in the same local stay boxed
+ */
+public class RedundantBoxingMethodTransformer {
+    private static final Map<String, Type> BOXED_TYPES = new HashMap<String, Type>();
+
+    static {
+        BOXED_TYPES.put("java/lang/Integer", Type.INT_TYPE);
+        BOXED_TYPES.put("java/lang/Boolean", Type.BOOLEAN_TYPE);
+        BOXED_TYPES.put("java/lang/Character", Type.CHAR_TYPE);
+        BOXED_TYPES.put("java/lang/Short", Type.SHORT_TYPE);
+        BOXED_TYPES.put("java/lang/Long", Type.LONG_TYPE);
+        BOXED_TYPES.put("java/lang/Byte", Type.BYTE_TYPE);
+        BOXED_TYPES.put("java/lang/Float", Type.FLOAT_TYPE);
+        BOXED_TYPES.put("java/lang/Double", Type.DOUBLE_TYPE);
+    }
+
+    private static final String NUMBER = "java/lang/Number";
+    private static final String OBJECT = "java/lang/Object";
+
+    public void transform(@NotNull MethodNode method) {
+        if (!hasBoxing(method)) return;
+
+        // The code generator leaves the maximums to the class writer, but they are needed for the analysis
+        int maxStack = method.maxStack;
+        int maxLocals = method.maxLocals;
+        try {
+            if (computeMaxs(method)) {
+                doTransform(method);
+            }
+        }
+        finally {
+            method.maxStack = maxStack;
+            method.maxLocals = maxLocals;
+        }
+    }
+
+    private static void doTransform(@NotNull MethodNode method) {
+        UsageCollectingInterpreter interpreter = new UsageCollectingInterpreter();
+        Frame<SourceValue>[] frames;
+        try {
+            frames = new Analyzer<SourceValue>(interpreter).analyze(OBJECT, method);
+        }
+        catch (AnalyzerException e) {
+            return;
+        }
+
+        AbstractInsnNode[] insns = method.instructions.toArray();
+        Map<AbstractInsnNode, Frame<SourceValue>> frameByInsn = new HashMap<AbstractInsnNode, Frame<SourceValue>>();
+        Set<AbstractInsnNode> escaping = new HashSet<AbstractInsnNode>();
+        for (int i = 0; i < insns.length; i++) {
+            Frame<SourceValue> frame = frames[i];
+            if (frame == null) continue;
+            frameByInsn.put(insns[i], frame);
+
+            // Popping and stack shuffling instructions don't go through the interpreter
+            int opcode = insns[i].getOpcode();
+            if (opcode == POP) {
+                interpreter.addConsumer(top(frame), insns[i]);
+            }
+            else if (opcode == DUP && isNullCheck(insns[i].getNext())) {
+                // The copy is consumed by the null check right away, see collect()
+            }
+            else if (opcode == POP2 || (opcode >= DUP && opcode <= SWAP)) {
+                for (int j = Math.max(0, frame.getStackSize() - 4); j < frame.getStackSize(); j++) {
+                    escaping.addAll(frame.getStack(j).insns);
+                }
+            }
+        }
+
+        int argumentsSize = Type.getArgumentsAndReturnSizes(method.desc) >> 2;
+        if ((method.access & ACC_STATIC) != 0) argumentsSize--;
+
+        List<BoxedValue> values = new ArrayList<BoxedValue>();
+        Set<AbstractInsnNode> processedBoxings = new HashSet<AbstractInsnNode>();
+        for (AbstractInsnNode insn : insns) {
+            if (isBoxing(insn) && frameByInsn.containsKey(insn) && !processedBoxings.contains(insn)) {
+                BoxedValue value = collect((MethodInsnNode) insn, insns, frameByInsn, interpreter, escaping, argumentsSize);
+                processedBoxings.addAll(value.boxings);
+                if (value.valid) {
+                    values.add(value);
+                }
+            }
+        }
+
+        int nextFreeSlot = method.maxLocals;
+        for (BoxedValue value : values) {
+            nextFreeSlot = unbox(method, value, nextFreeSlot);
+        }
+    }
+
+    /**
+     * Collects everything connected to the given boxing: the other boxings whose values may meet it on the stack or in a local,
+     * and all the instructions which use these values
+     */
+    @NotNull
+    private static BoxedValue collect(
+            @NotNull MethodInsnNode boxing,
+            @NotNull AbstractInsnNode[] insns,
+            @NotNull Map<AbstractInsnNode, Frame<SourceValue>> frames,
+            @NotNull UsageCollectingInterpreter interpreter,
+            @NotNull Set<AbstractInsnNode> escaping,
+            int argumentsSize
+    ) {
+        BoxedValue value = new BoxedValue(boxing.owner);
+        Set<AbstractInsnNode> visited = new HashSet<AbstractInsnNode>();
+        Deque<AbstractInsnNode> queue = new ArrayDeque<AbstractInsnNode>();
+        queue.add(boxing);
+        visited.add(boxing);
+
+        while (!queue.isEmpty()) {
+            AbstractInsnNode insn = queue.poll();
+            Frame<SourceValue> frame = frames.get(insn);
+            if (frame == null || escaping.contains(insn)) {
+                value.valid = false;
+                continue;
+            }
+
+            Collection<AbstractInsnNode> related;
+            int opcode = insn.getOpcode();
+            if (isBoxing(insn)) {
+                if (!((MethodInsnNode) insn).owner.equals(value.owner)) value.valid = false;
+                value.boxings.add(insn);
+                related = interpreter.getConsumers(insn);
+            }
+            else if (opcode == CHECKCAST) {
+                if (!value.isCastAllowed(((TypeInsnNode) insn).desc)) value.valid = false;
+                value.casts.add(insn);
+                related = union(top(frame).insns, interpreter.getConsumers(insn));
+            }
+            else if (isUnboxing(insn)) {
+                if (!value.isUnboxingAllowed((MethodInsnNode) insn)) value.valid = false;
+                value.unboxings.add(insn);
+                related = top(frame).insns;
+            }
+            else if (opcode == POP) {
+                value.pops.add(insn);
+                related = top(frame).insns;
+            }
+            else if (isNullCheck(insn) || (opcode == DUP && isNullCheck(insn.getNext()))) {
+                // Boxed values are never null: "DUP, IFNONNULL" is always taken, "DUP, IFNULL" never
+                value.nullChecks.add(insn);
+                related = top(frame).insns;
+            }
+            else if (opcode == ASTORE) {
+                int var = ((VarInsnNode) insn).var;
+                if (var < argumentsSize) value.valid = false;
+                value.stores.add((VarInsnNode) insn);
+                related = union(top(frame).insns, findLoads(insn, var, insns, frames));
+            }
+            else if (opcode == ALOAD) {
+                int var = ((VarInsnNode) insn).var;
+                Set<AbstractInsnNode> stores = frame.getLocal(var).insns;
+                // Parameters have no source instructions, and only locals are safe to change anyway
+                if (var < argumentsSize || stores.isEmpty()) value.valid = false;
+                value.loads.add((VarInsnNode) insn);
+                related = union(stores, interpreter.getConsumers(insn));
+            }
+            else {
+                value.valid = false;
+                continue;
+            }
+
+            for (AbstractInsnNode next : related) {
+                if (visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+
+        return value;
+    }
+
+    @NotNull
+    private static List<AbstractInsnNode> findLoads(
+            @NotNull AbstractInsnNode store,
+            int var,
+            @NotNull AbstractInsnNode[] insns,
+            @NotNull Map<AbstractInsnNode, Frame<SourceValue>> frames
+    ) {
+        List<AbstractInsnNode> result = new ArrayList<AbstractInsnNode>();
+        for (AbstractInsnNode insn : insns) {
+            if (insn.getOpcode() == ALOAD && ((VarInsnNode) insn).var == var) {
+                Frame<SourceValue> frame = frames.get(insn);
+                if (frame != null && frame.getLocal(var).insns.contains(store)) {
+                    result.add(insn);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rewrites the instructions using the value so that it stays primitive, locals holding it are moved to new slots
+     * starting with the given one
+     *
+     * @return the first slot which is still free
+     */
+    private static int unbox(@NotNull MethodNode method, @NotNull BoxedValue value, int firstFreeSlot) {
+        Type type = value.getPrimitiveType();
+        InsnList instructions = method.instructions;
+
+        Map<Integer, Integer> newSlots = new HashMap<Integer, Integer>();
+        int nextFreeSlot = firstFreeSlot;
+        for (VarInsnNode store : value.stores) {
+            if (!newSlots.containsKey(store.var)) {
+                newSlots.put(store.var, nextFreeSlot);
+                nextFreeSlot += type.getSize();
+            }
+        }
+
+        remapLocalVariables(method, value, newSlots, type);
+
+        for (AbstractInsnNode boxing : value.boxings) {
+            instructions.remove(boxing);
+        }
+        for (AbstractInsnNode cast : value.casts) {
+            instructions.remove(cast);
+        }
+        for (AbstractInsnNode unboxing : value.unboxings) {
+            MethodNode conversion = new MethodNode();
+            new InstructionAdapter(conversion).cast(type, Type.getReturnType(((MethodInsnNode) unboxing).desc));
+            instructions.insertBefore(unboxing, conversion.instructions);
+            instructions.remove(unboxing);
+        }
+        for (VarInsnNode store : value.stores) {
+            instructions.set(store, new VarInsnNode(type.getOpcode(ISTORE), newSlots.get(store.var)));
+        }
+        for (VarInsnNode load : value.loads) {
+            instructions.set(load, new VarInsnNode(type.getOpcode(ILOAD), newSlots.get(load.var)));
+        }
+        if (type.getSize() == 2) {
+            for (AbstractInsnNode pop : value.pops) {
+                instructions.set(pop, new InsnNode(POP2));
+            }
+        }
+        for (AbstractInsnNode check : value.nullChecks) {
+            if (check.getOpcode() == DUP) {
+                JumpInsnNode jump = (JumpInsnNode) check.getNext();
+                instructions.remove(check);
+                replaceNullCheck(instructions, jump, null);
+            }
+            else {
+                replaceNullCheck(instructions, (JumpInsnNode) check, new InsnNode(type.getSize() == 2 ? POP2 : POP));
+            }
+        }
+
+        return nextFreeSlot;
+    }
+
+    private static void replaceNullCheck(@NotNull InsnList instructions, @NotNull JumpInsnNode check, @Nullable AbstractInsnNode pop) {
+        if (pop != null) {
+            instructions.insertBefore(check, pop);
+        }
+        if (check.getOpcode() == IFNONNULL) {
+            instructions.set(check, new JumpInsnNode(GOTO, check.label));
+        }
+        else {
+            instructions.remove(check);
+        }
+    }
+
+    private static void remapLocalVariables(
+            @NotNull MethodNode method,
+            @NotNull BoxedValue value,
+            @NotNull Map<Integer, Integer> newSlots,
+            @NotNull Type type
+    ) {
+        if (method.localVariables == null) return;
+
+        List<VarInsnNode> accesses = new ArrayList<VarInsnNode>(value.stores);
+        accesses.addAll(value.loads);
+
+        for (LocalVariableNode variable : method.localVariables) {
+            Integer newSlot = newSlots.get(variable.index);
+            if (newSlot == null || Type.getType(variable.desc).getSort() != Type.OBJECT) continue;
+
+            int start = method.instructions.indexOf(variable.start);
+            int end = method.instructions.indexOf(variable.end);
+            for (VarInsnNode access : accesses) {
+                int index = method.instructions.indexOf(access);
+                if (access.var == variable.index && index >= start && index <= end) {
+                    variable.index = newSlot;
+                    variable.desc = type.getDescriptor();
+                    variable.signature = null;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static boolean hasBoxing(@NotNull MethodNode method) {
+        for (AbstractInsnNode insn = method.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (isBoxing(insn)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isBoxing(@NotNull AbstractInsnNode insn) {
+        if (insn.getOpcode() != INVOKESTATIC) return false;
+        MethodInsnNode call = (MethodInsnNode) insn;
+        Type primitiveType = BOXED_TYPES.get(call.owner);
+        return primitiveType != null && call.name.equals("valueOf") &&
+               call.desc.equals(Type.getMethodDescriptor(Type.getObjectType(call.owner), primitiveType));
+    }
+
+    private static boolean isNullCheck(@Nullable AbstractInsnNode insn) {
+        return insn != null && (insn.getOpcode() == IFNULL || insn.getOpcode() == IFNONNULL);
+    }
+
+    private static boolean isUnboxing(@NotNull AbstractInsnNode insn) {
+        if (insn.getOpcode() != INVOKEVIRTUAL) return false;
+        MethodInsnNode call = (MethodInsnNode) insn;
+        return (call.owner.equals(NUMBER) || BOXED_TYPES.containsKey(call.owner)) &&
+               call.name.endsWith("Value") && call.desc.startsWith("()") && Type.getReturnType(call.desc).getSort() <= Type.DOUBLE;
+    }
+
+    @NotNull
+    private static SourceValue top(@NotNull Frame<SourceValue> frame) {
+        return frame.getStack(frame.getStackSize() - 1);
+    }
+
+    @NotNull
+    private static Collection<AbstractInsnNode> union(@NotNull Collection<AbstractInsnNode> a, @NotNull Collection<AbstractInsnNode> b) {
+        List<AbstractInsnNode> result = new ArrayList<AbstractInsnNode>(a);
+        result.addAll(b);
+        return result;
+    }
+
+    /**
+     * Computes the maximum stack size and the number of locals by writing the method to a throwaway class
+     *
+     * @return false if the method can't be written
+     */
+    private static boolean computeMaxs(@NotNull final MethodNode method) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_6, ACC_PUBLIC, "Maxs", null, OBJECT, null);
+        try {
+            method.instructions.resetLabels();
+            method.accept(writer.visitMethod(method.access, method.name, method.desc, null, null));
+        }
+        catch (RuntimeException e) {
+            return false;
+        }
+        finally {
+            method.instructions.resetLabels();
+        }
+        writer.visitEnd();
+
+        new ClassReader(writer.toByteArray()).accept(new ClassVisitor(ASM4) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                return new MethodVisitor(ASM4) {
+                    @Override
+                    public void visitMaxs(int maxStack, int maxLocals) {
+                        method.maxStack = maxStack;
+                        method.maxLocals = maxLocals;
+                    }
+                };
+            }
+        }, ClassReader.SKIP_DEBUG);
+        return true;
+    }
+
+    private static class BoxedValue {
+        private final String owner;
+
+        private final Set<AbstractInsnNode> boxings = new LinkedHashSet<AbstractInsnNode>();
+        private final Set<AbstractInsnNode> casts = new LinkedHashSet<AbstractInsnNode>();
+        private final Set<AbstractInsnNode> unboxings = new LinkedHashSet<AbstractInsnNode>();
+        private final Set<AbstractInsnNode> pops = new LinkedHashSet<AbstractInsnNode>();
+        private final Set<AbstractInsnNode> nullChecks = new LinkedHashSet<AbstractInsnNode>();
+        private final Set<VarInsnNode> stores = new LinkedHashSet<VarInsnNode>();
+        private final Set<VarInsnNode> loads = new LinkedHashSet<VarInsnNode>();
+
+        private boolean valid = true;
+
+        private BoxedValue(@NotNull String owner) {
+            this.owner = owner;
+        }
+
+        @NotNull
+        private Type getPrimitiveType() {
+            return BOXED_TYPES.get(owner);
+        }
+
+        private boolean isNumber() {
+            int sort = getPrimitiveType().getSort();
+            return sort != Type.BOOLEAN && sort != Type.CHAR;
+        }
+
+        private boolean isCastAllowed(@NotNull String internalName) {
+            return internalName.equals(owner) || internalName.equals(OBJECT) || (internalName.equals(NUMBER) && isNumber());
+        }
+
+        private boolean isUnboxingAllowed(@NotNull MethodInsnNode call) {
+            Type resultType = Type.getReturnType(call.desc);
+            if (!isNumber()) {
+                return call.owner.equals(owner) && resultType.equals(getPrimitiveType());
+            }
+            int sort = resultType.getSort();
+            return (call.owner.equals(owner) || call.owner.equals(NUMBER)) && sort != Type.BOOLEAN && sort != Type.CHAR &&
+                   call.name.equals(resultType.getClassName() + "Value");
+        }
+    }
+
+    /**
+     * Remembers which instructions use the values produced by each instruction
+     */
+    private static class UsageCollectingInterpreter extends SourceInterpreter {
+        private final Map<AbstractInsnNode, Set<AbstractInsnNode>> consumers = new HashMap<AbstractInsnNode, Set<AbstractInsnNode>>();
+
+        private UsageCollectingInterpreter() {
+            super(ASM4);
+        }
+
+        @NotNull
+        public Collection<AbstractInsnNode> getConsumers(@NotNull AbstractInsnNode producer) {
+            Set<AbstractInsnNode> result = consumers.get(producer);
+            return result != null ? result : Collections.<AbstractInsnNode>emptySet();
+        }
+
+        public void addConsumer(@NotNull SourceValue value, @NotNull AbstractInsnNode consumer) {
+            for (AbstractInsnNode producer : value.insns) {
+                Set<AbstractInsnNode> set = consumers.get(producer);
+                if (set == null) {
+                    set = new LinkedHashSet<AbstractInsnNode>();
+                    consumers.put(producer, set);
+                }
+                set.add(consumer);
+            }
+        }
+
+        @Override
+        public SourceValue copyOperation(AbstractInsnNode insn, SourceValue value) {
+            addConsumer(value, insn);
+            return super.copyOperation(insn, value);
+        }
+
+        @Override
+        public SourceValue unaryOperation(AbstractInsnNode insn, SourceValue value) {
+            addConsumer(value, insn);
+            return super.unaryOperation(insn, value);
+        }
+
+        @Override
+        public SourceValue binaryOperation(AbstractInsnNode insn, SourceValue value1, SourceValue value2) {
+            addConsumer(value1, insn);
+            addConsumer(value2, insn);
+            return super.binaryOperation(insn, value1, value2);
+        }
+
+        @Override
+        public SourceValue ternaryOperation(AbstractInsnNode insn, SourceValue value1, SourceValue value2, SourceValue value3) {
+            addConsumer(value1, insn);
+            addConsumer(value2, insn);
+            addConsumer(value3, insn);
+            return super.ternaryOperation(insn, value1, value2, value3);
+        }
+
+        @Override
+        public SourceValue naryOperation(AbstractInsnNode insn, List<? extends SourceValue> values) {
+            for (SourceValue value : values) {
+                addConsumer(value, insn);
+            }
+            return super.naryOperation(insn, values);
+        }
+
+        @Override
+        public void returnOperation(AbstractInsnNode insn, SourceValue value, SourceValue expected) {
+            addConsumer(value, insn);
+            super.returnOperation(insn, value, expected);
+        }
+    }
+}
@@ -58,6 +58,9 @@ public class GenerationState {
     @NotNull
     private final SamWrapperClasses samWrapperClasses = new SamWrapperClasses(this);
 
+    @NotNull
+    private final InlineFunctionLoader inlineFunctionLoader;
+
     @NotNull
     private final BindingTrace bindingTrace;
 
@@ -70,6 +73,10 @@ public class GenerationState {
 
     private final boolean generateDeclaredClasses;
 
+    private final boolean binaryMetadata;
+
+    private final boolean inlineFunctions;
+
     @Nullable
     private List<ScriptDescriptor> earlierScriptsForReplInterpreter;
 
@@ -86,6 +93,22 @@ public class GenerationState {
             boolean generateNotNullAssertions,
             boolean generateNotNullParamAssertions,
             boolean generateDeclaredClasses
+    ) {
+        this(project, builderFactory, progress, bindingContext, files, generateNotNullAssertions, generateNotNullParamAssertions,
+             generateDeclaredClasses, false, false);
+    }
+
+    public GenerationState(
+            @NotNull Project project,
+            @NotNull ClassBuilderFactory builderFactory,
+            @NotNull Progress progress,
+            @NotNull BindingContext bindingContext,
+            @NotNull List<JetFile> files,
+            boolean generateNotNullAssertions,
+            boolean generateNotNullParamAssertions,
+            boolean generateDeclaredClasses,
+            boolean binaryMetadata,
+            boolean inlineFunctions
     ) {
         this.project = project;
         this.progress = progress;
@@ -105,6 +128,9 @@ public class GenerationState {
         this.generateNotNullAssertions = generateNotNullAssertions;
         this.generateNotNullParamAssertions = generateNotNullParamAssertions;
         this.generateDeclaredClasses = generateDeclaredClasses;
+        this.binaryMetadata = binaryMetadata;
+        this.inlineFunctions = inlineFunctions;
+        this.inlineFunctionLoader = new InlineFunctionLoader(project);
     }
 
     @NotNull
@@ -157,6 +183,11 @@ public class GenerationState {
         return samWrapperClasses;
     }
 
+    @NotNull
+    public InlineFunctionLoader getInlineFunctionLoader() {
+        return inlineFunctionLoader;
+    }
+
     public boolean isGenerateNotNullAssertions() {
         return generateNotNullAssertions;
     }
@@ -169,6 +200,21 @@ public class GenerationState {
         return generateDeclaredClasses;
     }
 
+    /**
+     * @return true if serialized descriptors should be written as raw bytes to a class file attribute instead of the Kotlin annotation,
+     * with names stored once per package when the output is a jar, see {@link org.jetbrains.jet.codegen.SharedNameTable}
+     */
+    public boolean isBinaryMetadata() {
+        return binaryMetadata;
+    }
+
+    /**
+     * @return true if calls to library functions marked as inline should be replaced with their bytecode, see {@link InlineCodegen}
+     */
+    public boolean isInlineFunctions() {
+        return inlineFunctions;
+    }
+
     public void beforeCompile() {
         markUsed();
 
@@ -54,6 +54,18 @@ public class K2JVMCompilerArguments extends CommonCompilerArguments {
     @Argument(value = "notNullParamAssertions", description = "generate not-null assertions on parameters of methods accessible from Java")
     public boolean notNullParamAssertions;
 
+    @Argument(value = "binaryJavaClasses", description = "read Java classes from the classpath without building PSI for them (experimental)")
+    public boolean binaryJavaClasses;
+
+    @Argument(value = "binaryMetadata", description = "store Kotlin metadata as raw bytes with names shared by classes of a package in a jar (experimental, not readable by older compilers; merging such jars or relocating their packages breaks the .kotlin_shared_names tables)")
+    public boolean binaryMetadata;
+
+    @Argument(value = "inline", description = "inline calls to library functions marked as inline (experimental)")
+    public boolean inline;
+
+    @Argument(value = "uncompressedJar", description = "store jar entries without compression, which is faster for intermediate jars")
+    public boolean uncompressedJar;
+
     @Argument(value = "output", description = "output directory")
     public String outputDir;
 
@@ -35,4 +35,16 @@ public class JVMConfigurationKeys {
             CompilerConfigurationKey.create("generate not-null assertions");
     public static final CompilerConfigurationKey<Boolean> GENERATE_NOT_NULL_PARAMETER_ASSERTIONS =
             CompilerConfigurationKey.create("generate not-null parameter assertions");
+
+    public static final CompilerConfigurationKey<Boolean> BINARY_JAVA_CLASSES =
+            CompilerConfigurationKey.create("read Java classes from class files");
+
+    public static final CompilerConfigurationKey<Boolean> BINARY_METADATA =
+            CompilerConfigurationKey.create("store Kotlin metadata as raw bytes");
+
+    public static final CompilerConfigurationKey<Boolean> INLINE_FUNCTIONS =
+            CompilerConfigurationKey.create("inline library functions marked as inline");
+
+    public static final CompilerConfigurationKey<Boolean> UNCOMPRESSED_JAR =
+            CompilerConfigurationKey.create("store jar entries without compression");
 }
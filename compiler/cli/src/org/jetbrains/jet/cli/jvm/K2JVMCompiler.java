@@ -107,6 +107,10 @@ public class K2JVMCompiler extends CLICompiler<K2JVMCompilerArguments> {
 
         configuration.put(JVMConfigurationKeys.GENERATE_NOT_NULL_ASSERTIONS, arguments.notNullAssertions);
         configuration.put(JVMConfigurationKeys.GENERATE_NOT_NULL_PARAMETER_ASSERTIONS, arguments.notNullParamAssertions);
+        configuration.put(JVMConfigurationKeys.BINARY_JAVA_CLASSES, arguments.binaryJavaClasses);
+        configuration.put(JVMConfigurationKeys.BINARY_METADATA, arguments.binaryMetadata);
+        configuration.put(JVMConfigurationKeys.INLINE_FUNCTIONS, arguments.inline);
+        configuration.put(JVMConfigurationKeys.UNCOMPRESSED_JAR, arguments.uncompressedJar);
 
         configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, messageCollector);
 
@@ -16,18 +16,27 @@
 
 package org.jetbrains.jet.cli.jvm.compiler;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
-public final class ClassPath implements Iterable<VirtualFile> {
+public final class ClassPath implements Iterable<VirtualFile>, Disposable {
 
     @NotNull
     private final List<VirtualFile> roots = new ArrayList<VirtualFile>();
 
+    @NotNull
+    private final Map<VirtualFile, MappedJarFile> mappedJars = new HashMap<VirtualFile, MappedJarFile>();
+
     @Override
     public Iterator<VirtualFile> iterator() {
         return roots.iterator();
@@ -36,4 +45,33 @@ public final class ClassPath implements Iterable<VirtualFile> {
     public void add(@NotNull VirtualFile root) {
         roots.add(root);
     }
+
+    public void addJar(@NotNull VirtualFile root, @NotNull File jarFile) {
+        roots.add(root);
+        try {
+            MappedJarFile mappedJar = MappedJarFile.open(jarFile);
+            if (mappedJar != null) {
+                mappedJars.put(root, mappedJar);
+            }
+        }
+        catch (IOException e) {
+            // The root is still accessible through the VFS, so a jar that can't be mapped or is corrupted is not an error
+        }
+    }
+
+    /**
+     * @return the memory-mapped view of the jar this root points to, or null if the root is a directory
+     * or the jar could not be mapped
+     */
+    @Nullable
+    public MappedJarFile getMappedJar(@NotNull VirtualFile root) {
+        return mappedJars.get(root);
+    }
+
+    @Override
+    public void dispose() {
+        for (MappedJarFile mappedJar : mappedJars.values()) {
+            mappedJar.close();
+        }
+    }
 }
@@ -21,33 +21,91 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileFinder;
 import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileKotlinClass;
-import org.jetbrains.jet.lang.resolve.kotlin.header.KotlinClassHeader;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 public class CliVirtualFileFinder implements VirtualFileFinder {
 
     @NotNull
     private final ClassPath classPath;
 
-    public CliVirtualFileFinder(@NotNull ClassPath path) {
+    // The header of each class file is checked at most once: Kotlin classes are kept along with their parsed headers
+    // (but not the file contents), other class files are remembered so that they are never checked again
+    private final Map<VirtualFile, VirtualFileKotlinClass> kotlinClasses = new HashMap<VirtualFile, VirtualFileKotlinClass>();
+    private final Set<VirtualFile> nonKotlinClassFiles = new HashSet<VirtualFile>();
+
+    // Whether Java classes found on the class path should be read directly from class files, see BinaryJavaClass
+    private final boolean binaryJavaClasses;
+
+    public CliVirtualFileFinder(@NotNull ClassPath path, boolean binaryJavaClasses) {
         classPath = path;
+        this.binaryJavaClasses = binaryJavaClasses;
     }
 
     @Nullable
     @Override
     public VirtualFile find(@NotNull FqName className) {
+        VirtualFileKotlinClass kotlinClass = findKotlinClass(className);
+        return kotlinClass == null ? null : kotlinClass.getFile();
+    }
+
+    @Nullable
+    @Override
+    public VirtualFileKotlinClass findKotlinClass(@NotNull FqName className) {
         for (VirtualFile root : classPath) {
-            VirtualFile fileInRoot = findFileInRoot(className.asString(), root);
-            if (fileInRoot != null) {
-                return fileInRoot;
+            MappedJarFile mappedJar = classPath.getMappedJar(root);
+            VirtualFile file = mappedJar != null
+                               ? findClassFileInMappedJar(className.asString(), root, mappedJar)
+                               : findClassFileInRoot(className.asString(), root);
+            VirtualFileKotlinClass kotlinClass = file == null ? null : getKotlinClass(file);
+            if (kotlinClass != null) {
+                return kotlinClass;
             }
         }
         return null;
     }
 
+    @Nullable
+    @Override
+    public VirtualFile findBinaryJavaClassFile(@NotNull FqName className) {
+        if (!binaryJavaClasses) return null;
+
+        for (VirtualFile root : classPath) {
+            MappedJarFile mappedJar = classPath.getMappedJar(root);
+            VirtualFile file = mappedJar != null
+                               ? findClassFileInMappedJar(className.asString(), root, mappedJar)
+                               : findClassFileInRoot(className.asString(), root);
+            if (file != null) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private synchronized VirtualFileKotlinClass getKotlinClass(@NotNull VirtualFile file) {
+        VirtualFileKotlinClass kotlinClass = kotlinClasses.get(file);
+        if (kotlinClass != null) return kotlinClass;
+        if (nonKotlinClassFiles.contains(file)) return null;
+
+        kotlinClass = new VirtualFileKotlinClass(file);
+        //NOTE: currently we use VirtualFileFinder to find Kotlin binaries only
+        if (kotlinClass.getClassHeader() == null) {
+            nonKotlinClassFiles.add(file);
+            return null;
+        }
+
+        kotlinClasses.put(file, kotlinClass);
+        return kotlinClass;
+    }
+
     //NOTE: copied with some changes from CoreJavaFileManager
     @Nullable
-    private static VirtualFile findFileInRoot(@NotNull String qName, @NotNull VirtualFile root) {
+    private static VirtualFile findClassFileInRoot(@NotNull String qName, @NotNull VirtualFile root) {
         String pathRest = qName;
         VirtualFile cur = root;
 
@@ -70,11 +128,31 @@ public class CliVirtualFileFinder implements VirtualFileFinder {
                 //TODO: log
                 return null;
             }
-            //NOTE: currently we use VirtualFileFinder to find Kotlin binaries only
-            if (KotlinClassHeader.read(new VirtualFileKotlinClass(vFile)) != null) {
-                return vFile;
-            }
+            return vFile;
         }
         return null;
     }
+
+    // Same lookup as in findClassFileInRoot, but existence checks are served by the jar index and the VFS is not involved
+    @Nullable
+    private static VirtualFile findClassFileInMappedJar(@NotNull String qName, @NotNull VirtualFile root, @NotNull MappedJarFile jar) {
+        String pathRest = qName;
+        String directory = "";
+
+        while (true) {
+            int dot = pathRest.indexOf('.');
+            if (dot < 0) break;
+
+            String pathComponent = pathRest.substring(0, dot);
+            String child = directory.isEmpty() ? pathComponent : directory + "/" + pathComponent;
+
+            if (!jar.hasDirectory(child)) break;
+            pathRest = pathRest.substring(dot + 1);
+            directory = child;
+        }
+
+        String className = pathRest.replace('.', '$');
+        String entryPath = (directory.isEmpty() ? "" : directory + "/") + className + ".class";
+        return jar.hasEntry(entryPath) ? new MappedJarEntryFile(root, jar, entryPath) : null;
+    }
 }
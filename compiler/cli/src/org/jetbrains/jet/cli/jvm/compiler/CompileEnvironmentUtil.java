@@ -32,13 +32,14 @@ import org.jetbrains.jet.cli.common.modules.ModuleDescription;
 import org.jetbrains.jet.cli.common.modules.ModuleXmlParser;
 import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.jet.codegen.ClassFileFactory;
+import org.jetbrains.jet.codegen.ClassFileSink;
 import org.jetbrains.jet.codegen.GeneratedClassLoader;
 import org.jetbrains.jet.codegen.state.GenerationState;
 import org.jetbrains.jet.config.CommonConfigurationKeys;
 import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.lang.resolve.java.JvmAbi;
 import org.jetbrains.jet.lang.resolve.java.PackageClassUtils;
 import org.jetbrains.jet.lang.resolve.name.FqName;
-import org.jetbrains.jet.utils.ExceptionUtils;
 import org.jetbrains.jet.utils.KotlinPaths;
 import org.jetbrains.jet.utils.PathUtil;
 
@@ -48,9 +49,16 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.jar.*;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
 
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageLocation.NO_LOCATION;
 import static org.jetbrains.jet.cli.common.messages.CompilerMessageSeverity.ERROR;
@@ -167,50 +175,26 @@ public class CompileEnvironmentUtil {
         }
     }
 
-    // TODO: includeRuntime should be not a flag but a path to runtime
-    private static void doWriteToJar(ClassFileFactory factory, OutputStream fos, @Nullable FqName mainClass, boolean includeRuntime) {
+    public static void writeToJar(File jarPath, boolean jarRuntime, FqName mainClass, ClassFileFactory moduleFactory) {
+        JarOutputSink sink = new JarOutputSink(jarPath, jarRuntime, mainClass, true);
+        boolean success = false;
         try {
-            Manifest manifest = new Manifest();
-            Attributes mainAttributes = manifest.getMainAttributes();
-            mainAttributes.putValue("Manifest-Version", "1.0");
-            mainAttributes.putValue("Created-By", "JetBrains Kotlin");
-            if (mainClass != null) {
-                mainAttributes.putValue("Main-Class", mainClass.asString());
-            }
-            JarOutputStream stream = new JarOutputStream(fos, manifest);
-            for (String file : factory.files()) {
-                stream.putNextEntry(new JarEntry(file));
-                stream.write(factory.asBytes(file));
-            }
-            if (includeRuntime) {
-                writeRuntimeToJar(stream);
-            }
-            stream.finish();
+            writeAll(moduleFactory, sink);
+            sink.finish();
+            success = true;
         }
-        catch (IOException e) {
-            throw new CompileEnvironmentException("Failed to generate jar file", e);
+        finally {
+            closeOrAbort(sink, success);
         }
     }
 
-    public static void writeToJar(File jarPath, boolean jarRuntime, FqName mainClass, ClassFileFactory moduleFactory) {
-        FileOutputStream outputStream = null;
-        try {
-            outputStream = new FileOutputStream(jarPath);
-            doWriteToJar(moduleFactory, outputStream, mainClass, jarRuntime);
-            outputStream.close();
-        }
-        catch (FileNotFoundException e) {
-            throw new CompileEnvironmentException("Invalid jar path " + jarPath, e);
-        }
-        catch (IOException e) {
-            throw ExceptionUtils.rethrow(e);
-        }
-        finally {
-            ExceptionUtils.closeQuietly(outputStream);
+    private static void writeAll(@NotNull ClassFileFactory factory, @NotNull ClassFileSink sink) {
+        for (String file : factory.files()) {
+            sink.write(file, factory.getSourceFiles(file), factory.asBytes(file));
         }
     }
 
-    private static void writeRuntimeToJar(final JarOutputStream stream) throws IOException {
+    private static void writeRuntimeToJar(@NotNull ParallelJarWriter writer) throws IOException {
         File runtimeJarPath = getRuntimeJarPath();
         if (runtimeJarPath != null) {
             JarInputStream jis = new JarInputStream(new FileInputStream(runtimeJarPath));
@@ -220,9 +204,9 @@ public class CompileEnvironmentUtil {
                     if (e == null) {
                         break;
                     }
-                    if (FileUtilRt.extensionEquals(e.getName(), "class")) {
-                        stream.putNextEntry(e);
-                        FileUtil.copy(jis, stream);
+                    // Runtime classes compiled with -binaryMetadata can't be read without the name tables of their packages
+                    if (FileUtilRt.extensionEquals(e.getName(), "class") || isSharedNameTable(e.getName())) {
+                        writer.addEntry(e.getName(), FileUtil.loadBytes(jis));
                     }
                 }
             }
@@ -235,6 +219,10 @@ public class CompileEnvironmentUtil {
         }
     }
 
+    private static boolean isSharedNameTable(@NotNull String entryName) {
+        return entryName.equals(JvmAbi.SHARED_NAME_TABLE_FILE_NAME) || entryName.endsWith("/" + JvmAbi.SHARED_NAME_TABLE_FILE_NAME);
+    }
+
     public interface OutputDirector {
         @NotNull
         File getOutputDirectory(@NotNull Collection<File> sourceFiles);
@@ -256,25 +244,232 @@ public class CompileEnvironmentUtil {
             @NotNull OutputDirector outputDirector,
             @NotNull MessageCollector messageCollector
     ) {
-        List<String> files = factory.files();
-        for (String file : files) {
-            List<File> sourceFiles = factory.getSourceFiles(file);
-            File target = new File(outputDirector.getOutputDirectory(sourceFiles), file);
+        DirectoryOutputSink sink = new DirectoryOutputSink(outputDirector, messageCollector);
+        boolean success = false;
+        try {
+            writeAll(factory, sink);
+            sink.finish();
+            success = true;
+        }
+        finally {
+            closeOrAbort(sink, success);
+        }
+    }
+
+    public static void writeToOutputDirectory(ClassFileFactory factory, @NotNull File outputDir) {
+        writeToOutputWithDirector(factory, singleDirectory(outputDir), MessageCollector.NONE);
+    }
+
+    /**
+     * Writes generated files to a jar or to output directories as they are passed by the class file factory,
+     * see {@link ClassFileFactory#setSink(ClassFileSink)}. Files are written to temporary files next to their destinations
+     * and moved into place by {@link #finish()}, so that the output of the previous build stays intact if the compilation fails
+     */
+    public abstract static class OutputSink implements ClassFileSink {
+        /**
+         * Completes the output after all files are written and moves it into place
+         */
+        public abstract void finish();
+
+        /**
+         * Releases the resources held by the sink, whether the output is complete or not
+         */
+        public abstract void close();
+
+        /**
+         * Releases the resources held by the sink and deletes the temporary files written by it. The destination files are not
+         * touched unless {@link #finish()} has completed. May be called after {@link #close()} and more than once
+         */
+        public abstract void abort();
+    }
+
+    static void closeOrAbort(@NotNull OutputSink sink, boolean success) {
+        if (success) {
+            sink.close();
+        }
+        else {
+            sink.abort();
+        }
+    }
+
+    private static class DirectoryOutputSink extends OutputSink {
+        private final OutputDirector outputDirector;
+        private final MessageCollector messageCollector;
+
+        // Temporary files by their destinations. Files with unchanged contents are not written at all
+        private final Map<File, File> temporaryFiles = new LinkedHashMap<File, File>();
+
+        private DirectoryOutputSink(@NotNull OutputDirector outputDirector, @NotNull MessageCollector messageCollector) {
+            this.outputDirector = outputDirector;
+            this.messageCollector = messageCollector;
+        }
+
+        @Override
+        public void write(@NotNull String relativePath, @NotNull List<File> sourceFiles, @NotNull byte[] bytes) {
+            File target = new File(outputDirector.getOutputDirectory(sourceFiles), relativePath);
+            // Reported even if the file is unchanged, build tools rely on these messages to map sources to outputs
             messageCollector.report(
                     CompilerMessageSeverity.OUTPUT,
                     OutputMessageUtil.formatOutputMessage(sourceFiles, target),
                     CompilerMessageLocation.NO_LOCATION);
             try {
-                FileUtil.writeToFile(target, factory.asBytes(file));
+                File previous = temporaryFiles.remove(target);
+                if (previous != null) {
+                    FileUtil.delete(previous);
+                }
+                if (!hasContents(target, bytes)) {
+                    File temporary = createTemporaryFile(target);
+                    temporaryFiles.put(target, temporary);
+                    FileUtil.writeToFile(temporary, bytes);
+                }
             }
             catch (IOException e) {
                 throw new CompileEnvironmentException(e);
             }
         }
+
+        @Override
+        public boolean isArchive() {
+            return false;
+        }
+
+        @Override
+        public void finish() {
+            try {
+                for (Iterator<Map.Entry<File, File>> iterator = temporaryFiles.entrySet().iterator(); iterator.hasNext(); ) {
+                    Map.Entry<File, File> entry = iterator.next();
+                    moveIntoPlace(entry.getValue(), entry.getKey());
+                    iterator.remove();
+                }
+            }
+            catch (IOException e) {
+                throw new CompileEnvironmentException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            abort();
+        }
+
+        @Override
+        public void abort() {
+            for (File temporary : temporaryFiles.values()) {
+                FileUtil.delete(temporary);
+            }
+            temporaryFiles.clear();
+        }
     }
 
-    public static void writeToOutputDirectory(ClassFileFactory factory, @NotNull File outputDir) {
-        writeToOutputWithDirector(factory, singleDirectory(outputDir), MessageCollector.NONE);
+    private static boolean hasContents(@NotNull File file, @NotNull byte[] bytes) throws IOException {
+        return file.isFile() && file.length() == bytes.length && Arrays.equals(FileUtil.loadFileBytes(file), bytes);
+    }
+
+    @NotNull
+    private static File createTemporaryFile(@NotNull File target) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        // The prefix is hidden on Unix and is never shorter than the three characters required by createTempFile()
+        return File.createTempFile("." + target.getName() + ".", ".tmp", directory);
+    }
+
+    private static void moveIntoPlace(@NotNull File temporary, @NotNull File target) throws IOException {
+        // On Windows a file can't be renamed over an existing one
+        if (!temporary.renameTo(target) && !(FileUtil.delete(target) && temporary.renameTo(target))) {
+            throw new IOException("Can't move " + temporary + " to " + target);
+        }
+    }
+
+    // TODO: includeRuntime should be not a flag but a path to runtime
+    private static class JarOutputSink extends OutputSink {
+        private final File jarPath;
+        private final boolean includeRuntime;
+        private final FqName mainClass;
+        private final boolean compress;
+
+        // Opened on the first write, so that no temporary jar is created if the compilation fails before any class is generated
+        private ParallelJarWriter writer = null;
+        // The jar being written, moved to jarPath by finish()
+        private File temporaryJar = null;
+
+        private JarOutputSink(@NotNull File jarPath, boolean includeRuntime, @Nullable FqName mainClass, boolean compress) {
+            this.jarPath = jarPath;
+            this.includeRuntime = includeRuntime;
+            this.mainClass = mainClass;
+            this.compress = compress;
+        }
+
+        @NotNull
+        private ParallelJarWriter getWriter() throws IOException {
+            if (writer == null) {
+                Manifest manifest = new Manifest();
+                Attributes mainAttributes = manifest.getMainAttributes();
+                mainAttributes.putValue("Manifest-Version", "1.0");
+                mainAttributes.putValue("Created-By", "JetBrains Kotlin");
+                if (mainClass != null) {
+                    mainAttributes.putValue("Main-Class", mainClass.asString());
+                }
+                try {
+                    temporaryJar = createTemporaryFile(jarPath);
+                    writer = new ParallelJarWriter(temporaryJar, manifest, compress);
+                }
+                catch (FileNotFoundException e) {
+                    throw new CompileEnvironmentException("Invalid jar path " + jarPath, e);
+                }
+            }
+            return writer;
+        }
+
+        @Override
+        public void write(@NotNull String relativePath, @NotNull List<File> sourceFiles, @NotNull byte[] bytes) {
+            try {
+                getWriter().addEntry(relativePath, bytes);
+            }
+            catch (IOException e) {
+                throw new CompileEnvironmentException("Failed to generate jar file", e);
+            }
+        }
+
+        @Override
+        public boolean isArchive() {
+            return true;
+        }
+
+        @Override
+        public void finish() {
+            try {
+                ParallelJarWriter jar = getWriter();
+                if (includeRuntime) {
+                    writeRuntimeToJar(jar);
+                }
+                jar.finish();
+                writer = null;
+                moveIntoPlace(temporaryJar, jarPath);
+                temporaryJar = null;
+            }
+            catch (IOException e) {
+                throw new CompileEnvironmentException("Failed to generate jar file", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            if (temporaryJar != null) {
+                FileUtil.delete(temporaryJar);
+                temporaryJar = null;
+            }
+        }
+
+        @Override
+        public void abort() {
+            close();
+        }
     }
 
     // Used for debug output only
@@ -289,22 +484,54 @@ public class CompileEnvironmentUtil {
         return moduleScriptText;
     }
 
-    static void writeOutputToDirOrJar(
+    /**
+     * @return a sink writing to the given jar or directories, or null if neither is specified
+     */
+    @Nullable
+    static OutputSink createOutputSink(
             @Nullable File jar,
             @Nullable OutputDirector outputDir,
             boolean includeRuntime,
             @Nullable FqName mainClass,
-            @NotNull ClassFileFactory factory,
+            boolean compressJar,
             @NotNull MessageCollector messageCollector
     ) {
         if (jar != null) {
-            writeToJar(jar, includeRuntime, mainClass, factory);
+            return new JarOutputSink(jar, includeRuntime, mainClass, compressJar);
         }
         else if (outputDir != null) {
-            writeToOutputWithDirector(factory, outputDir, messageCollector);
+            return new DirectoryOutputSink(outputDir, messageCollector);
         }
-        else {
-            throw new CompileEnvironmentException("Output directory or jar file is not specified - no files will be saved to the disk");
+        return null;
+    }
+
+    /**
+     * Writes all files of the factory which are not written yet. If the sink is not null, it must be the sink of the factory
+     */
+    static void writeOutputToDirOrJar(
+            @Nullable File jar,
+            @Nullable OutputDirector outputDir,
+            boolean includeRuntime,
+            @Nullable FqName mainClass,
+            @NotNull ClassFileFactory factory,
+            @NotNull MessageCollector messageCollector,
+            @Nullable OutputSink sink
+    ) {
+        if (sink == null) {
+            sink = createOutputSink(jar, outputDir, includeRuntime, mainClass, true, messageCollector);
+            if (sink == null) {
+                throw new CompileEnvironmentException("Output directory or jar file is not specified - no files will be saved to the disk");
+            }
+            factory.setSink(sink);
+        }
+        boolean success = false;
+        try {
+            factory.flushToSink();
+            sink.finish();
+            success = true;
+        }
+        finally {
+            closeOrAbort(sink, success);
         }
     }
 
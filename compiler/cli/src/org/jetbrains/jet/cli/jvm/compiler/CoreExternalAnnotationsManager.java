@@ -19,26 +19,126 @@ package org.jetbrains.jet.cli.jvm.compiler;
 import com.intellij.codeInsight.BaseExternalAnnotationsManager;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
+import com.intellij.psi.util.PsiFormatUtil;
+import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.resolver.ExternalAnnotationsLookup;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-public class CoreExternalAnnotationsManager extends BaseExternalAnnotationsManager {
+public class CoreExternalAnnotationsManager extends BaseExternalAnnotationsManager implements ExternalAnnotationsLookup {
     static {
         // This is an ugly workaround for JDOM 1.1 used from application started from Ant 1.8 without forking
         System.setProperty("javax.xml.parsers.SAXParserFactory", "com.sun.org.apache.xerces.internal.jaxp.SAXParserFactoryImpl");
     }
 
+    // Directory to save indices of annotations roots to. If not set, indices are built from XML files on every run.
+    // It should not be shared with other users, who could replace the indices otherwise
+    private static final String INDEX_CACHE_DIRECTORY_PROPERTY = "kotlin.external.annotations.cache";
+
+    private static final Map<String, PsiAnnotation> NO_ANNOTATIONS = Collections.emptyMap();
+
+    private final PsiManager psiManager;
     private final List<VirtualFile> externalAnnotationsRoots = new ArrayList<VirtualFile>();
 
+    // Built lazily on the first lookup, guarded by this
+    private List<ExternalAnnotationsIndex> indices = null;
+
+    // External name -> annotation FQ name -> annotation
+    private final ConcurrentMap<String, Map<String, PsiAnnotation>> annotationsCache = new ConcurrentHashMap<String, Map<String, PsiAnnotation>>();
+
     public CoreExternalAnnotationsManager(@NotNull PsiManager psiManager) {
         super(psiManager);
+        this.psiManager = psiManager;
     }
 
-    public void addExternalAnnotationsRoot(VirtualFile externalAnnotationsRoot) {
+    public synchronized void addExternalAnnotationsRoot(VirtualFile externalAnnotationsRoot) {
         externalAnnotationsRoots.add(externalAnnotationsRoot);
+        indices = null;
+        annotationsCache.clear();
+    }
+
+    @Nullable
+    @Override
+    public PsiAnnotation findExternalAnnotation(@NotNull PsiModifierListOwner listOwner, @NotNull String annotationFQN) {
+        return getAnnotations(listOwner).get(annotationFQN);
+    }
+
+    @Nullable
+    @Override
+    public PsiAnnotation[] findExternalAnnotations(@NotNull PsiModifierListOwner listOwner) {
+        Map<String, PsiAnnotation> annotations = getAnnotations(listOwner);
+        return annotations.isEmpty() ? null : annotations.values().toArray(new PsiAnnotation[annotations.size()]);
+    }
+
+    @NotNull
+    @Override
+    public Collection<PsiAnnotation> findExternalAnnotations(@NotNull String externalName) {
+        return getAnnotations(externalName).values();
+    }
+
+    @NotNull
+    private Map<String, PsiAnnotation> getAnnotations(@NotNull PsiModifierListOwner listOwner) {
+        String externalName = PsiFormatUtil.getExternalName(listOwner, false, Integer.MAX_VALUE);
+        return externalName == null ? NO_ANNOTATIONS : getAnnotations(externalName);
+    }
+
+    @NotNull
+    private Map<String, PsiAnnotation> getAnnotations(@NotNull String externalName) {
+        Map<String, PsiAnnotation> cached = annotationsCache.get(externalName);
+        if (cached != null) return cached;
+
+        Map<String, PsiAnnotation> result = NO_ANNOTATIONS;
+        for (ExternalAnnotationsIndex index : getIndices()) {
+            for (ExternalAnnotationsIndex.AnnotationData data : index.get(externalName)) {
+                if (result == NO_ANNOTATIONS) {
+                    result = new LinkedHashMap<String, PsiAnnotation>();
+                }
+                // The first root wins, as in the XML-based lookup
+                if (!result.containsKey(data.getFqName())) {
+                    PsiAnnotation annotation = createAnnotation(data);
+                    if (annotation != null) {
+                        result.put(data.getFqName(), annotation);
+                    }
+                }
+            }
+        }
+
+        Map<String, PsiAnnotation> old = annotationsCache.putIfAbsent(externalName, result);
+        return old != null ? old : result;
+    }
+
+    @Nullable
+    private PsiAnnotation createAnnotation(@NotNull ExternalAnnotationsIndex.AnnotationData data) {
+        try {
+            return JavaPsiFacade.getElementFactory(psiManager.getProject()).createAnnotationFromText(data.getAnnotationText(), null);
+        }
+        catch (IncorrectOperationException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private synchronized List<ExternalAnnotationsIndex> getIndices() {
+        if (indices == null) {
+            File cacheDirectory = getIndexCacheDirectory();
+            List<ExternalAnnotationsIndex> result = new ArrayList<ExternalAnnotationsIndex>(externalAnnotationsRoots.size());
+            for (VirtualFile root : externalAnnotationsRoots) {
+                result.add(ExternalAnnotationsIndex.load(root, cacheDirectory));
+            }
+            indices = result;
+        }
+        return indices;
+    }
+
+    @Nullable
+    private static File getIndexCacheDirectory() {
+        String property = System.getProperty(INDEX_CACHE_DIRECTORY_PROPERTY);
+        return property == null ? null : new File(property);
     }
 
     @Override
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * External annotations of one annotations root (a directory or a jar with annotations.xml files), indexed by external names
+ * of the annotated declarations, as returned by {@code PsiFormatUtil.getExternalName()}.
+ *
+ * Parsing XML files of a big root (like JDK annotations) is expensive, so the index is saved in a compact binary form
+ * to the cache directory and reused as long as none of the annotations.xml files in the root change. The saved index records
+ * the root and the state of its files it was built from, and is only used if they match and the file is well-formed.
+ * Indices saved for previous states of the root are deleted.
+ *
+ * An annotations.xml file which can't be parsed is skipped with a warning, and the index of its root is not saved then.
+ */
+public final class ExternalAnnotationsIndex {
+    private static final Logger LOG = Logger.getInstance(ExternalAnnotationsIndex.class);
+
+    private static final String ANNOTATIONS_FILE_NAME = "annotations.xml";
+
+    private static final int MAGIC = 0x4b414e4e; // "KANN"
+    private static final int VERSION = 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public static final class AnnotationData {
+        private final String fqName;
+        private final String parameters;
+
+        private AnnotationData(@NotNull String fqName, @NotNull String parameters) {
+            this.fqName = fqName;
+            this.parameters = parameters;
+        }
+
+        @NotNull
+        public String getFqName() {
+            return fqName;
+        }
+
+        /**
+         * @return the text of the annotation in Java syntax, e.g. {@code "@org.jetbrains.annotations.NotNull"}
+         */
+        @NotNull
+        public String getAnnotationText() {
+            return "@" + fqName + (parameters.isEmpty() ? "" : "(" + parameters + ")");
+        }
+
+        @Override
+        public String toString() {
+            return getAnnotationText();
+        }
+    }
+
+    private final Map<String, List<AnnotationData>> annotations;
+
+    private ExternalAnnotationsIndex(@NotNull Map<String, List<AnnotationData>> annotations) {
+        this.annotations = annotations;
+    }
+
+    @NotNull
+    public List<AnnotationData> get(@NotNull String externalName) {
+        List<AnnotationData> result = annotations.get(externalName);
+        return result == null ? Collections.<AnnotationData>emptyList() : result;
+    }
+
+    public int size() {
+        return annotations.size();
+    }
+
+    /**
+     * @param cacheDirectory a directory to look for the saved index in and to save the index to, or null if the index should always be
+     *                       built from XML files
+     */
+    @NotNull
+    public static ExternalAnnotationsIndex load(@NotNull VirtualFile root, @Nullable File cacheDirectory) {
+        List<VirtualFile> files = new ArrayList<VirtualFile>();
+        collectAnnotationFiles(root, files);
+
+        String rootUrl = root.getUrl();
+        long fingerprint = getFingerprint(files);
+        String cacheFilePrefix = getCacheFilePrefix(root);
+        File cacheFile = cacheDirectory == null ? null : new File(cacheDirectory, getCacheFileName(cacheFilePrefix, fingerprint));
+        if (cacheFile != null && cacheFile.isFile()) {
+            try {
+                return new ExternalAnnotationsIndex(read(cacheFile, rootUrl, fingerprint));
+            }
+            catch (IOException e) {
+                // Corrupted, written by a different version or for a different root: rebuild it
+            }
+        }
+
+        Map<String, List<AnnotationData>> annotations = new HashMap<String, List<AnnotationData>>();
+        boolean allFilesParsed = true;
+        for (VirtualFile file : files) {
+            try {
+                Map<String, List<AnnotationData>> fileAnnotations = new LinkedHashMap<String, List<AnnotationData>>();
+                parse(file, fileAnnotations);
+                for (Map.Entry<String, List<AnnotationData>> entry : fileAnnotations.entrySet()) {
+                    for (AnnotationData data : entry.getValue()) {
+                        add(annotations, entry.getKey(), data);
+                    }
+                }
+            }
+            catch (IOException e) {
+                LOG.warn("Skipping external annotations file " + file.getPath(), e);
+                allFilesParsed = false;
+            }
+        }
+
+        // Don't save the index without the skipped files, so that the warning is reported on every run until the file is fixed
+        if (cacheFile != null && allFilesParsed) {
+            try {
+                write(annotations, cacheFile, rootUrl, fingerprint);
+                deleteSupersededIndices(cacheFile, cacheFilePrefix);
+            }
+            catch (IOException e) {
+                // The cache is an optimization only
+            }
+        }
+
+        return new ExternalAnnotationsIndex(annotations);
+    }
+
+    private static void collectAnnotationFiles(@NotNull VirtualFile directory, @NotNull List<VirtualFile> result) {
+        for (VirtualFile child : directory.getChildren()) {
+            if (child.isDirectory()) {
+                collectAnnotationFiles(child, result);
+            }
+            else if (ANNOTATIONS_FILE_NAME.equals(child.getName())) {
+                result.add(child);
+            }
+        }
+    }
+
+    // Depends on the paths, sizes and time stamps of all annotation files of the root
+    private static long getFingerprint(@NotNull List<VirtualFile> files) {
+        long fingerprint = VERSION;
+        for (VirtualFile file : files) {
+            fingerprint = fingerprint * 31 + file.getPath().hashCode();
+            fingerprint = fingerprint * 31 + file.getLength();
+            fingerprint = fingerprint * 31 + file.getTimeStamp();
+        }
+        return fingerprint;
+    }
+
+    // Indices of the same root differ in the fingerprint following this prefix only
+    @NotNull
+    private static String getCacheFilePrefix(@NotNull VirtualFile root) {
+        return root.getName().replaceAll("[^\\w.-]", "_") + "-" + Integer.toHexString(root.getUrl().hashCode()) + "-";
+    }
+
+    @NotNull
+    private static String getCacheFileName(@NotNull String cacheFilePrefix, long fingerprint) {
+        return cacheFilePrefix + Long.toHexString(fingerprint) + ".index";
+    }
+
+    private static void deleteSupersededIndices(@NotNull File cacheFile, @NotNull String cacheFilePrefix) {
+        File[] files = cacheFile.getParentFile().listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(cacheFilePrefix) && name.endsWith(".index") && !file.equals(cacheFile) &&
+                name.substring(cacheFilePrefix.length(), name.length() - ".index".length()).matches("[0-9a-f]+")) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    private static void parse(@NotNull VirtualFile file, @NotNull final Map<String, List<AnnotationData>> result) throws IOException {
+        DefaultHandler handler = new DefaultHandler() {
+            private String itemName;
+            private String annotationName;
+            private final StringBuilder parameters = new StringBuilder();
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if ("item".equals(qName)) {
+                    itemName = attributes.getValue("name");
+                }
+                else if ("annotation".equals(qName)) {
+                    annotationName = attributes.getValue("name");
+                    parameters.setLength(0);
+                }
+                else if ("val".equals(qName) && annotationName != null) {
+                    if (parameters.length() > 0) parameters.append(",");
+                    String name = attributes.getValue("name");
+                    if (name != null) {
+                        parameters.append(name).append("=");
+                    }
+                    parameters.append(attributes.getValue("val"));
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                if ("item".equals(qName)) {
+                    itemName = null;
+                }
+                else if ("annotation".equals(qName)) {
+                    if (itemName != null && annotationName != null) {
+                        add(result, itemName, new AnnotationData(annotationName, parameters.toString()));
+                    }
+                    annotationName = null;
+                }
+            }
+        };
+
+        InputStream stream = file.getInputStream();
+        try {
+            SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+            parser.parse(stream, handler);
+        }
+        catch (SAXException e) {
+            throw new IOException("Invalid external annotations file " + file.getPath() + ": " + e.getMessage());
+        }
+        catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    private static void add(@NotNull Map<String, List<AnnotationData>> map, @NotNull String externalName, @NotNull AnnotationData data) {
+        List<AnnotationData> list = map.get(externalName);
+        if (list == null) {
+            list = new ArrayList<AnnotationData>(1);
+            map.put(externalName, list);
+        }
+        list.add(data);
+    }
+
+    // Format: magic, version, root URL, fingerprint, string table, then entries referring to the strings by their indices
+
+    private static void write(
+            @NotNull Map<String, List<AnnotationData>> annotations,
+            @NotNull File file,
+            @NotNull String rootUrl,
+            long fingerprint
+    ) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        for (Map.Entry<String, List<AnnotationData>> entry : annotations.entrySet()) {
+            intern(strings, entry.getKey());
+            for (AnnotationData data : entry.getValue()) {
+                intern(strings, data.fqName);
+                intern(strings, data.parameters);
+            }
+        }
+
+        File directory = file.getParentFile();
+        if (!directory.isDirectory()) {
+            if (!directory.mkdirs()) {
+                throw new IOException("Can't create directory " + directory);
+            }
+            makeAccessibleToOwnerOnly(directory);
+        }
+
+        // Write to a temporary file first, so that a concurrent compiler never sees a partially written index
+        File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        makeAccessibleToOwnerOnly(temporary);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(rootUrl);
+            output.writeLong(fingerprint);
+
+            output.writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+
+            output.writeInt(annotations.size());
+            for (Map.Entry<String, List<AnnotationData>> entry : annotations.entrySet()) {
+                output.writeInt(strings.get(entry.getKey()));
+                output.writeInt(entry.getValue().size());
+                for (AnnotationData data : entry.getValue()) {
+                    output.writeInt(strings.get(data.fqName));
+                    output.writeInt(strings.get(data.parameters));
+                }
+            }
+        }
+        finally {
+            output.close();
+        }
+
+        if (!temporary.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temporary.delete();
+        }
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private static void makeAccessibleToOwnerOnly(@NotNull File file) {
+        file.setReadable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(false, false);
+        file.setWritable(true, true);
+        if (file.isDirectory()) {
+            file.setExecutable(false, false);
+            file.setExecutable(true, true);
+        }
+    }
+
+    private static void intern(@NotNull Map<String, Integer> strings, @NotNull String string) {
+        if (!strings.containsKey(string)) {
+            strings.put(string, strings.size());
+        }
+    }
+
+    @NotNull
+    private static Map<String, List<AnnotationData>> read(@NotNull File file, @NotNull String rootUrl, long fingerprint)
+            throws IOException {
+        // No count or length in a well-formed file can exceed its size, this prevents huge allocations for corrupted files
+        long limit = file.length();
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Unsupported external annotations index: " + file);
+            }
+            if (!rootUrl.equals(input.readUTF()) || input.readLong() != fingerprint) {
+                throw new IOException("External annotations index is built for a different root: " + file);
+            }
+
+            String[] strings = new String[readSize(input, limit, file)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readSize(input, limit, file)];
+                input.readFully(bytes);
+                strings[i] = new String(bytes, UTF_8);
+            }
+
+            int entryCount = readSize(input, limit, file);
+            Map<String, List<AnnotationData>> result = new HashMap<String, List<AnnotationData>>(entryCount * 2);
+            for (int i = 0; i < entryCount; i++) {
+                String externalName = strings[input.readInt()];
+                int annotationCount = readSize(input, limit, file);
+                List<AnnotationData> list = new ArrayList<AnnotationData>(annotationCount);
+                for (int j = 0; j < annotationCount; j++) {
+                    list.add(new AnnotationData(strings[input.readInt()], strings[input.readInt()]));
+                }
+                result.put(externalName, list);
+            }
+            return result;
+        }
+        catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupted external annotations index: " + file);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private static int readSize(@NotNull DataInputStream input, long limit, @NotNull File file) throws IOException {
+        int size = input.readInt();
+        if (size < 0 || size > limit) {
+            throw new IOException("Corrupted external annotations index: " + file);
+        }
+        return size;
+    }
+}
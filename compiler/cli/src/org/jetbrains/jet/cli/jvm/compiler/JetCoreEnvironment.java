@@ -163,6 +163,8 @@ public class JetCoreEnvironment {
         this.configuration.setReadOnly(true);
 
         projectEnvironment = new JavaCoreProjectEnvironment(parentDisposable, applicationEnvironment);
+        // Jars on the class path stay mapped into memory until the environment is disposed
+        Disposer.register(parentDisposable, classPath);
 
         MockProject project = projectEnvironment.getProject();
         project.registerService(JetScriptDefinitionProvider.class, new JetScriptDefinitionProvider());
@@ -197,7 +199,8 @@ public class JetCoreEnvironment {
         JetScriptDefinitionProvider.getInstance(project).addScriptDefinitions(
                 configuration.getList(CommonConfigurationKeys.SCRIPT_DEFINITIONS_KEY));
 
-        project.registerService(VirtualFileFinder.class, new CliVirtualFileFinder(classPath));
+        project.registerService(VirtualFileFinder.class, new CliVirtualFileFinder(
+                classPath, configuration.get(JVMConfigurationKeys.BINARY_JAVA_CLASSES, false)));
     }
 
     public CompilerConfiguration getConfiguration() {
@@ -273,7 +276,7 @@ public class JetCoreEnvironment {
                 return;
             }
             projectEnvironment.addJarToClassPath(path);
-            classPath.add(jarFile);
+            classPath.addJar(jarFile, path);
         }
         else {
             VirtualFile root = getMyApplicationEnvironment().getLocalFileSystem().findFileByPath(path.getAbsolutePath());
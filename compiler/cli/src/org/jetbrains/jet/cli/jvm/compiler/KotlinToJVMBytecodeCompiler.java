@@ -64,6 +64,16 @@ public class KotlinToJVMBytecodeCompiler {
 
     @Nullable
     public static ClassFileFactory compileModule(CompilerConfiguration configuration, Module module, File directory) {
+        return compileModule(configuration, module, directory, null);
+    }
+
+    @Nullable
+    private static ClassFileFactory compileModule(
+            CompilerConfiguration configuration,
+            Module module,
+            File directory,
+            @Nullable ClassFileSink sink
+    ) {
         List<String> sourceFiles = module.getSourceFiles();
         if (sourceFiles.isEmpty()) {
             throw new CompileEnvironmentException("No source files where defined in module " + module.getModuleName());
@@ -97,7 +107,7 @@ public class KotlinToJVMBytecodeCompiler {
             moduleEnvironment = JetCoreEnvironment.createForProduction(parentDisposable, compilerConfiguration);
 
 
-            GenerationState generationState = analyzeAndGenerate(moduleEnvironment);
+            GenerationState generationState = analyzeAndGenerate(moduleEnvironment, sink);
             if (generationState == null) {
                 return null;
             }
@@ -109,16 +119,30 @@ public class KotlinToJVMBytecodeCompiler {
         }
     }
 
+    @Nullable
+    private static CompileEnvironmentUtil.OutputSink createOutputSink(
+            CompilerConfiguration configuration,
+            CompileEnvironmentUtil.OutputDirector outputDir,
+            File jarPath,
+            boolean jarRuntime,
+            FqName mainClass
+    ) {
+        MessageCollector messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE);
+        boolean compressJar = !configuration.get(JVMConfigurationKeys.UNCOMPRESSED_JAR, false);
+        return CompileEnvironmentUtil.createOutputSink(jarPath, outputDir, jarRuntime, mainClass, compressJar, messageCollector);
+    }
+
     private static void writeOutput(
             CompilerConfiguration configuration,
             ClassFileFactory moduleFactory,
             CompileEnvironmentUtil.OutputDirector outputDir,
             File jarPath,
             boolean jarRuntime,
-            FqName mainClass
+            FqName mainClass,
+            @Nullable CompileEnvironmentUtil.OutputSink sink
     ) {
         MessageCollector messageCollector = configuration.get(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE);
-        CompileEnvironmentUtil.writeOutputToDirOrJar(jarPath, outputDir, jarRuntime, mainClass, moduleFactory, messageCollector);
+        CompileEnvironmentUtil.writeOutputToDirOrJar(jarPath, outputDir, jarRuntime, mainClass, moduleFactory, messageCollector, sink);
     }
 
     public static boolean compileModules(
@@ -133,10 +157,6 @@ public class KotlinToJVMBytecodeCompiler {
             modules = Collections.<Module>singletonList(new ChunkAsOneModule(chunk));
         }
         for (Module module : modules) {
-            ClassFileFactory moduleFactory = compileModule(configuration, module, directory);
-            if (moduleFactory == null) {
-                return false;
-            }
             CompileEnvironmentUtil.OutputDirector outputDir = new CompileEnvironmentUtil.OutputDirector() {
                 @NotNull
                 @Override
@@ -152,7 +172,23 @@ public class KotlinToJVMBytecodeCompiler {
                 }
             };
 
-            writeOutput(configuration, moduleFactory, outputDir, jarPath, jarRuntime, null);
+            // Classes are written to the output as soon as they are generated
+            CompileEnvironmentUtil.OutputSink sink = createOutputSink(configuration, outputDir, jarPath, jarRuntime, null);
+            boolean success = false;
+            try {
+                ClassFileFactory moduleFactory = compileModule(configuration, module, directory, sink);
+                if (moduleFactory == null) {
+                    return false;
+                }
+
+                writeOutput(configuration, moduleFactory, outputDir, jarPath, jarRuntime, null, sink);
+                success = true;
+            }
+            finally {
+                if (sink != null) {
+                    CompileEnvironmentUtil.closeOrAbort(sink, success);
+                }
+            }
         }
         return true;
     }
@@ -182,18 +218,30 @@ public class KotlinToJVMBytecodeCompiler {
 
         FqName mainClass = findMainClass(environment.getSourceFiles());
 
-        GenerationState generationState = analyzeAndGenerate(environment);
-        if (generationState == null) {
-            return false;
-        }
+        CompileEnvironmentUtil.OutputDirector outputDirector = CompileEnvironmentUtil.singleDirectory(outputDir);
+        // Classes are written to the output as soon as they are generated
+        CompileEnvironmentUtil.OutputSink sink = createOutputSink(environment.getConfiguration(), outputDirector, jar, includeRuntime, mainClass);
 
+        boolean success = false;
         try {
-            CompileEnvironmentUtil.OutputDirector outputDirector = CompileEnvironmentUtil.singleDirectory(outputDir);
-            writeOutput(environment.getConfiguration(), generationState.getFactory(), outputDirector, jar, includeRuntime, mainClass);
-            return true;
+            GenerationState generationState = analyzeAndGenerate(environment, sink);
+            if (generationState == null) {
+                return false;
+            }
+
+            try {
+                writeOutput(environment.getConfiguration(), generationState.getFactory(), outputDirector, jar, includeRuntime, mainClass, sink);
+                success = true;
+                return true;
+            }
+            finally {
+                generationState.destroy();
+            }
         }
         finally {
-            generationState.destroy();
+            if (sink != null) {
+                CompileEnvironmentUtil.closeOrAbort(sink, success);
+            }
         }
     }
 
@@ -247,6 +295,14 @@ public class KotlinToJVMBytecodeCompiler {
 
     @Nullable
     public static GenerationState analyzeAndGenerate(@NotNull JetCoreEnvironment environment) {
+        return analyzeAndGenerate(environment, null);
+    }
+
+    /**
+     * @param sink if not null, generated classes are passed to it as soon as they are generated, see {@link ClassFileFactory#setSink}
+     */
+    @Nullable
+    public static GenerationState analyzeAndGenerate(@NotNull JetCoreEnvironment environment, @Nullable ClassFileSink sink) {
         AnalyzeExhaust exhaust = analyze(environment);
 
         if (exhaust == null) {
@@ -255,7 +311,7 @@ public class KotlinToJVMBytecodeCompiler {
 
         exhaust.throwIfError();
 
-        return generate(environment, exhaust);
+        return generate(environment, exhaust, sink);
     }
 
     @Nullable
@@ -284,15 +340,24 @@ public class KotlinToJVMBytecodeCompiler {
     }
 
     @NotNull
-    private static GenerationState generate(@NotNull JetCoreEnvironment environment, @NotNull AnalyzeExhaust exhaust) {
+    private static GenerationState generate(
+            @NotNull JetCoreEnvironment environment,
+            @NotNull AnalyzeExhaust exhaust,
+            @Nullable ClassFileSink sink
+    ) {
         Project project = environment.getProject();
         CompilerConfiguration configuration = environment.getConfiguration();
         GenerationState generationState = new GenerationState(
                 project, ClassBuilderFactories.BINARIES, Progress.DEAF, exhaust.getBindingContext(), environment.getSourceFiles(),
                 configuration.get(JVMConfigurationKeys.GENERATE_NOT_NULL_ASSERTIONS, false),
                 configuration.get(JVMConfigurationKeys.GENERATE_NOT_NULL_PARAMETER_ASSERTIONS, false),
-                /*generateDeclaredClasses = */true
+                /*generateDeclaredClasses = */true,
+                configuration.get(JVMConfigurationKeys.BINARY_METADATA, false),
+                configuration.get(JVMConfigurationKeys.INLINE_FUNCTIONS, false)
         );
+        if (sink != null) {
+            generationState.getFactory().setSink(sink);
+        }
         KotlinCodegenFacade.compileCorrectFiles(generationState, CompilationErrorHandler.THROW_EXCEPTION);
 
         CompilerPluginContext context = new CompilerPluginContext(project, exhaust.getBindingContext(), environment.getSourceFiles());
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileSystem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A class file in a {@link MappedJarFile}, read straight from the mapped buffer. Unlike the files of the jar file system,
+ * looking it up doesn't involve the VFS: the only VFS access is to the parent directory, when it's requested.
+ */
+class MappedJarEntryFile extends VirtualFile {
+    @NotNull
+    private final VirtualFile root;
+    @NotNull
+    private final MappedJarFile jar;
+    @NotNull
+    private final String entryPath;
+
+    private VirtualFile parent;
+
+    MappedJarEntryFile(@NotNull VirtualFile root, @NotNull MappedJarFile jar, @NotNull String entryPath) {
+        this.root = root;
+        this.jar = jar;
+        this.entryPath = entryPath;
+    }
+
+    @NotNull
+    @Override
+    public String getName() {
+        return entryPath.substring(entryPath.lastIndexOf('/') + 1);
+    }
+
+    @NotNull
+    @Override
+    public VirtualFileSystem getFileSystem() {
+        return root.getFileSystem();
+    }
+
+    @NotNull
+    @Override
+    public String getPath() {
+        return root.getPath() + entryPath;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return false;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public synchronized VirtualFile getParent() {
+        if (parent == null) {
+            int lastSlash = entryPath.lastIndexOf('/');
+            parent = lastSlash < 0 ? root : root.findFileByRelativePath(entryPath.substring(0, lastSlash));
+        }
+        return parent;
+    }
+
+    @Override
+    public VirtualFile[] getChildren() {
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public OutputStream getOutputStream(Object requestor, long newModificationStamp, long newTimeStamp) throws IOException {
+        throw new UnsupportedOperationException("Jar entries are read-only: " + this);
+    }
+
+    @NotNull
+    @Override
+    public byte[] contentsToByteArray() throws IOException {
+        byte[] contents = jar.readEntry(entryPath);
+        if (contents == null) {
+            throw new IOException("Entry " + entryPath + " disappeared from " + jar);
+        }
+        return contents;
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return jar.getFile().lastModified();
+    }
+
+    @Override
+    public long getLength() {
+        return jar.getEntrySize(entryPath);
+    }
+
+    @Override
+    public void refresh(boolean asynchronous, boolean recursive, @Nullable Runnable postRunnable) {
+        if (postRunnable != null) {
+            postRunnable.run();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new ByteArrayInputStream(contentsToByteArray());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MappedJarEntryFile)) return false;
+        MappedJarEntryFile other = (MappedJarEntryFile) o;
+        return jar == other.jar && entryPath.equals(other.entryPath);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * jar.hashCode() + entryPath.hashCode();
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Read-only view of a jar file mapped into memory. The central directory is parsed once on opening,
+ * entry contents are read directly from the mapped buffer.
+ *
+ * Only the subset of the zip format produced by the usual jar tools is supported (no ZIP64, no encryption,
+ * STORED and DEFLATED entries only), {@link #open(File)} returns null for everything else. Offsets and lengths
+ * which point outside of the file are reported as {@link ZipException}.
+ *
+ * The mapping keeps the jar open (and locked on Windows) until {@link #close()} is called. There's no public API
+ * to release a mapping, so on a VM where neither Unsafe.invokeCleaner() (Java 9+) nor the buffer's cleaner (Java 8 and
+ * earlier) is accessible, the jar stays open until the buffer is garbage collected.
+ */
+public final class MappedJarFile implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private static final int INFLATER_INPUT_SIZE = 4096;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static class Entry {
+        private final int method;
+        private final int compressedSize;
+        private final int size;
+        private final int localHeaderOffset;
+
+        private Entry(int method, int compressedSize, int size, int localHeaderOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    @NotNull
+    private final File file;
+    @NotNull
+    private final ByteBuffer buffer;
+    @NotNull
+    private final Map<String, Entry> entries;
+    @NotNull
+    private final Set<String> directories;
+
+    // Reading from a buffer after it's unmapped crashes the VM, so reads and closing are mutually exclusive
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    private MappedJarFile(@NotNull File file, @NotNull ByteBuffer buffer, @NotNull Map<String, Entry> entries, @NotNull Set<String> directories) {
+        this.file = file;
+        this.buffer = buffer;
+        this.entries = entries;
+        this.directories = directories;
+    }
+
+    @Nullable
+    public static MappedJarFile open(@NotNull File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        MappedByteBuffer mapped;
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) return null;
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        finally {
+            randomAccessFile.close();
+        }
+
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        MappedJarFile result = null;
+        try {
+            result = readCentralDirectory(file, buffer);
+            return result;
+        }
+        finally {
+            if (result == null) {
+                unmap(buffer);
+            }
+        }
+    }
+
+    @Nullable
+    private static MappedJarFile readCentralDirectory(@NotNull File file, @NotNull ByteBuffer buffer) throws IOException {
+        int endOfCentralDirectory = findEndOfCentralDirectory(buffer);
+        if (endOfCentralDirectory < 0) return null;
+
+        int entryCount = unsignedShort(buffer, endOfCentralDirectory + 10);
+        long centralDirectoryOffset = unsignedInt(buffer, endOfCentralDirectory + 16);
+        if (entryCount == 0xFFFF || centralDirectoryOffset > endOfCentralDirectory) {
+            // ZIP64 or a corrupted archive
+            return null;
+        }
+
+        Map<String, Entry> entries = new HashMap<String, Entry>(entryCount * 2);
+        Set<String> directories = new HashSet<String>();
+        directories.add("");
+
+        int offset = (int) centralDirectoryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (offset + CENTRAL_HEADER_SIZE > endOfCentralDirectory || buffer.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory in " + file);
+            }
+
+            int flags = unsignedShort(buffer, offset + 8);
+            int method = unsignedShort(buffer, offset + 10);
+            long compressedSize = unsignedInt(buffer, offset + 20);
+            long size = unsignedInt(buffer, offset + 24);
+            int nameLength = unsignedShort(buffer, offset + 28);
+            int extraLength = unsignedShort(buffer, offset + 30);
+            int commentLength = unsignedShort(buffer, offset + 32);
+            long localHeaderOffset = unsignedInt(buffer, offset + 42);
+
+            if ((flags & 1) != 0 || (method != STORED && method != DEFLATED) ||
+                compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                // Encrypted, ZIP64 or exotically compressed entries: let the VFS deal with this archive
+                return null;
+            }
+
+            long nextOffset = (long) offset + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            if (nextOffset > endOfCentralDirectory) {
+                throw new ZipException("Invalid central directory in " + file);
+            }
+
+            String name = readName(buffer, offset + CENTRAL_HEADER_SIZE, nameLength);
+            // Contents of all entries precede the central directory
+            if (localHeaderOffset + LOCAL_HEADER_SIZE + compressedSize > centralDirectoryOffset || size > Integer.MAX_VALUE ||
+                (method == STORED && size != compressedSize)) {
+                throw new ZipException("Invalid entry " + name + " in " + file);
+            }
+
+            if (name.endsWith("/")) {
+                addDirectories(directories, name.substring(0, name.length() - 1));
+            }
+            else {
+                entries.put(name, new Entry(method, (int) compressedSize, (int) size, (int) localHeaderOffset));
+                int lastSlash = name.lastIndexOf('/');
+                if (lastSlash > 0) {
+                    addDirectories(directories, name.substring(0, lastSlash));
+                }
+            }
+
+            offset = (int) nextOffset;
+        }
+
+        return new MappedJarFile(file, buffer, entries, directories);
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    public boolean hasEntry(@NotNull String path) {
+        return entries.containsKey(path);
+    }
+
+    /**
+     * @return the uncompressed size of the entry, or -1 if there's no such entry
+     */
+    public int getEntrySize(@NotNull String path) {
+        Entry entry = entries.get(path);
+        return entry == null ? -1 : entry.size;
+    }
+
+    public boolean hasDirectory(@NotNull String path) {
+        return directories.contains(path);
+    }
+
+    @Nullable
+    public byte[] readEntry(@NotNull String path) throws IOException {
+        Entry entry = entries.get(path);
+        if (entry == null) return null;
+
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IOException("Jar file is closed: " + file);
+            }
+            return readEntry(path, entry);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the mapping. Entries can't be read after that, but the index of entries and directories stays available.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+            unmap(buffer);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // There's no public API to release a mapping before the buffer is garbage collected
+    private static void unmap(@NotNull ByteBuffer buffer) {
+        if (!unmapWithUnsafe(buffer)) {
+            unmapWithCleaner(buffer);
+        }
+    }
+
+    // Java 9 and later: internals of the buffer are inaccessible, but Unsafe exposes the cleaner
+    private static boolean unmapWithUnsafe(@NotNull ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return true;
+        }
+        catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Java 8 and earlier
+    private static void unmapWithCleaner(@NotNull ByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch (Exception e) {
+            // Not supported by this VM: the mapping is released when the buffer is collected
+        }
+    }
+
+    @NotNull
+    private byte[] readEntry(@NotNull String path, @NotNull Entry entry) throws IOException {
+        // Duplicate so that concurrent reads do not interfere through the buffer position
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        // The local header itself is checked to be in the file on opening, but the lengths in it may differ from the central ones
+        int localHeader = entry.localHeaderOffset;
+        if (data.getInt(localHeader) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for " + path + " in " + file);
+        }
+        long dataOffset =
+                (long) localHeader + LOCAL_HEADER_SIZE + unsignedShort(data, localHeader + 26) + unsignedShort(data, localHeader + 28);
+        if (dataOffset + entry.compressedSize > data.limit()) {
+            throw new ZipException("Invalid local header for " + path + " in " + file);
+        }
+        data.position((int) dataOffset);
+        data.limit((int) dataOffset + entry.compressedSize);
+
+        byte[] result = new byte[entry.size];
+        if (entry.method == STORED) {
+            data.get(result);
+            return result;
+        }
+
+        // Inflater only accepts arrays, so the compressed data is passed to it in small portions instead of being copied as a whole
+        byte[] input = new byte[Math.min(INFLATER_INPUT_SIZE, Math.max(entry.compressedSize, 1))];
+        Inflater inflater = new Inflater(true);
+        try {
+            int read = 0;
+            while (read < result.length) {
+                if (inflater.needsInput()) {
+                    if (!data.hasRemaining()) break;
+                    int length = Math.min(input.length, data.remaining());
+                    data.get(input, 0, length);
+                    inflater.setInput(input, 0, length);
+                }
+                int n = inflater.inflate(result, read, result.length - read);
+                if (n == 0 && !inflater.needsInput()) break;
+                read += n;
+            }
+            if (read != result.length) {
+                throw new ZipException("Unexpected size of " + path + " in " + file + ": " + read + " instead of " + result.length);
+            }
+            return result;
+        }
+        catch (DataFormatException e) {
+            throw new ZipException("Invalid compressed data for " + path + " in " + file + ": " + e.getMessage());
+        }
+        finally {
+            inflater.end();
+        }
+    }
+
+    private static int findEndOfCentralDirectory(@NotNull ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int lowest = Math.max(0, limit - END_OF_CENTRAL_DIRECTORY_SIZE - MAX_COMMENT_LENGTH);
+        for (int offset = limit - END_OF_CENTRAL_DIRECTORY_SIZE; offset >= lowest; offset--) {
+            if (buffer.getInt(offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private static void addDirectories(@NotNull Set<String> directories, @NotNull String directory) {
+        String current = directory;
+        while (directories.add(current)) {
+            int lastSlash = current.lastIndexOf('/');
+            current = lastSlash < 0 ? "" : current.substring(0, lastSlash);
+        }
+    }
+
+    @NotNull
+    private static String readName(@NotNull ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    private static int unsignedShort(@NotNull ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    private static long unsignedInt(@NotNull ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + file;
+    }
+}
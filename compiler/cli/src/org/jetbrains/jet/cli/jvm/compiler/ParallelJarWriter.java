@@ -0,0 +1,371 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.utils.ExceptionUtils;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a jar file, compressing its entries on several threads. Entries are written in the order they are added.
+ *
+ * In the uncompressed mode all entries are STORED, which is faster to write and to read and is suitable for intermediate jars.
+ * ZIP64 records are written only when the jar has more than 0xFFFF entries or the central directory starts after 4 GB,
+ * as {@link java.util.zip.ZipOutputStream} does. The size of a single entry is always below that limit.
+ */
+public final class ParallelJarWriter {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+
+    private static final int VERSION = 20;
+    private static final int ZIP64_VERSION = 45;
+    private static final int UTF_8_NAMES_FLAG = 0x800;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    // Larger values are stored in ZIP64 records
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final long ZIP64_MAGIC_OFFSET = 0xFFFFFFFFL;
+
+    // Written as an unsigned short
+    private static final int MAX_NAME_LENGTH = 0xFFFF;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static class Entry {
+        private final byte[] name;
+        private final int method;
+        private final byte[] data;
+        private final int size;
+        private final int crc;
+
+        private Entry(@NotNull byte[] name, int method, @NotNull byte[] data, int size, int crc) {
+            this.name = name;
+            this.method = method;
+            this.data = data;
+            this.size = size;
+            this.crc = crc;
+        }
+    }
+
+    // What is left of an entry for the central directory after its data is written
+    private static class WrittenEntry {
+        private final byte[] name;
+        private final int method;
+        private final int compressedSize;
+        private final int size;
+        private final int crc;
+        private final long localHeaderOffset;
+
+        private WrittenEntry(@NotNull Entry entry, long localHeaderOffset) {
+            this.name = entry.name;
+            this.method = entry.method;
+            this.compressedSize = entry.data.length;
+            this.size = entry.size;
+            this.crc = entry.crc;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    @NotNull
+    private final File file;
+    private final boolean compress;
+    private final int dosTime;
+    private final int threads;
+
+    @NotNull
+    private final OutputStream stream;
+    private long offset = 0;
+
+    private final Set<String> names = new HashSet<String>();
+    private final List<WrittenEntry> writtenEntries = new ArrayList<WrittenEntry>();
+    // Entries being compressed, in the order they were added
+    private final Queue<Future<Entry>> pendingEntries = new ArrayDeque<Future<Entry>>();
+    private ExecutorService executor = null;
+
+    public ParallelJarWriter(@NotNull File file, @NotNull Manifest manifest, boolean compress) throws IOException {
+        this.file = file;
+        this.compress = compress;
+        this.dosTime = toDosTime(System.currentTimeMillis());
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.stream = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+
+        ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+        manifest.write(manifestBytes);
+        addEntry(JarFile.MANIFEST_NAME, manifestBytes.toByteArray());
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    public void addEntry(@NotNull String name, @NotNull final byte[] bytes) throws IOException {
+        if (!names.add(name)) {
+            throw new ZipException("Duplicate entry: " + name);
+        }
+        final byte[] nameBytes = name.getBytes(UTF_8);
+        if (nameBytes.length > MAX_NAME_LENGTH) {
+            throw new ZipException("Entry name is too long: " + name);
+        }
+
+        if (!compress) {
+            writeEntry(createEntry(nameBytes, bytes, false));
+            return;
+        }
+
+        pendingEntries.add(getExecutor().submit(new Callable<Entry>() {
+            @Override
+            public Entry call() {
+                return createEntry(nameBytes, bytes, true);
+            }
+        }));
+
+        // Write out what is ready, and do not let too much compressed data accumulate in memory
+        while (!pendingEntries.isEmpty() && (pendingEntries.peek().isDone() || pendingEntries.size() > 4 * threads)) {
+            writeEntry(waitFor(pendingEntries.poll()));
+        }
+    }
+
+    /**
+     * Writes all entries and the central directory and closes the file
+     */
+    public void finish() throws IOException {
+        try {
+            while (!pendingEntries.isEmpty()) {
+                writeEntry(waitFor(pendingEntries.poll()));
+            }
+            writeCentralDirectory();
+            stream.close();
+        }
+        finally {
+            shutdownExecutor();
+        }
+    }
+
+    /**
+     * Closes the file whether it is finished or not
+     */
+    public void close() {
+        shutdownExecutor();
+        pendingEntries.clear();
+        ExceptionUtils.closeQuietly(stream);
+    }
+
+    @NotNull
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+        return executor;
+    }
+
+    private void shutdownExecutor() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @NotNull
+    private static Entry waitFor(@NotNull Future<Entry> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            throw new InterruptedIOException(e.getMessage());
+        }
+        catch (ExecutionException e) {
+            throw ExceptionUtils.rethrow(e.getCause());
+        }
+    }
+
+    @NotNull
+    private static Entry createEntry(@NotNull byte[] nameBytes, @NotNull byte[] bytes, boolean compress) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        if (compress) {
+            byte[] compressed = deflate(bytes);
+            // Incompressible data is stored as is
+            if (compressed != null) {
+                return new Entry(nameBytes, DEFLATED, compressed, bytes.length, (int) crc.getValue());
+            }
+        }
+        return new Entry(nameBytes, STORED, bytes, bytes.length, (int) crc.getValue());
+    }
+
+    /**
+     * @return raw deflated data, or null if it is not smaller than the original
+     */
+    @Nullable
+    private static byte[] deflate(@NotNull byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] buffer = new byte[bytes.length];
+            int length = 0;
+            while (!deflater.finished() && length < buffer.length) {
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return deflater.finished() && length < bytes.length ? Arrays.copyOf(buffer, length) : null;
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private void writeEntry(@NotNull Entry entry) throws IOException {
+        long localHeaderOffset = offset;
+
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(VERSION);
+        writeShort(UTF_8_NAMES_FLAG);
+        writeShort(entry.method);
+        writeInt(dosTime);
+        writeInt(entry.crc);
+        writeInt(entry.data.length);
+        writeInt(entry.size);
+        writeShort(entry.name.length);
+        writeShort(0);
+        writeBytes(entry.name);
+        writeBytes(entry.data);
+
+        // The data is not kept, so that only the entries being compressed are held in memory
+        writtenEntries.add(new WrittenEntry(entry, localHeaderOffset));
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = offset;
+
+        for (WrittenEntry entry : writtenEntries) {
+            boolean zip64 = entry.localHeaderOffset >= ZIP64_MAGIC_OFFSET;
+            writeInt(CENTRAL_HEADER_SIGNATURE);
+            writeShort(zip64 ? ZIP64_VERSION : VERSION);
+            writeShort(zip64 ? ZIP64_VERSION : VERSION);
+            writeShort(UTF_8_NAMES_FLAG);
+            writeShort(entry.method);
+            writeInt(dosTime);
+            writeInt(entry.crc);
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+            writeShort(entry.name.length);
+            writeShort(zip64 ? 12 : 0); // extra field length
+            writeShort(0); // comment length
+            writeShort(0); // disk number
+            writeShort(0); // internal attributes
+            writeInt(0); // external attributes
+            writeInt((int) Math.min(entry.localHeaderOffset, ZIP64_MAGIC_OFFSET));
+            writeBytes(entry.name);
+            if (zip64) {
+                // Sizes fit into the header, so only the offset is stored in the extra field
+                writeShort(ZIP64_EXTRA_FIELD_ID);
+                writeShort(8);
+                writeLong(entry.localHeaderOffset);
+            }
+        }
+
+        long centralDirectorySize = offset - centralDirectoryOffset;
+        int count = writtenEntries.size();
+
+        if (count >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC_OFFSET || centralDirectorySize >= ZIP64_MAGIC_OFFSET) {
+            long zip64EndOffset = offset;
+
+            writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            writeLong(44); // size of the rest of the record
+            writeShort(ZIP64_VERSION);
+            writeShort(ZIP64_VERSION);
+            writeInt(0); // disk number
+            writeInt(0); // disk with the central directory
+            writeLong(count);
+            writeLong(count);
+            writeLong(centralDirectorySize);
+            writeLong(centralDirectoryOffset);
+
+            writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+            writeInt(0); // disk with the ZIP64 end of central directory
+            writeLong(zip64EndOffset);
+            writeInt(1); // total number of disks
+        }
+
+        writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        writeInt((int) Math.min(centralDirectorySize, ZIP64_MAGIC_OFFSET));
+        writeInt((int) Math.min(centralDirectoryOffset, ZIP64_MAGIC_OFFSET));
+        writeShort(0);
+    }
+
+    private void writeShort(int value) throws IOException {
+        stream.write(value & 0xFF);
+        stream.write((value >>> 8) & 0xFF);
+        offset += 2;
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeShort(value & 0xFFFF);
+        writeShort((value >>> 16) & 0xFFFF);
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt((int) value);
+        writeInt((int) (value >>> 32));
+    }
+
+    private void writeBytes(@NotNull byte[] bytes) throws IOException {
+        stream.write(bytes);
+        offset += bytes.length;
+    }
+
+    private static int toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 |
+               (calendar.get(Calendar.MONTH) + 1) << 21 |
+               calendar.get(Calendar.DAY_OF_MONTH) << 16 |
+               calendar.get(Calendar.HOUR_OF_DAY) << 11 |
+               calendar.get(Calendar.MINUTE) << 5 |
+               calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + file;
+    }
+}
@@ -56,11 +56,11 @@ public class InjectorForJavaDescriptorResolver {
     private final PsiBasedMethodSignatureChecker psiBasedMethodSignatureChecker;
     private final PsiBasedExternalAnnotationResolver psiBasedExternalAnnotationResolver;
     private final JavaDescriptorResolver javaDescriptorResolver;
+    private final JavaClassResolver javaClassResolver;
     private final VirtualFileKotlinClassFinder virtualFileKotlinClassFinder;
     private final VirtualFileFinder virtualFileFinder;
     private final JavaAnnotationResolver javaAnnotationResolver;
     private final JavaAnnotationArgumentResolver javaAnnotationArgumentResolver;
-    private final JavaClassResolver javaClassResolver;
     private final DeserializedDescriptorResolver deserializedDescriptorResolver;
     private final AnnotationDescriptorDeserializer annotationDescriptorDeserializer;
     private final JavaNamespaceResolver javaNamespaceResolver;
@@ -86,11 +86,11 @@ public class InjectorForJavaDescriptorResolver {
         this.psiBasedMethodSignatureChecker = new PsiBasedMethodSignatureChecker();
         this.psiBasedExternalAnnotationResolver = new PsiBasedExternalAnnotationResolver();
         this.javaDescriptorResolver = new JavaDescriptorResolver();
+        this.javaClassResolver = new JavaClassResolver();
         this.virtualFileKotlinClassFinder = new VirtualFileKotlinClassFinder();
         this.virtualFileFinder = com.intellij.openapi.components.ServiceManager.getService(project, VirtualFileFinder.class);
         this.javaAnnotationResolver = new JavaAnnotationResolver();
         this.javaAnnotationArgumentResolver = new JavaAnnotationArgumentResolver();
-        this.javaClassResolver = new JavaClassResolver();
         this.deserializedDescriptorResolver = new DeserializedDescriptorResolver();
         this.annotationDescriptorDeserializer = new AnnotationDescriptorDeserializer();
         this.javaNamespaceResolver = new JavaNamespaceResolver();
@@ -104,8 +104,10 @@ public class InjectorForJavaDescriptorResolver {
         this.javaSupertypeResolver = new JavaSupertypeResolver();
 
         this.javaClassFinder.setProject(project);
+        this.javaClassFinder.setVirtualFileFinder(virtualFileFinder);
 
         traceBasedExternalSignatureResolver.setAnnotationResolver(javaAnnotationResolver);
+        traceBasedExternalSignatureResolver.setProject(project);
         traceBasedExternalSignatureResolver.setTrace(bindingTrace);
 
         traceBasedJavaResolverCache.setTrace(bindingTrace);
@@ -115,9 +117,22 @@ public class InjectorForJavaDescriptorResolver {
         psiBasedMethodSignatureChecker.setAnnotationResolver(javaAnnotationResolver);
         psiBasedMethodSignatureChecker.setExternalSignatureResolver(traceBasedExternalSignatureResolver);
 
+        psiBasedExternalAnnotationResolver.setProject(project);
+
         this.javaDescriptorResolver.setClassResolver(javaClassResolver);
         this.javaDescriptorResolver.setNamespaceResolver(javaNamespaceResolver);
 
+        this.javaClassResolver.setAnnotationResolver(javaAnnotationResolver);
+        this.javaClassResolver.setCache(traceBasedJavaResolverCache);
+        this.javaClassResolver.setDeserializedDescriptorResolver(deserializedDescriptorResolver);
+        this.javaClassResolver.setFunctionResolver(javaFunctionResolver);
+        this.javaClassResolver.setJavaClassFinder(javaClassFinder);
+        this.javaClassResolver.setKotlinClassFinder(virtualFileKotlinClassFinder);
+        this.javaClassResolver.setMemberResolver(javaMemberResolver);
+        this.javaClassResolver.setNamespaceResolver(javaNamespaceResolver);
+        this.javaClassResolver.setSupertypesResolver(javaSupertypeResolver);
+        this.javaClassResolver.setTypeParameterResolver(javaTypeParameterResolver);
+
         virtualFileKotlinClassFinder.setVirtualFileFinder(virtualFileFinder);
 
         javaAnnotationResolver.setArgumentResolver(javaAnnotationArgumentResolver);
@@ -128,17 +143,6 @@ public class InjectorForJavaDescriptorResolver {
         javaAnnotationArgumentResolver.setClassResolver(javaClassResolver);
         javaAnnotationArgumentResolver.setTypeTransformer(javaTypeTransformer);
 
-        javaClassResolver.setAnnotationResolver(javaAnnotationResolver);
-        javaClassResolver.setCache(traceBasedJavaResolverCache);
-        javaClassResolver.setDeserializedDescriptorResolver(deserializedDescriptorResolver);
-        javaClassResolver.setFunctionResolver(javaFunctionResolver);
-        javaClassResolver.setJavaClassFinder(javaClassFinder);
-        javaClassResolver.setKotlinClassFinder(virtualFileKotlinClassFinder);
-        javaClassResolver.setMemberResolver(javaMemberResolver);
-        javaClassResolver.setNamespaceResolver(javaNamespaceResolver);
-        javaClassResolver.setSupertypesResolver(javaSupertypeResolver);
-        javaClassResolver.setTypeParameterResolver(javaTypeParameterResolver);
-
         deserializedDescriptorResolver.setAnnotationDeserializer(annotationDescriptorDeserializer);
         deserializedDescriptorResolver.setErrorReporter(traceBasedErrorReporter);
         deserializedDescriptorResolver.setJavaClassResolver(javaClassResolver);
@@ -206,4 +210,8 @@ public class InjectorForJavaDescriptorResolver {
         return this.javaDescriptorResolver;
     }
     
+    public JavaClassResolver getJavaClassResolver() {
+        return this.javaClassResolver;
+    }
+    
 }
@@ -236,8 +236,10 @@ public class InjectorForTopDownAnalyzerForJvm implements InjectorForTopDownAnaly
         javaDescriptorResolver.setNamespaceResolver(javaNamespaceResolver);
 
         javaClassFinder.setProject(project);
+        javaClassFinder.setVirtualFileFinder(virtualFileFinder);
 
         traceBasedExternalSignatureResolver.setAnnotationResolver(javaAnnotationResolver);
+        traceBasedExternalSignatureResolver.setProject(project);
         traceBasedExternalSignatureResolver.setTrace(bindingTrace);
 
         traceBasedJavaResolverCache.setTrace(bindingTrace);
@@ -247,6 +249,8 @@ public class InjectorForTopDownAnalyzerForJvm implements InjectorForTopDownAnaly
         psiBasedMethodSignatureChecker.setAnnotationResolver(javaAnnotationResolver);
         psiBasedMethodSignatureChecker.setExternalSignatureResolver(traceBasedExternalSignatureResolver);
 
+        psiBasedExternalAnnotationResolver.setProject(project);
+
         virtualFileKotlinClassFinder.setVirtualFileFinder(virtualFileFinder);
 
         this.namespaceFactory.setModuleDescriptor(moduleDescriptor);
@@ -16,9 +16,11 @@
 
 package org.jetbrains.jet.lang.resolve.java;
 
-import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
-import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaElement;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaMethod;
 import org.jetbrains.jet.util.slicedmap.Slices;
 import org.jetbrains.jet.util.slicedmap.WritableSlice;
 
@@ -36,6 +38,20 @@ public class JavaBindingContext {
 
     public static final WritableSlice<DeclarationDescriptor, List<String>> LOAD_FROM_JAVA_SIGNATURE_ERRORS = Slices.createCollectiveSlice();
 
+    // Elements of classes loaded from class files have no PSI, so they are recorded here instead of BindingContext.CLASS, FUNCTION etc.
+    // The elements are stable keys, because JavaClassFinder returns the same class for the same class file
+
+    public static final WritableSlice<JavaClass, ClassDescriptor> BINARY_CLASS = Slices.createSimpleSlice();
+
+    public static final WritableSlice<FunctionDescriptor, JavaMethod> BINARY_FUNCTION_TO_METHOD = Slices.createSimpleSlice();
+
+    public static final WritableSlice<JavaMethod, SimpleFunctionDescriptor> BINARY_METHOD =
+            Slices.<JavaMethod, SimpleFunctionDescriptor>sliceBuilder().setOpposite(BINARY_FUNCTION_TO_METHOD).build();
+
+    public static final WritableSlice<JavaElement, ConstructorDescriptor> BINARY_CONSTRUCTOR = Slices.createSimpleSlice();
+
+    public static final WritableSlice<JavaElement, NamespaceDescriptor> BINARY_NAMESPACE = Slices.createSimpleSlice();
+
     private JavaBindingContext() {
     }
 }
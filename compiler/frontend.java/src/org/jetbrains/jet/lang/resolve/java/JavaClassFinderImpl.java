@@ -27,26 +27,39 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaPackage;
+import org.jetbrains.jet.lang.resolve.java.structure.binary.BinaryJavaClass;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaClassImpl;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaPackageImpl;
+import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileFinder;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.plugin.JetFileType;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class JavaClassFinderImpl implements JavaClassFinder {
     @NotNull
     private Project project;
+    private VirtualFileFinder virtualFileFinder;
 
     private GlobalSearchScope javaSearchScope;
     private JavaPsiFacadeKotlinHacks javaFacade;
 
+    // Parsing a class file is not cheap, and there's no PSI cache to rely on for binary classes
+    private final ConcurrentMap<FqName, BinaryJavaClass> binaryClasses = new ConcurrentHashMap<FqName, BinaryJavaClass>();
+
     @Inject
     public void setProject(@NotNull Project project) {
         this.project = project;
     }
 
+    @Inject
+    public void setVirtualFileFinder(@NotNull VirtualFileFinder virtualFileFinder) {
+        this.virtualFileFinder = virtualFileFinder;
+    }
+
     @PostConstruct
     public void initialize() {
         javaSearchScope = new DelegatingGlobalSearchScope(GlobalSearchScope.allScope(project)) {
@@ -78,6 +91,9 @@ public class JavaClassFinderImpl implements JavaClassFinder {
     @Nullable
     @Override
     public JavaClass findClass(@NotNull FqName fqName) {
+        JavaClass binaryClass = findBinaryClass(fqName);
+        if (binaryClass != null) return binaryClass;
+
         PsiClass psiClass = javaFacade.findClass(fqName.asString(), javaSearchScope);
         if (psiClass == null) return null;
 
@@ -94,6 +110,19 @@ public class JavaClassFinderImpl implements JavaClassFinder {
         return javaClass;
     }
 
+    @Nullable
+    private BinaryJavaClass findBinaryClass(@NotNull FqName fqName) {
+        BinaryJavaClass cached = binaryClasses.get(fqName);
+        if (cached != null) return cached;
+
+        VirtualFile classFile = virtualFileFinder.findBinaryJavaClassFile(fqName);
+        if (classFile == null) return null;
+
+        BinaryJavaClass binaryClass = new BinaryJavaClass(classFile, this);
+        BinaryJavaClass old = binaryClasses.putIfAbsent(fqName, binaryClass);
+        return old != null ? old : binaryClass;
+    }
+
     @Nullable
     @Override
     public JavaPackage findPackage(@NotNull FqName fqName) {
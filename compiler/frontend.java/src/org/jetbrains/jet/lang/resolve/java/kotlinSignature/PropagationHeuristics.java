@@ -29,7 +29,8 @@ import org.jetbrains.jet.lang.descriptors.TypeParameterDescriptor;
 import org.jetbrains.jet.lang.descriptors.Visibilities;
 import org.jetbrains.jet.lang.resolve.java.resolver.JavaSupertypeResolver;
 import org.jetbrains.jet.lang.resolve.java.structure.*;
-import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaMethodImpl;
+import org.jetbrains.jet.lang.resolve.java.structure.binary.BinaryJavaClassifierType;
+import org.jetbrains.jet.lang.resolve.java.structure.binary.BinaryJavaTypeSubstitutor;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaTypeSubstitutorImpl;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.lang.resolve.scopes.JetScope;
@@ -124,10 +125,9 @@ class PropagationHeuristics {
         return null;
     }
 
-    @SuppressWarnings("unchecked")
     @NotNull
-    static List<JavaMethodImpl> getSuperMethods(@NotNull JavaMethod method) {
-        return (List) new SuperMethodCollector(method).collect();
+    static List<JavaMethod> getSuperMethods(@NotNull JavaMethod method) {
+        return new SuperMethodCollector(method).collect();
     }
 
     private PropagationHeuristics() {
@@ -227,7 +227,9 @@ class PropagationHeuristics {
                 JavaType value = entry.getValue();
                 erasedMap.put(entry.getKey(), value == null ? null : erasure(value));
             }
-            return JavaTypeSubstitutorImpl.create(erasedMap);
+            return type instanceof BinaryJavaClassifierType
+                   ? new BinaryJavaTypeSubstitutor(erasedMap)
+                   : JavaTypeSubstitutorImpl.create(erasedMap);
         }
 
         private static boolean canHaveSuperMethod(@NotNull JavaMethod method) {
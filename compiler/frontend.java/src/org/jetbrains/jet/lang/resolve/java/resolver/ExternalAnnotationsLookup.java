@@ -0,0 +1,34 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.resolver;
+
+import com.intellij.psi.PsiAnnotation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * Implemented by external annotations managers which can find annotations without PSI of the annotated declaration,
+ * so that external annotations are also applied to Java classes loaded from class files
+ */
+public interface ExternalAnnotationsLookup {
+    /**
+     * @param externalName the name of the declaration as {@code PsiFormatUtil.getExternalName()} computes it
+     */
+    @NotNull
+    Collection<PsiAnnotation> findExternalAnnotations(@NotNull String externalName);
+}
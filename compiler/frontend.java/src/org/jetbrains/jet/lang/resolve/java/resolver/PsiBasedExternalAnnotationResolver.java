@@ -17,24 +17,47 @@
 package org.jetbrains.jet.lang.resolve.java.resolver;
 
 import com.intellij.codeInsight.ExternalAnnotationsManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiAnnotation;
 import com.intellij.psi.PsiModifierListOwner;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaAnnotation;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaAnnotationOwner;
+import org.jetbrains.jet.lang.resolve.java.structure.binary.BinaryJavaSignatureFormatter;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaAnnotationImpl;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaAnnotationOwnerImpl;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaElementCollectionFromPsiArrayUtil;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 
+import javax.inject.Inject;
 import java.util.Collection;
 import java.util.Collections;
 
 public class PsiBasedExternalAnnotationResolver implements ExternalAnnotationResolver {
+    private static final Logger LOG = Logger.getInstance(PsiBasedExternalAnnotationResolver.class);
+
+    private Project project;
+    private boolean lookupUnsupportedReported = false;
+
+    @Inject
+    public void setProject(Project project) {
+        this.project = project;
+    }
+
     @Nullable
     @Override
     public JavaAnnotation findExternalAnnotation(@NotNull JavaAnnotationOwner owner, @NotNull FqName fqName) {
+        if (!(owner instanceof JavaAnnotationOwnerImpl)) {
+            for (JavaAnnotation annotation : findExternalAnnotations(owner)) {
+                if (fqName.equals(annotation.getFqName())) {
+                    return annotation;
+                }
+            }
+            return null;
+        }
+
         PsiAnnotation psiAnnotation = findExternalAnnotation(((JavaAnnotationOwnerImpl) owner).getPsi(), fqName);
         return psiAnnotation == null ? null : new JavaAnnotationImpl(psiAnnotation);
     }
@@ -42,6 +65,10 @@ public class PsiBasedExternalAnnotationResolver implements ExternalAnnotationRes
     @NotNull
     @Override
     public Collection<JavaAnnotation> findExternalAnnotations(@NotNull JavaAnnotationOwner owner) {
+        if (!(owner instanceof JavaAnnotationOwnerImpl)) {
+            return findExternalAnnotationsByName(BinaryJavaSignatureFormatter.getExternalName(owner));
+        }
+
         PsiModifierListOwner psiOwner = ((JavaAnnotationOwnerImpl) owner).getPsi();
         PsiAnnotation[] annotations = ExternalAnnotationsManager.getInstance(psiOwner.getProject()).findExternalAnnotations(psiOwner);
         return annotations == null
@@ -49,6 +76,23 @@ public class PsiBasedExternalAnnotationResolver implements ExternalAnnotationRes
                : JavaElementCollectionFromPsiArrayUtil.annotations(annotations);
     }
 
+    @NotNull
+    private Collection<JavaAnnotation> findExternalAnnotationsByName(@Nullable String externalName) {
+        if (externalName == null) return Collections.emptyList();
+
+        ExternalAnnotationsManager manager = ExternalAnnotationsManager.getInstance(project);
+        if (!(manager instanceof ExternalAnnotationsLookup)) {
+            if (!lookupUnsupportedReported) {
+                lookupUnsupportedReported = true;
+                LOG.warn(manager + " can't find external annotations for classes loaded without PSI, e.g. " + externalName);
+            }
+            return Collections.emptyList();
+        }
+
+        Collection<PsiAnnotation> annotations = ((ExternalAnnotationsLookup) manager).findExternalAnnotations(externalName);
+        return JavaElementCollectionFromPsiArrayUtil.annotations(annotations.toArray(new PsiAnnotation[annotations.size()]));
+    }
+
     @Nullable
     public static PsiAnnotation findExternalAnnotation(@NotNull PsiModifierListOwner owner, @NotNull FqName fqName) {
         return ExternalAnnotationsManager.getInstance(owner.getProject()).findExternalAnnotation(owner, fqName.asString());
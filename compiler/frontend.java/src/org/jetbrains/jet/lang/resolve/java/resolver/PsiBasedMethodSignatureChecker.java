@@ -38,7 +38,9 @@ import org.jetbrains.jet.lang.types.checker.JetTypeChecker;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.jetbrains.jet.lang.resolve.OverridingUtil.isOverridableBy;
 import static org.jetbrains.jet.lang.resolve.OverridingUtil.isReturnTypeOkForOverride;
@@ -49,6 +51,8 @@ public class PsiBasedMethodSignatureChecker implements MethodSignatureChecker {
     private JavaAnnotationResolver annotationResolver;
     private ExternalSignatureResolver externalSignatureResolver;
 
+    private final RawTypesCheck rawTypesCheck = new RawTypesCheck();
+
     @Inject
     public void setAnnotationResolver(JavaAnnotationResolver annotationResolver) {
         this.annotationResolver = annotationResolver;
@@ -171,10 +175,20 @@ public class PsiBasedMethodSignatureChecker implements MethodSignatureChecker {
             @NotNull List<String> signatureErrors,
             @NotNull List<FunctionDescriptor> superFunctions
     ) {
-        JavaMethodImpl methodWithPsi = (JavaMethodImpl) method;
-        if (!RawTypesCheck.hasRawTypesInHierarchicalSignature(methodWithPsi) &&
-            isMethodReturnTypeCompatible(methodWithPsi) &&
-            !containsErrorType(superFunctions, descriptor)) {
+        boolean hasRawTypes;
+        boolean returnTypeCompatible;
+        if (method instanceof JavaMethodImpl) {
+            JavaMethodImpl methodWithPsi = (JavaMethodImpl) method;
+            hasRawTypes = RawTypesCheck.hasRawTypesInHierarchicalSignature(methodWithPsi);
+            returnTypeCompatible = isMethodReturnTypeCompatible(methodWithPsi);
+        }
+        else {
+            // Class files have no hierarchical signatures, but they were compiled by javac which has checked return types already
+            hasRawTypes = rawTypesCheck.hasRawTypesInBinaryHierarchy(method, superFunctions);
+            returnTypeCompatible = true;
+        }
+
+        if (!hasRawTypes && returnTypeCompatible && !containsErrorType(superFunctions, descriptor)) {
             if (signatureErrors.isEmpty()) {
                 for (FunctionDescriptor superFunction : superFunctions) {
                     checkFunctionOverridesCorrectly(method, descriptor, superFunction);
@@ -260,6 +274,46 @@ public class PsiBasedMethodSignatureChecker implements MethodSignatureChecker {
             return false;
         }
 
+        // Whether the class or any of its superclasses extends a raw type, see HierarchicalMethodSignature#isRaw()
+        private final Map<JavaClass, Boolean> hasRawSupertypes = new HashMap<JavaClass, Boolean>();
+
+        public boolean hasRawTypesInBinaryHierarchy(@NotNull JavaMethod method, @NotNull List<FunctionDescriptor> superFunctions) {
+            if (method.isStatic()) return false;
+
+            if (hasRawTypesInSignature(method) || hasRawSupertypes(method.getContainingClass())) {
+                return true;
+            }
+
+            // Super methods aren't found without PSI, but their descriptors are known after propagation
+            for (FunctionDescriptor superFunction : superFunctions) {
+                if (superFunction.getTypeParameters().size() != method.getTypeParameters().size()) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean hasRawSupertypes(@NotNull JavaClass javaClass) {
+            Boolean cached = hasRawSupertypes.get(javaClass);
+            if (cached != null) return cached;
+
+            // Prevents infinite recursion on cyclic hierarchies
+            hasRawSupertypes.put(javaClass, false);
+
+            boolean result = false;
+            for (JavaClassifierType supertype : javaClass.getSupertypes()) {
+                JavaClassifier classifier = supertype.getClassifier();
+                if (supertype.isRaw() || (classifier instanceof JavaClass && hasRawSupertypes((JavaClass) classifier))) {
+                    result = true;
+                    break;
+                }
+            }
+
+            hasRawSupertypes.put(javaClass, result);
+            return result;
+        }
+
         private static boolean typeParameterIsErased(@NotNull JavaMethod method, @NotNull JavaMethod superMethod) {
             // Java allows you to write
             //   <T extends Foo> T foo(), in the superclass and then
@@ -268,7 +322,5 @@ public class PsiBasedMethodSignatureChecker implements MethodSignatureChecker {
             return method.getTypeParameters().size() != superMethod.getTypeParameters().size();
         }
 
-        private RawTypesCheck() {
-        }
     }
 }
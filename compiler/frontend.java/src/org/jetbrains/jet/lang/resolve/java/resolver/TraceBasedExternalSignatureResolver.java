@@ -16,6 +16,7 @@
 
 package org.jetbrains.jet.lang.resolve.java.resolver;
 
+import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.descriptors.CallableMemberDescriptor;
@@ -29,8 +30,6 @@ import org.jetbrains.jet.lang.resolve.java.kotlinSignature.AlternativeMethodSign
 import org.jetbrains.jet.lang.resolve.java.kotlinSignature.SignaturesPropagationData;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaField;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaMethod;
-import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaFieldImpl;
-import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaMethodImpl;
 import org.jetbrains.jet.lang.types.JetType;
 
 import javax.inject.Inject;
@@ -40,6 +39,7 @@ import java.util.List;
 public class TraceBasedExternalSignatureResolver implements ExternalSignatureResolver {
     private BindingTrace trace;
     private JavaAnnotationResolver annotationResolver;
+    private Project project;
 
     @Inject
     public void setTrace(BindingTrace trace) {
@@ -51,6 +51,11 @@ public class TraceBasedExternalSignatureResolver implements ExternalSignatureRes
         this.annotationResolver = annotationResolver;
     }
 
+    @Inject
+    public void setProject(Project project) {
+        this.project = project;
+    }
+
     @Override
     @NotNull
     public PropagatedMethodSignature resolvePropagatedSignature(
@@ -62,8 +67,7 @@ public class TraceBasedExternalSignatureResolver implements ExternalSignatureRes
             @NotNull List<TypeParameterDescriptor> typeParameters
     ) {
         SignaturesPropagationData data =
-                new SignaturesPropagationData(owner, returnType, receiverType, valueParameters, typeParameters, (JavaMethodImpl) method,
-                                              trace);
+                new SignaturesPropagationData(owner, returnType, receiverType, valueParameters, typeParameters, method, trace);
         return new PropagatedMethodSignature(data.getModifiedReturnType(), data.getModifiedReceiverType(),
                                              data.getModifiedValueParameters(), data.getModifiedTypeParameters(), data.getSignatureErrors(),
                                              data.getSuperFunctions());
@@ -80,7 +84,7 @@ public class TraceBasedExternalSignatureResolver implements ExternalSignatureRes
             @NotNull List<TypeParameterDescriptor> typeParameters
     ) {
         AlternativeMethodSignatureData data =
-                new AlternativeMethodSignatureData(annotationResolver, (JavaMethodImpl) method, receiverType, valueParameters, returnType,
+                new AlternativeMethodSignatureData(annotationResolver, project, method, receiverType, valueParameters, returnType,
                                                    typeParameters, hasSuperMethods);
 
         if (data.isAnnotated() && !data.hasErrors()) {
@@ -99,8 +103,7 @@ public class TraceBasedExternalSignatureResolver implements ExternalSignatureRes
             @NotNull JetType returnType,
             boolean isVar
     ) {
-        AlternativeFieldSignatureData data =
-                new AlternativeFieldSignatureData(annotationResolver, (JavaFieldImpl) field, returnType, isVar);
+        AlternativeFieldSignatureData data = new AlternativeFieldSignatureData(annotationResolver, project, field, returnType, isVar);
 
         if (data.isAnnotated() && !data.hasErrors()) {
             return new AlternativeFieldSignature(data.getReturnType(), null);
@@ -34,6 +34,7 @@ import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaElement;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaField;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaMethod;
+import org.jetbrains.jet.lang.resolve.java.structure.binary.BinaryJavaField;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaClassImpl;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaElementImpl;
 import org.jetbrains.jet.lang.resolve.java.structure.impl.JavaFieldImpl;
@@ -73,12 +74,18 @@ public class TraceBasedJavaResolverCache implements JavaResolverCache {
     @Nullable
     @Override
     public SimpleFunctionDescriptor getMethod(@NotNull JavaMethod method) {
+        if (!(method instanceof JavaMethodImpl)) {
+            return trace.get(JavaBindingContext.BINARY_METHOD, method);
+        }
         return trace.get(FUNCTION, ((JavaMethodImpl) method).getPsi());
     }
 
     @Nullable
     @Override
     public ConstructorDescriptor getConstructor(@NotNull JavaElement constructor) {
+        if (!(constructor instanceof JavaElementImpl)) {
+            return trace.get(JavaBindingContext.BINARY_CONSTRUCTOR, constructor);
+        }
         return trace.get(CONSTRUCTOR, ((JavaElementImpl) constructor).getPsi());
     }
 
@@ -96,38 +103,65 @@ public class TraceBasedJavaResolverCache implements JavaResolverCache {
             }
         }
 
+        if (!(javaClass instanceof JavaClassImpl)) {
+            return trace.get(JavaBindingContext.BINARY_CLASS, javaClass);
+        }
         return trace.get(CLASS, ((JavaClassImpl) javaClass).getPsi());
     }
 
     @Override
     public void recordMethod(@NotNull JavaMethod method, @NotNull SimpleFunctionDescriptor descriptor) {
+        if (!(method instanceof JavaMethodImpl)) {
+            trace.record(JavaBindingContext.BINARY_METHOD, method, descriptor);
+            return;
+        }
         BindingContextUtils.recordFunctionDeclarationToDescriptor(trace, ((JavaMethodImpl) method).getPsi(), descriptor);
     }
 
     @Override
     public void recordConstructor(@NotNull JavaElement element, @NotNull ConstructorDescriptor descriptor) {
+        if (!(element instanceof JavaElementImpl)) {
+            trace.record(JavaBindingContext.BINARY_CONSTRUCTOR, element, descriptor);
+            return;
+        }
         trace.record(CONSTRUCTOR, ((JavaElementImpl) element).getPsi(), descriptor);
     }
 
     @Override
     public void recordField(@NotNull JavaField field, @NotNull PropertyDescriptor descriptor) {
+        if (field instanceof BinaryJavaField) {
+            // There's no PSI for fields of binary classes, but their constant values are still needed in annotation arguments
+            Object value = ((BinaryJavaField) field).getConstantValue();
+            if (value != null) {
+                recordCompileTimeInitializer(descriptor, value);
+            }
+            return;
+        }
+
         PsiField psiField = ((JavaFieldImpl) field).getPsi();
         trace.record(VARIABLE, psiField, descriptor);
 
+        PsiExpression initializer = psiField.getInitializer();
+        if (initializer instanceof PsiLiteralExpression) {
+            recordCompileTimeInitializer(descriptor, ((PsiLiteralExpression) initializer).getValue());
+        }
+    }
+
+    private void recordCompileTimeInitializer(@NotNull PropertyDescriptor descriptor, @Nullable Object value) {
         if (AnnotationUtils.isPropertyAcceptableAsAnnotationParameter(descriptor)) {
-            PsiExpression initializer = psiField.getInitializer();
-            if (initializer instanceof PsiLiteralExpression) {
-                CompileTimeConstant<?> constant = JavaAnnotationArgumentResolver
-                        .resolveCompileTimeConstantValue(((PsiLiteralExpression) initializer).getValue(), descriptor.getType());
-                if (constant != null) {
-                    trace.record(COMPILE_TIME_INITIALIZER, descriptor, constant);
-                }
+            CompileTimeConstant<?> constant = JavaAnnotationArgumentResolver.resolveCompileTimeConstantValue(value, descriptor.getType());
+            if (constant != null) {
+                trace.record(COMPILE_TIME_INITIALIZER, descriptor, constant);
             }
         }
     }
 
     @Override
     public void recordClass(@NotNull JavaClass javaClass, @NotNull ClassDescriptor descriptor) {
+        if (!(javaClass instanceof JavaClassImpl)) {
+            trace.record(JavaBindingContext.BINARY_CLASS, javaClass, descriptor);
+            return;
+        }
         trace.record(CLASS, ((JavaClassImpl) javaClass).getPsi(), descriptor);
     }
 
@@ -143,6 +177,10 @@ public class TraceBasedJavaResolverCache implements JavaResolverCache {
 
     @Override
     public void recordPackage(@NotNull JavaElement element, @NotNull NamespaceDescriptor descriptor) {
+        if (!(element instanceof JavaElementImpl)) {
+            trace.record(JavaBindingContext.BINARY_NAMESPACE, element, descriptor);
+            return;
+        }
         trace.record(NAMESPACE, ((JavaElementImpl) element).getPsi(), descriptor);
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.AnnotationVisitor;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaAnnotation;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaAnnotationArgument;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaType;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.jetbrains.asm4.Opcodes.ASM4;
+
+public class BinaryJavaAnnotation implements JavaAnnotation {
+    private final ClassifierResolutionContext context;
+    private final String desc;
+    private final List<JavaAnnotationArgument> arguments = new ArrayList<JavaAnnotationArgument>(1);
+
+    private BinaryJavaAnnotation(@NotNull ClassifierResolutionContext context, @NotNull String desc) {
+        this.context = context;
+        this.desc = desc;
+    }
+
+    /**
+     * @param desc ASM descriptor of the annotation class
+     * @param result a collection to add the annotation to, after all its arguments are visited
+     * @return an ASM visitor collecting arguments of the annotation
+     */
+    @NotNull
+    /* package */ static AnnotationVisitor read(
+            @NotNull ClassifierResolutionContext context,
+            @NotNull String desc,
+            @NotNull Collection<JavaAnnotation> result
+    ) {
+        BinaryJavaAnnotation annotation = new BinaryJavaAnnotation(context, desc);
+        result.add(annotation);
+        return new ArgumentsVisitor(context, annotation.arguments);
+    }
+
+    @Nullable
+    @Override
+    public JavaAnnotationArgument findArgument(@NotNull Name name) {
+        // NOTE: unlike PSI, default values declared in the annotation class are not taken into account
+        for (JavaAnnotationArgument argument : arguments) {
+            if (name.equals(argument.getName())) {
+                return argument;
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaAnnotationArgument> getArguments() {
+        return arguments;
+    }
+
+    @Nullable
+    @Override
+    public FqName getFqName() {
+        return context.fqNameByInternalName(Type.getType(desc).getInternalName());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + desc;
+    }
+
+    private static class ArgumentsVisitor extends AnnotationVisitor {
+        private final ClassifierResolutionContext context;
+        private final List<JavaAnnotationArgument> arguments;
+
+        public ArgumentsVisitor(@NotNull ClassifierResolutionContext context, @NotNull List<JavaAnnotationArgument> arguments) {
+            super(ASM4);
+            this.context = context;
+            this.arguments = arguments;
+        }
+
+        @Nullable
+        private static Name name(@Nullable String name) {
+            return name == null ? null : Name.identifier(name);
+        }
+
+        @Override
+        public void visit(String name, Object value) {
+            arguments.add(createArgument(name(name), value));
+        }
+
+        @NotNull
+        private JavaAnnotationArgument createArgument(@Nullable Name name, @Nullable Object value) {
+            if (value instanceof Type) {
+                JavaType type = new BinaryJavaSignatureParser(((Type) value).getDescriptor(), context).parseTypeSignature();
+                return new BinaryJavaAnnotationArgument.ClassObject(name, type);
+            }
+            if (value != null && value.getClass().isArray()) {
+                // Arrays of primitives are reported by ASM as a single value
+                int length = Array.getLength(value);
+                List<JavaAnnotationArgument> elements = new ArrayList<JavaAnnotationArgument>(length);
+                for (int i = 0; i < length; i++) {
+                    elements.add(new BinaryJavaAnnotationArgument.Literal(null, Array.get(value, i)));
+                }
+                return new BinaryJavaAnnotationArgument.Array(name, elements);
+            }
+            return new BinaryJavaAnnotationArgument.Literal(name, value);
+        }
+
+        @Override
+        public void visitEnum(String name, String desc, String value) {
+            arguments.add(new BinaryJavaAnnotationArgument.EnumEntryReference(
+                    name(name), context, Type.getType(desc).getInternalName(), Name.identifier(value)));
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String name, String desc) {
+            List<JavaAnnotation> annotation = new ArrayList<JavaAnnotation>(1);
+            AnnotationVisitor visitor = read(context, desc, annotation);
+            arguments.add(new BinaryJavaAnnotationArgument.AnnotationAsArgument(name(name), annotation.get(0)));
+            return visitor;
+        }
+
+        @Override
+        public AnnotationVisitor visitArray(String name) {
+            List<JavaAnnotationArgument> elements = new ArrayList<JavaAnnotationArgument>();
+            arguments.add(new BinaryJavaAnnotationArgument.Array(name(name), elements));
+            return new ArgumentsVisitor(context, elements);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.*;
+import org.jetbrains.jet.lang.descriptors.Visibility;
+import org.jetbrains.jet.lang.resolve.java.JavaClassFinder;
+import org.jetbrains.jet.lang.resolve.java.structure.*;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.utils.ExceptionUtils;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.jetbrains.asm4.ClassReader.*;
+import static org.jetbrains.asm4.Opcodes.*;
+
+/**
+ * Java class read directly from a class file with ASM, without building PSI for it.
+ * Only the class header, member declarations and annotations are read, method bodies are skipped
+ */
+public class BinaryJavaClass implements JavaClass {
+    public static final FqName JAVA_LANG_OBJECT = new FqName("java.lang.Object");
+
+    private final VirtualFile file;
+    private final JavaClassFinder classFinder;
+    private final Map<String, ClassifierResolutionContext.InnerClassInfo> innerClassInfos =
+            new HashMap<String, ClassifierResolutionContext.InnerClassInfo>();
+    private final ClassifierResolutionContext context;
+
+    private int access;
+    private String internalName;
+    private FqName fqName;
+    private String signature;
+    private String superName;
+    private String[] interfaces;
+
+    private final List<Name> innerClassNames = new ArrayList<Name>(0);
+    private final List<JavaAnnotation> annotations = new ArrayList<JavaAnnotation>(1);
+    private final List<JavaMethod> methods = new ArrayList<JavaMethod>();
+    private final List<JavaField> fields = new ArrayList<JavaField>();
+
+    private List<JavaTypeParameter> typeParameters;
+    private List<JavaClassifierType> supertypes;
+
+    public BinaryJavaClass(@NotNull VirtualFile file, @NotNull JavaClassFinder classFinder) {
+        this.file = file;
+        this.classFinder = classFinder;
+        this.context = ClassifierResolutionContext.forClass(classFinder, innerClassInfos, this);
+
+        try {
+            new ClassReader(file.contentsToByteArray()).accept(new MembersVisitor(), SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.rethrow(e);
+        }
+
+        this.fqName = context.fqNameByInternalName(internalName);
+        parseSignature();
+    }
+
+    private void parseSignature() {
+        if (signature != null) {
+            BinaryJavaSignatureParser parser = new BinaryJavaSignatureParser(signature, context);
+            typeParameters = parser.parseTypeParameters(this);
+            supertypes = parser.parseSupertypes();
+        }
+        else {
+            typeParameters = Collections.emptyList();
+            supertypes = new ArrayList<JavaClassifierType>(interfaces.length + 1);
+            if (superName != null) {
+                supertypes.add(BinaryJavaClassifierType.forClass(context, superName, Collections.<JavaType>emptyList()));
+            }
+            for (String superInterface : interfaces) {
+                supertypes.add(BinaryJavaClassifierType.forClass(context, superInterface, Collections.<JavaType>emptyList()));
+            }
+        }
+
+        // As in PSI, java.lang.Object is not mentioned explicitly among supertypes
+        for (Iterator<JavaClassifierType> iterator = supertypes.iterator(); iterator.hasNext(); ) {
+            if ("java.lang.Object".equals(((BinaryJavaClassifierType) iterator.next()).getCanonicalText())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private class MembersVisitor extends ClassVisitor {
+        public MembersVisitor() {
+            super(ASM4);
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            BinaryJavaClass.this.access = access;
+            BinaryJavaClass.this.internalName = name;
+            BinaryJavaClass.this.signature = signature;
+            BinaryJavaClass.this.superName = superName;
+            BinaryJavaClass.this.interfaces = interfaces == null ? new String[0] : interfaces;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            return BinaryJavaAnnotation.read(context, desc, annotations);
+        }
+
+        @Override
+        public void visitInnerClass(String name, String outerName, String innerName, int access) {
+            // Local and anonymous classes are not accessible by name
+            if (outerName == null || innerName == null) return;
+
+            innerClassInfos.put(name, new ClassifierResolutionContext.InnerClassInfo(outerName, innerName));
+
+            if (name.equals(internalName)) {
+                // Modifiers of a nested class (e.g. 'static' or 'private') are only stored in the InnerClasses attribute
+                BinaryJavaClass.this.access = access;
+            }
+            else if (outerName.equals(internalName) && (access & ACC_SYNTHETIC) == 0) {
+                innerClassNames.add(Name.identifier(innerName));
+            }
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+            if ((access & ACC_SYNTHETIC) != 0) return null;
+
+            BinaryJavaField field = new BinaryJavaField(BinaryJavaClass.this, access, name, signature != null ? signature : desc, value);
+            fields.add(field);
+            return field.createVisitor();
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            if ((access & (ACC_SYNTHETIC | ACC_BRIDGE)) != 0 || "<clinit>".equals(name)) return null;
+
+            BinaryJavaMethod method = new BinaryJavaMethod(BinaryJavaClass.this, access, name, desc, signature);
+            methods.add(method);
+            return method.createVisitor();
+        }
+    }
+
+    @NotNull
+    /* package */ ClassifierResolutionContext getContext() {
+        return context;
+    }
+
+    @NotNull
+    /* package */ JavaTypeProvider getTypeProvider() {
+        return new BinaryJavaTypeProvider(context);
+    }
+
+    /**
+     * @return true if this is an inner (non-static) class whose constructors take an instance of the outer class
+     */
+    /* package */ boolean isInner() {
+        return !isStatic() && innerClassInfos.containsKey(internalName);
+    }
+
+    @NotNull
+    public VirtualFile getVirtualFile() {
+        return file;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaClass> getInnerClasses() {
+        List<JavaClass> result = new ArrayList<JavaClass>(innerClassNames.size());
+        for (Name name : innerClassNames) {
+            JavaClass innerClass = classFinder.findClass(fqName.child(name));
+            if (innerClass != null) {
+                result.add(innerClass);
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public FqName getFqName() {
+        return fqName;
+    }
+
+    @NotNull
+    @Override
+    public Name getName() {
+        return fqName.shortName();
+    }
+
+    @Override
+    public boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    @Override
+    public boolean isAnnotationType() {
+        return (access & ACC_ANNOTATION) != 0;
+    }
+
+    @Override
+    public boolean isEnum() {
+        return (access & ACC_ENUM) != 0;
+    }
+
+    @Nullable
+    @Override
+    public JavaClass getOuterClass() {
+        ClassifierResolutionContext.InnerClassInfo info = innerClassInfos.get(internalName);
+        return info == null ? null : classFinder.findClass(fqName.parent());
+    }
+
+    @NotNull
+    @Override
+    public List<JavaTypeParameter> getTypeParameters() {
+        return typeParameters;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaClassifierType> getSupertypes() {
+        return supertypes;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaMethod> getMethods() {
+        return methods;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaMethod> getAllMethods() {
+        List<JavaMethod> result = new ArrayList<JavaMethod>(methods);
+        for (JavaClass supertype : getAllSuperClasses()) {
+            for (JavaMethod method : supertype.getMethods()) {
+                if (!method.isConstructor()) {
+                    result.add(method);
+                }
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaField> getFields() {
+        return fields;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaField> getAllFields() {
+        List<JavaField> result = new ArrayList<JavaField>(fields);
+        for (JavaClass supertype : getAllSuperClasses()) {
+            result.addAll(supertype.getFields());
+        }
+        return result;
+    }
+
+    /**
+     * @return all classes this class inherits from, including java.lang.Object, each class exactly once
+     */
+    @NotNull
+    private Collection<JavaClass> getAllSuperClasses() {
+        Map<FqName, JavaClass> result = new LinkedHashMap<FqName, JavaClass>();
+        Deque<JavaClass> queue = new ArrayDeque<JavaClass>();
+        queue.add(this);
+        while (!queue.isEmpty()) {
+            JavaClass current = queue.poll();
+            for (JavaClassifierType supertype : current.getSupertypes()) {
+                JavaClassifier classifier = supertype.getClassifier();
+                if (classifier instanceof JavaClass && !result.containsKey(((JavaClass) classifier).getFqName())) {
+                    result.put(((JavaClass) classifier).getFqName(), (JavaClass) classifier);
+                    queue.add((JavaClass) classifier);
+                }
+            }
+        }
+
+        if (!JAVA_LANG_OBJECT.equals(fqName) && !result.containsKey(JAVA_LANG_OBJECT)) {
+            JavaClass javaLangObject = classFinder.findClass(JAVA_LANG_OBJECT);
+            if (javaLangObject != null) {
+                result.put(JAVA_LANG_OBJECT, javaLangObject);
+            }
+        }
+        result.remove(fqName);
+
+        return result.values();
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaMethod> getConstructors() {
+        List<JavaMethod> result = new ArrayList<JavaMethod>(1);
+        for (JavaMethod method : methods) {
+            if (method.isConstructor()) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    @Override
+    public JavaClassifierType getDefaultType() {
+        List<JavaType> arguments = new ArrayList<JavaType>(typeParameters.size());
+        for (JavaTypeParameter typeParameter : typeParameters) {
+            arguments.add(typeParameter.getType());
+        }
+        return BinaryJavaClassifierType.forClassifier(this, arguments);
+    }
+
+    @NotNull
+    @Override
+    public OriginKind getOriginKind() {
+        return OriginKind.COMPILED;
+    }
+
+    @Override
+    public boolean isAbstract() {
+        return BinaryJavaModifiers.isAbstract(access);
+    }
+
+    @Override
+    public boolean isStatic() {
+        return BinaryJavaModifiers.isStatic(access);
+    }
+
+    @Override
+    public boolean isFinal() {
+        return BinaryJavaModifiers.isFinal(access);
+    }
+
+    @NotNull
+    @Override
+    public Visibility getVisibility() {
+        return BinaryJavaModifiers.getVisibility(access);
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaAnnotation> getAnnotations() {
+        return annotations;
+    }
+
+    @Nullable
+    @Override
+    public JavaAnnotation findAnnotation(@NotNull FqName fqName) {
+        return BinaryJavaModifiers.findAnnotation(annotations, fqName);
+    }
+
+    @Override
+    public int hashCode() {
+        return fqName.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BinaryJavaClass && fqName.equals(((BinaryJavaClass) obj).fqName);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + fqName;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.structure.*;
+
+import java.util.*;
+
+public class BinaryJavaClassifierType implements JavaClassifierType {
+    // Exactly one of these is not null, unless the classifier was known at the moment of creation
+    @Nullable
+    private final String internalName;
+    @Nullable
+    private final String typeVariableName;
+    @Nullable
+    private final ClassifierResolutionContext context;
+
+    private final List<JavaType> typeArguments;
+
+    private JavaClassifier classifier;
+    private boolean resolved;
+
+    private BinaryJavaClassifierType(
+            @Nullable String internalName,
+            @Nullable String typeVariableName,
+            @Nullable ClassifierResolutionContext context,
+            @NotNull List<JavaType> typeArguments
+    ) {
+        this.internalName = internalName;
+        this.typeVariableName = typeVariableName;
+        this.context = context;
+        this.typeArguments = typeArguments;
+    }
+
+    @NotNull
+    /* package */ static BinaryJavaClassifierType forClass(
+            @NotNull ClassifierResolutionContext context,
+            @NotNull String internalName,
+            @NotNull List<JavaType> typeArguments
+    ) {
+        return new BinaryJavaClassifierType(internalName, null, context, typeArguments);
+    }
+
+    @NotNull
+    /* package */ static BinaryJavaClassifierType forTypeVariable(@NotNull ClassifierResolutionContext context, @NotNull String name) {
+        return new BinaryJavaClassifierType(null, name, context, Collections.<JavaType>emptyList());
+    }
+
+    @NotNull
+    public static BinaryJavaClassifierType forClassifier(@NotNull JavaClassifier classifier, @NotNull List<JavaType> typeArguments) {
+        BinaryJavaClassifierType type = new BinaryJavaClassifierType(null, null, null, typeArguments);
+        type.classifier = classifier;
+        type.resolved = true;
+        return type;
+    }
+
+    @Nullable
+    @Override
+    public JavaClassifier getClassifier() {
+        if (!resolved) {
+            assert context != null : "Context should be present for an unresolved type: " + this;
+            classifier = internalName != null ? context.resolveClass(internalName) : context.resolveTypeParameter(typeVariableName);
+            resolved = true;
+        }
+        return classifier;
+    }
+
+    @NotNull
+    @Override
+    public JavaTypeSubstitutor getSubstitutor() {
+        JavaClassifier classifier = getClassifier();
+        if (!(classifier instanceof JavaClass)) return JavaTypeSubstitutor.EMPTY;
+
+        List<JavaTypeParameter> typeParameters = ((JavaClass) classifier).getTypeParameters();
+        if (typeParameters.isEmpty()) return JavaTypeSubstitutor.EMPTY;
+
+        boolean raw = typeParameters.size() != typeArguments.size();
+        Map<JavaTypeParameter, JavaType> substitutionMap = new HashMap<JavaTypeParameter, JavaType>();
+        for (int i = 0; i < typeParameters.size(); i++) {
+            // Raw types are substituted with nulls, as in PSI
+            substitutionMap.put(typeParameters.get(i), raw ? null : typeArguments.get(i));
+        }
+        return new BinaryJavaTypeSubstitutor(substitutionMap);
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaClassifierType> getSupertypes() {
+        JavaClassifier classifier = getClassifier();
+        if (classifier instanceof JavaTypeParameter) {
+            Collection<JavaClassifierType> bounds = ((JavaTypeParameter) classifier).getUpperBounds();
+            if (!bounds.isEmpty()) return bounds;
+        }
+        else if (classifier instanceof JavaClass) {
+            JavaClass javaClass = (JavaClass) classifier;
+            Collection<JavaClassifierType> supertypes = javaClass.getSupertypes();
+            if (!supertypes.isEmpty()) {
+                JavaTypeSubstitutor substitutor = getSubstitutor();
+                List<JavaClassifierType> result = new ArrayList<JavaClassifierType>(supertypes.size());
+                for (JavaClassifierType supertype : supertypes) {
+                    result.add((JavaClassifierType) substitutor.substitute(supertype));
+                }
+                return result;
+            }
+            if (BinaryJavaClass.JAVA_LANG_OBJECT.equals(javaClass.getFqName())) {
+                return Collections.emptyList();
+            }
+        }
+        else {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList((JavaClassifierType) getTypeProvider().createJavaLangObjectType());
+    }
+
+    @NotNull
+    private JavaTypeProvider getTypeProvider() {
+        if (context != null) {
+            return new BinaryJavaTypeProvider(context);
+        }
+        if (classifier instanceof JavaTypeParameter) {
+            return ((JavaTypeParameter) classifier).getTypeProvider();
+        }
+        if (classifier instanceof BinaryJavaClass) {
+            return ((BinaryJavaClass) classifier).getTypeProvider();
+        }
+        throw new IllegalStateException("Can't create java.lang.Object type for " + this);
+    }
+
+    @NotNull
+    @Override
+    public String getPresentableText() {
+        String name;
+        if (typeVariableName != null) {
+            name = typeVariableName;
+        }
+        else if (internalName != null) {
+            name = internalName.substring(Math.max(internalName.lastIndexOf('/'), internalName.lastIndexOf('$')) + 1);
+        }
+        else {
+            name = classifier == null ? "<unresolved>" : classifier.getName().asString();
+        }
+
+        if (typeArguments.isEmpty()) return name;
+
+        StringBuilder sb = new StringBuilder(name).append('<');
+        for (Iterator<JavaType> iterator = typeArguments.iterator(); iterator.hasNext(); ) {
+            JavaType argument = iterator.next();
+            sb.append(argument instanceof JavaClassifierType
+                      ? ((JavaClassifierType) argument).getPresentableText()
+                      : BinaryJavaSignatureFormatter.canonicalText(argument));
+            if (iterator.hasNext()) sb.append(", ");
+        }
+        return sb.append('>').toString();
+    }
+
+    /**
+     * @return the fully qualified text of this type, e.g. {@code "java.util.Map<K,V>"}, computed without resolving the classifier
+     */
+    @NotNull
+    /* package */ String getCanonicalText() {
+        String name;
+        if (typeVariableName != null) {
+            name = typeVariableName;
+        }
+        else if (internalName != null) {
+            assert context != null : "Context should be present for an unresolved type: " + this;
+            name = context.fqNameByInternalName(internalName).asString();
+        }
+        else if (classifier instanceof JavaClass) {
+            JavaClass javaClass = (JavaClass) classifier;
+            name = javaClass.getFqName() != null ? javaClass.getFqName().asString() : javaClass.getName().asString();
+        }
+        else {
+            name = classifier == null ? "<unresolved>" : classifier.getName().asString();
+        }
+
+        if (typeArguments.isEmpty()) return name;
+
+        StringBuilder sb = new StringBuilder(name).append('<');
+        for (Iterator<JavaType> iterator = typeArguments.iterator(); iterator.hasNext(); ) {
+            sb.append(BinaryJavaSignatureFormatter.canonicalText(iterator.next()));
+            if (iterator.hasNext()) sb.append(',');
+        }
+        return sb.append('>').toString();
+    }
+
+    @Override
+    public boolean isRaw() {
+        JavaClassifier classifier = getClassifier();
+        return classifier instanceof JavaClass &&
+               typeArguments.isEmpty() &&
+               !((JavaClass) classifier).getTypeParameters().isEmpty();
+    }
+
+    @NotNull
+    @Override
+    public List<JavaType> getTypeArguments() {
+        return typeArguments;
+    }
+
+    @Override
+    public int hashCode() {
+        JavaClassifier classifier = getClassifier();
+        return (classifier == null ? getCanonicalText().hashCode() : classifier.hashCode()) * 31 + typeArguments.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BinaryJavaClassifierType)) return false;
+        BinaryJavaClassifierType other = (BinaryJavaClassifierType) obj;
+
+        JavaClassifier classifier = getClassifier();
+        JavaClassifier otherClassifier = other.getClassifier();
+        if (classifier == null || otherClassifier == null) {
+            return classifier == otherClassifier && getCanonicalText().equals(other.getCanonicalText());
+        }
+        return classifier.equals(otherClassifier) && typeArguments.equals(other.typeArguments);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + getCanonicalText();
+    }
+}
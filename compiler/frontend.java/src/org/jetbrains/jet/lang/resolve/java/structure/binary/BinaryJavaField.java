@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.AnnotationVisitor;
+import org.jetbrains.asm4.FieldVisitor;
+import org.jetbrains.jet.lang.descriptors.Visibility;
+import org.jetbrains.jet.lang.resolve.java.structure.*;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.jetbrains.asm4.Opcodes.ACC_ENUM;
+import static org.jetbrains.asm4.Opcodes.ASM4;
+
+public class BinaryJavaField implements JavaField {
+    private final BinaryJavaClass containingClass;
+    private final int access;
+    private final Name name;
+    private final String signature;
+    private final Object constantValue;
+    private final List<JavaAnnotation> annotations = new ArrayList<JavaAnnotation>(0);
+
+    private JavaType type;
+
+    /* package */ BinaryJavaField(
+            @NotNull BinaryJavaClass containingClass,
+            int access,
+            @NotNull String name,
+            @NotNull String signature,
+            @Nullable Object constantValue
+    ) {
+        this.containingClass = containingClass;
+        this.access = access;
+        this.name = Name.identifier(name);
+        this.signature = signature;
+        this.constantValue = constantValue;
+    }
+
+    @NotNull
+    /* package */ FieldVisitor createVisitor() {
+        return new FieldVisitor(ASM4) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return BinaryJavaAnnotation.read(containingClass.getContext(), desc, annotations);
+            }
+        };
+    }
+
+    /**
+     * @return the value of the ConstantValue attribute of this field, or null if there's none
+     */
+    @Nullable
+    public Object getConstantValue() {
+        return constantValue;
+    }
+
+    @Override
+    public boolean isEnumEntry() {
+        return (access & ACC_ENUM) != 0;
+    }
+
+    @NotNull
+    @Override
+    public JavaType getType() {
+        if (type == null) {
+            type = new BinaryJavaSignatureParser(signature, containingClass.getContext()).parseTypeSignature();
+        }
+        return type;
+    }
+
+    @NotNull
+    @Override
+    public JavaClass getContainingClass() {
+        return containingClass;
+    }
+
+    @NotNull
+    @Override
+    public Name getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isAbstract() {
+        return BinaryJavaModifiers.isAbstract(access);
+    }
+
+    @Override
+    public boolean isStatic() {
+        return BinaryJavaModifiers.isStatic(access);
+    }
+
+    @Override
+    public boolean isFinal() {
+        return BinaryJavaModifiers.isFinal(access);
+    }
+
+    @NotNull
+    @Override
+    public Visibility getVisibility() {
+        return BinaryJavaModifiers.getVisibility(access);
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaAnnotation> getAnnotations() {
+        return annotations;
+    }
+
+    @Nullable
+    @Override
+    public JavaAnnotation findAnnotation(@NotNull FqName fqName) {
+        return BinaryJavaModifiers.findAnnotation(annotations, fqName);
+    }
+
+    @Override
+    public int hashCode() {
+        return containingClass.hashCode() * 31 + name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BinaryJavaField)) return false;
+        BinaryJavaField other = (BinaryJavaField) obj;
+        return name.equals(other.name) && containingClass.equals(other.containingClass);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + containingClass.getFqName() + "." + name;
+    }
+}
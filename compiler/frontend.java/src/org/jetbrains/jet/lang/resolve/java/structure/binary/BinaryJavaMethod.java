@@ -0,0 +1,234 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.AnnotationVisitor;
+import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.Type;
+import org.jetbrains.jet.lang.descriptors.Visibility;
+import org.jetbrains.jet.lang.resolve.java.structure.*;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.util.*;
+
+import static org.jetbrains.asm4.Opcodes.ACC_VARARGS;
+import static org.jetbrains.asm4.Opcodes.ASM4;
+
+public class BinaryJavaMethod implements JavaMethod {
+    // ASM reports this fake annotation on synthetic parameters which are absent in the ParameterAnnotations attribute
+    private static final String SYNTHETIC_PARAMETER_ANNOTATION = "Ljava/lang/Synthetic;";
+
+    private final BinaryJavaClass containingClass;
+    private final int access;
+    private final String name;
+    private final String desc;
+    @Nullable
+    private final String signature;
+
+    private final List<JavaAnnotation> annotations = new ArrayList<JavaAnnotation>(0);
+    // Keys are indices of parameters in the method descriptor
+    private Map<Integer, List<JavaAnnotation>> parameterAnnotations = Collections.emptyMap();
+    private boolean hasAnnotationParameterDefaultValue;
+
+    private List<JavaTypeParameter> typeParameters;
+    private List<JavaValueParameter> valueParameters;
+    private JavaType returnType;
+
+    /* package */ BinaryJavaMethod(
+            @NotNull BinaryJavaClass containingClass,
+            int access,
+            @NotNull String name,
+            @NotNull String desc,
+            @Nullable String signature
+    ) {
+        this.containingClass = containingClass;
+        this.access = access;
+        this.name = name;
+        this.desc = desc;
+        this.signature = signature;
+    }
+
+    @NotNull
+    /* package */ MethodVisitor createVisitor() {
+        return new MethodVisitor(ASM4) {
+            @Override
+            public AnnotationVisitor visitAnnotationDefault() {
+                hasAnnotationParameterDefaultValue = true;
+                return null;
+            }
+
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return BinaryJavaAnnotation.read(containingClass.getContext(), desc, annotations);
+            }
+
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                if (SYNTHETIC_PARAMETER_ANNOTATION.equals(desc)) return null;
+
+                if (parameterAnnotations.isEmpty()) {
+                    parameterAnnotations = new HashMap<Integer, List<JavaAnnotation>>();
+                }
+                List<JavaAnnotation> list = parameterAnnotations.get(parameter);
+                if (list == null) {
+                    list = new ArrayList<JavaAnnotation>(1);
+                    parameterAnnotations.put(parameter, list);
+                }
+                return BinaryJavaAnnotation.read(containingClass.getContext(), desc, list);
+            }
+        };
+    }
+
+    private void parseSignature() {
+        if (valueParameters != null) return;
+
+        ClassifierResolutionContext context = containingClass.getContext().createChildContext();
+        BinaryJavaSignatureParser parser = new BinaryJavaSignatureParser(signature != null ? signature : desc, context);
+        typeParameters = parser.parseTypeParameters(this);
+
+        List<JavaType> types = parser.parseMethodParametersAndReturnType();
+        returnType = types.remove(types.size() - 1);
+
+        int descParameterCount = Type.getArgumentTypes(desc).length;
+        if (signature == null && isConstructor()) {
+            // Synthetic parameters of constructors are present in the descriptor, but not in the generic signature
+            int synthetic = containingClass.isEnum() ? 2 : containingClass.isInner() ? 1 : 0;
+            types = types.subList(Math.min(synthetic, types.size()), types.size());
+        }
+        int shift = descParameterCount - types.size();
+
+        List<JavaValueParameter> result = new ArrayList<JavaValueParameter>(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            List<JavaAnnotation> annotations = parameterAnnotations.get(i + shift);
+            result.add(new BinaryJavaValueParameter(
+                    this,
+                    i,
+                    types.get(i),
+                    annotations != null ? annotations : Collections.<JavaAnnotation>emptyList(),
+                    i == types.size() - 1 && isVararg()
+            ));
+        }
+        valueParameters = result;
+    }
+
+    @NotNull
+    public String getDescriptor() {
+        return desc;
+    }
+
+    @NotNull
+    @Override
+    public Name getName() {
+        return isConstructor() ? containingClass.getName() : Name.identifier(name);
+    }
+
+    @NotNull
+    @Override
+    public List<JavaTypeParameter> getTypeParameters() {
+        parseSignature();
+        return typeParameters;
+    }
+
+    @NotNull
+    @Override
+    public List<JavaValueParameter> getValueParameters() {
+        parseSignature();
+        return valueParameters;
+    }
+
+    @Override
+    public boolean hasAnnotationParameterDefaultValue() {
+        return hasAnnotationParameterDefaultValue;
+    }
+
+    @Nullable
+    @Override
+    public JavaType getReturnType() {
+        if (isConstructor()) return null;
+        parseSignature();
+        return returnType;
+    }
+
+    @Override
+    public boolean isVararg() {
+        return (access & ACC_VARARGS) != 0;
+    }
+
+    @Override
+    public boolean isConstructor() {
+        return "<init>".equals(name);
+    }
+
+    @NotNull
+    @Override
+    public JavaClass getContainingClass() {
+        return containingClass;
+    }
+
+    @Override
+    public boolean isAbstract() {
+        return BinaryJavaModifiers.isAbstract(access);
+    }
+
+    @Override
+    public boolean isStatic() {
+        return BinaryJavaModifiers.isStatic(access);
+    }
+
+    @Override
+    public boolean isFinal() {
+        return BinaryJavaModifiers.isFinal(access);
+    }
+
+    @NotNull
+    @Override
+    public Visibility getVisibility() {
+        return BinaryJavaModifiers.getVisibility(access);
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaAnnotation> getAnnotations() {
+        return annotations;
+    }
+
+    @Nullable
+    @Override
+    public JavaAnnotation findAnnotation(@NotNull FqName fqName) {
+        return BinaryJavaModifiers.findAnnotation(annotations, fqName);
+    }
+
+    @Override
+    public int hashCode() {
+        return (containingClass.hashCode() * 31 + name.hashCode()) * 31 + desc.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BinaryJavaMethod)) return false;
+        BinaryJavaMethod other = (BinaryJavaMethod) obj;
+        return name.equals(other.name) && desc.equals(other.desc) && containingClass.equals(other.containingClass);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + containingClass.getFqName() + "." + name + desc;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.Visibilities;
+import org.jetbrains.jet.lang.descriptors.Visibility;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaAnnotation;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.util.Collection;
+
+import static org.jetbrains.asm4.Opcodes.*;
+import static org.jetbrains.jet.lang.resolve.java.JavaVisibilities.*;
+
+/* package */ class BinaryJavaModifiers {
+    private BinaryJavaModifiers() {
+    }
+
+    public static boolean isAbstract(int access) {
+        return (access & ACC_ABSTRACT) != 0;
+    }
+
+    public static boolean isStatic(int access) {
+        return (access & ACC_STATIC) != 0;
+    }
+
+    public static boolean isFinal(int access) {
+        return (access & ACC_FINAL) != 0;
+    }
+
+    @NotNull
+    public static Visibility getVisibility(int access) {
+        if ((access & ACC_PUBLIC) != 0) {
+            return Visibilities.PUBLIC;
+        }
+        if ((access & ACC_PRIVATE) != 0) {
+            return Visibilities.PRIVATE;
+        }
+        if ((access & ACC_PROTECTED) != 0) {
+            return isStatic(access) ? PROTECTED_STATIC_VISIBILITY : PROTECTED_AND_PACKAGE;
+        }
+        return PACKAGE_VISIBILITY;
+    }
+
+    @Nullable
+    public static JavaAnnotation findAnnotation(@NotNull Collection<JavaAnnotation> annotations, @NotNull FqName fqName) {
+        for (JavaAnnotation annotation : annotations) {
+            if (fqName.equals(annotation.getFqName())) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+}
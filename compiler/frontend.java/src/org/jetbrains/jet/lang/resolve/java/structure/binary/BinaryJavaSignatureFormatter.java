@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.structure.*;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Formats signatures of binary Java methods in the same way PSI does, see {@link JavaSignatureFormatter}
+ */
+public class BinaryJavaSignatureFormatter {
+    private BinaryJavaSignatureFormatter() {
+    }
+
+    @NotNull
+    public static String formatMethod(@NotNull BinaryJavaMethod method) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(method.getName().asString());
+        appendParameters(sb, method);
+        return sb.toString();
+    }
+
+    @NotNull
+    public static String getExternalName(@NotNull BinaryJavaMethod method) {
+        StringBuilder sb = new StringBuilder();
+        FqName classFqName = method.getContainingClass().getFqName();
+        sb.append(classFqName == null ? "null" : classFqName.asString()).append(' ');
+
+        JavaType returnType = method.getReturnType();
+        if (returnType != null) {
+            sb.append(canonicalText(returnType)).append(' ');
+        }
+
+        sb.append(method.getName().asString());
+        appendParameters(sb, method);
+        return sb.toString();
+    }
+
+    /**
+     * @return the name of the declaration in external annotations, as {@code PsiFormatUtil.getExternalName()} computes it for PSI
+     */
+    @Nullable
+    public static String getExternalName(@NotNull JavaAnnotationOwner owner) {
+        if (owner instanceof BinaryJavaClass) {
+            FqName fqName = ((BinaryJavaClass) owner).getFqName();
+            return fqName == null ? null : fqName.asString();
+        }
+        if (owner instanceof BinaryJavaMethod) {
+            return getExternalName((BinaryJavaMethod) owner);
+        }
+        if (owner instanceof BinaryJavaField) {
+            BinaryJavaField field = (BinaryJavaField) owner;
+            String className = getExternalName(field.getContainingClass());
+            return className == null ? null : className + " " + field.getName().asString();
+        }
+        if (owner instanceof BinaryJavaValueParameter) {
+            BinaryJavaValueParameter parameter = (BinaryJavaValueParameter) owner;
+            return getExternalName(parameter.getMethod()) + " " + parameter.getIndex();
+        }
+        return null;
+    }
+
+    private static void appendParameters(@NotNull StringBuilder sb, @NotNull JavaMethod method) {
+        sb.append('(');
+        List<JavaValueParameter> parameters = method.getValueParameters();
+        for (Iterator<JavaValueParameter> iterator = parameters.iterator(); iterator.hasNext(); ) {
+            JavaValueParameter parameter = iterator.next();
+            JavaType type = parameter.getType();
+            if (parameter.isVararg() && type instanceof JavaArrayType) {
+                sb.append(canonicalText(((JavaArrayType) type).getComponentType())).append("...");
+            }
+            else {
+                sb.append(canonicalText(type));
+            }
+            if (iterator.hasNext()) sb.append(", ");
+        }
+        sb.append(')');
+    }
+
+    /**
+     * @return fully qualified text of the type as PSI presents it, e.g. {@code "java.util.List<? extends T>[]"}
+     */
+    @NotNull
+    public static String canonicalText(@NotNull JavaType type) {
+        if (type instanceof BinaryJavaClassifierType) {
+            return ((BinaryJavaClassifierType) type).getCanonicalText();
+        }
+        if (type instanceof JavaPrimitiveType) {
+            return ((JavaPrimitiveType) type).getCanonicalText();
+        }
+        if (type instanceof JavaArrayType) {
+            return canonicalText(((JavaArrayType) type).getComponentType()) + "[]";
+        }
+        if (type instanceof JavaWildcardType) {
+            JavaWildcardType wildcardType = (JavaWildcardType) type;
+            JavaType bound = wildcardType.getBound();
+            if (bound == null) return "?";
+            return (wildcardType.isExtends() ? "? extends " : "? super ") + canonicalText(bound);
+        }
+        if (type instanceof JavaClassifierType) {
+            return ((JavaClassifierType) type).getPresentableText();
+        }
+        throw new IllegalArgumentException("Unsupported type: " + type);
+    }
+}
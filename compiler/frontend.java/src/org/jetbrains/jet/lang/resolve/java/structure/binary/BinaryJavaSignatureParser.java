@@ -0,0 +1,217 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaClassifierType;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaType;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaTypeParameter;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaTypeParameterListOwner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses JVM type descriptors and generic signatures (JVMS 4.3, 4.7.9.1) into the Java structure model.
+ * Classifiers are not resolved here: resolution happens lazily on the first request
+ */
+/* package */ class BinaryJavaSignatureParser {
+    private final String signature;
+    private final ClassifierResolutionContext context;
+    private int position = 0;
+
+    /* package */ BinaryJavaSignatureParser(@NotNull String signature, @NotNull ClassifierResolutionContext context) {
+        this.signature = signature;
+        this.context = context;
+    }
+
+    public boolean hasTypeParameters() {
+        return current() == '<';
+    }
+
+    /**
+     * Parses formal type parameters and makes them visible in the context of this parser
+     */
+    @NotNull
+    public List<JavaTypeParameter> parseTypeParameters(@NotNull JavaTypeParameterListOwner owner) {
+        if (!hasTypeParameters()) return Collections.emptyList();
+        expect('<');
+
+        List<JavaTypeParameter> result = new ArrayList<JavaTypeParameter>(1);
+        List<BinaryJavaTypeParameter> parameters = new ArrayList<BinaryJavaTypeParameter>(1);
+        List<List<JavaClassifierType>> bounds = new ArrayList<List<JavaClassifierType>>(1);
+        while (current() != '>') {
+            int colon = signature.indexOf(':', position);
+            String name = signature.substring(position, colon);
+            position = colon;
+
+            List<JavaClassifierType> parameterBounds = new ArrayList<JavaClassifierType>(1);
+            while (current() == ':') {
+                position++;
+                // Class bound may be absent if there are interface bounds
+                if (current() != ':' && current() != '>') {
+                    parameterBounds.add((JavaClassifierType) parseFieldTypeSignature());
+                }
+            }
+
+            BinaryJavaTypeParameter parameter =
+                    new BinaryJavaTypeParameter(owner, result.size(), name, new BinaryJavaTypeProvider(context));
+            parameters.add(parameter);
+            bounds.add(parameterBounds);
+            result.add(parameter);
+        }
+        expect('>');
+
+        for (int i = 0; i < parameters.size(); i++) {
+            parameters.get(i).setUpperBounds(bounds.get(i));
+        }
+        context.setTypeParameters(result);
+        return result;
+    }
+
+    /**
+     * Parses a class signature after its type parameters: superclass and superinterfaces
+     */
+    @NotNull
+    public List<JavaClassifierType> parseSupertypes() {
+        List<JavaClassifierType> result = new ArrayList<JavaClassifierType>(2);
+        while (position < signature.length()) {
+            result.add((JavaClassifierType) parseFieldTypeSignature());
+        }
+        return result;
+    }
+
+    /**
+     * Parses a method descriptor or signature after its type parameters. The return type is the last element of the result,
+     * thrown exceptions are skipped
+     */
+    @NotNull
+    public List<JavaType> parseMethodParametersAndReturnType() {
+        List<JavaType> result = new ArrayList<JavaType>();
+        expect('(');
+        while (current() != ')') {
+            result.add(parseTypeSignature());
+        }
+        expect(')');
+        result.add(parseTypeSignature());
+        return result;
+    }
+
+    @NotNull
+    public JavaType parseTypeSignature() {
+        char c = current();
+        switch (c) {
+            case 'V': position++; return new BinaryJavaPrimitiveType("void");
+            case 'Z': position++; return new BinaryJavaPrimitiveType("boolean");
+            case 'C': position++; return new BinaryJavaPrimitiveType("char");
+            case 'B': position++; return new BinaryJavaPrimitiveType("byte");
+            case 'S': position++; return new BinaryJavaPrimitiveType("short");
+            case 'I': position++; return new BinaryJavaPrimitiveType("int");
+            case 'F': position++; return new BinaryJavaPrimitiveType("float");
+            case 'J': position++; return new BinaryJavaPrimitiveType("long");
+            case 'D': position++; return new BinaryJavaPrimitiveType("double");
+            default: return parseFieldTypeSignature();
+        }
+    }
+
+    @NotNull
+    private JavaType parseFieldTypeSignature() {
+        char c = current();
+        switch (c) {
+            case '[':
+                position++;
+                return new BinaryJavaArrayType(parseTypeSignature());
+            case 'T': {
+                int semicolon = signature.indexOf(';', position);
+                String name = signature.substring(position + 1, semicolon);
+                position = semicolon + 1;
+                return BinaryJavaClassifierType.forTypeVariable(context, name);
+            }
+            case 'L':
+                return parseClassTypeSignature();
+            default:
+                throw new IllegalStateException("Unexpected character '" + c + "' at " + position + " in signature: " + signature);
+        }
+    }
+
+    @NotNull
+    private JavaType parseClassTypeSignature() {
+        expect('L');
+
+        StringBuilder internalName = new StringBuilder();
+        List<JavaType> typeArguments = Collections.emptyList();
+        while (true) {
+            char c = current();
+            if (c == ';') {
+                position++;
+                break;
+            }
+            else if (c == '<') {
+                typeArguments = parseTypeArguments();
+            }
+            else if (c == '.') {
+                // Inner class of a parameterized outer class: outer type arguments are not retained
+                position++;
+                internalName.append('$');
+                typeArguments = Collections.emptyList();
+            }
+            else {
+                internalName.append(c);
+                position++;
+            }
+        }
+
+        return BinaryJavaClassifierType.forClass(context, internalName.toString(), typeArguments);
+    }
+
+    @NotNull
+    private List<JavaType> parseTypeArguments() {
+        expect('<');
+        List<JavaType> result = new ArrayList<JavaType>(2);
+        while (current() != '>') {
+            char c = current();
+            if (c == '*') {
+                position++;
+                result.add(new BinaryJavaWildcardType(null, true, new BinaryJavaTypeProvider(context)));
+            }
+            else if (c == '+' || c == '-') {
+                position++;
+                result.add(new BinaryJavaWildcardType(parseFieldTypeSignature(), c == '+', new BinaryJavaTypeProvider(context)));
+            }
+            else {
+                result.add(parseFieldTypeSignature());
+            }
+        }
+        expect('>');
+        return result;
+    }
+
+    private char current() {
+        if (position >= signature.length()) {
+            throw new IllegalStateException("Unexpected end of signature: " + signature);
+        }
+        return signature.charAt(position);
+    }
+
+    private void expect(char c) {
+        if (current() != c) {
+            throw new IllegalStateException("'" + c + "' expected at " + position + " in signature: " + signature);
+        }
+        position++;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.structure.*;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.util.Collection;
+import java.util.Collections;
+
+public class BinaryJavaTypeParameter implements JavaTypeParameter {
+    private final JavaTypeParameterListOwner owner;
+    private final int index;
+    private final Name name;
+    private final JavaTypeProvider typeProvider;
+    private Collection<JavaClassifierType> upperBounds = Collections.emptyList();
+
+    /* package */ BinaryJavaTypeParameter(
+            @NotNull JavaTypeParameterListOwner owner,
+            int index,
+            @NotNull String name,
+            @NotNull JavaTypeProvider typeProvider
+    ) {
+        this.owner = owner;
+        this.index = index;
+        this.name = Name.identifier(name);
+        this.typeProvider = typeProvider;
+    }
+
+    /* package */ void setUpperBounds(@NotNull Collection<JavaClassifierType> upperBounds) {
+        this.upperBounds = upperBounds;
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @NotNull
+    @Override
+    public Name getName() {
+        return name;
+    }
+
+    @NotNull
+    @Override
+    public Collection<JavaClassifierType> getUpperBounds() {
+        return upperBounds;
+    }
+
+    @Nullable
+    @Override
+    public JavaTypeParameterListOwner getOwner() {
+        return owner;
+    }
+
+    @NotNull
+    @Override
+    public JavaType getType() {
+        return BinaryJavaClassifierType.forClassifier(this, Collections.<JavaType>emptyList());
+    }
+
+    @NotNull
+    @Override
+    public JavaTypeProvider getTypeProvider() {
+        return typeProvider;
+    }
+
+    @Override
+    public int hashCode() {
+        return owner.hashCode() * 31 + name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BinaryJavaTypeParameter)) return false;
+        BinaryJavaTypeParameter other = (BinaryJavaTypeParameter) obj;
+        return name.equals(other.name) && owner.equals(other.owner);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + name;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.structure.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class BinaryJavaTypeSubstitutor implements JavaTypeSubstitutor {
+    private final Map<JavaTypeParameter, JavaType> substitutionMap;
+
+    public BinaryJavaTypeSubstitutor(@NotNull Map<JavaTypeParameter, JavaType> substitutionMap) {
+        this.substitutionMap = substitutionMap;
+    }
+
+    @NotNull
+    @Override
+    public JavaType substitute(@NotNull JavaType type) {
+        if (type instanceof JavaClassifierType) {
+            JavaClassifierType classifierType = (JavaClassifierType) type;
+            JavaClassifier classifier = classifierType.getClassifier();
+            if (classifier instanceof JavaTypeParameter) {
+                JavaType substituted = substitute((JavaTypeParameter) classifier);
+                return substituted != null ? substituted : erasure((JavaTypeParameter) classifier);
+            }
+            if (classifier == null) return type;
+
+            List<JavaType> arguments = classifierType.getTypeArguments();
+            if (arguments.isEmpty()) return type;
+
+            List<JavaType> substitutedArguments = new ArrayList<JavaType>(arguments.size());
+            for (JavaType argument : arguments) {
+                substitutedArguments.add(substitute(argument));
+            }
+            return BinaryJavaClassifierType.forClassifier(classifier, substitutedArguments);
+        }
+        else if (type instanceof JavaArrayType) {
+            return new BinaryJavaArrayType(substitute(((JavaArrayType) type).getComponentType()));
+        }
+        else if (type instanceof JavaWildcardType) {
+            JavaWildcardType wildcardType = (JavaWildcardType) type;
+            JavaType bound = wildcardType.getBound();
+            if (bound == null) return type;
+            return new BinaryJavaWildcardType(substitute(bound), wildcardType.isExtends(), wildcardType.getTypeProvider());
+        }
+        return type;
+    }
+
+    @NotNull
+    private static JavaType erasure(@NotNull JavaTypeParameter typeParameter) {
+        Collection<JavaClassifierType> bounds = typeParameter.getUpperBounds();
+        if (bounds.isEmpty()) {
+            return typeParameter.getTypeProvider().createJavaLangObjectType();
+        }
+        JavaClassifierType bound = bounds.iterator().next();
+        JavaClassifier classifier = bound.getClassifier();
+        if (classifier instanceof JavaTypeParameter && classifier != typeParameter) {
+            return erasure((JavaTypeParameter) classifier);
+        }
+        return classifier == null ? bound : BinaryJavaClassifierType.forClassifier(classifier, Collections.<JavaType>emptyList());
+    }
+
+    @Nullable
+    @Override
+    public JavaType substitute(@NotNull JavaTypeParameter typeParameter) {
+        if (substitutionMap.containsKey(typeParameter)) {
+            return substitutionMap.get(typeParameter);
+        }
+        return typeParameter.getType();
+    }
+
+    @NotNull
+    @Override
+    public Map<JavaTypeParameter, JavaType> getSubstitutionMap() {
+        return substitutionMap;
+    }
+
+    @Override
+    public int hashCode() {
+        return substitutionMap.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BinaryJavaTypeSubstitutor && substitutionMap.equals(((BinaryJavaTypeSubstitutor) obj).substitutionMap);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + ": " + substitutionMap;
+    }
+}
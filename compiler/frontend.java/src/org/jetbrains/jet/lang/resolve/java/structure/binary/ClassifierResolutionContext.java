@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.structure.binary;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.JavaClassFinder;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaTypeParameter;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves class and type variable references found in the descriptors and generic signatures of a class file.
+ * Class references are resolved with the help of the InnerClasses attribute of the class being read, type variables are
+ * looked up in the owner's type parameters, then in the outer scopes
+ */
+/* package */ class ClassifierResolutionContext {
+    /* package */ static class InnerClassInfo {
+        /* package */ final String outerInternalName;
+        /* package */ final String simpleName;
+
+        /* package */ InnerClassInfo(@NotNull String outerInternalName, @NotNull String simpleName) {
+            this.outerInternalName = outerInternalName;
+            this.simpleName = simpleName;
+        }
+    }
+
+    private final JavaClassFinder classFinder;
+    private final Map<String, InnerClassInfo> innerClasses;
+    @Nullable
+    private final ClassifierResolutionContext parent;
+    @Nullable
+    private final BinaryJavaClass outerScopeOwner;
+    private List<JavaTypeParameter> typeParameters = Collections.emptyList();
+
+    private ClassifierResolutionContext(
+            @NotNull JavaClassFinder classFinder,
+            @NotNull Map<String, InnerClassInfo> innerClasses,
+            @Nullable ClassifierResolutionContext parent,
+            @Nullable BinaryJavaClass outerScopeOwner
+    ) {
+        this.classFinder = classFinder;
+        this.innerClasses = innerClasses;
+        this.parent = parent;
+        this.outerScopeOwner = outerScopeOwner;
+    }
+
+    /**
+     * @param javaClass the class whose type parameters are resolved in this context. If the class is an inner (non-static) class,
+     *                  type variables not found among its own type parameters are looked up in its outer classes
+     */
+    @NotNull
+    public static ClassifierResolutionContext forClass(
+            @NotNull JavaClassFinder classFinder,
+            @NotNull Map<String, InnerClassInfo> innerClasses,
+            @NotNull BinaryJavaClass javaClass
+    ) {
+        return new ClassifierResolutionContext(classFinder, innerClasses, null, javaClass);
+    }
+
+    @NotNull
+    public ClassifierResolutionContext createChildContext() {
+        return new ClassifierResolutionContext(classFinder, innerClasses, this, null);
+    }
+
+    public void setTypeParameters(@NotNull List<JavaTypeParameter> typeParameters) {
+        this.typeParameters = typeParameters;
+    }
+
+    @NotNull
+    public JavaClassFinder getClassFinder() {
+        return classFinder;
+    }
+
+    @Nullable
+    public JavaClass resolveClass(@NotNull String internalName) {
+        return classFinder.findClass(fqNameByInternalName(internalName));
+    }
+
+    @Nullable
+    public JavaTypeParameter resolveTypeParameter(@NotNull String name) {
+        for (JavaTypeParameter typeParameter : typeParameters) {
+            if (typeParameter.getName().asString().equals(name)) {
+                return typeParameter;
+            }
+        }
+
+        if (parent != null) {
+            return parent.resolveTypeParameter(name);
+        }
+
+        if (outerScopeOwner != null && !outerScopeOwner.isStatic()) {
+            JavaClass outer = outerScopeOwner.getOuterClass();
+            while (outer != null) {
+                for (JavaTypeParameter typeParameter : outer.getTypeParameters()) {
+                    if (typeParameter.getName().asString().equals(name)) {
+                        return typeParameter;
+                    }
+                }
+                if (outer.isStatic()) break;
+                outer = outer.getOuterClass();
+            }
+        }
+
+        return null;
+    }
+
+    @NotNull
+    public FqName fqNameByInternalName(@NotNull String internalName) {
+        InnerClassInfo info = innerClasses.get(internalName);
+        if (info != null) {
+            return fqNameByInternalName(info.outerInternalName).child(Name.identifier(info.simpleName));
+        }
+        // Not a nested class, or the class file lacks an entry for it in the InnerClasses attribute
+        return new FqName(internalName.replace('/', '.'));
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.kotlin;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.asm4.*;
+import org.jetbrains.jet.lang.resolve.java.JvmAnnotationNames;
+
+/**
+ * Serialized descriptors of a Kotlin class or package stored as a class file attribute, see
+ * {@link JvmAnnotationNames#DATA_ATTRIBUTE_NAME}
+ */
+public class KotlinDataAttribute extends Attribute {
+    // Pass to ClassReader.accept() to get instances of this class in ClassVisitor.visitAttribute()
+    public static final Attribute PROTOTYPE = new KotlinDataAttribute(new byte[0]);
+
+    private final byte[] data;
+
+    public KotlinDataAttribute(@NotNull byte[] data) {
+        super(JvmAnnotationNames.DATA_ATTRIBUTE_NAME);
+        this.data = data;
+    }
+
+    @NotNull
+    public byte[] getData() {
+        return data;
+    }
+
+    @Override
+    protected Attribute read(ClassReader cr, int off, int len, char[] buf, int codeOff, Label[] labels) {
+        byte[] data = new byte[len];
+        System.arraycopy(cr.b, off, data, 0, len);
+        return new KotlinDataAttribute(data);
+    }
+
+    @Override
+    protected ByteVector write(ClassWriter cw, byte[] code, int len, int maxStack, int maxLocals) {
+        ByteVector result = new ByteVector(data.length);
+        result.putByteArray(data, 0, data.length);
+        return result;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.kotlin;
+
+import org.jetbrains.asm4.*;
+import org.jetbrains.jet.lang.resolve.java.JvmAnnotationNames;
+
+/**
+ * Checksum of the name table shared by the classes in the same directory, see
+ * {@link JvmAnnotationNames#NAME_TABLE_ATTRIBUTE_NAME}
+ */
+public class KotlinNameTableAttribute extends Attribute {
+    // Pass to ClassReader.accept() to get instances of this class in ClassVisitor.visitAttribute()
+    public static final Attribute PROTOTYPE = new KotlinNameTableAttribute(0);
+
+    private final int checksum;
+
+    public KotlinNameTableAttribute(int checksum) {
+        super(JvmAnnotationNames.NAME_TABLE_ATTRIBUTE_NAME);
+        this.checksum = checksum;
+    }
+
+    /**
+     * Called when the class file is written. Subclasses may compute the checksum here, since the shared table is only complete
+     * after all classes using it are generated
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+
+    @Override
+    protected Attribute read(ClassReader cr, int off, int len, char[] buf, int codeOff, Label[] labels) {
+        return new KotlinNameTableAttribute(cr.readInt(off));
+    }
+
+    @Override
+    protected ByteVector write(ClassWriter cw, byte[] code, int len, int maxStack, int maxLocals) {
+        return new ByteVector(4).putInt(getChecksum());
+    }
+}
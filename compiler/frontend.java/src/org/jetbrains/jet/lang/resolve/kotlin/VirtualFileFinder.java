@@ -25,4 +25,13 @@ public interface VirtualFileFinder {
     // TODO: support scope
     @Nullable
     VirtualFile find(@NotNull FqName className);
+
+    @Nullable
+    KotlinJvmBinaryClass findKotlinClass(@NotNull FqName className);
+
+    /**
+     * @return a class file which should be read as a Java class directly, bypassing PSI, or null if the class should be found via PSI
+     */
+    @Nullable
+    VirtualFile findBinaryJavaClassFile(@NotNull FqName className);
 }
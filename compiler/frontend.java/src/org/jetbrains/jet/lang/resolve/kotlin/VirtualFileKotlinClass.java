@@ -16,25 +16,96 @@
 
 package org.jetbrains.jet.lang.resolve.kotlin;
 
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Attribute;
 import org.jetbrains.asm4.ClassReader;
 import org.jetbrains.asm4.ClassVisitor;
 import org.jetbrains.asm4.FieldVisitor;
 import org.jetbrains.asm4.MethodVisitor;
+import org.jetbrains.asm4.tree.AnnotationNode;
+import org.jetbrains.jet.descriptors.serialization.NameResolver;
+import org.jetbrains.jet.descriptors.serialization.NameSerializationUtil;
+import org.jetbrains.jet.lang.resolve.java.JvmAbi;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+import org.jetbrains.jet.lang.resolve.kotlin.header.KotlinClassHeader;
 import org.jetbrains.jet.lang.resolve.name.Name;
 import org.jetbrains.jet.utils.ExceptionUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static org.jetbrains.asm4.ClassReader.*;
 import static org.jetbrains.asm4.Opcodes.ASM4;
 
 public class VirtualFileKotlinClass implements KotlinJvmBinaryClass {
+    // Stored in the shared name table file, so that it's read once for all classes in the directory
+    private static final Key<SharedNameTable> SHARED_NAME_TABLE = Key.create("SHARED_NAME_TABLE");
+
+    private static class SharedNameTable {
+        private final long modificationStamp;
+        private final int checksum;
+        private final NameResolver nameResolver;
+
+        private SharedNameTable(long modificationStamp, int checksum, @NotNull NameResolver nameResolver) {
+            this.modificationStamp = modificationStamp;
+            this.checksum = checksum;
+            this.nameResolver = nameResolver;
+        }
+    }
+
+    private static class ParameterAnnotationNode extends AnnotationNode {
+        private final int parameter;
+
+        private ParameterAnnotationNode(int parameter, @NotNull String desc) {
+            super(ASM4, desc);
+            this.parameter = parameter;
+        }
+    }
+
+    private static class ClassAnnotations {
+        private final List<AnnotationNode> annotations;
+        private final List<Attribute> attributes;
+
+        private ClassAnnotations(@NotNull List<AnnotationNode> annotations, @NotNull List<Attribute> attributes) {
+            this.annotations = annotations;
+            this.attributes = attributes;
+        }
+    }
+
+    private static class MemberAnnotations {
+        private final boolean isMethod;
+        private final String name;
+        private final String desc;
+        private final List<AnnotationNode> annotations = new ArrayList<AnnotationNode>(1);
+
+        private MemberAnnotations(boolean isMethod, @NotNull String name, @NotNull String desc) {
+            this.isMethod = isMethod;
+            this.name = name;
+            this.desc = desc;
+        }
+
+        @NotNull
+        private AnnotationNode add(@NotNull AnnotationNode annotation) {
+            annotations.add(annotation);
+            return annotation;
+        }
+    }
+
+    // The contents are not retained: the file is read once for the name, the header and the class annotations, and once more
+    // for the annotations of members. Annotations are recorded and replayed to visitors instead of reading the file again
     private final VirtualFile file;
     private JvmClassName className;
+    private KotlinClassHeader classHeader;
+    private boolean classHeaderRead;
+    private ClassAnnotations classAnnotations;
+    // Only members which have annotations are recorded
+    private List<MemberAnnotations> memberAnnotations;
 
     public VirtualFileKotlinClass(@NotNull VirtualFile file) {
         this.file = file;
@@ -45,44 +116,112 @@ public class VirtualFileKotlinClass implements KotlinJvmBinaryClass {
         return file;
     }
 
+    @NotNull
+    private byte[] readFileContents() {
+        try {
+            return file.contentsToByteArray();
+        }
+        catch (IOException e) {
+            throw ExceptionUtils.rethrow(e);
+        }
+    }
+
     @NotNull
     @Override
     public JvmClassName getClassName() {
         if (className == null) {
-            try {
-                new ClassReader(file.contentsToByteArray()).accept(new ClassVisitor(ASM4) {
-                    @Override
-                    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-                        className = JvmClassName.byInternalName(name);
-                    }
-                }, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
-            }
-            catch (IOException e) {
-                throw ExceptionUtils.rethrow(e);
-            }
+            readClassNameAndHeader();
         }
-
         return className;
     }
 
+    @Nullable
     @Override
-    public void loadClassAnnotations(@NotNull final AnnotationVisitor annotationVisitor) {
-        try {
-            new ClassReader(file.contentsToByteArray()).accept(new ClassVisitor(ASM4) {
-                @Override
-                public org.jetbrains.asm4.AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                    return convertAnnotationVisitor(annotationVisitor, desc);
-                }
+    public KotlinClassHeader getClassHeader() {
+        if (!classHeaderRead) {
+            readClassNameAndHeader();
+        }
+        return classHeader;
+    }
+
+    private void readClassNameAndHeader() {
+        // The header is read from class annotations, which are recorded in the same pass over the class file as the name
+        classHeader = KotlinClassHeader.read(this);
+        classHeaderRead = true;
+    }
 
-                @Override
-                public void visitEnd() {
-                    annotationVisitor.visitEnd();
+    @Override
+    public void loadClassAnnotations(@NotNull AnnotationVisitor annotationVisitor) {
+        if (classAnnotations == null) {
+            readClassAnnotations();
+        }
+
+        replayAnnotations(classAnnotations.annotations, annotationVisitor);
+        if (annotationVisitor instanceof ClassAnnotationVisitor) {
+            ClassAnnotationVisitor classAnnotationVisitor = (ClassAnnotationVisitor) annotationVisitor;
+            for (Attribute attr : classAnnotations.attributes) {
+                if (attr instanceof KotlinDataAttribute) {
+                    classAnnotationVisitor.visitDataAttribute(((KotlinDataAttribute) attr).getData());
+                }
+                else if (attr instanceof KotlinNameTableAttribute) {
+                    classAnnotationVisitor.visitNameTableAttribute(((KotlinNameTableAttribute) attr).getChecksum());
                 }
-            }, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+            }
         }
-        catch (IOException e) {
-            throw ExceptionUtils.rethrow(e);
+        annotationVisitor.visitEnd();
+    }
+
+    private void readClassAnnotations() {
+        final List<AnnotationNode> annotations = new ArrayList<AnnotationNode>(1);
+        final List<Attribute> attributes = new ArrayList<Attribute>(2);
+        new ClassReader(readFileContents()).accept(new ClassVisitor(ASM4) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                if (className == null) {
+                    className = JvmClassName.byInternalName(name);
+                }
+            }
+
+            @Override
+            public org.jetbrains.asm4.AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                AnnotationNode annotation = new AnnotationNode(desc);
+                annotations.add(annotation);
+                return annotation;
+            }
+
+            @Override
+            public void visitAttribute(Attribute attr) {
+                if (attr instanceof KotlinDataAttribute || attr instanceof KotlinNameTableAttribute) {
+                    attributes.add(attr);
+                }
+            }
+        }, new Attribute[] {KotlinDataAttribute.PROTOTYPE, KotlinNameTableAttribute.PROTOTYPE}, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+
+        classAnnotations = new ClassAnnotations(annotations, attributes);
+    }
+
+    @Nullable
+    @Override
+    public NameResolver loadSharedNameResolver(int checksum) {
+        VirtualFile directory = file.getParent();
+        VirtualFile tableFile = directory == null ? null : directory.findChild(JvmAbi.SHARED_NAME_TABLE_FILE_NAME);
+        if (tableFile == null) return null;
+
+        SharedNameTable table = tableFile.getUserData(SHARED_NAME_TABLE);
+        if (table == null || table.modificationStamp != tableFile.getModificationStamp()) {
+            try {
+                long modificationStamp = tableFile.getModificationStamp();
+                byte[] bytes = tableFile.contentsToByteArray();
+                table = new SharedNameTable(modificationStamp, NameSerializationUtil.computeChecksum(bytes),
+                                            NameSerializationUtil.deserializeNameResolver(new ByteArrayInputStream(bytes)));
+                tableFile.putUserData(SHARED_NAME_TABLE, table);
+            }
+            catch (IOException e) {
+                throw ExceptionUtils.rethrow(e);
+            }
         }
+
+        return table.checksum == checksum ? table.nameResolver : null;
     }
 
     @Nullable
@@ -118,54 +257,88 @@ public class VirtualFileKotlinClass implements KotlinJvmBinaryClass {
     }
 
     @Override
-    public void loadMemberAnnotations(@NotNull final MemberVisitor memberVisitor) {
-        try {
-            new ClassReader(file.contentsToByteArray()).accept(new ClassVisitor(ASM4) {
-                @Override
-                public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
-                    final AnnotationVisitor v = memberVisitor.visitField(Name.guess(name), desc);
-                    if (v == null) return null;
-
-                    return new FieldVisitor(ASM4) {
-                        @Override
-                        public org.jetbrains.asm4.AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                            return convertAnnotationVisitor(v, desc);
-                        }
+    public void loadMemberAnnotations(@NotNull MemberVisitor memberVisitor) {
+        if (memberAnnotations == null) {
+            readMemberAnnotations();
+        }
 
-                        @Override
-                        public void visitEnd() {
-                            v.visitEnd();
-                        }
-                    };
-                }
+        for (MemberAnnotations member : memberAnnotations) {
+            AnnotationVisitor v = member.isMethod
+                                  ? memberVisitor.visitMethod(Name.guess(member.name), member.desc)
+                                  : memberVisitor.visitField(Name.guess(member.name), member.desc);
+            if (v != null) {
+                replayAnnotations(member.annotations, v);
+                v.visitEnd();
+            }
+        }
+    }
 
-                @Override
-                public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
-                    final MethodAnnotationVisitor v = memberVisitor.visitMethod(Name.guess(name), desc);
-                    if (v == null) return null;
+    private void readMemberAnnotations() {
+        final List<MemberAnnotations> members = new ArrayList<MemberAnnotations>();
+        new ClassReader(readFileContents()).accept(new ClassVisitor(ASM4) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                final MemberAnnotations member = new MemberAnnotations(false, name, desc);
 
-                    return new MethodVisitor(ASM4) {
-                        @Override
-                        public org.jetbrains.asm4.AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-                            return convertAnnotationVisitor(v, desc);
-                        }
+                return new FieldVisitor(ASM4) {
+                    @Override
+                    public org.jetbrains.asm4.AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return member.add(new AnnotationNode(desc));
+                    }
 
-                        @Override
-                        public org.jetbrains.asm4.AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
-                            AnnotationArgumentVisitor av = v.visitParameterAnnotation(parameter, classNameFromAsmDesc(desc));
-                            return av == null ? null : convertAnnotationVisitor(av);
+                    @Override
+                    public void visitEnd() {
+                        if (!member.annotations.isEmpty()) {
+                            members.add(member);
                         }
+                    }
+                };
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                final MemberAnnotations member = new MemberAnnotations(true, name, desc);
+
+                return new MethodVisitor(ASM4) {
+                    @Override
+                    public org.jetbrains.asm4.AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                        return member.add(new AnnotationNode(desc));
+                    }
+
+                    @Override
+                    public org.jetbrains.asm4.AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+                        return member.add(new ParameterAnnotationNode(parameter, desc));
+                    }
 
-                        @Override
-                        public void visitEnd() {
-                            v.visitEnd();
+                    @Override
+                    public void visitEnd() {
+                        if (!member.annotations.isEmpty()) {
+                            members.add(member);
                         }
-                    };
-                }
-            }, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
-        }
-        catch (IOException e) {
-            throw ExceptionUtils.rethrow(e);
+                    }
+                };
+            }
+        }, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+
+        // Published through the final field of the wrapper, so that other threads see the complete list
+        memberAnnotations = Collections.unmodifiableList(members);
+    }
+
+    private static void replayAnnotations(@NotNull List<AnnotationNode> annotations, @NotNull AnnotationVisitor visitor) {
+        for (AnnotationNode annotation : annotations) {
+            org.jetbrains.asm4.AnnotationVisitor av;
+            if (annotation instanceof ParameterAnnotationNode) {
+                int parameter = ((ParameterAnnotationNode) annotation).parameter;
+                AnnotationArgumentVisitor v =
+                        ((MethodAnnotationVisitor) visitor).visitParameterAnnotation(parameter, classNameFromAsmDesc(annotation.desc));
+                av = v == null ? null : convertAnnotationVisitor(v);
+            }
+            else {
+                av = convertAnnotationVisitor(visitor, annotation.desc);
+            }
+            if (av != null) {
+                annotation.accept(av);
+            }
         }
     }
 
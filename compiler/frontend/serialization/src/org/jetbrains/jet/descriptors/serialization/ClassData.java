@@ -16,6 +16,7 @@
 
 package org.jetbrains.jet.descriptors.serialization;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.ExtensionRegistryLite;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.utils.ExceptionUtils;
@@ -23,15 +24,36 @@ import org.jetbrains.jet.utils.ExceptionUtils;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ClassData {
     @NotNull
     public static ClassData read(@NotNull byte[] bytes, @NotNull ExtensionRegistryLite registry) {
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        NameResolver nameResolver = NameSerializationUtil.deserializeNameResolver(in);
+        int offset = bytes.length - in.available();
+        return read(nameResolver, bytes, offset, bytes.length - offset, registry);
+    }
+
+    /**
+     * Reads the class proto which is serialized without the name table. Members of the class are not parsed here,
+     * see {@link MemberProtoIndex}
+     */
+    @NotNull
+    public static ClassData read(
+            @NotNull NameResolver nameResolver,
+            @NotNull byte[] bytes,
+            int offset,
+            int length,
+            @NotNull ExtensionRegistryLite registry
+    ) {
         try {
-            ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-            NameResolver nameResolver = NameSerializationUtil.deserializeNameResolver(in);
-            ProtoBuf.Class classProto = ProtoBuf.Class.parseFrom(in, registry);
-            return new ClassData(nameResolver, classProto);
+            List<ByteString> members = new ArrayList<ByteString>();
+            byte[] withoutMembers =
+                    MemberProtoIndex.extractMessageFields(bytes, offset, length, ProtoBuf.Class.MEMBER_FIELD_NUMBER, members);
+            ProtoBuf.Class classProto = ProtoBuf.Class.parseFrom(withoutMembers, registry);
+            return new ClassData(nameResolver, classProto, MemberProtoIndex.read(members, nameResolver, registry));
         }
         catch (IOException e) {
             throw ExceptionUtils.rethrow(e);
@@ -40,21 +62,59 @@ public final class ClassData {
 
     private final NameResolver nameResolver;
 
-    private final ProtoBuf.Class classProto;
+    // Members are not necessarily included here, see getMembers()
+    private final ProtoBuf.Class classProtoWithoutMembers;
+
+    private final MemberProtoIndex members;
+
+    private volatile ProtoBuf.Class classProto;
 
     public ClassData(@NotNull NameResolver nameResolver, @NotNull ProtoBuf.Class classProto) {
-        this.nameResolver = nameResolver;
+        this(nameResolver, classProto, MemberProtoIndex.create(classProto.getMemberList(), nameResolver));
         this.classProto = classProto;
     }
 
+    private ClassData(
+            @NotNull NameResolver nameResolver,
+            @NotNull ProtoBuf.Class classProtoWithoutMembers,
+            @NotNull MemberProtoIndex members
+    ) {
+        this.nameResolver = nameResolver;
+        this.classProtoWithoutMembers = classProtoWithoutMembers;
+        this.members = members;
+    }
+
     @NotNull
     public NameResolver getNameResolver() {
         return nameResolver;
     }
 
+    /**
+     * @return the complete class proto. Use {@link #getClassProtoWithoutMembers()} and {@link #getMembers()} where possible:
+     * when the data is read from bytes, the first call parses all members and the resulting proto is kept for the lifetime
+     * of this object
+     */
     @NotNull
     public ProtoBuf.Class getClassProto() {
-        return classProto;
+        ProtoBuf.Class result = classProto;
+        if (result == null) {
+            result = classProtoWithoutMembers.toBuilder().addAllMember(members.getAll()).build();
+            classProto = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the class proto where everything but members is present, members may or may not be there
+     */
+    @NotNull
+    public ProtoBuf.Class getClassProtoWithoutMembers() {
+        return classProtoWithoutMembers;
+    }
+
+    @NotNull
+    public MemberProtoIndex getMembers() {
+        return members;
     }
 
     @NotNull
@@ -62,7 +122,7 @@ public final class ClassData {
         try {
             ByteArrayOutputStream result = new ByteArrayOutputStream();
             NameSerializationUtil.serializeNameResolver(result, nameResolver);
-            classProto.writeTo(result);
+            getClassProto().writeTo(result);
             return result.toByteArray();
         }
         catch (IOException e) {
@@ -59,6 +59,13 @@ public class DescriptorSerializer {
         this(new NameTable(), new Interner<TypeParameterDescriptor>(), extension);
     }
 
+    /**
+     * Creates a serializer which records names to the given table, e.g. a table shared by several classes
+     */
+    public DescriptorSerializer(@NotNull NameTable nameTable, @NotNull SerializerExtension extension) {
+        this(nameTable, new Interner<TypeParameterDescriptor>(), extension);
+    }
+
     private DescriptorSerializer(NameTable nameTable, Interner<TypeParameterDescriptor> typeParameters, SerializerExtension extension) {
         this.nameTable = nameTable;
         this.typeParameters = typeParameters;
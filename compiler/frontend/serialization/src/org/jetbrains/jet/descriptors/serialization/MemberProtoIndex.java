@@ -0,0 +1,196 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.descriptors.serialization;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.utils.ExceptionUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Members of a class or a package grouped by name.
+ *
+ * When created from serialized data, only the names of the members are read up front: the members with some name
+ * are parsed when this name is requested for the first time
+ */
+public final class MemberProtoIndex {
+    private static final int MEMBER_NAME_TAG = (ProtoBuf.Callable.NAME_FIELD_NUMBER << 3) | WireFormat.WIRETYPE_VARINT;
+
+    private static class Group {
+        // Serialized members, null if the group was created from parsed members
+        private final List<ByteString> serialized;
+        private List<ProtoBuf.Callable> parsed;
+
+        private Group(List<ByteString> serialized, List<ProtoBuf.Callable> parsed) {
+            this.serialized = serialized;
+            this.parsed = parsed;
+        }
+    }
+
+    private final Map<Name, Group> groups;
+    // All members in the original order, either parsed or serialized
+    private final List<ProtoBuf.Callable> allParsed;
+    private final List<ByteString> allSerialized;
+    private final ExtensionRegistryLite registry;
+
+    private MemberProtoIndex(
+            @NotNull Map<Name, Group> groups,
+            List<ProtoBuf.Callable> allParsed,
+            List<ByteString> allSerialized,
+            @NotNull ExtensionRegistryLite registry
+    ) {
+        this.groups = groups;
+        this.allParsed = allParsed;
+        this.allSerialized = allSerialized;
+        this.registry = registry;
+    }
+
+    @NotNull
+    public static MemberProtoIndex create(@NotNull List<ProtoBuf.Callable> members, @NotNull NameResolver nameResolver) {
+        Map<Name, Group> groups = new LinkedHashMap<Name, Group>();
+        for (ProtoBuf.Callable member : members) {
+            Name name = nameResolver.getName(member.getName());
+            Group group = groups.get(name);
+            if (group == null) {
+                group = new Group(null, new ArrayList<ProtoBuf.Callable>(1));
+                groups.put(name, group);
+            }
+            group.parsed.add(member);
+        }
+        return new MemberProtoIndex(groups, members, null, ExtensionRegistryLite.getEmptyRegistry());
+    }
+
+    @NotNull
+    public static MemberProtoIndex read(
+            @NotNull List<ByteString> members,
+            @NotNull NameResolver nameResolver,
+            @NotNull ExtensionRegistryLite registry
+    ) throws IOException {
+        Map<Name, Group> groups = new LinkedHashMap<Name, Group>();
+        for (ByteString member : members) {
+            Name name = nameResolver.getName(readMemberName(member));
+            Group group = groups.get(name);
+            if (group == null) {
+                group = new Group(new ArrayList<ByteString>(1), null);
+                groups.put(name, group);
+            }
+            group.serialized.add(member);
+        }
+        return new MemberProtoIndex(groups, null, members, registry);
+    }
+
+    @NotNull
+    public Set<Name> getNames() {
+        return Collections.unmodifiableSet(groups.keySet());
+    }
+
+    @NotNull
+    public List<ProtoBuf.Callable> get(@NotNull Name name) {
+        Group group = groups.get(name);
+        if (group == null) return Collections.emptyList();
+
+        synchronized (group) {
+            if (group.parsed == null) {
+                List<ProtoBuf.Callable> parsed = new ArrayList<ProtoBuf.Callable>(group.serialized.size());
+                for (ByteString member : group.serialized) {
+                    parsed.add(parse(member));
+                }
+                group.parsed = parsed;
+            }
+            return group.parsed;
+        }
+    }
+
+    /**
+     * @return all members in the order they were serialized in. Serialized members are parsed anew on each call
+     */
+    @NotNull
+    public List<ProtoBuf.Callable> getAll() {
+        if (allParsed != null) return allParsed;
+
+        List<ProtoBuf.Callable> result = new ArrayList<ProtoBuf.Callable>(allSerialized.size());
+        for (ByteString member : allSerialized) {
+            result.add(parse(member));
+        }
+        return result;
+    }
+
+    @NotNull
+    private ProtoBuf.Callable parse(@NotNull ByteString member) {
+        try {
+            return ProtoBuf.Callable.parseFrom(member, registry);
+        }
+        catch (InvalidProtocolBufferException e) {
+            throw ExceptionUtils.rethrow(e);
+        }
+    }
+
+    private static int readMemberName(@NotNull ByteString member) throws IOException {
+        CodedInputStream input = member.newCodedInput();
+        while (true) {
+            int tag = input.readTag();
+            if (tag == 0) {
+                throw new InvalidProtocolBufferException("Member has no name");
+            }
+            if (tag == MEMBER_NAME_TAG) {
+                return input.readInt32();
+            }
+            input.skipField(tag);
+        }
+    }
+
+    /**
+     * Splits a serialized message into its fields with the given number, which must be messages, and all other fields
+     *
+     * @param members the serialized messages of the fields with the given number are added here
+     * @return the message without these fields
+     */
+    @NotNull
+    static byte[] extractMessageFields(
+            @NotNull byte[] bytes,
+            int offset,
+            int length,
+            int fieldNumber,
+            @NotNull List<ByteString> members
+    ) throws IOException {
+        int fieldTag = (fieldNumber << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+        CodedInputStream input = CodedInputStream.newInstance(bytes, offset, length);
+        ByteArrayOutputStream rest = new ByteArrayOutputStream(length);
+        while (true) {
+            int start = input.getTotalBytesRead();
+            int tag = input.readTag();
+            if (tag == 0) break;
+
+            if (tag == fieldTag) {
+                members.add(input.readBytes());
+            }
+            else {
+                input.skipField(tag);
+                rest.write(bytes, offset + start, input.getTotalBytesRead() - start);
+            }
+        }
+        return rest.toByteArray();
+    }
+}
@@ -28,12 +28,21 @@ public class NameResolver {
     private final ProtoBuf.SimpleNameTable simpleNames;
     private final ProtoBuf.QualifiedNameTable qualifiedNames;
 
+    // Names are created once per index, so that all descriptors deserialized with this resolver share them.
+    // Races are benign here: Name, FqName and ClassId are immutable and equal regardless of which thread created them
+    private final Name[] names;
+    private final FqName[] fqNames;
+    private final ClassId[] classIds;
+
     public NameResolver(
             @NotNull ProtoBuf.SimpleNameTable simpleNames,
             @NotNull ProtoBuf.QualifiedNameTable qualifiedNames
     ) {
         this.simpleNames = simpleNames;
         this.qualifiedNames = qualifiedNames;
+        this.names = new Name[simpleNames.getNameCount()];
+        this.fqNames = new FqName[qualifiedNames.getQualifiedNameCount()];
+        this.classIds = new ClassId[qualifiedNames.getQualifiedNameCount()];
     }
 
     @NotNull
@@ -48,12 +57,26 @@ public class NameResolver {
 
     @NotNull
     public Name getName(int index) {
-        String name = simpleNames.getName(index);
-        return Name.guess(name);
+        Name result = names[index];
+        if (result == null) {
+            result = Name.guess(simpleNames.getName(index));
+            names[index] = result;
+        }
+        return result;
     }
 
     @NotNull
     public ClassId getClassId(int index) {
+        ClassId result = classIds[index];
+        if (result == null) {
+            result = computeClassId(index);
+            classIds[index] = result;
+        }
+        return result;
+    }
+
+    @NotNull
+    private ClassId computeClassId(int index) {
         QualifiedName fqNameProto = qualifiedNames.getQualifiedName(index);
         assert fqNameProto.getKind() == ProtoBuf.QualifiedNameTable.QualifiedName.Kind.CLASS : "Not a class fqName: " + fqNameProto.getKind();
 
@@ -94,11 +117,15 @@ public class NameResolver {
 
     @NotNull
     public FqName getFqName(int index) {
-        QualifiedName qualifiedName = qualifiedNames.getQualifiedName(index);
-        Name shortName = getName(qualifiedName.getShortName());
-        if (!qualifiedName.hasParentQualifiedName()) {
-            return FqName.topLevel(shortName);
+        FqName result = fqNames[index];
+        if (result == null) {
+            QualifiedName qualifiedName = qualifiedNames.getQualifiedName(index);
+            Name shortName = getName(qualifiedName.getShortName());
+            result = qualifiedName.hasParentQualifiedName()
+                     ? getFqName(qualifiedName.getParentQualifiedName()).child(shortName)
+                     : FqName.topLevel(shortName);
+            fqNames[index] = result;
         }
-        return getFqName(qualifiedName.getParentQualifiedName()).child(shortName);
+        return result;
     }
 }
@@ -22,6 +22,7 @@ import org.jetbrains.jet.utils.ExceptionUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.zip.CRC32;
 
 public class NameSerializationUtil {
     private NameSerializationUtil() {
@@ -83,4 +84,13 @@ public class NameSerializationUtil {
     public static NameResolver createNameResolver(@NotNull NameTable table) {
         return new NameResolver(toSimpleNameTable(table), toQualifiedNameTable(table));
     }
+
+    /**
+     * Used to check that a name table shared by several classes is the one they were serialized with
+     */
+    public static int computeChecksum(@NotNull byte[] serializedNameTable) {
+        CRC32 crc = new CRC32();
+        crc.update(serializedNameTable);
+        return (int) crc.getValue();
+    }
 }
@@ -16,6 +16,7 @@
 
 package org.jetbrains.jet.descriptors.serialization;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.ExtensionRegistryLite;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.utils.ExceptionUtils;
@@ -23,15 +24,35 @@ import org.jetbrains.jet.utils.ExceptionUtils;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class PackageData {
     @NotNull
     public static PackageData read(@NotNull byte[] bytes, @NotNull ExtensionRegistryLite registry) {
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        NameResolver nameResolver = NameSerializationUtil.deserializeNameResolver(in);
+        int offset = bytes.length - in.available();
+        return read(nameResolver, bytes, offset, bytes.length - offset, registry);
+    }
+
+    /**
+     * Reads the package proto which is serialized without the name table. Members of the package are not parsed here,
+     * see {@link MemberProtoIndex}
+     */
+    @NotNull
+    public static PackageData read(
+            @NotNull NameResolver nameResolver,
+            @NotNull byte[] bytes,
+            int offset,
+            int length,
+            @NotNull ExtensionRegistryLite registry
+    ) {
         try {
-            ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-            NameResolver nameResolver = NameSerializationUtil.deserializeNameResolver(in);
-            ProtoBuf.Package packageProto = ProtoBuf.Package.parseFrom(in, registry);
-            return new PackageData(nameResolver, packageProto);
+            List<ByteString> members = new ArrayList<ByteString>();
+            // Members are the only fields of a package
+            MemberProtoIndex.extractMessageFields(bytes, offset, length, ProtoBuf.Package.MEMBER_FIELD_NUMBER, members);
+            return new PackageData(nameResolver, MemberProtoIndex.read(members, nameResolver, registry));
         }
         catch (IOException e) {
             throw ExceptionUtils.rethrow(e);
@@ -40,21 +61,42 @@ public final class PackageData {
 
     private final NameResolver nameResolver;
 
-    private final ProtoBuf.Package packageProto;
+    private final MemberProtoIndex members;
+
+    private volatile ProtoBuf.Package packageProto;
 
     public PackageData(@NotNull NameResolver nameResolver, @NotNull ProtoBuf.Package packageProto) {
-        this.nameResolver = nameResolver;
+        this(nameResolver, MemberProtoIndex.create(packageProto.getMemberList(), nameResolver));
         this.packageProto = packageProto;
     }
 
+    private PackageData(@NotNull NameResolver nameResolver, @NotNull MemberProtoIndex members) {
+        this.nameResolver = nameResolver;
+        this.members = members;
+    }
+
     @NotNull
     public NameResolver getNameResolver() {
         return nameResolver;
     }
 
+    /**
+     * @return the complete package proto. Use {@link #getMembers()} where possible, since all members are parsed on each call
+     * when the data is read from bytes
+     */
     @NotNull
     public ProtoBuf.Package getPackageProto() {
-        return packageProto;
+        ProtoBuf.Package result = packageProto;
+        if (result == null) {
+            result = ProtoBuf.Package.newBuilder().addAllMember(members.getAll()).build();
+            packageProto = result;
+        }
+        return result;
+    }
+
+    @NotNull
+    public MemberProtoIndex getMembers() {
+        return members;
     }
 
     @NotNull
@@ -62,7 +104,7 @@ public final class PackageData {
         try {
             ByteArrayOutputStream result = new ByteArrayOutputStream();
             NameSerializationUtil.serializeNameResolver(result, nameResolver);
-            packageProto.writeTo(result);
+            getPackageProto().writeTo(result);
             return result.toByteArray();
         }
         catch (IOException e) {
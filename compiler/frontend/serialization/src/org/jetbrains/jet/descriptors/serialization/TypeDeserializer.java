@@ -28,6 +28,7 @@ import org.jetbrains.jet.lang.descriptors.TypeParameterDescriptor;
 import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
 import org.jetbrains.jet.lang.resolve.scopes.JetScope;
 import org.jetbrains.jet.lang.types.*;
+import org.jetbrains.jet.storage.MemoizedFunctionToNotNull;
 import org.jetbrains.jet.storage.MemoizedFunctionToNullable;
 import org.jetbrains.jet.storage.NotNullLazyValue;
 import org.jetbrains.jet.storage.StorageManager;
@@ -60,6 +61,10 @@ public class TypeDeserializer {
 
     private final MemoizedFunctionToNullable<Integer, ClassDescriptor> classDescriptors;
 
+    // Equal protos (e.g. every occurrence of String or List<T> in member signatures) share one JetType.
+    // Types which don't mention type parameters are cached in the root deserializer and shared by all its children
+    private final MemoizedFunctionToNotNull<TypeProtoKey, JetType> types;
+
     private final String debugName;
 
     private final StorageManager storageManager;
@@ -97,6 +102,13 @@ public class TypeDeserializer {
                 return computeClassDescriptor(fqNameIndex);
             }
         });
+
+        this.types = storageManager.createMemoizedFunction(new Function1<TypeProtoKey, JetType>() {
+            @Override
+            public JetType invoke(TypeProtoKey key) {
+                return new DeserializedType(key.proto);
+            }
+        });
     }
 
     /* package */ DescriptorFinder getDescriptorFinder() {
@@ -113,7 +125,21 @@ public class TypeDeserializer {
 
     @NotNull
     public JetType type(@NotNull ProtoBuf.Type proto) {
-        return new DeserializedType(proto);
+        TypeDeserializer owner = this;
+        if (!mentionsTypeParameters(proto)) {
+            while (owner.parent != null) {
+                owner = owner.parent;
+            }
+        }
+        return owner.types.invoke(new TypeProtoKey(proto));
+    }
+
+    private static boolean mentionsTypeParameters(@NotNull ProtoBuf.Type proto) {
+        if (proto.getConstructor().getKind() == ProtoBuf.Type.Constructor.Kind.TYPE_PARAMETER) return true;
+        for (ProtoBuf.Type.Argument argument : proto.getArgumentList()) {
+            if (mentionsTypeParameters(argument.getType())) return true;
+        }
+        return false;
     }
 
     private TypeConstructor typeConstructor(ProtoBuf.Type proto) {
@@ -205,6 +231,62 @@ public class TypeDeserializer {
         return debugName;
     }
 
+    // Lite protos don't implement equals() and hashCode(), so types are compared structurally here
+    private static final class TypeProtoKey {
+        private final ProtoBuf.Type proto;
+        private final int hashCode;
+
+        private TypeProtoKey(@NotNull ProtoBuf.Type proto) {
+            this.proto = proto;
+            this.hashCode = hash(proto);
+        }
+
+        private static int hash(@NotNull ProtoBuf.Type proto) {
+            ProtoBuf.Type.Constructor constructor = proto.getConstructor();
+            int result = 31 * constructor.getKind().getNumber() + constructor.getId();
+            result = 31 * result + (proto.getNullable() ? 1 : 0);
+            for (ProtoBuf.Type.Argument argument : proto.getArgumentList()) {
+                result = 31 * result + argument.getProjection().getNumber();
+                result = 31 * result + hash(argument.getType());
+            }
+            return result;
+        }
+
+        private static boolean typesEqual(@NotNull ProtoBuf.Type first, @NotNull ProtoBuf.Type second) {
+            if (first == second) return true;
+
+            ProtoBuf.Type.Constructor firstConstructor = first.getConstructor();
+            ProtoBuf.Type.Constructor secondConstructor = second.getConstructor();
+            if (firstConstructor.getKind() != secondConstructor.getKind() || firstConstructor.getId() != secondConstructor.getId()) {
+                return false;
+            }
+            if (first.getNullable() != second.getNullable()) return false;
+
+            int argumentCount = first.getArgumentCount();
+            if (argumentCount != second.getArgumentCount()) return false;
+            for (int i = 0; i < argumentCount; i++) {
+                ProtoBuf.Type.Argument firstArgument = first.getArgument(i);
+                ProtoBuf.Type.Argument secondArgument = second.getArgument(i);
+                if (firstArgument.getProjection() != secondArgument.getProjection()) return false;
+                if (!typesEqual(firstArgument.getType(), secondArgument.getType())) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TypeProtoKey)) return false;
+            TypeProtoKey other = (TypeProtoKey) o;
+            return hashCode == other.hashCode && typesEqual(proto, other.proto);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     private class DeserializedType extends AbstractJetType {
         private final ProtoBuf.Type typeProto;
         private final NotNullLazyValue<TypeConstructor> constructor;
@@ -49,7 +49,9 @@ import static org.jetbrains.jet.lang.resolve.DescriptorUtils.getClassObjectName;
 public class DeserializedClassDescriptor extends AbstractClassDescriptor implements ClassDescriptor {
 
     private final ClassId classId;
+    // Members are taken from memberProtos, they may be absent here
     private final ProtoBuf.Class classProto;
+    private final MemberProtoIndex memberProtos;
     private final TypeDeserializer typeDeserializer;
     private final DescriptorDeserializer deserializer;
     private final DeserializedMemberScope memberScope;
@@ -80,9 +82,10 @@ public class DeserializedClassDescriptor extends AbstractClassDescriptor impleme
             @NotNull DescriptorFinder descriptorFinder,
             @NotNull ClassData classData
     ) {
-        super(classData.getNameResolver().getClassId(classData.getClassProto().getFqName()).getRelativeClassName().shortName());
+        super(classData.getNameResolver().getClassId(classData.getClassProtoWithoutMembers().getFqName()).getRelativeClassName().shortName());
         NameResolver nameResolver = classData.getNameResolver();
-        this.classProto = classData.getClassProto();
+        this.classProto = classData.getClassProtoWithoutMembers();
+        this.memberProtos = classData.getMembers();
 
         this.classId = nameResolver.getClassId(classProto.getFqName());
         this.descriptorFinder = descriptorFinder;
@@ -378,7 +381,7 @@ public class DeserializedClassDescriptor extends AbstractClassDescriptor impleme
         private final DeserializedClassDescriptor classDescriptor;
 
         public DeserializedClassMemberScope(@NotNull StorageManager storageManager, @NotNull DeserializedClassDescriptor classDescriptor) {
-            super(storageManager, classDescriptor, classDescriptor.deserializer, classDescriptor.classProto.getMemberList());
+            super(storageManager, classDescriptor, classDescriptor.deserializer, classDescriptor.memberProtos);
             this.classDescriptor = classDescriptor;
         }
 
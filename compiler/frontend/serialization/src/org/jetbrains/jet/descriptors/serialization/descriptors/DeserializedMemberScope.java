@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.descriptors.serialization.DescriptorDeserializer;
 import org.jetbrains.jet.descriptors.serialization.Flags;
+import org.jetbrains.jet.descriptors.serialization.MemberProtoIndex;
 import org.jetbrains.jet.descriptors.serialization.ProtoBuf;
 import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.resolve.name.LabelName;
@@ -53,8 +54,7 @@ public abstract class DeserializedMemberScope implements JetScope {
     private final DeclarationDescriptor containingDeclaration;
     private final DescriptorDeserializer deserializer;
 
-    // Never modified after creation
-    private final Map<Name, List<ProtoBuf.Callable>> membersProtos;
+    private final MemberProtoIndex membersProtos;
 
     private final MemoizedFunctionToNotNull<Name, Collection<FunctionDescriptor>> functions;
     private final MemoizedFunctionToNotNull<Name, Collection<VariableDescriptor>> properties;
@@ -65,12 +65,12 @@ public abstract class DeserializedMemberScope implements JetScope {
             @NotNull StorageManager storageManager,
             @NotNull DeclarationDescriptor containingDeclaration,
             @NotNull DescriptorDeserializer deserializer,
-            @NotNull List<ProtoBuf.Callable> membersList
+            @NotNull MemberProtoIndex membersProtos
     ) {
         this.containingDeclaration = containingDeclaration;
         this.deserializer = deserializer;
 
-        this.membersProtos = groupByName(membersList);
+        this.membersProtos = membersProtos;
         this.functions = storageManager.createMemoizedFunction(new Function1<Name, Collection<FunctionDescriptor>>() {
             @Override
             public Collection<FunctionDescriptor> invoke(Name name) {
@@ -97,32 +97,16 @@ public abstract class DeserializedMemberScope implements JetScope {
         });
     }
 
-    @NotNull
-    private Map<Name, List<ProtoBuf.Callable>> groupByName(@NotNull Collection<ProtoBuf.Callable> membersList) {
-        Map<Name, List<ProtoBuf.Callable>> map = new HashMap<Name, List<ProtoBuf.Callable>>();
-        for (ProtoBuf.Callable memberProto : membersList) {
-            Name name = deserializer.getNameResolver().getName(memberProto.getName());
-            List<ProtoBuf.Callable> protos = map.get(name);
-            if (protos == null) {
-                protos = new ArrayList<ProtoBuf.Callable>(1);
-                map.put(name, protos);
-            }
-            protos.add(memberProto);
-        }
-        return map;
-    }
-
     @NotNull
     private <D extends CallableMemberDescriptor> Collection<D> computeMembersByName(Name name, Filter<ProtoBuf.Callable.CallableKind> callableKind) {
+        // Members with this name are parsed on the first request
         List<ProtoBuf.Callable> memberProtos = membersProtos.get(name);
 
-        Collection<D> descriptors = new LinkedHashSet<D>(memberProtos != null ? memberProtos.size() : 0);
-        if (memberProtos != null) {
-            for (ProtoBuf.Callable memberProto : memberProtos) {
-                if (callableKind.accept(Flags.CALLABLE_KIND.get(memberProto.getFlags()))) {
-                    //noinspection unchecked
-                    descriptors.add((D) deserializer.loadCallable(memberProto));
-                }
+        Collection<D> descriptors = new LinkedHashSet<D>(memberProtos.size());
+        for (ProtoBuf.Callable memberProto : memberProtos) {
+            if (callableKind.accept(Flags.CALLABLE_KIND.get(memberProto.getFlags()))) {
+                //noinspection unchecked
+                descriptors.add((D) deserializer.loadCallable(memberProto));
             }
         }
         return descriptors;
@@ -212,7 +196,7 @@ public abstract class DeserializedMemberScope implements JetScope {
     private Collection<DeclarationDescriptor> computeAllDescriptors() {
         Collection<DeclarationDescriptor> result = new LinkedHashSet<DeclarationDescriptor>(0);
 
-        for (Name name : membersProtos.keySet()) {
+        for (Name name : membersProtos.getNames()) {
             result.addAll(getFunctions(name));
             result.addAll(getProperties(name));
         }
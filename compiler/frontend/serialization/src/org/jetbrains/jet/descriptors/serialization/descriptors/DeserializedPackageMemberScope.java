@@ -23,12 +23,12 @@ public class DeserializedPackageMemberScope extends DeserializedMemberScope {
             @NotNull NamespaceDescriptor packageDescriptor,
             @NotNull AnnotationDeserializer annotationDeserializer,
             @NotNull DescriptorFinder descriptorFinder,
-            @NotNull ProtoBuf.Package proto,
+            @NotNull MemberProtoIndex memberProtos,
             @NotNull NameResolver nameResolver
     ) {
         super(storageManager, packageDescriptor,
               DescriptorDeserializer.create(storageManager, packageDescriptor, nameResolver, descriptorFinder, annotationDeserializer),
-              proto.getMemberList());
+              memberProtos);
         this.descriptorFinder = descriptorFinder;
         this.packageFqName = DescriptorUtils.getFQName(packageDescriptor).toSafe();
     }
@@ -40,7 +40,7 @@ public class DeserializedPackageMemberScope extends DeserializedMemberScope {
             @NotNull DescriptorFinder descriptorFinder,
             @NotNull PackageData packageData
     ) {
-        this(storageManager, packageDescriptor, annotationDeserializer, descriptorFinder, packageData.getPackageProto(),
+        this(storageManager, packageDescriptor, annotationDeserializer, descriptorFinder, packageData.getMembers(),
              packageData.getNameResolver());
     }
 
@@ -37,6 +37,12 @@ import org.jetbrains.jet.lang.resolve.BindingContext;
 import org.jetbrains.jet.lang.resolve.BindingContextUtils;
 import org.jetbrains.jet.lang.resolve.BindingTrace;
 import org.jetbrains.jet.lang.resolve.DescriptorUtils;
+import org.jetbrains.jet.lang.resolve.calls.model.DefaultValueArgument;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedCall;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedValueArgument;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ClassReceiver;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ExpressionReceiver;
+import org.jetbrains.jet.lang.resolve.scopes.receivers.ReceiverValue;
 import org.jetbrains.jet.lang.types.JetType;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 import org.jetbrains.jet.lexer.JetTokens;
@@ -548,6 +554,147 @@ public class JetFlowInformationProvider {
         });
     }
 
+////////////////////////////////////////////////////////////////////////////////
+//  Tail calls
+
+    private enum TailCallKind {
+        TAIL_CALL,
+        NON_TAIL_CALL,
+        IN_TRY
+    }
+
+    public void markTailCalls() {
+        if (!(subroutine instanceof JetNamedFunction)) return;
+        final JetNamedFunction function = (JetNamedFunction) subroutine;
+        DeclarationDescriptor descriptor = trace.get(BindingContext.DECLARATION_TO_DESCRIPTOR, function);
+        if (!(descriptor instanceof FunctionDescriptor)) return;
+        final FunctionDescriptor functionDescriptor = (FunctionDescriptor) descriptor;
+        if (!DescriptorUtils.isTailRecursive(functionDescriptor)) return;
+
+        if (functionDescriptor instanceof CallableMemberDescriptor
+            && ((CallableMemberDescriptor) functionDescriptor).getModality() != Modality.FINAL) {
+            trace.report(TAIL_RECURSION_ON_OPEN_MEMBER.on(function));
+            return;
+        }
+
+        JetExpression body = function.getBodyExpression();
+        if (body == null) return;
+
+        final boolean[] hasTailCalls = new boolean[] { false };
+        body.accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitCallExpression(JetCallExpression expression) {
+                super.visitCallExpression(expression);
+
+                JetExpression callee = expression.getCalleeExpression();
+                if (callee == null) return;
+                ResolvedCall<? extends CallableDescriptor> resolvedCall = trace.get(BindingContext.RESOLVED_CALL, callee);
+                if (resolvedCall == null || resolvedCall.getResultingDescriptor().getOriginal() != functionDescriptor.getOriginal()) return;
+
+                switch (getTailCallKind(function, functionDescriptor, expression, resolvedCall)) {
+                    case TAIL_CALL:
+                        // Calls relying on default values of parameters go through the $default method and are left as is
+                        for (ResolvedValueArgument argument : resolvedCall.getValueArgumentsByIndex()) {
+                            if (argument instanceof DefaultValueArgument) return;
+                        }
+                        trace.record(BindingContext.TAIL_RECURSION_CALL, expression);
+                        hasTailCalls[0] = true;
+                        break;
+                    case NON_TAIL_CALL:
+                        trace.report(NON_TAIL_RECURSIVE_CALL.on(expression));
+                        break;
+                    case IN_TRY:
+                        trace.report(TAIL_RECURSION_IN_TRY_IS_NOT_SUPPORTED.on(expression));
+                        break;
+                }
+            }
+        });
+
+        if (!hasTailCalls[0]) {
+            trace.report(NO_TAIL_CALLS_FOUND.on(function));
+        }
+    }
+
+    @NotNull
+    private static TailCallKind getTailCallKind(
+            @NotNull JetNamedFunction function,
+            @NotNull FunctionDescriptor functionDescriptor,
+            @NotNull JetCallExpression call,
+            @NotNull ResolvedCall<?> resolvedCall
+    ) {
+        // Calls from local functions, function literals, object literals and initializers of local variables are never tail calls
+        if (PsiTreeUtil.getParentOfType(call, JetDeclaration.class) != function) return TailCallKind.NON_TAIL_CALL;
+        if (resolvedCall.isSafeCall() || !isCallOnSameInstance(functionDescriptor, resolvedCall)) return TailCallKind.NON_TAIL_CALL;
+
+        JetElement element = call;
+        PsiElement parent = call.getParent();
+        if (parent instanceof JetQualifiedExpression && ((JetQualifiedExpression) parent).getSelectorExpression() == call) {
+            element = (JetElement) parent;
+        }
+
+        JetExpression body = function.getBodyExpression();
+        boolean returned = false;
+        while (element != body) {
+            parent = element.getParent();
+            if (parent instanceof JetReturnExpression) {
+                returned = true;
+                break;
+            }
+            if (parent instanceof JetBlockExpression) {
+                List<JetElement> statements = ((JetBlockExpression) parent).getStatements();
+                if (statements.get(statements.size() - 1) != element) return TailCallKind.NON_TAIL_CALL;
+            }
+            else if (parent instanceof JetContainerNode) {
+                PsiElement container = parent.getParent();
+                if (!(container instanceof JetIfExpression) || ((JetIfExpression) container).getCondition() == element) {
+                    return TailCallKind.NON_TAIL_CALL;
+                }
+            }
+            else if (parent instanceof JetWhenEntry) {
+                if (((JetWhenEntry) parent).getExpression() != element) return TailCallKind.NON_TAIL_CALL;
+            }
+            else if (parent instanceof JetBinaryExpression) {
+                JetBinaryExpression binaryExpression = (JetBinaryExpression) parent;
+                if (binaryExpression.getOperationToken() != JetTokens.ELVIS || binaryExpression.getRight() != element) {
+                    return TailCallKind.NON_TAIL_CALL;
+                }
+            }
+            else if (!(parent instanceof JetIfExpression && element instanceof JetContainerNode)
+                     && !(parent instanceof JetWhenExpression && element instanceof JetWhenEntry)
+                     && !(parent instanceof JetParenthesizedExpression)
+                     && !(parent instanceof JetTryExpression && !(element instanceof JetFinallySection))
+                     && !(parent instanceof JetCatchClause)) {
+                return TailCallKind.NON_TAIL_CALL;
+            }
+            element = (JetElement) parent;
+        }
+
+        // The value of the last statement of a block body is only returned implicitly from functions returning Unit
+        if (!returned && function.hasBlockBody() && !KotlinBuiltIns.getInstance().isUnit(functionDescriptor.getReturnType())) {
+            return TailCallKind.NON_TAIL_CALL;
+        }
+
+        if (PsiTreeUtil.getParentOfType(call, JetTryExpression.class, true, JetDeclaration.class) != null) {
+            return TailCallKind.IN_TRY;
+        }
+        return TailCallKind.TAIL_CALL;
+    }
+
+    private static boolean isCallOnSameInstance(@NotNull FunctionDescriptor functionDescriptor, @NotNull ResolvedCall<?> resolvedCall) {
+        ReceiverValue thisObject = resolvedCall.getThisObject();
+        if (!thisObject.exists()) return true;
+        if (thisObject instanceof ClassReceiver) {
+            return ((ClassReceiver) thisObject).getDeclarationDescriptor() == functionDescriptor.getContainingDeclaration();
+        }
+        if (thisObject instanceof ExpressionReceiver) {
+            JetExpression expression = JetPsiUtil.deparenthesize(((ExpressionReceiver) thisObject).getExpression());
+            return expression instanceof JetThisExpression
+                   && ((JetThisExpression) expression).getTargetLabel() == null
+                   && functionDescriptor.getReceiverParameter() == null;
+        }
+        return false;
+    }
+
 ////////////////////////////////////////////////////////////////////////////////
 // Utility classes and methods
 
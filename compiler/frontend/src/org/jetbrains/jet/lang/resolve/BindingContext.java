@@ -112,6 +112,11 @@ public interface BindingContext {
 
     WritableSlice<JetWhenExpression, Boolean> EXHAUSTIVE_WHEN = Slices.createSimpleSlice();
 
+    /**
+     * Recursive calls of a tail-recursive function which may be compiled as jumps to the beginning of the function
+     */
+    WritableSlice<JetCallExpression, Boolean> TAIL_RECURSION_CALL = Slices.createSimpleSetSlice();
+
     /**
      * A scope where type of expression has been resolved
      */
@@ -33,6 +33,7 @@ import org.jetbrains.jet.lang.resolve.calls.context.SimpleResolutionContext;
 import org.jetbrains.jet.lang.resolve.calls.results.OverloadResolutionResults;
 import org.jetbrains.jet.lang.resolve.calls.util.CallMaker;
 import org.jetbrains.jet.lang.resolve.constants.CompileTimeConstant;
+import org.jetbrains.jet.lang.resolve.constants.ConstantExpressionEvaluator;
 import org.jetbrains.jet.lang.resolve.scopes.*;
 import org.jetbrains.jet.lang.resolve.scopes.receivers.ReceiverValue;
 import org.jetbrains.jet.lang.types.*;
@@ -153,11 +154,37 @@ public class BodyResolver {
 
     public void resolveBodies() {
         resolveBehaviorDeclarationBodies(context);
+        evaluateConstantExpressions();
         controlFlowAnalyzer.process(context);
         declarationsChecker.process(context);
         functionAnalyzerExtension.process(context);
     }
 
+    private void evaluateConstantExpressions() {
+        // Property initializers go first, so that constant vals are known where they are referenced
+        for (JetProperty property : context.getProperties().keySet()) {
+            if (!context.completeAnalysisNeeded(property)) continue;
+            ConstantExpressionEvaluator.evaluate(property, trace);
+        }
+        for (JetClassOrObject classOrObject : context.getClasses().keySet()) {
+            evaluateConstantExpressionsInInitializers(classOrObject);
+        }
+        for (JetClassOrObject classOrObject : context.getObjects().keySet()) {
+            evaluateConstantExpressionsInInitializers(classOrObject);
+        }
+        for (JetNamedFunction function : context.getFunctions().keySet()) {
+            if (!context.completeAnalysisNeeded(function)) continue;
+            ConstantExpressionEvaluator.evaluate(function, trace);
+        }
+    }
+
+    private void evaluateConstantExpressionsInInitializers(@NotNull JetClassOrObject classOrObject) {
+        if (!context.completeAnalysisNeeded(classOrObject)) return;
+        for (JetClassInitializer initializer : classOrObject.getAnonymousInitializers()) {
+            ConstantExpressionEvaluator.evaluate(initializer, trace);
+        }
+    }
+
     private void resolveDelegationSpecifierLists() {
         // TODO : Make sure the same thing is not initialized twice
         for (Map.Entry<JetClass, MutableClassDescriptor> entry : context.getClasses().entrySet()) {
@@ -119,5 +119,7 @@ public class ControlFlowAnalyzer {
         flowInformationProvider.markUnusedVariables();
 
         flowInformationProvider.markUnusedLiteralsInBlock();
+
+        flowInformationProvider.markTailCalls();
     }
 }
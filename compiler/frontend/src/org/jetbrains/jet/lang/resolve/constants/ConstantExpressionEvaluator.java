@@ -0,0 +1,447 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.constants;
+
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.*;
+import org.jetbrains.jet.lang.psi.*;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.BindingContextUtils;
+import org.jetbrains.jet.lang.resolve.BindingTrace;
+import org.jetbrains.jet.lang.resolve.calls.model.ResolvedCall;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.TypeConstructor;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.jetbrains.jet.lexer.JetTokens;
+
+/**
+ * Folds expressions built from compile-time constants with built-in operators (arithmetic, bitwise, comparisons,
+ * string concatenation and templates, references to constant vals) into a single {@link BindingContext#COMPILE_TIME_VALUE}.
+ *
+ * Runs after the bodies are resolved: types of number literals are only fixed when the enclosing call is completed.
+ */
+public class ConstantExpressionEvaluator {
+
+    private enum NumberKind {
+        INT, LONG, FLOAT, DOUBLE
+    }
+
+    // Kotlin/JS represents Long values as JavaScript numbers, which hold integers exactly only up to 2^53 in absolute value
+    private static final long MAX_EXACT_DOUBLE_LONG = 1L << 53;
+
+    private ConstantExpressionEvaluator() {
+    }
+
+    public static void evaluate(@NotNull JetElement element, @NotNull final BindingTrace trace) {
+        element.accept(new JetTreeVisitorVoid() {
+            @Override
+            public void visitParenthesizedExpression(JetParenthesizedExpression expression) {
+                super.visitParenthesizedExpression(expression);
+                record(expression, getConstant(expression.getExpression(), trace), trace);
+            }
+
+            @Override
+            public void visitPrefixExpression(JetPrefixExpression expression) {
+                super.visitPrefixExpression(expression);
+                record(expression, evaluatePrefixExpression(expression, trace), trace);
+            }
+
+            @Override
+            public void visitBinaryExpression(JetBinaryExpression expression) {
+                super.visitBinaryExpression(expression);
+                record(expression, evaluateBinaryExpression(expression, trace), trace);
+            }
+
+            @Override
+            public void visitStringTemplateExpression(JetStringTemplateExpression expression) {
+                super.visitStringTemplateExpression(expression);
+                record(expression, evaluateStringTemplate(expression, trace), trace);
+            }
+
+            @Override
+            public void visitSimpleNameExpression(JetSimpleNameExpression expression) {
+                super.visitSimpleNameExpression(expression);
+                PsiElement parent = expression.getParent();
+                if (parent instanceof JetQualifiedExpression && ((JetQualifiedExpression) parent).getSelectorExpression() == expression) {
+                    // The value is recorded for the whole qualified expression, see below
+                    return;
+                }
+                record(expression, getReferencedConstant(expression, trace), trace);
+            }
+
+            @Override
+            public void visitDotQualifiedExpression(JetDotQualifiedExpression expression) {
+                super.visitDotQualifiedExpression(expression);
+                JetExpression selector = expression.getSelectorExpression();
+                if (selector instanceof JetSimpleNameExpression && isReceiverWithoutSideEffects(expression.getReceiverExpression(), trace)) {
+                    record(expression, getReferencedConstant((JetSimpleNameExpression) selector, trace), trace);
+                }
+            }
+        });
+    }
+
+    private static void record(@NotNull JetExpression expression, @Nullable CompileTimeConstant<?> value, @NotNull BindingTrace trace) {
+        if (value == null || trace.get(BindingContext.COMPILE_TIME_VALUE, expression) != null) return;
+        trace.record(BindingContext.COMPILE_TIME_VALUE, expression, value);
+    }
+
+    @Nullable
+    private static CompileTimeConstant<?> getConstant(@Nullable JetExpression expression, @NotNull BindingTrace trace) {
+        if (expression == null) return null;
+        CompileTimeConstant<?> constant = trace.get(BindingContext.COMPILE_TIME_VALUE, expression);
+        if (constant == null || constant instanceof ErrorValue) return null;
+        Object value = constant.getValue();
+        if (value instanceof Number || value instanceof Character || value instanceof Boolean || value instanceof String) {
+            return constant;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static CompileTimeConstant<?> evaluatePrefixExpression(@NotNull JetPrefixExpression expression, @NotNull BindingTrace trace) {
+        CompileTimeConstant<?> base = getConstant(expression.getBaseExpression(), trace);
+        if (base == null) return null;
+
+        CallableDescriptor operation = getBuiltInOperation(expression.getOperationReference(), trace);
+        if (operation == null || operation.getReturnType() == null) return null;
+        String name = operation.getName().asString();
+        Object value = base.getValue();
+
+        if ("not".equals(name)) {
+            return value instanceof Boolean ? BooleanValue.valueOf(!(Boolean) value) : null;
+        }
+
+        Number number = toNumber(value);
+        NumberKind kind = getNumberKind(operation.getReturnType());
+        if (number == null || kind == null) return null;
+
+        if ("plus".equals(name)) {
+            return createConstant(number, operation.getReturnType());
+        }
+        if ("minus".equals(name)) {
+            switch (kind) {
+                case INT: return createConstant(-number.intValue(), operation.getReturnType());
+                case LONG: return createLongConstant(-number.longValue(), operation.getReturnType());
+                case FLOAT: return createConstant(-number.floatValue(), operation.getReturnType());
+                case DOUBLE: return createConstant(-number.doubleValue(), operation.getReturnType());
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static CompileTimeConstant<?> evaluateBinaryExpression(@NotNull JetBinaryExpression expression, @NotNull BindingTrace trace) {
+        CompileTimeConstant<?> left = getConstant(expression.getLeft(), trace);
+        CompileTimeConstant<?> right = getConstant(expression.getRight(), trace);
+        if (left == null || right == null) return null;
+        Object leftValue = left.getValue();
+        Object rightValue = right.getValue();
+
+        IElementType operationToken = expression.getOperationToken();
+        if (operationToken == JetTokens.ANDAND || operationToken == JetTokens.OROR) {
+            if (!(leftValue instanceof Boolean) || !(rightValue instanceof Boolean)) return null;
+            boolean result = operationToken == JetTokens.ANDAND
+                             ? (Boolean) leftValue && (Boolean) rightValue
+                             : (Boolean) leftValue || (Boolean) rightValue;
+            return BooleanValue.valueOf(result);
+        }
+        if (operationToken == JetTokens.EQEQ || operationToken == JetTokens.EXCLEQ) {
+            // Floating point numbers are compared as primitives, which differs from equals() for NaN and zeroes
+            if (leftValue.getClass() != rightValue.getClass() || leftValue instanceof Double || leftValue instanceof Float) return null;
+            return BooleanValue.valueOf(leftValue.equals(rightValue) == (operationToken == JetTokens.EQEQ));
+        }
+
+        CallableDescriptor operation = getBuiltInOperation(expression.getOperationReference(), trace);
+        if (operation == null) return null;
+
+        if (operationToken == JetTokens.LT || operationToken == JetTokens.GT ||
+            operationToken == JetTokens.LTEQ || operationToken == JetTokens.GTEQ) {
+            Boolean result = evaluateComparison(operationToken, leftValue, rightValue);
+            return result != null ? BooleanValue.valueOf(result) : null;
+        }
+
+        JetType returnType = operation.getReturnType();
+        if (returnType == null || returnType.isNullable()) return null;
+        String name = operation.getName().asString();
+
+        if (leftValue instanceof String) {
+            if (!"plus".equals(name) || !hasSameStringRepresentation(rightValue)) return null;
+            return new StringValue((String) leftValue + rightValue);
+        }
+        if (leftValue instanceof Boolean && rightValue instanceof Boolean) {
+            boolean l = (Boolean) leftValue;
+            boolean r = (Boolean) rightValue;
+            if ("and".equals(name)) return BooleanValue.valueOf(l & r);
+            if ("or".equals(name)) return BooleanValue.valueOf(l | r);
+            if ("xor".equals(name)) return BooleanValue.valueOf(l ^ r);
+            return null;
+        }
+
+        Number l = toNumber(leftValue);
+        Number r = toNumber(rightValue);
+        NumberKind kind = getNumberKind(returnType);
+        if (l == null || r == null || kind == null) return null;
+
+        switch (kind) {
+            case INT: {
+                Integer result = evaluateIntOperation(name, l.intValue(), r.intValue());
+                return result != null ? createConstant(result, returnType) : null;
+            }
+            case LONG: {
+                Long result = evaluateLongOperation(name, l.longValue(), r.intValue(), r.longValue());
+                return result != null ? createLongConstant(result, returnType) : null;
+            }
+            case FLOAT: {
+                Double result = evaluateDoubleOperation(name, l.floatValue(), r.floatValue());
+                return result != null ? createConstant(result.floatValue(), returnType) : null;
+            }
+            case DOUBLE: {
+                Double result = evaluateDoubleOperation(name, l.doubleValue(), r.doubleValue());
+                return result != null ? createConstant(result, returnType) : null;
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Integer evaluateIntOperation(@NotNull String name, int l, int r) {
+        if ("plus".equals(name)) return l + r;
+        if ("minus".equals(name)) return l - r;
+        if ("times".equals(name)) return l * r;
+        // Division by zero must throw at runtime
+        if ("div".equals(name)) return r != 0 ? l / r : null;
+        if ("mod".equals(name)) return r != 0 ? l % r : null;
+        if ("and".equals(name)) return l & r;
+        if ("or".equals(name)) return l | r;
+        if ("xor".equals(name)) return l ^ r;
+        if ("shl".equals(name)) return l << r;
+        if ("shr".equals(name)) return l >> r;
+        if ("ushr".equals(name)) return l >>> r;
+        return null;
+    }
+
+    @Nullable
+    private static Long evaluateLongOperation(@NotNull String name, long l, int shift, long r) {
+        if ("plus".equals(name)) return l + r;
+        if ("minus".equals(name)) return l - r;
+        if ("times".equals(name)) return l * r;
+        if ("div".equals(name)) return r != 0 ? l / r : null;
+        if ("mod".equals(name)) return r != 0 ? l % r : null;
+        if ("and".equals(name)) return l & r;
+        if ("or".equals(name)) return l | r;
+        if ("xor".equals(name)) return l ^ r;
+        if ("shl".equals(name)) return l << shift;
+        if ("shr".equals(name)) return l >> shift;
+        if ("ushr".equals(name)) return l >>> shift;
+        return null;
+    }
+
+    @Nullable
+    private static Double evaluateDoubleOperation(@NotNull String name, double l, double r) {
+        if ("plus".equals(name)) return l + r;
+        if ("minus".equals(name)) return l - r;
+        if ("times".equals(name)) return l * r;
+        if ("div".equals(name)) return l / r;
+        if ("mod".equals(name)) return l % r;
+        return null;
+    }
+
+    @Nullable
+    private static Boolean evaluateComparison(@NotNull IElementType operationToken, @NotNull Object left, @NotNull Object right) {
+        if (left instanceof String && right instanceof String) {
+            return checkComparison(operationToken, ((String) left).compareTo((String) right), 0);
+        }
+        if (left instanceof Character || right instanceof Character) {
+            if (!(left instanceof Character) || !(right instanceof Character)) return null;
+            return checkComparison(operationToken, (Character) left, (Character) right);
+        }
+        if (!(left instanceof Number) || !(right instanceof Number)) return null;
+        if (left instanceof Double || left instanceof Float || right instanceof Double || right instanceof Float) {
+            // Primitive comparisons are false for NaN, as in the generated code
+            double l = ((Number) left).doubleValue();
+            double r = ((Number) right).doubleValue();
+            if (operationToken == JetTokens.LT) return l < r;
+            if (operationToken == JetTokens.GT) return l > r;
+            if (operationToken == JetTokens.LTEQ) return l <= r;
+            return l >= r;
+        }
+        return checkComparison(operationToken, ((Number) left).longValue(), ((Number) right).longValue());
+    }
+
+    private static boolean checkComparison(@NotNull IElementType operationToken, long l, long r) {
+        if (operationToken == JetTokens.LT) return l < r;
+        if (operationToken == JetTokens.GT) return l > r;
+        if (operationToken == JetTokens.LTEQ) return l <= r;
+        return l >= r;
+    }
+
+    @Nullable
+    private static CompileTimeConstant<?> evaluateStringTemplate(@NotNull JetStringTemplateExpression expression, @NotNull BindingTrace trace) {
+        StringBuilder builder = new StringBuilder();
+        for (JetStringTemplateEntry entry : expression.getEntries()) {
+            if (entry instanceof JetLiteralStringTemplateEntry) {
+                builder.append(entry.getText());
+            }
+            else if (entry instanceof JetEscapeStringTemplateEntry) {
+                CompileTimeConstant<?> character = CompileTimeConstantResolver.escapedStringToCharValue(entry.getText(), entry);
+                if (!(character instanceof CharValue)) return null;
+                builder.append(((CharValue) character).getValue());
+            }
+            else {
+                CompileTimeConstant<?> value = getConstant(entry.getExpression(), trace);
+                if (value == null || !hasSameStringRepresentation(value.getValue())) return null;
+                builder.append(value.getValue());
+            }
+        }
+        return new StringValue(builder.toString());
+    }
+
+    // Floating point numbers are converted to strings differently by the JVM and JavaScript
+    private static boolean hasSameStringRepresentation(@NotNull Object value) {
+        return !(value instanceof Double || value instanceof Float);
+    }
+
+    @Nullable
+    private static CompileTimeConstant<?> getReferencedConstant(@NotNull JetSimpleNameExpression expression, @NotNull BindingTrace trace) {
+        DeclarationDescriptor descriptor = trace.get(BindingContext.REFERENCE_TARGET, expression);
+        if (!(descriptor instanceof VariableDescriptor)) return null;
+
+        VariableDescriptor variable = (VariableDescriptor) descriptor;
+        if (variable.isVar() || !isPrimitiveOrString(variable.getType())) return null;
+        if (variable instanceof PropertyDescriptor) {
+            PropertyDescriptor property = (PropertyDescriptor) variable;
+            PropertyGetterDescriptor getter = property.getGetter();
+            if (property.getModality() != Modality.FINAL || property.getReceiverParameter() != null ||
+                (getter != null && !getter.isDefault())) {
+                return null;
+            }
+        }
+
+        PsiElement declaration = BindingContextUtils.descriptorToDeclaration(trace.getBindingContext(), variable.getOriginal());
+        if (!(declaration instanceof JetProperty)) return null;
+        JetProperty property = (JetProperty) declaration;
+        if (property.getDelegateExpression() != null) return null;
+        if (variable instanceof PropertyDescriptor && !isInitializedAt((PropertyDescriptor) variable, property, expression)) return null;
+        return getConstant(property.getInitializer(), trace);
+    }
+
+    /**
+     * Member properties are initialized in the order of declaration, and until then their value is the default one,
+     * so a reference to such a property is folded only where the initializer is known to have run:
+     * in the initialization code of the same class after the property, or outside of an object (it is initialized on the first access).
+     * Local variables can't be referenced before their declaration, and top-level vals with constant initializers are static final
+     * fields with the constant value set before any code runs
+     */
+    private static boolean isInitializedAt(@NotNull PropertyDescriptor descriptor, @NotNull JetProperty property, @NotNull JetElement usage) {
+        if (descriptor.getContainingDeclaration() instanceof NamespaceDescriptor) return true;
+
+        JetClassOrObject owner = PsiTreeUtil.getParentOfType(property, JetClassOrObject.class);
+        if (owner instanceof JetObjectDeclaration && !PsiTreeUtil.isAncestor(owner, usage, true)) return true;
+
+        for (PsiElement element = usage; element.getParent() != null; element = element.getParent()) {
+            // Functions, accessors and lambdas may be called before the property is initialized
+            if (element instanceof JetDeclarationWithBody) return false;
+
+            if (element.getParent() instanceof JetClassBody) {
+                if (element.getParent() != property.getParent() ||
+                    element.getTextRange().getStartOffset() < property.getTextRange().getEndOffset()) {
+                    return false;
+                }
+                if (element instanceof JetClassInitializer) return true;
+                JetExpression initializer = element instanceof JetProperty ? ((JetProperty) element).getInitializer() : null;
+                return initializer != null && PsiTreeUtil.isAncestor(initializer, usage, false);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isReceiverWithoutSideEffects(@Nullable JetExpression receiver, @NotNull BindingTrace trace) {
+        JetExpression expression = JetPsiUtil.deparenthesize(receiver);
+        if (expression instanceof JetThisExpression) return true;
+        if (expression instanceof JetDotQualifiedExpression) {
+            expression = ((JetDotQualifiedExpression) expression).getSelectorExpression();
+        }
+        if (!(expression instanceof JetSimpleNameExpression)) return false;
+        DeclarationDescriptor target = trace.get(BindingContext.REFERENCE_TARGET, (JetSimpleNameExpression) expression);
+        return target instanceof ClassDescriptor || target instanceof NamespaceDescriptor;
+    }
+
+    @Nullable
+    private static CallableDescriptor getBuiltInOperation(@NotNull JetSimpleNameExpression operationReference, @NotNull BindingTrace trace) {
+        ResolvedCall<? extends CallableDescriptor> resolvedCall = trace.get(BindingContext.RESOLVED_CALL, operationReference);
+        if (resolvedCall == null) return null;
+        CallableDescriptor descriptor = resolvedCall.getResultingDescriptor();
+        DeclarationDescriptor container = descriptor.getContainingDeclaration();
+        if (!(container instanceof ClassDescriptor)) return null;
+        return isPrimitiveOrString(((ClassDescriptor) container).getDefaultType()) ? descriptor : null;
+    }
+
+    private static boolean isPrimitiveOrString(@NotNull JetType type) {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        return !type.isNullable() &&
+               (builtIns.isPrimitiveType(type) || type.getConstructor() == builtIns.getString().getTypeConstructor());
+    }
+
+    @Nullable
+    private static Number toNumber(@NotNull Object value) {
+        if (value instanceof Number) return (Number) value;
+        if (value instanceof Character) return (int) (Character) value;
+        return null;
+    }
+
+    @Nullable
+    private static NumberKind getNumberKind(@NotNull JetType type) {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        TypeConstructor constructor = type.getConstructor();
+        if (constructor == builtIns.getInt().getTypeConstructor() || constructor == builtIns.getChar().getTypeConstructor() ||
+            constructor == builtIns.getShort().getTypeConstructor() || constructor == builtIns.getByte().getTypeConstructor()) {
+            return NumberKind.INT;
+        }
+        if (constructor == builtIns.getLong().getTypeConstructor()) return NumberKind.LONG;
+        if (constructor == builtIns.getFloat().getTypeConstructor()) return NumberKind.FLOAT;
+        if (constructor == builtIns.getDouble().getTypeConstructor()) return NumberKind.DOUBLE;
+        return null;
+    }
+
+    /**
+     * A Long result which a JavaScript number can't hold exactly is left to be computed at runtime,
+     * so that folding doesn't change what the JavaScript backend produces for it
+     */
+    @Nullable
+    private static CompileTimeConstant<?> createLongConstant(long value, @NotNull JetType type) {
+        if (value > MAX_EXACT_DOUBLE_LONG || value < -MAX_EXACT_DOUBLE_LONG) return null;
+        return createConstant(value, type);
+    }
+
+    @Nullable
+    private static CompileTimeConstant<?> createConstant(@NotNull Number value, @NotNull JetType type) {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        TypeConstructor constructor = type.getConstructor();
+        if (constructor == builtIns.getInt().getTypeConstructor()) return new IntValue(value.intValue());
+        if (constructor == builtIns.getLong().getTypeConstructor()) return new LongValue(value.longValue());
+        if (constructor == builtIns.getFloat().getTypeConstructor()) return new FloatValue(value.floatValue());
+        if (constructor == builtIns.getDouble().getTypeConstructor()) return new DoubleValue(value.doubleValue());
+        if (constructor == builtIns.getShort().getTypeConstructor()) return new ShortValue(value.shortValue());
+        if (constructor == builtIns.getByte().getTypeConstructor()) return new ByteValue(value.byteValue());
+        if (constructor == builtIns.getChar().getTypeConstructor()) return new CharValue((char) value.intValue());
+        return null;
+    }
+}
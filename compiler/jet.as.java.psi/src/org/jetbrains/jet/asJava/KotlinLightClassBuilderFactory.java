@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.jet.codegen.ClassBuilder;
 import org.jetbrains.jet.codegen.ClassBuilderFactory;
 import org.jetbrains.jet.codegen.ClassBuilderMode;
+import org.jetbrains.jet.codegen.ClassHierarchyOracle;
 
 /*package*/ class KotlinLightClassBuilderFactory implements ClassBuilderFactory {
     private final Stack<StubElement> stubStack;
@@ -37,7 +38,7 @@ import org.jetbrains.jet.codegen.ClassBuilderMode;
     }
 
     @Override
-    public ClassBuilder newClassBuilder() {
+    public ClassBuilder newClassBuilder(@NotNull ClassHierarchyOracle classHierarchy) {
         return new StubClassBuilder(stubStack);
     }
 
@@ -0,0 +1,33 @@
+package test
+
+trait Named {
+    val name: String
+}
+
+open class Base<T>(val value: T) {
+    fun get(): T = value
+    open fun describe(prefix: String): String = prefix
+}
+
+class Derived(value: Int) : Base<Int>(value), Named {
+    override val name: String = "derived"
+    override fun describe(prefix: String): String = prefix + name
+
+    class Nested {
+        fun <R : Comparable<R>> max(a: R, b: R): R = if (a > b) a else b
+    }
+
+    class object {
+        val DEFAULT: Derived = Derived(0)
+    }
+}
+
+object Registry {
+    var items: MutableList<Named>? = null
+}
+
+fun topLevel(list: List<String?>, block: (String) -> Int): Int = block("")
+
+fun String.extension(times: Int): String = this
+
+val topLevelProperty: Map<String, Base<*>>? = null
@@ -0,0 +1,14 @@
+open class Base {
+    fun ok() = "OK"
+}
+
+class A : Base()
+class B : Base()
+
+fun choose(a: Boolean) = if (a) A() else B()
+
+fun box(): String {
+    val x = if (System.currentTimeMillis() > 0) A() else B()
+    if (x.ok() != "OK") return "Fail 1"
+    return choose(false).ok()
+}
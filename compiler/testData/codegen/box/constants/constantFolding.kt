@@ -0,0 +1,36 @@
+val MASK = 0xFF shl 8
+val NAME = "Kotlin"
+val GREETING = "Hello, $NAME!"
+
+class A {
+    val size = 4 * 1024
+}
+
+object Flags {
+    val READ = 1 shl 2
+}
+
+fun box(): String {
+    if (MASK != 65280) return "Fail MASK: $MASK"
+    if (GREETING != "Hello, Kotlin!") return "Fail GREETING: $GREETING"
+    if (A().size != 4096) return "Fail size"
+    if (Flags.READ or 1 != 5) return "Fail READ"
+
+    if (-1 - 2 * 3 != -7) return "Fail arithmetic"
+    if (7 / 2 != 3 || 7 % 2 != 1 || -7 ushr 28 != 15 || -7 shr 28 != -1) return "Fail int division and shifts"
+    if (1L shl 40 != 1099511627776L || Long.MAX_VALUE + 1 != Long.MIN_VALUE) return "Fail long"
+    if ((0x0F and 0x3C) xor 0x01 != 13) return "Fail bitwise"
+    if (Int.MAX_VALUE + 1 != Int.MIN_VALUE) return "Fail overflow"
+    if (1.5 * 2 != 3.0 || 1.0f / 4 != 0.25f) return "Fail floating point"
+    if ('a' + 1 != 'b' || 'z' - 'a' != 25) return "Fail chars"
+    if (!(1 < 2 && 'a' <= 'b' && "abc" < "abd" && 2.0 >= 1)) return "Fail comparisons"
+    if (0.0 / 0.0 < 1.0 || 0.0 / 0.0 >= 1.0) return "Fail NaN"
+    if ("a" + 1 + 'b' + true != "a1btrue") return "Fail concatenation"
+    if ("${1 + 2}\t${'c'}" != "3\tc") return "Fail template"
+    if ("x" + 0.5 != "x0.5") return "Fail double concatenation"
+
+    val local = 10
+    if (local * local != 100) return "Fail local"
+
+    return "OK"
+}
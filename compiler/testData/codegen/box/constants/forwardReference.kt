@@ -0,0 +1,29 @@
+class A {
+    val y = x + 1
+    val x = 5
+}
+
+class B {
+    val y = f()
+    fun f() = x + 1
+    val x = 5
+}
+
+class C {
+    val x = 5
+    val y = x + 1
+}
+
+object O {
+    val y = x + 1
+    val x = 5
+}
+
+fun box(): String {
+    if (A().y != 1) return "Fail A: ${A().y}"
+    if (B().y != 1) return "Fail B: ${B().y}"
+    if (C().y != 6) return "Fail C: ${C().y}"
+    if (O.y != 1) return "Fail O: ${O.y}"
+    if (O.x + 1 != 6) return "Fail O.x"
+    return "OK"
+}
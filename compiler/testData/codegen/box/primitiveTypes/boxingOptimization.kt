@@ -0,0 +1,31 @@
+fun nullable(b: Boolean): Int {
+    val x: Int? = if (b) 1 else 2
+    return x!! + 1
+}
+
+fun cast(): Long {
+    val x: Any = 21.toLong()
+    return (x as Long) * 2
+}
+
+fun loop(n: Int): Double {
+    var sum: Number = 0.0
+    for (i in 1..n) {
+        sum = sum.toDouble() + i
+    }
+    return sum.toDouble()
+}
+
+fun charToInt(): Int {
+    val c: Char? = 'A'
+    return c!!.toInt()
+}
+
+fun box(): String {
+    if (nullable(true) != 2) return "Fail nullable(true)"
+    if (nullable(false) != 3) return "Fail nullable(false)"
+    if (cast() != 42.toLong()) return "Fail cast"
+    if (loop(4) != 10.0) return "Fail loop"
+    if (charToInt() != 65) return "Fail charToInt"
+    return "OK"
+}
@@ -0,0 +1,42 @@
+var evaluated = ""
+
+fun <T> log(s: String, value: T): T {
+    evaluated += s
+    return value
+}
+
+fun box(): String {
+    val i = 5
+    if (i !in 1..10 || i in 6..10 || i !in i..i) return "fail int"
+    if (i in 0.rangeTo(4) || i !in 5.rangeTo(5)) return "fail int rangeTo"
+
+    val l = 3000000000L
+    if (l !in 2000000000L..4000000000L || l in 0L..1L) return "fail long"
+
+    val c = 'k'
+    if (c !in 'a'..'z' || c in 'A'..'Z') return "fail char"
+
+    val b: Byte = 7
+    if (b !in 0.toByte()..10.toByte() || b in 8.toByte()..9.toByte()) return "fail byte"
+
+    val s: Short = -7
+    if (s !in (-10).toShort()..0.toShort()) return "fail short"
+
+    val d = 0.5
+    if (d !in 0.0..1.0 || d in 0.6..1.0) return "fail double"
+    val nan = 0.0 / 0.0
+    if (nan in 0.0..1.0 || nan in nan..nan) return "fail double NaN"
+    if (0.5.toFloat() !in 0.0.toFloat()..1.0.toFloat() || nan.toFloat() in 0.0.toFloat()..1.0.toFloat()) return "fail float"
+
+    val result = when (c) {
+        in '0'..'9' -> "digit"
+        in 'a'..'z' -> "letter"
+        else -> "other"
+    }
+    if (result != "letter") return "fail when"
+
+    if (log("x", 5) in log("a", 1)..log("b", 3)) return "fail order"
+    if (evaluated != "xab") return "fail evaluation order: $evaluated"
+
+    return "OK"
+}
@@ -0,0 +1,30 @@
+class Point(val x: Int, val y: Int) {
+    override fun toString() = "($x, $y)"
+}
+
+fun describe(name: String?, p: Point, weight: Double, tag: Char, flags: Long) =
+        "Point " + name + " at " + p + ": ${"weight=" + weight + ", tag=$tag"}" + (", flags=" + flags) + '.'
+
+fun box(): String {
+    val result = describe("A", Point(1, 2), 1.5, 'q', 3L)
+    if (result != "Point A at (1, 2): weight=1.5, tag=q, flags=3.") return "Fail 1: $result"
+
+    val nullName = describe(null, Point(0, 0), 0.0, 'z', 0L)
+    if (nullName != "Point null at (0, 0): weight=0.0, tag=z, flags=0.") return "Fail 2: $nullName"
+
+    var counter = 0
+    val ordered = "" + (++counter) + "${++counter}" + ("-" + ++counter)
+    if (ordered != "12-3") return "Fail 3: $ordered"
+
+    val single = "" + counter
+    if (single != "3") return "Fail 4: $single"
+
+    val nested = "<${"[${"{$counter}"}]"}>"
+    if (nested != "<[{3}]>") return "Fail 5: $nested"
+
+    var s = "a"
+    s += "b" + counter + "c"
+    if (s != "ab3c") return "Fail 6: $s"
+
+    return "OK"
+}
@@ -0,0 +1,67 @@
+enum class Season {
+    WINTER
+    SPRING
+    SUMMER
+    AUTUMN
+}
+
+fun int(x: Int) = when (x) {
+    -1 -> "minus one"
+    1, 2 -> "one or two"
+    1 -> "unreachable"
+    100000 -> "big"
+    else -> "other"
+}
+
+fun char(c: Char) = when (c) {
+    'a', 'b' -> 1
+    'z' -> 2
+    else -> 0
+}
+
+fun string(s: String?) = when (s) {
+    "Aa" -> 1
+    "BB" -> 2
+    "" -> 3
+    else -> 0
+}
+
+fun season(s: Season?) = when (s) {
+    Season.SUMMER -> "hot"
+    Season.WINTER -> "cold"
+    else -> "mild"
+}
+
+fun noElse(x: Int): Int {
+    var result = 0
+    when (x) {
+        1 -> result = 1
+        2 -> result = 2
+    }
+    return result
+}
+
+fun box(): String {
+    if (int(-1) != "minus one") return "fail int -1"
+    if (int(1) != "one or two") return "fail int 1"
+    if (int(2) != "one or two") return "fail int 2"
+    if (int(100000) != "big") return "fail int 100000"
+    if (int(3) != "other") return "fail int 3"
+
+    if (char('a') != 1 || char('b') != 1 || char('z') != 2 || char('c') != 0) return "fail char"
+
+    if (string("Aa") != 1) return "fail string Aa"
+    if (string("BB") != 2) return "fail string BB"
+    if (string("") != 3) return "fail string empty"
+    if (string("C#") != 0) return "fail string C#"
+    if (string(null) != 0) return "fail string null"
+
+    if (season(Season.SUMMER) != "hot") return "fail season SUMMER"
+    if (season(Season.WINTER) != "cold") return "fail season WINTER"
+    if (season(Season.SPRING) != "mild") return "fail season SPRING"
+    if (season(null) != "mild") return "fail season null"
+
+    if (noElse(1) != 1 || noElse(2) != 2 || noElse(3) != 0) return "fail noElse"
+
+    return "OK"
+}
@@ -0,0 +1,60 @@
+import java.util.ArrayList
+
+var evaluated = ""
+
+fun <T> log(s: String, value: T): T {
+    evaluated += s
+    return value
+}
+
+fun box(): String {
+    val list1 = ArrayList<Int>()
+    val range = 1..7
+    for (i in range.reversed() step 3) {
+        list1.add(i)
+    }
+    if (list1 != listOf(7, 4, 1)) return "Wrong elements for range.reversed() step 3: $list1"
+
+    val list2 = ArrayList<Int>()
+    for (i in (10 downTo 0 step 4).reversed()) {
+        list2.add(i)
+    }
+    if (list2 != listOf(0, 4, 8)) return "Wrong elements for (10 downTo 0 step 4).reversed(): $list2"
+
+    val list3 = ArrayList<Long>()
+    for (i in (1.toLong()..10.toLong() step 4.toLong()).reversed() step 2.toLong()) {
+        list3.add(i)
+    }
+    if (list3 != listOf<Long>(10, 8, 6, 4, 2)) return "Wrong elements for long progression: $list3"
+
+    val list4 = ArrayList<Int>()
+    for (i in list1.indices) {
+        list4.add(i)
+    }
+    if (list4 != listOf(0, 1, 2)) return "Wrong elements for list1.indices: $list4"
+
+    val list5 = ArrayList<Int>()
+    for (i in array("a", "b").indices.reversed()) {
+        list5.add(i)
+    }
+    if (list5 != listOf(1, 0)) return "Wrong elements for array indices: $list5"
+
+    for (i in 0.indices) {
+        return "0.indices should be empty"
+    }
+
+    for (i in log("a", 5) downTo log("b", 1) step log("c", 2)) {
+    }
+    if (evaluated != "abc") return "Wrong evaluation order: $evaluated"
+
+    try {
+        for (i in 0..10 step 0) {
+        }
+        return "step 0 should throw an exception"
+    }
+    catch (e: IllegalArgumentException) {
+        if (e.getMessage() != "Step must be positive, was: 0") return "Wrong message: ${e.getMessage()}"
+    }
+
+    return "OK"
+}
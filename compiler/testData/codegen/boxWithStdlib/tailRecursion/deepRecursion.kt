@@ -0,0 +1,23 @@
+tailRecursive fun sum(n: Int, acc: Long): Long = if (n == 0) acc else sum(n - 1, acc + n)
+
+tailRecursive fun countDown(n: Int, log: StringBuilder) {
+    if (n < 0) return
+    log.append(n)
+    countDown(n - 1, log)
+}
+
+tailRecursive fun down(n: Int, acc: Int = 0): Int = if (n == 0) acc else down(n - 1, acc + 1)
+
+fun box(): String {
+    val s = sum(1000000, 0)
+    if (s != 500000500000) return "Fail sum: $s"
+
+    val log = StringBuilder()
+    countDown(3, log)
+    if (log.toString() != "3210") return "Fail countDown: $log"
+
+    val d = down(1000000)
+    if (d != 1000000) return "Fail down: $d"
+
+    return "OK"
+}
@@ -0,0 +1,41 @@
+class Counter(val step: Int) {
+    tailRecursive fun count(from: Int, to: Int, steps: Int): Int =
+            if (from >= to) steps else this.count(from + step, to, steps + 1)
+
+    tailRecursive fun countImplicit(from: Int, to: Int, steps: Int): Int {
+        if (from >= to) return steps
+        return countImplicit(from + step, to, steps + 1)
+    }
+}
+
+object Finder {
+    tailRecursive fun indexOf(list: List<Int>, target: Int, index: Int): Int? =
+            when {
+                index == list.size() -> null
+                list[index] == target -> index
+                else -> indexOf(list, target, index + 1)
+            }
+}
+
+tailRecursive fun Int.gcd(other: Int): Int = if (other == 0) this else other.gcd(this % other)
+
+tailRecursive fun Long.countDigits(acc: Int): Int = if (this < 10) acc + 1 else (this / 10).countDigits(acc + 1)
+
+tailRecursive fun firstNonNull(values: Array<String?>, index: Int): String =
+        values[index] ?: firstNonNull(values, index + 1)
+
+fun box(): String {
+    if (Counter(1).count(0, 1000000, 0) != 1000000) return "Fail count"
+    if (Counter(3).countImplicit(0, 3000000, 0) != 1000000) return "Fail countImplicit"
+
+    val list = (0..99999).toList()
+    if (Finder.indexOf(list, 99999, 0) != 99999) return "Fail indexOf"
+    if (Finder.indexOf(list, -1, 0) != null) return "Fail indexOf null"
+
+    if (1071.gcd(462) != 21) return "Fail gcd"
+    if (1234567890123.countDigits(0) != 13) return "Fail countDigits"
+
+    val values = arrayOfNulls<String>(100001)
+    values[100000] = "OK"
+    return firstNonNull(values, 0)
+}
@@ -0,0 +1,7 @@
+fun foo(): Long {
+    val x: Any = 42.toLong()
+    return (x as Long) * 2
+}
+
+// 0 valueOf
+// 0 longValue
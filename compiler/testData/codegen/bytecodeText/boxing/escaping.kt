@@ -0,0 +1,15 @@
+fun returned(): Any {
+    val x: Int? = 1
+    return x!!
+}
+
+fun passed(list: java.util.ArrayList<Int>) {
+    list.add(1)
+}
+
+fun comparedByReference(x: Int): Boolean {
+    val a: Any = x
+    return a identityEquals x
+}
+
+// 4 valueOf
@@ -0,0 +1,7 @@
+fun foo(): Int {
+    val x: Int? = 42
+    return x!! + 1
+}
+
+// 0 valueOf
+// 0 intValue
@@ -0,0 +1,7 @@
+fun foo(b: Boolean): Int {
+    val x: Int? = if (b) 1 else 2
+    return x!!
+}
+
+// 0 valueOf
+// 0 intValue
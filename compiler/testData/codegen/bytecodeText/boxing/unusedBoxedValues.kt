@@ -0,0 +1,6 @@
+fun foo() {
+    val x: Any = 1
+    val y: Number = 2.0
+}
+
+// 0 valueOf
@@ -0,0 +1,14 @@
+val MASK = 0xFF shl 8
+
+fun bits() = MASK or (1 shl 4) or 3
+
+fun text() = "Size: ${2 * 1024} " + 'b'
+
+fun isPositive() = -1 < 0 && 1 + 1 == 2
+
+// 1 LDC 65299
+// 1 LDC "Size: 2048 b"
+// 0 ISHL
+// 0 IOR
+// 0 IMUL
+// 0 NEW java/lang/StringBuilder
@@ -0,0 +1,9 @@
+fun exact() = (1L shl 40) + 1
+
+fun inexact() = 1L shl 60
+
+fun negative() = -(1L shl 53) - 1
+
+// 1 LDC 1099511627777
+// 1 LSHL
+// 1 LSUB
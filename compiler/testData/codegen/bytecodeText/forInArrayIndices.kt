@@ -0,0 +1,14 @@
+fun foo(a: IntArray): Int {
+    var result = 0
+    for (i in a.indices) {
+        result += a[i]
+    }
+    for (i in a.indices.reversed()) {
+        result += a[i]
+    }
+    return result
+}
+
+// 0 NEW
+// 0 arrayIndices
+// 0 getStart
@@ -0,0 +1,11 @@
+fun foo(i: Int, l: Long, c: Char, d: Double): Boolean {
+    if (i in 1..10 && l in 1L..10L && c !in 'a'..'z' && d in 0.0..1.0) return true
+    return when (i) {
+        in 20..30 -> true
+        !in 0.rangeTo(100) -> true
+        else -> false
+    }
+}
+
+// 0 NEW
+// 0 contains
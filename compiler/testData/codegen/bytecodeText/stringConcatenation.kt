@@ -0,0 +1,7 @@
+fun log(level: Int, message: String, count: Long) = "[" + level + "] " + message + ": ${"count=" + count}" + '!'
+
+// 1 NEW java/lang/StringBuilder
+// 1 BIPUSH 28
+// 1 LDC "] "
+// 1 LDC ": count="
+// 1 LDC "!"
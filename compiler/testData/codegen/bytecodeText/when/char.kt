@@ -0,0 +1,8 @@
+fun foo(c: Char): Int {
+    return when (c) {
+        'a', 'e', 'i', 'o', 'u' -> 1
+        else -> 0
+    }
+}
+
+// 1 SWITCH
@@ -0,0 +1,12 @@
+fun foo(x: Int): String {
+    return when (x) {
+        1 -> "one"
+        2, 3 -> "two or three"
+        5 -> "five"
+        else -> "other"
+    }
+}
+
+// 1 TABLESWITCH
+// 0 LOOKUPSWITCH
+// 0 IF_ICMPNE
@@ -0,0 +1,16 @@
+enum class Season {
+    WINTER
+    SPRING
+    SUMMER
+    AUTUMN
+}
+
+fun foo(s: Season): Boolean {
+    return when (s) {
+        Season.WINTER, Season.AUTUMN -> false
+        Season.SPRING, Season.SUMMER -> true
+    }
+}
+
+// 1 INVOKEVIRTUAL Season.ordinal
+// 1 TABLESWITCH
@@ -0,0 +1,9 @@
+fun foo(x: Int, y: Int): String {
+    return when (x) {
+        1 -> "one"
+        y -> "y"
+        else -> "other"
+    }
+}
+
+// 0 SWITCH
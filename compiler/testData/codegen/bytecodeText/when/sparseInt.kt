@@ -0,0 +1,11 @@
+fun foo(x: Int): String {
+    return when (x) {
+        -1000 -> "small"
+        0 -> "zero"
+        1000000 -> "big"
+        else -> "other"
+    }
+}
+
+// 0 TABLESWITCH
+// 1 LOOKUPSWITCH
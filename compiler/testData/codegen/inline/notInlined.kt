@@ -0,0 +1,14 @@
+fun box(): String {
+    // The call is inlined, but the literal is not an argument of the call and becomes a closure as usual
+    val predicate: (Int) -> Boolean = { it > 1 }
+    val list = arrayListOf(1, 2, 3)
+    if (list.count(predicate) != 2) return "Fail count"
+
+    // Literals declaring functions are not copied to the caller
+    var result = ""
+    list.forEach {
+        fun twice(x: Int) = x * 2
+        result += twice(it)
+    }
+    return if (result == "246") "OK" else "Fail: $result"
+}
@@ -0,0 +1,16 @@
+fun sum(list: List<Int>): Int {
+    var result = 0
+    list.forEach { result += it }
+    return result
+}
+
+fun box(): String {
+    val list = arrayListOf(1, 2, 3)
+    if (sum(list) != 6) return "Fail sum"
+    if (list.count { it > 1 } != 2) return "Fail count"
+    if (list.fold(10) { acc, x -> acc + x } != 16) return "Fail fold"
+    if (!list.any { it == 3 }) return "Fail any"
+
+    val strings = arrayListOf("O", "K")
+    return strings.fold("") { acc, s -> acc + s }
+}
@@ -0,0 +1,48 @@
+// FILE: tailRecursive.kt
+package kotlin
+
+public annotation class tailRecursive
+
+// FILE: test.kt
+import kotlin.tailRecursive
+
+tailRecursive fun expressionBody(n: Int): Int = if (n == 0) 0 else expressionBody(n - 1)
+
+tailRecursive fun mixed(n: Int): Int {
+    if (n < 0) return <!NON_TAIL_RECURSIVE_CALL!>mixed<!>(-n) + 1
+    return if (n == 0) 0 else mixed(n - 1)
+}
+
+tailRecursive fun unitBody(n: Int) {
+    if (n > 0) {
+        unitBody(n - 1)
+    }
+}
+
+tailRecursive fun elvisAndWhen(n: Int, s: String?): String = when (n) {
+    0 -> s ?: elvisAndWhen(1, "")
+    else -> elvisAndWhen(n - 1, s)
+}
+
+tailRecursive fun <!NO_TAIL_CALLS_FOUND!>noTailCalls<!>(n: Int): Int = if (n == 0) 0 else 1 + <!NON_TAIL_RECURSIVE_CALL!>noTailCalls<!>(n - 1)
+
+tailRecursive fun <!NO_TAIL_CALLS_FOUND!>inLambda<!>(n: Int): Int {
+    val f = { <!NON_TAIL_RECURSIVE_CALL!>inLambda<!>(n - 1) }
+    return f()
+}
+
+tailRecursive fun <!NO_TAIL_CALLS_FOUND!>inTry<!>(n: Int): Int {
+    try {
+        return <!TAIL_RECURSION_IN_TRY_IS_NOT_SUPPORTED!>inTry<!>(n - 1)
+    }
+    finally {
+    }
+}
+
+open class A {
+    tailRecursive open fun <!TAIL_RECURSION_ON_OPEN_MEMBER!>foo<!>(n: Int): Int = if (n == 0) 0 else foo(n - 1)
+
+    tailRecursive fun bar(n: Int): Int = if (n == 0) 0 else bar(n - 1)
+
+    tailRecursive fun <!NO_TAIL_CALLS_FOUND!>onOtherInstance<!>(a: A, n: Int): Int = if (n == 0) 0 else a.<!NON_TAIL_RECURSIVE_CALL!>onOtherInstance<!>(this, n - 1)
+}
@@ -1529,6 +1529,11 @@ public class JetDiagnosticsTestGenerated extends AbstractDiagnosticsTestWithEage
                 doTest("compiler/testData/diagnostics/tests/controlFlowAnalysis/repeatUnitializedErrorOnlyForLocalVars.kt");
             }
             
+            @TestMetadata("tailRecursion.kt")
+            public void testTailRecursion() throws Exception {
+                doTest("compiler/testData/diagnostics/tests/controlFlowAnalysis/tailRecursion.kt");
+            }
+            
             @TestMetadata("uninitializedInLocalDeclarations.kt")
             public void testUninitializedInLocalDeclarations() throws Exception {
                 doTest("compiler/testData/diagnostics/tests/controlFlowAnalysis/uninitializedInLocalDeclarations.kt");
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.jvm.compiler.LoadDescriptorUtil;
+import org.jetbrains.jet.lang.resolve.java.JvmAnnotationNames;
+import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+import org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass;
+import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileFinder;
+import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileKotlinClass;
+import org.jetbrains.jet.lang.resolve.kotlin.header.KotlinClassHeader;
+import org.jetbrains.jet.lang.resolve.kotlin.header.SerializedDataHeader;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.test.TestCaseWithTmpdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CliVirtualFileFinderTest extends TestCaseWithTmpdir {
+    private static final FqName CLASS_NAME = new FqName("test.Ramification");
+
+    @NotNull
+    private VirtualFileFinder compileAndCreateFinder() throws IOException {
+        LoadDescriptorUtil.compileKotlinToDirAndGetAnalyzeExhaust(new File("compiler/testData/loadKotlin/class/Class.kt"), tmpdir,
+                                                                  getTestRootDisposable(), ConfigurationKind.JDK_ONLY);
+        CompilerConfiguration configuration = JetTestUtils.compilerConfigurationForTests(
+                ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK, tmpdir);
+        JetCoreEnvironment environment = JetCoreEnvironment.createForTests(getTestRootDisposable(), configuration);
+        return ServiceManager.getService(environment.getProject(), VirtualFileFinder.class);
+    }
+
+    public void testKotlinClassIsCached() throws Exception {
+        VirtualFileFinder finder = compileAndCreateFinder();
+
+        KotlinJvmBinaryClass kotlinClass = finder.findKotlinClass(CLASS_NAME);
+        assertNotNull(kotlinClass);
+        assertSame(kotlinClass, finder.findKotlinClass(CLASS_NAME));
+
+        // A new instance reads the same name and header from the file
+        VirtualFileKotlinClass uncached = new VirtualFileKotlinClass(((VirtualFileKotlinClass) kotlinClass).getFile());
+        assertEquals(uncached.getClassName(), kotlinClass.getClassName());
+        KotlinClassHeader header = kotlinClass.getClassHeader();
+        KotlinClassHeader uncachedHeader = uncached.getClassHeader();
+        assertInstanceOf(header, SerializedDataHeader.class);
+        assertInstanceOf(uncachedHeader, SerializedDataHeader.class);
+        assertTrue(Arrays.equals(((SerializedDataHeader) uncachedHeader).getData(), ((SerializedDataHeader) header).getData()));
+    }
+
+    public void testNonKotlinClassIsNotFound() throws Exception {
+        VirtualFileFinder finder = compileAndCreateFinder();
+        FqName javaClass = new FqName("java.lang.Object");
+        assertNull(finder.findKotlinClass(javaClass));
+        assertNull(finder.findKotlinClass(javaClass));
+    }
+
+    public void testClassFileContentsAreNotRetained() throws Exception {
+        VirtualFileFinder finder = compileAndCreateFinder();
+        KotlinJvmBinaryClass kotlinClass = finder.findKotlinClass(CLASS_NAME);
+        assertNotNull(kotlinClass);
+        assertNotNull(kotlinClass.getClassHeader());
+
+        // Members are loaded from the file itself, not from a copy of its contents kept since the header was read
+        FileUtil.writeToFile(new File(tmpdir, "test/Ramification.class"), new byte[0]);
+        try {
+            kotlinClass.loadMemberAnnotations(new KotlinJvmBinaryClass.MemberVisitor() {
+                @Override
+                public KotlinJvmBinaryClass.MethodAnnotationVisitor visitMethod(@NotNull Name name, @NotNull String desc) {
+                    return null;
+                }
+
+                @Override
+                public KotlinJvmBinaryClass.AnnotationVisitor visitField(@NotNull Name name, @NotNull String desc) {
+                    return null;
+                }
+            });
+            fail("The truncated class file should have been read");
+        }
+        catch (RuntimeException expected) {
+        }
+    }
+
+    public void testAnnotationsAreReadOnce() throws Exception {
+        VirtualFileFinder finder = compileAndCreateFinder();
+        KotlinJvmBinaryClass kotlinClass = finder.findKotlinClass(CLASS_NAME);
+        assertNotNull(kotlinClass);
+        assertNotNull(kotlinClass.getClassHeader());
+
+        // Class annotations were recorded while reading the header, member annotations are recorded on the first request
+        List<String> memberAnnotations = loadMemberAnnotations(kotlinClass);
+        FileUtil.writeToFile(new File(tmpdir, "test/Ramification.class"), new byte[0]);
+
+        List<String> classAnnotations = loadClassAnnotations(kotlinClass);
+        String kotlinClassAnnotation = JvmClassName.byFqNameWithoutInnerClasses(JvmAnnotationNames.KOTLIN_CLASS).getInternalName();
+        assertTrue(classAnnotations.toString(), classAnnotations.contains(kotlinClassAnnotation));
+        assertEquals(memberAnnotations, loadMemberAnnotations(kotlinClass));
+    }
+
+    @NotNull
+    private static List<String> loadClassAnnotations(@NotNull KotlinJvmBinaryClass kotlinClass) {
+        List<String> result = new ArrayList<String>();
+        kotlinClass.loadClassAnnotations(new AnnotationRecorder("", result));
+        return result;
+    }
+
+    @NotNull
+    private static List<String> loadMemberAnnotations(@NotNull KotlinJvmBinaryClass kotlinClass) {
+        final List<String> result = new ArrayList<String>();
+        kotlinClass.loadMemberAnnotations(new KotlinJvmBinaryClass.MemberVisitor() {
+            @Override
+            public KotlinJvmBinaryClass.MethodAnnotationVisitor visitMethod(@NotNull Name name, @NotNull String desc) {
+                return new AnnotationRecorder(name + desc + ": ", result);
+            }
+
+            @Override
+            public KotlinJvmBinaryClass.AnnotationVisitor visitField(@NotNull Name name, @NotNull String desc) {
+                return new AnnotationRecorder(name + " " + desc + ": ", result);
+            }
+        });
+        return result;
+    }
+
+    private static class AnnotationRecorder implements KotlinJvmBinaryClass.MethodAnnotationVisitor {
+        private final String prefix;
+        private final List<String> result;
+
+        private AnnotationRecorder(@NotNull String prefix, @NotNull List<String> result) {
+            this.prefix = prefix;
+            this.result = result;
+        }
+
+        @Override
+        public KotlinJvmBinaryClass.AnnotationArgumentVisitor visitAnnotation(@NotNull JvmClassName className) {
+            result.add(prefix + className.getInternalName());
+            return null;
+        }
+
+        @Override
+        public KotlinJvmBinaryClass.AnnotationArgumentVisitor visitParameterAnnotation(int index, @NotNull JvmClassName className) {
+            result.add(prefix + index + " " + className.getInternalName());
+            return null;
+        }
+
+        @Override
+        public void visitEnd() {
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.test.TestCaseWithTmpdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ExternalAnnotationsIndexTest extends TestCaseWithTmpdir {
+    private static final String ANNOTATIONS =
+            "<root>\n" +
+            "  <item name=\"foo.Bar java.lang.String baz(int)\">\n" +
+            "    <annotation name=\"org.jetbrains.annotations.NotNull\"/>\n" +
+            "    <annotation name=\"jet.runtime.typeinfo.KotlinSignature\">\n" +
+            "      <val name=\"value\" val=\"&quot;fun baz(i: Int): String&quot;\"/>\n" +
+            "    </annotation>\n" +
+            "  </item>\n" +
+            "  <item name=\"foo.Bar java.lang.String baz(int) 0\">\n" +
+            "    <annotation name=\"org.jetbrains.annotations.Nullable\"/>\n" +
+            "  </item>\n" +
+            "</root>\n";
+
+    private File cacheDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // Registers the local file system
+        JetCoreEnvironment.createForTests(
+                getTestRootDisposable(), JetTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK));
+        cacheDirectory = new File(tmpdir, "cache");
+    }
+
+    public void testParse() throws IOException {
+        ExternalAnnotationsIndex index = ExternalAnnotationsIndex.load(createRoot("root", ANNOTATIONS), null);
+        checkAnnotations(index);
+        assertFalse(cacheDirectory.exists());
+    }
+
+    public void testSavedIndexIsReused() throws IOException {
+        VirtualFile root = createRoot("root", ANNOTATIONS);
+        checkAnnotations(ExternalAnnotationsIndex.load(root, cacheDirectory));
+        File cacheFile = getSingleCacheFile();
+
+        // The saved index is read instead of XML, so it should be used even if the XML file is broken in a way not affecting its state
+        File xml = new File(tmpdir, "root/foo/annotations.xml");
+        long timeStamp = xml.lastModified();
+        FileUtil.writeToFile(xml, ANNOTATIONS.replace('<', ' '));
+        assertTrue(xml.setLastModified(timeStamp));
+
+        checkAnnotations(ExternalAnnotationsIndex.load(root, cacheDirectory));
+        assertEquals(cacheFile, getSingleCacheFile());
+    }
+
+    public void testChangedRootIsReindexed() throws IOException {
+        VirtualFile root = createRoot("root", ANNOTATIONS);
+        checkAnnotations(ExternalAnnotationsIndex.load(root, cacheDirectory));
+
+        FileUtil.writeToFile(new File(tmpdir, "root/foo/annotations.xml"), "<root/>\n");
+
+        ExternalAnnotationsIndex index = ExternalAnnotationsIndex.load(root, cacheDirectory);
+        assertEquals(0, index.size());
+        // The index of the previous state is deleted
+        getSingleCacheFile();
+    }
+
+    public void testMalformedFileIsSkipped() throws IOException {
+        // Unclosed root element: annotations read before the error should be skipped too
+        FileUtil.writeToFile(new File(tmpdir, "root/broken/annotations.xml"),
+                             "<root><item name=\"foo.Bar void qux()\"><annotation name=\"foo.Baz\"/></item>");
+        VirtualFile root = createRoot("root", ANNOTATIONS);
+
+        checkAnnotations(ExternalAnnotationsIndex.load(root, cacheDirectory));
+        // Not saved, so that the broken file is reported again on the next run
+        assertTrue(listCacheFiles().isEmpty());
+    }
+
+    public void testCorruptedIndexIsRebuilt() throws IOException {
+        VirtualFile root = createRoot("root", ANNOTATIONS);
+        ExternalAnnotationsIndex.load(root, cacheDirectory);
+        File cacheFile = getSingleCacheFile();
+
+        byte[] bytes = FileUtil.loadFileBytes(cacheFile);
+        for (int i = 0; i < bytes.length; i += 3) {
+            bytes[i] = (byte) 0xFF;
+        }
+        FileUtil.writeToFile(cacheFile, bytes);
+        checkAnnotations(ExternalAnnotationsIndex.load(root, cacheDirectory));
+
+        FileUtil.writeToFile(cacheFile, Arrays.copyOf(FileUtil.loadFileBytes(cacheFile), 20));
+        checkAnnotations(ExternalAnnotationsIndex.load(root, cacheDirectory));
+    }
+
+    public void testIndexOfAnotherRootIsNotUsed() throws IOException {
+        VirtualFile root = createRoot("root", ANNOTATIONS);
+        ExternalAnnotationsIndex.load(root, cacheDirectory);
+        File cacheFile = getSingleCacheFile();
+
+        VirtualFile otherRoot = createRoot("other", "<root/>\n");
+        ExternalAnnotationsIndex.load(otherRoot, cacheDirectory);
+        File otherCacheFile = null;
+        for (File file : listCacheFiles()) {
+            if (!file.equals(cacheFile)) otherCacheFile = file;
+        }
+        assertNotNull(otherCacheFile);
+
+        // A valid index with the expected name, but written for another root
+        FileUtil.copy(otherCacheFile, cacheFile);
+        checkAnnotations(ExternalAnnotationsIndex.load(root, cacheDirectory));
+    }
+
+    @NotNull
+    private VirtualFile createRoot(@NotNull String name, @NotNull String annotationsXml) throws IOException {
+        File directory = new File(tmpdir, name);
+        FileUtil.writeToFile(new File(directory, "foo/annotations.xml"), annotationsXml);
+        VirtualFile root =
+                VirtualFileManager.getInstance().findFileByUrl("file://" + FileUtil.toSystemIndependentName(directory.getAbsolutePath()));
+        assertNotNull(root);
+        return root;
+    }
+
+    private static void checkAnnotations(@NotNull ExternalAnnotationsIndex index) {
+        assertEquals(2, index.size());
+        assertEquals("[@org.jetbrains.annotations.NotNull, @jet.runtime.typeinfo.KotlinSignature(value=\"fun baz(i: Int): String\")]",
+                     index.get("foo.Bar java.lang.String baz(int)").toString());
+        assertEquals("[@org.jetbrains.annotations.Nullable]", index.get("foo.Bar java.lang.String baz(int) 0").toString());
+        assertTrue(index.get("foo.Bar void qux()").isEmpty());
+    }
+
+    @NotNull
+    private File getSingleCacheFile() {
+        List<File> files = listCacheFiles();
+        assertEquals(files.toString(), 1, files.size());
+        return files.get(0);
+    }
+
+    @NotNull
+    private List<File> listCacheFiles() {
+        List<File> result = new ArrayList<File>();
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(".index")) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.jet.codegen.forTestCompile.ForTestCompileRuntime;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static junit.framework.Assert.*;
+
+public class MappedJarFileTest {
+    private static final String ENTRY_NAME = "foo/Bar.class";
+
+    @Test
+    public void testRuntimeJarContentsMatchZipFile() throws IOException {
+        File jar = ForTestCompileRuntime.runtimeJarForTests();
+        MappedJarFile mappedJar = MappedJarFile.open(jar);
+        assertNotNull("Runtime jar should be mappable: " + jar, mappedJar);
+
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            int classes = 0;
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (entry.isDirectory()) {
+                    assertTrue(name, mappedJar.hasDirectory(name.substring(0, name.length() - 1)));
+                    continue;
+                }
+
+                assertTrue(name, mappedJar.hasEntry(name));
+                InputStream stream = zipFile.getInputStream(entry);
+                try {
+                    assertTrue(name, Arrays.equals(FileUtil.loadBytes(stream), mappedJar.readEntry(name)));
+                }
+                finally {
+                    stream.close();
+                }
+                if (name.endsWith(".class")) classes++;
+            }
+            assertTrue("No classes in " + jar, classes > 0);
+        }
+        finally {
+            zipFile.close();
+        }
+
+        assertTrue(mappedJar.hasDirectory("jet"));
+        assertFalse(mappedJar.hasEntry("jet/NoSuchClass.class"));
+        assertNull(mappedJar.readEntry("jet/NoSuchClass.class"));
+    }
+
+    @Test
+    public void testClosedJarIsNotRead() throws IOException {
+        File jar = ForTestCompileRuntime.runtimeJarForTests();
+        MappedJarFile mappedJar = MappedJarFile.open(jar);
+        assertNotNull(mappedJar);
+
+        String entryName = null;
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements() && entryName == null; ) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    entryName = entry.getName();
+                }
+            }
+        }
+        finally {
+            zipFile.close();
+        }
+        assertNotNull(entryName);
+        assertNotNull(mappedJar.readEntry(entryName));
+
+        mappedJar.close();
+        mappedJar.close();
+
+        // The index is still available, but the unmapped contents are not
+        assertTrue(mappedJar.hasEntry(entryName));
+        try {
+            mappedJar.readEntry(entryName);
+            fail("Entry was read after the jar was closed");
+        }
+        catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testCorruptedCentralDirectory() throws IOException {
+        byte[] jar = createJar();
+        int centralHeader = findCentralHeader(jar);
+        // Name, extra field and comment lengths, local header offset and compressed size
+        for (int field : new int[] {28, 30, 32, 42, 20}) {
+            File corrupted = writeCorrupted(jar, centralHeader + field);
+            try {
+                MappedJarFile.open(corrupted);
+                fail("Corrupted field at " + field + " of the central header was not detected");
+            }
+            catch (ZipException expected) {
+            }
+            finally {
+                FileUtil.delete(corrupted);
+            }
+        }
+    }
+
+    @Test
+    public void testCorruptedLocalHeader() throws IOException {
+        // Extra field length
+        File corrupted = writeCorrupted(createJar(), 28);
+        MappedJarFile mappedJar = MappedJarFile.open(corrupted);
+        assertNotNull(mappedJar);
+        try {
+            mappedJar.readEntry(ENTRY_NAME);
+            fail("Corrupted local header was not detected");
+        }
+        catch (ZipException expected) {
+        }
+        finally {
+            mappedJar.close();
+            FileUtil.delete(corrupted);
+        }
+    }
+
+    private static byte[] createJar() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream output = new ZipOutputStream(bytes);
+        output.putNextEntry(new ZipEntry(ENTRY_NAME));
+        output.write(new byte[1000]);
+        output.closeEntry();
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private static int findCentralHeader(byte[] jar) {
+        for (int i = 0; i + 4 <= jar.length; i++) {
+            if (jar[i] == 0x50 && jar[i + 1] == 0x4b && jar[i + 2] == 0x01 && jar[i + 3] == 0x02) return i;
+        }
+        throw new AssertionError("No central directory");
+    }
+
+    private static File writeCorrupted(byte[] jar, int offset) throws IOException {
+        byte[] corrupted = jar.clone();
+        corrupted[offset] = (byte) 0xFF;
+        corrupted[offset + 1] = (byte) 0xFF;
+        File file = FileUtil.createTempFile("corrupted", ".jar");
+        FileUtil.writeToFile(file, corrupted);
+        return file;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.cli.common.CLIConfigurationKeys;
+import org.jetbrains.jet.cli.common.messages.MessageCollector;
+import org.jetbrains.jet.config.CommonConfigurationKeys;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.test.TestCaseWithTmpdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+public class OutputSinkTest extends TestCaseWithTmpdir {
+    private static final byte[] BYTES = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+    private static final byte[] NEW_BYTES = {(byte) 0xCA, (byte) 0xFE, (byte) 0xD0, (byte) 0x0D};
+
+    public void testAbortLeavesNoJar() {
+        File jar = new File(tmpdir, "out.jar");
+        CompileEnvironmentUtil.OutputSink sink = createJarSink(jar);
+        sink.write("test/A.class", Collections.<File>emptyList(), BYTES);
+        assertFalse(jar.exists());
+
+        sink.abort();
+        assertFalse(jar.exists());
+        assertNoTemporaryFiles(tmpdir);
+    }
+
+    public void testAbortKeepsExistingJar() throws IOException {
+        File jar = new File(tmpdir, "out.jar");
+        FileUtil.writeToFile(jar, BYTES);
+
+        CompileEnvironmentUtil.OutputSink sink = createJarSink(jar);
+        sink.write("test/A.class", Collections.<File>emptyList(), NEW_BYTES);
+        assertTrue(Arrays.equals(BYTES, FileUtil.loadFileBytes(jar)));
+
+        sink.abort();
+        assertTrue(Arrays.equals(BYTES, FileUtil.loadFileBytes(jar)));
+        assertNoTemporaryFiles(tmpdir);
+    }
+
+    public void testAbortBeforeFirstWriteKeepsExistingJar() throws IOException {
+        File jar = new File(tmpdir, "out.jar");
+        FileUtil.writeToFile(jar, BYTES);
+
+        createJarSink(jar).abort();
+        assertEquals(BYTES.length, FileUtil.loadFileBytes(jar).length);
+    }
+
+    public void testFinishReplacesExistingJar() throws IOException {
+        File jar = new File(tmpdir, "out.jar");
+        FileUtil.writeToFile(jar, BYTES);
+
+        CompileEnvironmentUtil.OutputSink sink = createJarSink(jar);
+        sink.write("test/A.class", Collections.<File>emptyList(), NEW_BYTES);
+        sink.finish();
+        sink.close();
+
+        JarFile jarFile = new JarFile(jar);
+        try {
+            assertNotNull(jarFile.getEntry("test/A.class"));
+        }
+        finally {
+            jarFile.close();
+        }
+        assertNoTemporaryFiles(tmpdir);
+    }
+
+    public void testAbortAfterFinishKeepsJar() {
+        File jar = new File(tmpdir, "out.jar");
+        CompileEnvironmentUtil.OutputSink sink = createJarSink(jar);
+        sink.write("test/A.class", Collections.<File>emptyList(), BYTES);
+        sink.finish();
+        sink.close();
+
+        sink.abort();
+        assertTrue(jar.exists());
+    }
+
+    public void testAbortKeepsPreviousClassFiles() throws IOException {
+        File changed = new File(tmpdir, "test/Changed.class");
+        FileUtil.writeToFile(changed, BYTES);
+
+        CompileEnvironmentUtil.OutputSink sink = createDirectorySink();
+        sink.write("test/Changed.class", Collections.<File>emptyList(), NEW_BYTES);
+        sink.write("test/New.class", Collections.<File>emptyList(), NEW_BYTES);
+        File created = new File(tmpdir, "test/New.class");
+        assertFalse(created.exists());
+        assertTrue(Arrays.equals(BYTES, FileUtil.loadFileBytes(changed)));
+
+        sink.abort();
+        assertFalse(created.exists());
+        assertTrue(Arrays.equals(BYTES, FileUtil.loadFileBytes(changed)));
+        assertNoTemporaryFiles(tmpdir);
+    }
+
+    public void testFinishMovesClassFilesIntoPlace() throws IOException {
+        File changed = new File(tmpdir, "test/Changed.class");
+        FileUtil.writeToFile(changed, BYTES);
+        File unchanged = new File(tmpdir, "test/Unchanged.class");
+        FileUtil.writeToFile(unchanged, BYTES);
+        long unchangedTimestamp = unchanged.lastModified();
+
+        CompileEnvironmentUtil.OutputSink sink = createDirectorySink();
+        sink.write("test/Changed.class", Collections.<File>emptyList(), NEW_BYTES);
+        sink.write("test/Unchanged.class", Collections.<File>emptyList(), BYTES);
+        sink.write("test/New.class", Collections.<File>emptyList(), NEW_BYTES);
+        sink.finish();
+        sink.close();
+
+        assertTrue(Arrays.equals(NEW_BYTES, FileUtil.loadFileBytes(changed)));
+        assertTrue(Arrays.equals(NEW_BYTES, FileUtil.loadFileBytes(new File(tmpdir, "test/New.class"))));
+        assertEquals(unchangedTimestamp, unchanged.lastModified());
+        assertNoTemporaryFiles(tmpdir);
+    }
+
+    public void testCompilationErrorLeavesNoJar() throws IOException {
+        File source = new File(tmpdir, "error.kt");
+        FileUtil.writeToFile(source, "package test\n\nclass A\n\nfun foo(): Int = \"\"\n");
+        File jar = new File(tmpdir, "out.jar");
+
+        CompilerConfiguration configuration = JetTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK);
+        configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, MessageCollector.NONE);
+        configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, source.getPath());
+        JetCoreEnvironment environment = JetCoreEnvironment.createForTests(getTestRootDisposable(), configuration);
+
+        assertFalse(KotlinToJVMBytecodeCompiler.compileBunchOfSources(environment, jar, null, false));
+        assertFalse(jar.exists());
+    }
+
+    @NotNull
+    private CompileEnvironmentUtil.OutputSink createDirectorySink() {
+        CompileEnvironmentUtil.OutputSink sink = CompileEnvironmentUtil.createOutputSink(
+                null, CompileEnvironmentUtil.singleDirectory(tmpdir), false, null, true, MessageCollector.NONE);
+        assertNotNull(sink);
+        return sink;
+    }
+
+    private static void assertNoTemporaryFiles(@NotNull File directory) {
+        for (File file : FileUtil.findFilesByMask(Pattern.compile(".*\\.tmp"), directory)) {
+            fail("Temporary file is left: " + file);
+        }
+    }
+
+    @NotNull
+    private static CompileEnvironmentUtil.OutputSink createJarSink(@NotNull File jar) {
+        CompileEnvironmentUtil.OutputSink sink = CompileEnvironmentUtil.createOutputSink(jar, null, false, null, true, MessageCollector.NONE);
+        assertNotNull(sink);
+        return sink;
+    }
+}
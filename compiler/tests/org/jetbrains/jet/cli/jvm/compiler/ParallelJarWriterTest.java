@@ -0,0 +1,168 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.cli.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.jet.codegen.forTestCompile.ForTestCompileRuntime;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import static junit.framework.Assert.*;
+
+public class ParallelJarWriterTest {
+    @Test
+    public void testCompressed() throws IOException {
+        doTestCopyRuntime(true);
+    }
+
+    @Test
+    public void testUncompressed() throws IOException {
+        doTestCopyRuntime(false);
+    }
+
+    @Test
+    public void testZip64Entries() throws IOException {
+        doTestManyEntries(false);
+    }
+
+    @Test
+    public void testZip64EntriesCompressed() throws IOException {
+        doTestManyEntries(true);
+    }
+
+    @Test(expected = ZipException.class)
+    public void testTooLongName() throws IOException {
+        File jar = FileUtil.createTempFile("tooLongName", ".jar", true);
+        ParallelJarWriter writer = new ParallelJarWriter(jar, new Manifest(), false);
+        try {
+            writer.addEntry(StringUtil.repeat("a", 0x10000), new byte[0]);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private static void doTestCopyRuntime(boolean compress) throws IOException {
+        Map<String, byte[]> contents = loadContents(ForTestCompileRuntime.runtimeJarForTests());
+        assertFalse(contents.isEmpty());
+
+        File jar = FileUtil.createTempFile("parallelJarWriter", ".jar", true);
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+        manifest.getMainAttributes().putValue("Main-Class", "foo.FooPackage");
+
+        ParallelJarWriter writer = new ParallelJarWriter(jar, manifest, compress);
+        try {
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                writer.addEntry(entry.getKey(), entry.getValue());
+            }
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+
+        JarFile jarFile = new JarFile(jar);
+        try {
+            assertEquals("foo.FooPackage", jarFile.getManifest().getMainAttributes().getValue("Main-Class"));
+        }
+        finally {
+            jarFile.close();
+        }
+
+        Map<String, byte[]> written = loadContents(jar);
+        written.remove(JarFile.MANIFEST_NAME);
+        assertEquals(new ArrayList<String>(contents.keySet()), new ArrayList<String>(written.keySet()));
+        for (String name : contents.keySet()) {
+            assertTrue(name, Arrays.equals(contents.get(name), written.get(name)));
+        }
+
+        MappedJarFile mappedJar = MappedJarFile.open(jar);
+        assertNotNull("Written jar should be mappable", mappedJar);
+        for (String name : contents.keySet()) {
+            assertTrue(name, Arrays.equals(contents.get(name), mappedJar.readEntry(name)));
+        }
+    }
+
+    private static void doTestManyEntries(boolean compress) throws IOException {
+        // More entries than the end of central directory record can hold, so ZIP64 records are required
+        int count = 0x10000 + 10;
+        File jar = FileUtil.createTempFile("manyEntries", ".jar", true);
+        ParallelJarWriter writer = new ParallelJarWriter(jar, new Manifest(), compress);
+        try {
+            for (int i = 0; i < count; i++) {
+                writer.addEntry("e" + i, ("entry " + i).getBytes());
+            }
+            writer.finish();
+        }
+        finally {
+            writer.close();
+        }
+
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            // The manifest is the first entry
+            assertEquals(count + 1, zipFile.size());
+            ZipEntry last = zipFile.getEntry("e" + (count - 1));
+            assertNotNull(last);
+            InputStream stream = zipFile.getInputStream(last);
+            try {
+                assertEquals("entry " + (count - 1), new String(FileUtil.loadBytes(stream)));
+            }
+            finally {
+                stream.close();
+            }
+        }
+        finally {
+            zipFile.close();
+        }
+
+        assertNull("ZIP64 jars are not mapped", MappedJarFile.open(jar));
+    }
+
+    private static Map<String, byte[]> loadContents(File jar) throws IOException {
+        Map<String, byte[]> result = new LinkedHashMap<String, byte[]>();
+        ZipFile zipFile = new ZipFile(jar);
+        try {
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) continue;
+                InputStream stream = zipFile.getInputStream(entry);
+                try {
+                    result.put(entry.getName(), FileUtil.loadBytes(stream));
+                }
+                finally {
+                    stream.close();
+                }
+            }
+        }
+        finally {
+            zipFile.close();
+        }
+        return result;
+    }
+}
@@ -31,7 +31,7 @@ import org.jetbrains.jet.codegen.AbstractBytecodeTextTest;
 /** This class is generated by {@link org.jetbrains.jet.generators.tests.GenerateTests}. DO NOT MODIFY MANUALLY */
 @SuppressWarnings("all")
 @TestMetadata("compiler/testData/codegen/bytecodeText")
-@InnerTestClasses({BytecodeTextTestGenerated.DirectInvoke.class, BytecodeTextTestGenerated.Statements.class})
+@InnerTestClasses({BytecodeTextTestGenerated.Boxing.class, BytecodeTextTestGenerated.DirectInvoke.class, BytecodeTextTestGenerated.Statements.class, BytecodeTextTestGenerated.When.class})
 public class BytecodeTextTestGenerated extends AbstractBytecodeTextTest {
     public void testAllFilesPresentInBytecodeText() throws Exception {
         JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/bytecodeText"), Pattern.compile("^(.+)\\.kt$"), true);
@@ -57,6 +57,26 @@ public class BytecodeTextTestGenerated extends AbstractBytecodeTextTest {
         doTest("compiler/testData/codegen/bytecodeText/componentEvaluatesOnlyOnce.kt");
     }
     
+    @TestMetadata("constantFolding.kt")
+    public void testConstantFolding() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/constantFolding.kt");
+    }
+    
+    @TestMetadata("constantFoldingLong.kt")
+    public void testConstantFoldingLong() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/constantFoldingLong.kt");
+    }
+    
+    @TestMetadata("forInArrayIndices.kt")
+    public void testForInArrayIndices() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/forInArrayIndices.kt");
+    }
+    
+    @TestMetadata("inPrimitiveRange.kt")
+    public void testInPrimitiveRange() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/inPrimitiveRange.kt");
+    }
+    
     @TestMetadata("intConstantNotNull.kt")
     public void testIntConstantNotNull() throws Exception {
         doTest("compiler/testData/codegen/bytecodeText/intConstantNotNull.kt");
@@ -97,11 +117,49 @@ public class BytecodeTextTestGenerated extends AbstractBytecodeTextTest {
         doTest("compiler/testData/codegen/bytecodeText/privateDefaultArgs.kt");
     }
     
+    @TestMetadata("stringConcatenation.kt")
+    public void testStringConcatenation() throws Exception {
+        doTest("compiler/testData/codegen/bytecodeText/stringConcatenation.kt");
+    }
+    
     @TestMetadata("topLevelFunWithDefaultArgs.kt")
     public void testTopLevelFunWithDefaultArgs() throws Exception {
         doTest("compiler/testData/codegen/bytecodeText/topLevelFunWithDefaultArgs.kt");
     }
     
+    @TestMetadata("compiler/testData/codegen/bytecodeText/boxing")
+    public static class Boxing extends AbstractBytecodeTextTest {
+        public void testAllFilesPresentInBoxing() throws Exception {
+            JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/bytecodeText/boxing"), Pattern.compile("^(.+)\\.kt$"), true);
+        }
+        
+        @TestMetadata("castFromAny.kt")
+        public void testCastFromAny() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/boxing/castFromAny.kt");
+        }
+        
+        @TestMetadata("escaping.kt")
+        public void testEscaping() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/boxing/escaping.kt");
+        }
+        
+        @TestMetadata("nullableLocal.kt")
+        public void testNullableLocal() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/boxing/nullableLocal.kt");
+        }
+        
+        @TestMetadata("nullableLocalFromIf.kt")
+        public void testNullableLocalFromIf() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/boxing/nullableLocalFromIf.kt");
+        }
+        
+        @TestMetadata("unusedBoxedValues.kt")
+        public void testUnusedBoxedValues() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/boxing/unusedBoxedValues.kt");
+        }
+        
+    }
+    
     @TestMetadata("compiler/testData/codegen/bytecodeText/directInvoke")
     public static class DirectInvoke extends AbstractBytecodeTextTest {
         public void testAllFilesPresentInDirectInvoke() throws Exception {
@@ -163,11 +221,51 @@ public class BytecodeTextTestGenerated extends AbstractBytecodeTextTest {
         
     }
     
+    @TestMetadata("compiler/testData/codegen/bytecodeText/when")
+    public static class When extends AbstractBytecodeTextTest {
+        public void testAllFilesPresentInWhen() throws Exception {
+            JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/bytecodeText/when"), Pattern.compile("^(.+)\\.kt$"), true);
+        }
+        
+        @TestMetadata("char.kt")
+        public void testChar() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/when/char.kt");
+        }
+        
+        @TestMetadata("denseInt.kt")
+        public void testDenseInt() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/when/denseInt.kt");
+        }
+        
+        @TestMetadata("enum.kt")
+        public void testEnum() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/when/enum.kt");
+        }
+        
+        @TestMetadata("nonConstant.kt")
+        public void testNonConstant() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/when/nonConstant.kt");
+        }
+        
+        @TestMetadata("sparseInt.kt")
+        public void testSparseInt() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/when/sparseInt.kt");
+        }
+        
+        @TestMetadata("string.kt")
+        public void testString() throws Exception {
+            doTest("compiler/testData/codegen/bytecodeText/when/string.kt");
+        }
+        
+    }
+    
     public static Test suite() {
         TestSuite suite = new TestSuite("BytecodeTextTestGenerated");
         suite.addTestSuite(BytecodeTextTestGenerated.class);
+        suite.addTestSuite(Boxing.class);
         suite.addTestSuite(DirectInvoke.class);
         suite.addTestSuite(Statements.class);
+        suite.addTestSuite(When.class);
         return suite;
     }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.codegen;
+
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.config.CompilerConfiguration;
+
+public class InlineFunctionsTest extends CodegenTestCase {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        CompilerConfiguration configuration = JetTestUtils.compilerConfigurationForTests(ConfigurationKind.ALL, TestJdkKind.MOCK_JDK);
+        configuration.put(JVMConfigurationKeys.INLINE_FUNCTIONS, true);
+        myEnvironment = JetCoreEnvironment.createForTests(getTestRootDisposable(), configuration);
+    }
+
+    public void testStdlib() throws Exception {
+        loadFile("inline/stdlib.kt");
+        assertEquals("OK", generateFunction("box").invoke(null));
+
+        String text = generateToText();
+        assertFalse("Literals should not become closures:\n" + text, text.contains("jet/Function1.invoke"));
+        assertFalse("Inline functions should not be called:\n" + text, text.contains("KotlinPackage.forEach"));
+    }
+
+    public void testNotInlined() throws Exception {
+        loadFile("inline/notInlined.kt");
+        assertEquals("OK", generateFunction("box").invoke(null));
+    }
+}
@@ -753,6 +753,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             doTest("compiler/testData/codegen/box/classes/classObjectsWithParentClasses.kt");
         }
         
+        @TestMetadata("commonSuperClassInFrames.kt")
+        public void testCommonSuperClassInFrames() throws Exception {
+            doTest("compiler/testData/codegen/box/classes/commonSuperClassInFrames.kt");
+        }
+        
         @TestMetadata("delegation2.kt")
         public void testDelegation2() throws Exception {
             doTest("compiler/testData/codegen/box/classes/delegation2.kt");
@@ -1369,11 +1374,21 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/box/constants"), Pattern.compile("^(.+)\\.kt$"), true);
         }
         
+        @TestMetadata("constantFolding.kt")
+        public void testConstantFolding() throws Exception {
+            doTest("compiler/testData/codegen/box/constants/constantFolding.kt");
+        }
+        
         @TestMetadata("constantsInWhen.kt")
         public void testConstantsInWhen() throws Exception {
             doTest("compiler/testData/codegen/box/constants/constantsInWhen.kt");
         }
         
+        @TestMetadata("forwardReference.kt")
+        public void testForwardReference() throws Exception {
+            doTest("compiler/testData/codegen/box/constants/forwardReference.kt");
+        }
+        
     }
     
     @TestMetadata("compiler/testData/codegen/box/controlStructures")
@@ -3632,6 +3647,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/box/primitiveTypes"), Pattern.compile("^(.+)\\.kt$"), true);
         }
         
+        @TestMetadata("boxingOptimization.kt")
+        public void testBoxingOptimization() throws Exception {
+            doTest("compiler/testData/codegen/box/primitiveTypes/boxingOptimization.kt");
+        }
+        
         @TestMetadata("comparisonWithNullCallsFun.kt")
         public void testComparisonWithNullCallsFun() throws Exception {
             doTest("compiler/testData/codegen/box/primitiveTypes/comparisonWithNullCallsFun.kt");
@@ -3642,6 +3662,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             doTest("compiler/testData/codegen/box/primitiveTypes/ea35963.kt");
         }
         
+        @TestMetadata("inPrimitiveRange.kt")
+        public void testInPrimitiveRange() throws Exception {
+            doTest("compiler/testData/codegen/box/primitiveTypes/inPrimitiveRange.kt");
+        }
+        
         @TestMetadata("incrementByteCharShort.kt")
         public void testIncrementByteCharShort() throws Exception {
             doTest("compiler/testData/codegen/box/primitiveTypes/incrementByteCharShort.kt");
@@ -4087,6 +4112,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/box/strings"), Pattern.compile("^(.+)\\.kt$"), true);
         }
         
+        @TestMetadata("concatenationChains.kt")
+        public void testConcatenationChains() throws Exception {
+            doTest("compiler/testData/codegen/box/strings/concatenationChains.kt");
+        }
+        
         @TestMetadata("ea35743.kt")
         public void testEa35743() throws Exception {
             doTest("compiler/testData/codegen/box/strings/ea35743.kt");
@@ -4566,6 +4596,11 @@ public class BlackBoxCodegenTestGenerated extends AbstractBlackBoxCodegenTest {
             doTest("compiler/testData/codegen/box/when/range.kt");
         }
         
+        @TestMetadata("switchOnConstants.kt")
+        public void testSwitchOnConstants() throws Exception {
+            doTest("compiler/testData/codegen/box/when/switchOnConstants.kt");
+        }
+        
         @TestMetadata("whenArgumentIsEvaluatedOnlyOnce.kt")
         public void testWhenArgumentIsEvaluatedOnlyOnce() throws Exception {
             doTest("compiler/testData/codegen/box/when/whenArgumentIsEvaluatedOnlyOnce.kt");
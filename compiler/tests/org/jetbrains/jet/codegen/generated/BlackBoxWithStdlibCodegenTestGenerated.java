@@ -484,6 +484,11 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
             doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/multiAssignmentIterationOverIntRange.kt");
         }
         
+        @TestMetadata("progressionChains.kt")
+        public void testProgressionChains() throws Exception {
+            doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/ranges/progressionChains.kt");
+        }
+        
         @TestMetadata("compiler/testData/codegen/boxWithStdlib/ranges/expression")
         public static class Expression extends AbstractBlackBoxCodegenTest {
             public void testAllFilesPresentInExpression() throws Exception {
@@ -945,6 +950,24 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
         
     }
     
+    @TestMetadata("compiler/testData/codegen/boxWithStdlib/tailRecursion")
+    public static class TailRecursion extends AbstractBlackBoxCodegenTest {
+        public void testAllFilesPresentInTailRecursion() throws Exception {
+            JetTestUtils.assertAllTestsPresentByMetadata(this.getClass(), "org.jetbrains.jet.generators.tests.GenerateTests", new File("compiler/testData/codegen/boxWithStdlib/tailRecursion"), Pattern.compile("^(.+)\\.kt$"), true);
+        }
+        
+        @TestMetadata("deepRecursion.kt")
+        public void testDeepRecursion() throws Exception {
+            doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/tailRecursion/deepRecursion.kt");
+        }
+        
+        @TestMetadata("receiversAndBranches.kt")
+        public void testReceiversAndBranches() throws Exception {
+            doTestWithStdlib("compiler/testData/codegen/boxWithStdlib/tailRecursion/receiversAndBranches.kt");
+        }
+        
+    }
+    
     @TestMetadata("compiler/testData/codegen/boxWithStdlib/toArray")
     public static class ToArray extends AbstractBlackBoxCodegenTest {
         public void testAllFilesPresentInToArray() throws Exception {
@@ -980,6 +1003,7 @@ public class BlackBoxWithStdlibCodegenTestGenerated extends AbstractBlackBoxCode
         suite.addTest(Ranges.innerSuite());
         suite.addTestSuite(Regressions.class);
         suite.addTestSuite(Strings.class);
+        suite.addTestSuite(TailRecursion.class);
         suite.addTestSuite(ToArray.class);
         return suite;
     }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.descriptors.serialization;
+
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+public class NameResolverTest extends UsefulTestCase {
+    public void testSharedTableRoundTrip() throws Exception {
+        NameTable table = new NameTable();
+        int string = table.getFqNameIndex(new FqName("java.lang.String"));
+        int list = table.getFqNameIndex(new FqName("java.util.List"));
+        int foo = table.getSimpleNameIndex(Name.identifier("foo"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NameSerializationUtil.serializeNameTable(out, table);
+        byte[] bytes = out.toByteArray();
+        NameResolver resolver = NameSerializationUtil.deserializeNameResolver(new ByteArrayInputStream(bytes));
+
+        assertEquals(new FqName("java.lang.String"), resolver.getFqName(string));
+        assertEquals(new FqName("java.util.List"), resolver.getFqName(list));
+        assertEquals(Name.identifier("foo"), resolver.getName(foo));
+    }
+
+    public void testNamesAreCreatedOnce() throws Exception {
+        NameTable table = new NameTable();
+        int index = table.getFqNameIndex(new FqName("kotlin.io"));
+        NameResolver resolver = NameSerializationUtil.createNameResolver(table);
+
+        assertSame(resolver.getFqName(index), resolver.getFqName(index));
+        assertSame(resolver.getName(0), resolver.getName(0));
+    }
+}
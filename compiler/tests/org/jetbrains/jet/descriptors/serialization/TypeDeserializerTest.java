@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.descriptors.serialization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.jetbrains.jet.renderer.DescriptorRenderer;
+import org.jetbrains.jet.storage.LockBasedStorageManager;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.jetbrains.jet.descriptors.serialization.ProtoBuf.Type.Argument.Projection;
+import static org.jetbrains.jet.descriptors.serialization.ProtoBuf.Type.Constructor.Kind;
+
+public class TypeDeserializerTest extends KotlinTestWithEnvironment {
+    private static final DescriptorFinder BUILT_INS_FINDER = new DescriptorFinder() {
+        @Nullable
+        @Override
+        public ClassDescriptor findClass(@NotNull ClassId classId) {
+            if (!classId.getPackageFqName().equals(KotlinBuiltIns.BUILT_INS_PACKAGE_FQ_NAME)) return null;
+            ClassifierDescriptor classifier = KotlinBuiltIns.getInstance().getBuiltInsScope()
+                    .getClassifier(classId.getRelativeClassName().shortName());
+            return classifier instanceof ClassDescriptor ? (ClassDescriptor) classifier : null;
+        }
+
+        @Nullable
+        @Override
+        public NamespaceDescriptor findPackage(@NotNull FqName name) {
+            return null;
+        }
+
+        @NotNull
+        @Override
+        public Collection<Name> getClassNames(@NotNull FqName packageName) {
+            return Collections.emptyList();
+        }
+    };
+
+    private NameResolver nameResolver;
+    private int stringId;
+    private int listId;
+
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        NameTable table = new NameTable();
+        stringId = table.getFqNameIndex(KotlinBuiltIns.getInstance().getString());
+        listId = table.getFqNameIndex(KotlinBuiltIns.getInstance().getList());
+        nameResolver = NameSerializationUtil.createNameResolver(table);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        nameResolver = null;
+        super.tearDown();
+    }
+
+    public void testEqualProtosShareType() {
+        TypeDeserializer deserializer = createDeserializer();
+
+        JetType miss = deserializer.type(listOf(classType(stringId, false)));
+        JetType hit = deserializer.type(listOf(classType(stringId, false)));
+        assertSame(miss, hit);
+        assertEquals("jet.List<jet.String>", DescriptorRenderer.TEXT.renderType(hit));
+
+        JetType uncached = createDeserializer().type(listOf(classType(stringId, false)));
+        assertNotSame(hit, uncached);
+        assertEquals(uncached, hit);
+        assertEquals(DescriptorRenderer.TEXT.renderType(uncached), DescriptorRenderer.TEXT.renderType(hit));
+    }
+
+    public void testDifferentProtosDontShareType() {
+        TypeDeserializer deserializer = createDeserializer();
+
+        JetType string = deserializer.type(classType(stringId, false));
+        JetType nullableString = deserializer.type(classType(stringId, true));
+        JetType list = deserializer.type(listOf(classType(stringId, false)));
+        JetType listOfNullable = deserializer.type(listOf(classType(stringId, true)));
+        JetType listOfOut = deserializer.type(ProtoBuf.Type.newBuilder()
+                                                      .setConstructor(constructor(Kind.CLASS, listId))
+                                                      .addArgument(ProtoBuf.Type.Argument.newBuilder()
+                                                                           .setProjection(Projection.OUT)
+                                                                           .setType(classType(stringId, false)))
+                                                      .build());
+
+        assertEquals("jet.String", DescriptorRenderer.TEXT.renderType(string));
+        assertEquals("jet.String?", DescriptorRenderer.TEXT.renderType(nullableString));
+        assertEquals("jet.List<jet.String>", DescriptorRenderer.TEXT.renderType(list));
+        assertEquals("jet.List<jet.String?>", DescriptorRenderer.TEXT.renderType(listOfNullable));
+        assertEquals("jet.List<out jet.String>", DescriptorRenderer.TEXT.renderType(listOfOut));
+    }
+
+    public void testChildSharesTypesWithoutTypeParameters() {
+        LockBasedStorageManager storageManager = new LockBasedStorageManager();
+        TypeDeserializer parent = new TypeDeserializer(storageManager, null, nameResolver, BUILT_INS_FINDER, "parent",
+                                                       TypeDeserializer.TypeParameterResolver.NONE);
+        TypeDeserializer child = new TypeDeserializer(storageManager, parent, "child", TypeDeserializer.TypeParameterResolver.NONE);
+
+        assertSame(parent.type(listOf(classType(stringId, false))), child.type(listOf(classType(stringId, false))));
+
+        ProtoBuf.Type typeParameter = ProtoBuf.Type.newBuilder().setConstructor(constructor(Kind.TYPE_PARAMETER, 0)).build();
+        assertNotSame(parent.type(typeParameter), child.type(typeParameter));
+        assertSame(child.type(typeParameter), child.type(typeParameter));
+    }
+
+    @NotNull
+    private TypeDeserializer createDeserializer() {
+        return new TypeDeserializer(new LockBasedStorageManager(), null, nameResolver, BUILT_INS_FINDER, "test",
+                                    TypeDeserializer.TypeParameterResolver.NONE);
+    }
+
+    @NotNull
+    private ProtoBuf.Type listOf(@NotNull ProtoBuf.Type argument) {
+        return ProtoBuf.Type.newBuilder()
+                .setConstructor(constructor(Kind.CLASS, listId))
+                .addArgument(ProtoBuf.Type.Argument.newBuilder().setProjection(Projection.INV).setType(argument))
+                .build();
+    }
+
+    @NotNull
+    private static ProtoBuf.Type classType(int id, boolean nullable) {
+        return ProtoBuf.Type.newBuilder().setConstructor(constructor(Kind.CLASS, id)).setNullable(nullable).build();
+    }
+
+    @NotNull
+    private static ProtoBuf.Type.Constructor constructor(@NotNull Kind kind, int id) {
+        return ProtoBuf.Type.Constructor.newBuilder().setKind(kind).setId(id).build();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.jvm.compiler;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.asm4.Attribute;
+import org.jetbrains.asm4.ClassReader;
+import org.jetbrains.asm4.ClassVisitor;
+import org.jetbrains.asm4.Opcodes;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.TestJdkKind;
+import org.jetbrains.jet.cli.common.CLIConfigurationKeys;
+import org.jetbrains.jet.cli.common.messages.MessageRenderer;
+import org.jetbrains.jet.cli.common.messages.PrintingMessageCollector;
+import org.jetbrains.jet.cli.jvm.JVMConfigurationKeys;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.cli.jvm.compiler.KotlinToJVMBytecodeCompiler;
+import org.jetbrains.jet.config.CommonConfigurationKeys;
+import org.jetbrains.jet.config.CompilerConfiguration;
+import org.jetbrains.jet.descriptors.serialization.JavaProtoBufUtil;
+import org.jetbrains.jet.descriptors.serialization.descriptors.DeserializedClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.resolve.java.JvmAbi;
+import org.jetbrains.jet.lang.resolve.kotlin.KotlinDataAttribute;
+import org.jetbrains.jet.lang.resolve.kotlin.KotlinNameTableAttribute;
+import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileKotlinClass;
+import org.jetbrains.jet.lang.resolve.kotlin.header.KotlinClassHeader;
+import org.jetbrains.jet.lang.resolve.kotlin.header.SerializedDataHeader;
+import org.jetbrains.jet.test.TestCaseWithTmpdir;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+import static org.jetbrains.jet.test.util.NamespaceComparator.DONT_INCLUDE_METHODS_OF_OBJECT;
+import static org.jetbrains.jet.test.util.NamespaceComparator.validateAndCompareNamespaces;
+
+/*
+ * Compiles Kotlin with -binaryMetadata and checks that the descriptors loaded from the result are the same as the ones from sources
+ */
+public class BinaryMetadataTest extends TestCaseWithTmpdir {
+    private static final File SOURCE_FILE = new File("compiler/testData/binaryMetadata/binaryMetadata.kt");
+    private static final Pattern ALL_FILES = Pattern.compile(".*");
+
+    public void testJarWithSharedNameTables() throws Exception {
+        File jar = new File(tmpdir, "binaryMetadata.jar");
+        compile(jar, null);
+
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        boolean hasSharedNameTable = false;
+        JarFile jarFile = new JarFile(jar);
+        try {
+            for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+                JarEntry entry = entries.nextElement();
+                if (entry.getName().equals("test/" + JvmAbi.SHARED_NAME_TABLE_FILE_NAME)) {
+                    hasSharedNameTable = true;
+                }
+                else if (entry.getName().endsWith(".class")) {
+                    classes.put(entry.getName(), FileUtil.loadBytes(jarFile.getInputStream(entry)));
+                }
+            }
+        }
+        finally {
+            jarFile.close();
+        }
+
+        assertTrue("No shared name table in " + jar, hasSharedNameTable);
+        checkKotlinAttributes(classes, true);
+        checkLoadedDescriptors(jar);
+    }
+
+    public void testOutputDirectoryWithInlineNameTables() throws Exception {
+        File outputDir = new File(tmpdir, "out");
+        compile(null, outputDir);
+
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+        for (File file : FileUtil.findFilesByMask(ALL_FILES, outputDir)) {
+            assertFalse("Shared name table in an output directory: " + file,
+                        file.getName().equals(JvmAbi.SHARED_NAME_TABLE_FILE_NAME));
+            if (file.getName().endsWith(".class")) {
+                classes.put(file.getPath(), FileUtil.loadFileBytes(file));
+            }
+        }
+
+        checkKotlinAttributes(classes, false);
+        checkLoadedDescriptors(outputDir);
+    }
+
+    public void testHeaderDataIsAttributeContents() throws Exception {
+        File outputDir = new File(tmpdir, "out");
+        compile(null, outputDir);
+
+        int headersWithData = 0;
+        for (File file : FileUtil.findFilesByMask(ALL_FILES, outputDir)) {
+            if (!file.getName().endsWith(".class")) continue;
+
+            VirtualFile virtualFile =
+                    VirtualFileManager.getInstance().findFileByUrl("file://" + FileUtil.toSystemIndependentName(file.getAbsolutePath()));
+            assertNotNull("No virtual file for " + file, virtualFile);
+            KotlinClassHeader header = new VirtualFileKotlinClass(virtualFile).getClassHeader();
+
+            byte[] attributeData = readKotlinDataAttribute(FileUtil.loadFileBytes(file));
+            if (attributeData == null) {
+                assertFalse("Serialized data without an attribute in " + file, header instanceof SerializedDataHeader);
+                continue;
+            }
+
+            assertInstanceOf(header, SerializedDataHeader.class);
+            SerializedDataHeader dataHeader = (SerializedDataHeader) header;
+            assertNull("Shared name table in an output directory: " + file, dataHeader.getSharedNameTableChecksum());
+            assertTrue("Header data differs from the attribute in " + file, Arrays.equals(attributeData, dataHeader.getData()));
+
+            if (dataHeader.getKind() == SerializedDataHeader.Kind.CLASS) {
+                assertNotNull(JavaProtoBufUtil.readClassDataFrom(dataHeader.getData()));
+            }
+            else {
+                assertNotNull(JavaProtoBufUtil.readPackageDataFrom(dataHeader.getData()));
+            }
+            headersWithData++;
+        }
+        assertTrue("No classes with binary metadata", headersWithData > 0);
+    }
+
+    private void compile(@Nullable File jar, @Nullable File outputDir) {
+        CompilerConfiguration configuration = JetTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.MOCK_JDK);
+        //noinspection UseOfSystemOutOrSystemErr
+        configuration.put(CLIConfigurationKeys.MESSAGE_COLLECTOR_KEY, new PrintingMessageCollector(System.err, MessageRenderer.PLAIN, false));
+        configuration.add(CommonConfigurationKeys.SOURCE_ROOTS_KEY, SOURCE_FILE.getPath());
+        configuration.put(JVMConfigurationKeys.BINARY_METADATA, true);
+
+        JetCoreEnvironment environment = JetCoreEnvironment.createForTests(getTestRootDisposable(), configuration);
+        assertTrue("Compilation failed", KotlinToJVMBytecodeCompiler.compileBunchOfSources(environment, jar, outputDir, false));
+    }
+
+    private static void checkKotlinAttributes(@NotNull Map<String, byte[]> classes, boolean sharedNameTables) {
+        int classesWithData = 0;
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            final boolean[] hasData = new boolean[1];
+            final boolean[] hasNameTable = new boolean[1];
+            new ClassReader(entry.getValue()).accept(new ClassVisitor(Opcodes.ASM4) {
+                @Override
+                public void visitAttribute(Attribute attr) {
+                    if (attr instanceof KotlinDataAttribute) hasData[0] = true;
+                    if (attr instanceof KotlinNameTableAttribute) hasNameTable[0] = true;
+                }
+            }, new Attribute[] {KotlinDataAttribute.PROTOTYPE, KotlinNameTableAttribute.PROTOTYPE},
+               ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+            if (hasData[0]) {
+                classesWithData++;
+                assertEquals("Name table attribute in " + entry.getKey(), sharedNameTables, hasNameTable[0]);
+            }
+            else {
+                assertFalse("Name table attribute without data in " + entry.getKey(), hasNameTable[0]);
+            }
+        }
+        assertTrue("No classes with binary metadata", classesWithData > 0);
+    }
+
+    @Nullable
+    private static byte[] readKotlinDataAttribute(@NotNull byte[] classFile) {
+        final byte[][] result = new byte[1][];
+        new ClassReader(classFile).accept(new ClassVisitor(Opcodes.ASM4) {
+            @Override
+            public void visitAttribute(Attribute attr) {
+                if (attr instanceof KotlinDataAttribute) {
+                    result[0] = ((KotlinDataAttribute) attr).getData();
+                }
+            }
+        }, new Attribute[] {KotlinDataAttribute.PROTOTYPE}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return result[0];
+    }
+
+    private void checkLoadedDescriptors(@NotNull File root) throws Exception {
+        NamespaceDescriptor namespaceFromSource =
+                LoadDescriptorUtil.analyzeKotlinAndLoadTestNamespace(SOURCE_FILE, getTestRootDisposable(), ConfigurationKind.JDK_ONLY);
+        NamespaceDescriptor namespaceFromClass = LoadDescriptorUtil.loadTestNamespaceAndBindingContextFromJavaRoot(
+                root, getTestRootDisposable(), ConfigurationKind.JDK_ONLY).first;
+
+        for (DeclarationDescriptor descriptor : namespaceFromClass.getMemberScope().getAllDescriptors()) {
+            if (descriptor instanceof ClassDescriptor) {
+                assertTrue(descriptor.getName().asString(), descriptor instanceof DeserializedClassDescriptor);
+            }
+        }
+
+        validateAndCompareNamespaces(namespaceFromSource, namespaceFromClass,
+                                     DONT_INCLUDE_METHODS_OF_OBJECT.checkPrimaryConstructors(true), null);
+    }
+}
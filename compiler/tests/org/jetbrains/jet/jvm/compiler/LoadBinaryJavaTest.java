@@ -0,0 +1,139 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.jvm.compiler;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.resolve.BindingContext;
+import org.jetbrains.jet.lang.resolve.java.JavaBindingContext;
+import org.jetbrains.jet.test.TestCaseWithTmpdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.jetbrains.jet.jvm.compiler.LoadDescriptorUtil.compileJavaAndLoadTestNamespaceAndBindingContextFromBinary;
+import static org.jetbrains.jet.jvm.compiler.LoadDescriptorUtil.loadTestNamespaceAndBindingContextFromJavaRoot;
+import static org.jetbrains.jet.test.util.NamespaceComparator.DONT_INCLUDE_METHODS_OF_OBJECT;
+import static org.jetbrains.jet.test.util.NamespaceComparator.validateAndCompareNamespaces;
+
+/*
+ * Loads the same compiled Java classes via PSI and via the binary Java model (-binaryJavaClasses) and checks that the descriptors,
+ * including propagated signatures, @KotlinSignature and external annotations, and the load errors are the same.
+ */
+public class LoadBinaryJavaTest extends TestCaseWithTmpdir {
+    private static final String TEST_DATA_PATH = "compiler/testData/loadJava/compiledJava";
+
+    public void testTopLevel() throws Exception {
+        doTestDirectory(new File(TEST_DATA_PATH), false);
+    }
+
+    public void testAnnotations() throws Exception {
+        doTestDirectory(new File(TEST_DATA_PATH, "annotations"), true);
+    }
+
+    public void testProtectedPackage() throws Exception {
+        doTestDirectory(new File(TEST_DATA_PATH, "protectedPackage"), true);
+    }
+
+    public void testProtectedStatic() throws Exception {
+        doTestDirectory(new File(TEST_DATA_PATH, "protectedStatic"), true);
+    }
+
+    public void testSam() throws Exception {
+        doTestDirectory(new File(TEST_DATA_PATH, "sam"), true);
+    }
+
+    public void testSignaturePropagation() throws Exception {
+        doTestDirectory(new File(TEST_DATA_PATH, "signaturePropagation"), true);
+    }
+
+    public void testStatic() throws Exception {
+        doTestDirectory(new File(TEST_DATA_PATH, "static"), true);
+    }
+
+    private void doTestDirectory(@NotNull File dir, boolean recursive) throws Exception {
+        File[] files = dir.listFiles();
+        assertNotNull("Test data directory not found: " + dir, files);
+
+        for (File file : files) {
+            if (file.isDirectory() && recursive) {
+                doTestDirectory(file, true);
+            }
+            else if (file.getName().endsWith(".java")) {
+                doTest(file);
+            }
+        }
+    }
+
+    private void doTest(@NotNull File javaFile) throws Exception {
+        File testDir = FileUtil.createTempDirectory(tmpdir, javaFile.getName(), "");
+        File srcDir = new File(testDir, "src");
+        File compiledDir = new File(testDir, "compiled");
+        assertTrue(srcDir.mkdir());
+        assertTrue(compiledDir.mkdir());
+
+        List<File> srcFiles = createSourceFiles(javaFile, srcDir);
+
+        Disposable psiDisposable = Disposer.newDisposable();
+        Disposable binaryDisposable = Disposer.newDisposable();
+        try {
+            Pair<NamespaceDescriptor, BindingContext> fromPsi = compileJavaAndLoadTestNamespaceAndBindingContextFromBinary(
+                    srcFiles, compiledDir, psiDisposable, ConfigurationKind.ALL);
+            Pair<NamespaceDescriptor, BindingContext> fromBinary = loadTestNamespaceAndBindingContextFromJavaRoot(
+                    compiledDir, binaryDisposable, ConfigurationKind.ALL, true);
+
+            assertFalse("Classes should be loaded from class files: " + javaFile,
+                        fromBinary.second.getKeys(JavaBindingContext.BINARY_CLASS).isEmpty());
+            assertTrue("Classes should be loaded via PSI: " + javaFile,
+                       fromPsi.second.getKeys(JavaBindingContext.BINARY_CLASS).isEmpty());
+
+            ExpectedLoadErrorsUtil.checkForLoadErrors(fromBinary.first, fromBinary.second);
+            validateAndCompareNamespaces(fromPsi.first, fromBinary.first, DONT_INCLUDE_METHODS_OF_OBJECT, null);
+        }
+        finally {
+            Disposer.dispose(psiDisposable);
+            Disposer.dispose(binaryDisposable);
+        }
+    }
+
+    @NotNull
+    private static List<File> createSourceFiles(@NotNull File javaFile, @NotNull final File srcDir) throws IOException {
+        return JetTestUtils.createTestFiles(
+                javaFile.getName(), FileUtil.loadFile(javaFile),
+                new JetTestUtils.TestFileFactory<File>() {
+                    @Override
+                    public File create(String fileName, String text, Map<String, String> directives) {
+                        File targetFile = new File(srcDir, fileName);
+                        try {
+                            FileUtil.writeToFile(targetFile, text);
+                        }
+                        catch (IOException e) {
+                            throw new AssertionError(e);
+                        }
+                        return targetFile;
+                    }
+                });
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.di.InjectorForJavaDescriptorResolver;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.resolve.BindingTraceContext;
+import org.jetbrains.jet.lang.resolve.java.resolver.ClassDescriptorCache;
+import org.jetbrains.jet.lang.resolve.java.resolver.JavaClassResolver;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.FqNameUnsafe;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.jetbrains.jet.renderer.DescriptorRenderer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.jetbrains.jet.lang.resolve.java.DescriptorSearchRule.IGNORE_KOTLIN_SOURCES;
+
+public class JavaClassResolverCacheTest extends KotlinTestWithEnvironment {
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testCacheStatistics() {
+        ClassDescriptorCache cache = new ClassDescriptorCache();
+        FqNameUnsafe present = new FqNameUnsafe("test.Present");
+        FqNameUnsafe absent = new FqNameUnsafe("test.Absent");
+        ClassDescriptor descriptor = KotlinBuiltIns.getInstance().getAny();
+
+        assertNull(cache.lookup(present));
+        assertEquals(1, cache.getMisses());
+
+        cache.put(present, descriptor);
+        assertSame(descriptor, cache.lookup(present));
+        assertEquals(1, cache.getHits());
+
+        cache.putAbsent(absent);
+        assertNull(cache.lookup(absent));
+        assertEquals(1, cache.getNegativeHits());
+        assertEquals(1, cache.getMisses());
+
+        assertTrue(cache.contains(present));
+        assertTrue(cache.contains(absent));
+        assertTrue(cache.isAbsent(absent));
+        assertFalse(cache.isAbsent(present));
+    }
+
+    public void testRewriteIsAnError() {
+        ClassDescriptorCache cache = new ClassDescriptorCache();
+        FqNameUnsafe present = new FqNameUnsafe("test.Present");
+        FqNameUnsafe absent = new FqNameUnsafe("test.Absent");
+        ClassDescriptor descriptor = KotlinBuiltIns.getInstance().getAny();
+        cache.put(present, descriptor);
+        cache.putAbsent(absent);
+
+        try {
+            cache.put(absent, descriptor);
+            fail("Absent class was rewritten with a descriptor");
+        }
+        catch (IllegalStateException expected) {
+        }
+
+        try {
+            cache.putAbsent(present);
+            fail("Cached class was rewritten as absent");
+        }
+        catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testRepeatedResolveIsCacheHit() {
+        JavaClassResolver resolver = createClassResolver();
+        ClassDescriptorCache cache = resolver.getClassDescriptorCache();
+        FqName fqName = new FqName("java.util.ArrayList");
+
+        ClassDescriptor first = resolver.resolveClass(fqName, IGNORE_KOTLIN_SOURCES);
+        assertNotNull(first);
+
+        int hits = cache.getHits();
+        int misses = cache.getMisses();
+        assertSame(first, resolver.resolveClass(fqName, IGNORE_KOTLIN_SOURCES));
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(misses, cache.getMisses());
+    }
+
+    public void testCacheMissGivesSameResult() {
+        JavaClassResolver warmResolver = createClassResolver();
+        for (String name : new String[] {"java.lang.String", "java.util.ArrayList", "java.util.Map.Entry"}) {
+            FqName fqName = new FqName(name);
+            ClassDescriptor miss = warmResolver.resolveClass(fqName, IGNORE_KOTLIN_SOURCES);
+            ClassDescriptor hit = warmResolver.resolveClass(fqName, IGNORE_KOTLIN_SOURCES);
+            ClassDescriptor fresh = createClassResolver().resolveClass(fqName, IGNORE_KOTLIN_SOURCES);
+            assertNotNull(name, miss);
+            assertNotNull(name, fresh);
+            assertSame(name, miss, hit);
+            assertEquals(name, renderClass(fresh), renderClass(hit));
+        }
+    }
+
+    public void testAbsentClassesAreRemembered() {
+        JavaClassResolver resolver = createClassResolver();
+        ClassDescriptorCache cache = resolver.getClassDescriptorCache();
+
+        FqName missingClass = new FqName("java.lang.NoSuchClass");
+        assertNull(resolver.resolveClass(missingClass, IGNORE_KOTLIN_SOURCES));
+        assertTrue(cache.isAbsent(missingClass.toUnsafe()));
+
+        int negativeHits = cache.getNegativeHits();
+        assertNull(resolver.resolveClass(missingClass, IGNORE_KOTLIN_SOURCES));
+        assertEquals(negativeHits + 1, cache.getNegativeHits());
+
+        FqName inMissingPackage = new FqName("no.such.pkg.Foo");
+        assertNull(resolver.resolveClass(inMissingPackage, IGNORE_KOTLIN_SOURCES));
+        assertTrue(cache.isAbsent(inMissingPackage.toUnsafe()));
+
+        FqName inMissingOuterClass = new FqName("java.lang.NoSuchClass.Nested");
+        assertNull(resolver.resolveClass(inMissingOuterClass, IGNORE_KOTLIN_SOURCES));
+        assertTrue(cache.isAbsent(inMissingOuterClass.toUnsafe()));
+
+        assertNotNull(resolver.resolveClass(new FqName("java.lang.String"), IGNORE_KOTLIN_SOURCES));
+        assertNotNull(resolver.resolveClass(new FqName("java.util.Map.Entry"), IGNORE_KOTLIN_SOURCES));
+    }
+
+    @NotNull
+    private JavaClassResolver createClassResolver() {
+        return new InjectorForJavaDescriptorResolver(getProject(), new BindingTraceContext()).getJavaClassResolver();
+    }
+
+    @NotNull
+    private static String renderClass(@NotNull ClassDescriptor descriptor) {
+        List<String> members = new ArrayList<String>();
+        for (DeclarationDescriptor member : descriptor.getDefaultType().getMemberScope().getAllDescriptors()) {
+            members.add(DescriptorRenderer.TEXT.render(member));
+        }
+        Collections.sort(members);
+
+        StringBuilder result = new StringBuilder(DescriptorRenderer.TEXT.render(descriptor)).append("\n");
+        for (String member : members) {
+            result.append("    ").append(member).append("\n");
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.di.InjectorForJavaDescriptorResolver;
+import org.jetbrains.jet.lang.resolve.BindingTraceContext;
+import org.jetbrains.jet.lang.resolve.java.sam.SamInterfaceCache;
+import org.jetbrains.jet.lang.resolve.java.sam.SingleAbstractMethodUtils;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaMethod;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+
+public class SamInterfaceCacheTest extends KotlinTestWithEnvironment {
+    private JavaClassFinderImpl classFinder;
+
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        classFinder = new InjectorForJavaDescriptorResolver(getProject(), new BindingTraceContext()).getJavaClassFinder();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        classFinder = null;
+        super.tearDown();
+    }
+
+    public void testSamInterface() {
+        doTest("java.lang.Runnable", "run");
+    }
+
+    public void testSamInterfaceWithObjectMethods() {
+        doTest("java.util.Comparator", "compare");
+    }
+
+    public void testNotSamInterface() {
+        doTest("java.util.List", null);
+    }
+
+    public void testNotInterface() {
+        doTest("java.lang.String", null);
+    }
+
+    private void doTest(@NotNull String className, String expectedMethodName) {
+        SamInterfaceCache cache = new SamInterfaceCache();
+
+        JavaMethod miss = cache.getSamInterfaceMethod(findClass(className));
+        JavaMethod uncached = SingleAbstractMethodUtils.getSamInterfaceMethod(findClass(className));
+        assertEquals(uncached, miss);
+        assertEquals(expectedMethodName != null, cache.isSamInterface(findClass(className)));
+
+        if (expectedMethodName == null) {
+            assertNull(miss);
+            assertNull(cache.getSamInterfaceMethod(findClass(className)));
+            return;
+        }
+
+        assertNotNull(miss);
+        assertEquals(expectedMethodName, miss.getName().asString());
+
+        JavaMethod hit = cache.getSamInterfaceMethod(findClass(className));
+        assertSame(miss, hit);
+        assertNotSame(uncached, hit);
+
+        JavaMethod otherMiss = new SamInterfaceCache().getSamInterfaceMethod(findClass(className));
+        assertEquals(hit, otherMiss);
+    }
+
+    @NotNull
+    private JavaClass findClass(@NotNull String className) {
+        JavaClass javaClass = classFinder.findClass(new FqName(className));
+        assertNotNull("Class not found: " + className, javaClass);
+        return javaClass;
+    }
+}
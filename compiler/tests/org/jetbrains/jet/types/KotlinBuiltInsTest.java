@@ -0,0 +1,112 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.types;
+
+import org.jetbrains.jet.ConfigurationKind;
+import org.jetbrains.jet.JetTestUtils;
+import org.jetbrains.jet.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.descriptors.ClassifierDescriptor;
+import org.jetbrains.jet.lang.descriptors.ModuleDescriptor;
+import org.jetbrains.jet.lang.descriptors.NamespaceDescriptor;
+import org.jetbrains.jet.lang.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.jet.lang.resolve.lazy.LazyResolveTestUtil;
+import org.jetbrains.jet.lang.resolve.name.FqName;
+import org.jetbrains.jet.lang.resolve.name.Name;
+import org.jetbrains.jet.lang.types.JetType;
+import org.jetbrains.jet.lang.types.JetTypeImpl;
+import org.jetbrains.jet.lang.types.TypeUtils;
+import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
+import org.jetbrains.jet.lang.types.lang.PrimitiveType;
+
+import java.util.Collections;
+import java.util.Set;
+
+public class KotlinBuiltInsTest extends KotlinTestWithEnvironment {
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testPrimitiveTypes() {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        for (PrimitiveType primitiveType : PrimitiveType.values()) {
+            JetType type = builtIns.getPrimitiveJetType(primitiveType);
+            JetType arrayType = builtIns.getPrimitiveArrayJetType(primitiveType);
+
+            assertSame(arrayType, builtIns.getPrimitiveArrayJetType(primitiveType));
+            assertEquals(new JetTypeImpl(builtIns.getPrimitiveArrayClassDescriptor(primitiveType)), arrayType);
+            assertEquals(new JetTypeImpl(builtIns.getPrimitiveClassDescriptor(primitiveType)), type);
+            assertEquals(TypeUtils.makeNullable(type), builtIns.getNullablePrimitiveJetType(primitiveType));
+
+            assertTrue(builtIns.isPrimitiveType(type));
+            assertTrue(builtIns.isPrimitiveArray(arrayType));
+            assertEquals(arrayType, builtIns.getPrimitiveArrayJetTypeByPrimitiveJetType(type));
+            assertEquals(type, builtIns.getArrayElementType(arrayType));
+        }
+
+        assertFalse(builtIns.isPrimitiveType(builtIns.getStringType()));
+        assertFalse(builtIns.isPrimitiveArray(builtIns.getArrayType(builtIns.getIntType())));
+    }
+
+    public void testNonPhysicalClasses() {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        Set<ClassDescriptor> nonPhysicalClasses = builtIns.getNonPhysicalClasses();
+
+        assertSame(nonPhysicalClasses, builtIns.getNonPhysicalClasses());
+        assertTrue(nonPhysicalClasses.contains(builtIns.getAny()));
+        assertTrue(nonPhysicalClasses.contains(builtIns.getNothing()));
+        assertTrue(nonPhysicalClasses.contains(builtIns.getList()));
+        assertFalse(nonPhysicalClasses.contains(builtIns.getPrimitiveClassDescriptor(PrimitiveType.INT)));
+    }
+
+    public void testFunctionTypes() {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        for (int i = 0; i < KotlinBuiltIns.FUNCTION_TRAIT_COUNT; i++) {
+            JetType functionType = builtIns.getFunction(i).getDefaultType();
+            JetType extensionFunctionType = builtIns.getExtensionFunction(i).getDefaultType();
+
+            assertTrue(builtIns.isFunctionType(functionType));
+            assertFalse(builtIns.isExtensionFunctionType(functionType));
+            assertTrue(builtIns.isExtensionFunctionType(extensionFunctionType));
+            assertFalse(builtIns.isFunctionType(extensionFunctionType));
+        }
+
+        assertFalse(builtIns.isFunctionType(builtIns.getAnyType()));
+    }
+
+    public void testClassesNamedAsFunctionsOutsideBuiltIns() {
+        ModuleDescriptor module = LazyResolveTestUtil.resolveEagerly(Collections.singletonList(JetTestUtils.createFile(
+                "functions.kt",
+                "package test\n" +
+                "open class Function1\n" +
+                "class ExtensionFunction1\n" +
+                "class Subclass : Function1()\n",
+                getProject()
+        )), getEnvironment());
+        NamespaceDescriptor testPackage = module.getNamespace(FqName.topLevel(Name.identifier("test")));
+        assertNotNull(testPackage);
+
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        for (String name : new String[] {"Function1", "ExtensionFunction1", "Subclass"}) {
+            ClassifierDescriptor classifier = testPackage.getMemberScope().getClassifier(Name.identifier(name));
+            assertNotNull(name, classifier);
+            assertFalse(name, builtIns.isFunctionType(classifier.getDefaultType()));
+            assertFalse(name, builtIns.isExtensionFunctionType(classifier.getDefaultType()));
+        }
+    }
+}
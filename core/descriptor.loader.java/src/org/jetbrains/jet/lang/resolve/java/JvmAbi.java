@@ -46,6 +46,8 @@ public final class JvmAbi {
     public static final String INSTANCE_FIELD = "instance$";
     public static final String CLASS_OBJECT_FIELD = "object$";
 
+    public static final String SHARED_NAME_TABLE_FILE_NAME = ".kotlin_shared_names";
+
     public static final JvmClassName JET_OBJECT = JvmClassName.byFqNameWithoutInnerClasses("jet.JetObject");
 
     public static boolean isClassObjectFqName(@NotNull FqName fqName) {
@@ -37,6 +37,13 @@ public final class JvmAnnotationNames {
 
     public static final String DATA_FIELD_NAME = "data";
 
+    // Class file attribute holding serialized descriptors as raw bytes, written instead of the data field if requested
+    public static final String DATA_ATTRIBUTE_NAME = "jet.KotlinData";
+
+    // Class file attribute holding the checksum of the name table shared by the classes in the same directory,
+    // present if names in the data attribute refer to that table, see JvmAbi.SHARED_NAME_TABLE_FILE_NAME
+    public static final String NAME_TABLE_ATTRIBUTE_NAME = "jet.KotlinNameTable";
+
     @Deprecated
     public static final FqName OLD_JET_CLASS_ANNOTATION = new FqName("jet.runtime.typeinfo.JetClass");
 
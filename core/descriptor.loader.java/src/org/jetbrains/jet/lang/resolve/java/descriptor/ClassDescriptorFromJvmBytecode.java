@@ -18,9 +18,7 @@ package org.jetbrains.jet.lang.resolve.java.descriptor;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.jet.lang.descriptors.ClassKind;
-import org.jetbrains.jet.lang.descriptors.ConstructorDescriptor;
-import org.jetbrains.jet.lang.descriptors.DeclarationDescriptor;
+import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.descriptors.impl.MutableClassDescriptorLite;
 import org.jetbrains.jet.lang.resolve.java.scope.JavaClassNonStaticMembersScope;
 import org.jetbrains.jet.lang.resolve.name.Name;
@@ -33,6 +31,7 @@ import java.util.Collection;
  */
 public class ClassDescriptorFromJvmBytecode extends MutableClassDescriptorLite implements JavaClassDescriptor {
     private JetType functionTypeForSamInterface;
+    private volatile SimpleFunctionDescriptor abstractMethodOfSamInterface;
     private JavaClassNonStaticMembersScope scopeForConstructorResolve;
     private ConstructorDescriptor primaryConstructor;
     private Collection<ConstructorDescriptor> constructors;
@@ -86,4 +85,16 @@ public class ClassDescriptorFromJvmBytecode extends MutableClassDescriptorLite i
     public void setFunctionTypeForSamInterface(@NotNull JetType functionTypeForSamInterface) {
         this.functionTypeForSamInterface = functionTypeForSamInterface;
     }
+
+    /**
+     * @see org.jetbrains.jet.lang.resolve.java.sam.SingleAbstractMethodUtils#getAbstractMethodOfSamInterface(ClassDescriptor)
+     */
+    @Nullable
+    public SimpleFunctionDescriptor getAbstractMethodOfSamInterface() {
+        return abstractMethodOfSamInterface;
+    }
+
+    public void setAbstractMethodOfSamInterface(@NotNull SimpleFunctionDescriptor abstractMethodOfSamInterface) {
+        this.abstractMethodOfSamInterface = abstractMethodOfSamInterface;
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.resolver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
+import org.jetbrains.jet.lang.resolve.name.FqNameUnsafe;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe cache of class descriptors created by {@link JavaClassResolver}. Names of classes which were looked up
+ * but don't exist are remembered as well, so that repeated lookups of nonexistent classes never reach the class finders
+ */
+public final class ClassDescriptorCache {
+    private final ConcurrentMap<FqNameUnsafe, ClassDescriptor> descriptors = new ConcurrentHashMap<FqNameUnsafe, ClassDescriptor>();
+    private final ConcurrentMap<FqNameUnsafe, Boolean> absent = new ConcurrentHashMap<FqNameUnsafe, Boolean>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger negativeHits = new AtomicInteger();
+
+    /**
+     * Looks up a class for the resolver and updates the statistics. A miss is counted only if the class is neither cached
+     * nor known to be absent, which is when the caller is expected to go to the class finders
+     */
+    @Nullable
+    public ClassDescriptor lookup(@NotNull FqNameUnsafe fqName) {
+        ClassDescriptor descriptor = descriptors.get(fqName);
+        if (descriptor != null) {
+            hits.incrementAndGet();
+        }
+        else if (absent.containsKey(fqName)) {
+            negativeHits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        return descriptor;
+    }
+
+    @Nullable
+    public ClassDescriptor get(@NotNull FqNameUnsafe fqName) {
+        return descriptors.get(fqName);
+    }
+
+    public boolean isAbsent(@NotNull FqNameUnsafe fqName) {
+        return absent.containsKey(fqName);
+    }
+
+    public boolean contains(@NotNull FqNameUnsafe fqName) {
+        return descriptors.containsKey(fqName) || absent.containsKey(fqName);
+    }
+
+    public void put(@NotNull FqNameUnsafe fqName, @NotNull ClassDescriptor descriptor) {
+        if (absent.containsKey(fqName) || descriptors.putIfAbsent(fqName, descriptor) != null) {
+            throw new IllegalStateException("rewrite at " + fqName);
+        }
+    }
+
+    public void putAbsent(@NotNull FqNameUnsafe fqName) {
+        if (descriptors.containsKey(fqName) || absent.putIfAbsent(fqName, Boolean.TRUE) != null) {
+            throw new IllegalStateException("rewrite at " + fqName);
+        }
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getNegativeHits() {
+        return negativeHits.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ClassDescriptorCache{" +
+               "classes=" + descriptors.size() +
+               ", absent=" + absent.size() +
+               ", hits=" + hits +
+               ", misses=" + misses +
+               ", negativeHits=" + negativeHits +
+               '}';
+    }
+}
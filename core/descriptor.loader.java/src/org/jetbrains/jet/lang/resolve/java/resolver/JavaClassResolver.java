@@ -27,6 +27,7 @@ import org.jetbrains.jet.lang.resolve.java.JvmAbi;
 import org.jetbrains.jet.lang.resolve.java.descriptor.ClassDescriptorFromJvmBytecode;
 import org.jetbrains.jet.lang.resolve.java.descriptor.JavaClassDescriptor;
 import org.jetbrains.jet.lang.resolve.java.descriptor.JavaEnumClassObjectDescriptor;
+import org.jetbrains.jet.lang.resolve.java.sam.SamInterfaceCache;
 import org.jetbrains.jet.lang.resolve.java.sam.SingleAbstractMethodUtils;
 import org.jetbrains.jet.lang.resolve.java.scope.JavaClassNonStaticMembersScope;
 import org.jetbrains.jet.lang.resolve.java.scope.JavaEnumClassObjectScope;
@@ -48,17 +49,26 @@ import org.jetbrains.jet.lang.types.checker.JetTypeChecker;
 import org.jetbrains.jet.lang.types.lang.KotlinBuiltIns;
 
 import javax.inject.Inject;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.jetbrains.jet.lang.resolve.DescriptorUtils.getClassObjectName;
 import static org.jetbrains.jet.lang.resolve.java.DescriptorSearchRule.INCLUDE_KOTLIN_SOURCES;
 
 public final class JavaClassResolver {
     @NotNull
-    private final Map<FqNameUnsafe, ClassDescriptor> classDescriptorCache = new HashMap<FqNameUnsafe, ClassDescriptor>();
+    private final ClassDescriptorCache classDescriptorCache = new ClassDescriptorCache();
 
+    // Packages which were found by the class finder. Missing packages are not remembered: a package may appear later in the IDE,
+    // and classes looked up in it are remembered as absent anyway
     @NotNull
-    private final Set<FqNameUnsafe> unresolvedCache = new HashSet<FqNameUnsafe>();
+    private final Set<FqName> existingPackages = Collections.newSetFromMap(new ConcurrentHashMap<FqName, Boolean>());
+
+    @NotNull
+    private final SamInterfaceCache samInterfaceCache = new SamInterfaceCache();
 
     private JavaResolverCache cache;
     private JavaTypeParameterResolver typeParameterResolver;
@@ -155,18 +165,53 @@ public final class JavaClassResolver {
         }
 
         FqNameUnsafe fqName = javaClassToKotlinFqName(qualifiedName);
-        ClassDescriptor cachedDescriptor = classDescriptorCache.get(fqName);
+        ClassDescriptor cachedDescriptor = classDescriptorCache.lookup(fqName);
         if (cachedDescriptor != null) {
             return cachedDescriptor;
         }
 
-        if (unresolvedCache.contains(fqName)) {
+        if (classDescriptorCache.isAbsent(fqName)) {
+            return null;
+        }
+
+        if (!mayExist(qualifiedName)) {
+            cacheNegativeValue(fqName);
             return null;
         }
 
         return doResolveClass(qualifiedName, tasks);
     }
 
+    @NotNull
+    public ClassDescriptorCache getClassDescriptorCache() {
+        return classDescriptorCache;
+    }
+
+    @NotNull
+    public SamInterfaceCache getSamInterfaceCache() {
+        return samInterfaceCache;
+    }
+
+    /**
+     * A cheap check which doesn't involve class lookup: a top-level class can only exist in an existing package,
+     * a nested class can only exist if its outer class is not known to be absent
+     */
+    private boolean mayExist(@NotNull FqName qualifiedName) {
+        FqName parent = qualifiedName.parent();
+        if (parent.isRoot() || packageExists(parent)) {
+            return true;
+        }
+        return !classDescriptorCache.isAbsent(javaClassToKotlinFqName(parent)) && mayExist(parent);
+    }
+
+    private boolean packageExists(@NotNull FqName fqName) {
+        if (existingPackages.contains(fqName)) return true;
+
+        if (javaClassFinder.findPackage(fqName) == null) return false;
+        existingPackages.add(fqName);
+        return true;
+    }
+
     @Nullable
     private static ClassDescriptor getKotlinBuiltinClassDescriptor(@NotNull FqName qualifiedName) {
         if (!qualifiedName.firstSegmentIs(KotlinBuiltIns.BUILT_INS_PACKAGE_NAME)) return null;
@@ -214,7 +259,7 @@ public final class JavaClassResolver {
         if (cachedDescriptor != null) {
             return cachedDescriptor;
         }
-        assert !unresolvedCache.contains(qualifiedName.toUnsafe())
+        assert !classDescriptorCache.isAbsent(qualifiedName.toUnsafe())
                 : "We can resolve the class, so it can't be 'unresolved' during parent resolution";
 
         checkFqNamesAreConsistent(javaClass, qualifiedName);
@@ -226,10 +271,10 @@ public final class JavaClassResolver {
     }
 
     private void cacheNegativeValue(@NotNull FqNameUnsafe fqNameUnsafe) {
-        if (unresolvedCache.contains(fqNameUnsafe) || classDescriptorCache.containsKey(fqNameUnsafe)) {
+        if (classDescriptorCache.contains(fqNameUnsafe)) {
             throw new IllegalStateException("rewrite at " + fqNameUnsafe);
         }
-        unresolvedCache.add(fqNameUnsafe);
+        classDescriptorCache.putAbsent(fqNameUnsafe);
     }
 
     private static boolean isTraitImplementation(@NotNull FqName qualifiedName) {
@@ -280,7 +325,7 @@ public final class JavaClassResolver {
 
         cache.recordClass(javaClass, classDescriptor);
 
-        JavaMethod samInterfaceMethod = SingleAbstractMethodUtils.getSamInterfaceMethod(javaClass);
+        JavaMethod samInterfaceMethod = samInterfaceCache.getSamInterfaceMethod(javaClass);
         if (samInterfaceMethod != null) {
             SimpleFunctionDescriptor abstractMethod = resolveFunctionOfSamInterface(samInterfaceMethod, classDescriptor);
             classDescriptor.setFunctionTypeForSamInterface(SingleAbstractMethodUtils.getFunctionTypeForAbstractMethod(abstractMethod));
@@ -359,8 +404,7 @@ public final class JavaClassResolver {
             cacheNegativeValue(fqName);
         }
         else {
-            ClassDescriptor oldValue = classDescriptorCache.put(fqName, classDescriptor);
-            assert oldValue == null;
+            classDescriptorCache.put(fqName, classDescriptor);
         }
     }
 
@@ -368,7 +412,7 @@ public final class JavaClassResolver {
         FqName fqName = javaClass.getFqName();
         assert desiredFqName.equals(fqName) : "Inconsistent FQ names: " + fqName + ", " + desiredFqName;
         FqNameUnsafe correctedName = javaClassToKotlinFqName(fqName);
-        if (classDescriptorCache.containsKey(correctedName) || unresolvedCache.contains(correctedName)) {
+        if (classDescriptorCache.contains(correctedName)) {
             throw new IllegalStateException("Cache already contains FQ name: " + fqName.asString());
         }
     }
@@ -27,7 +27,6 @@ import org.jetbrains.jet.lang.resolve.DescriptorUtils;
 import org.jetbrains.jet.lang.resolve.java.*;
 import org.jetbrains.jet.lang.resolve.java.descriptor.JavaNamespaceDescriptor;
 import org.jetbrains.jet.lang.resolve.java.mapping.JavaToKotlinClassMap;
-import org.jetbrains.jet.lang.resolve.java.sam.SingleAbstractMethodUtils;
 import org.jetbrains.jet.lang.resolve.java.scope.JavaClassStaticMembersScope;
 import org.jetbrains.jet.lang.resolve.java.scope.JavaPackageScope;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
@@ -220,7 +219,7 @@ public final class JavaNamespaceResolver {
         return createNamespaceScope(fqName, namespaceDescriptor, false);
     }
 
-    private static boolean hasStaticMembers(@NotNull JavaClass javaClass) {
+    private boolean hasStaticMembers(@NotNull JavaClass javaClass) {
         for (JavaMethod method : javaClass.getMethods()) {
             if (method.isStatic() && !DescriptorResolverUtils.shouldBeInEnumClassObject(method)) {
                 return true;
@@ -234,7 +233,7 @@ public final class JavaNamespaceResolver {
         }
 
         for (JavaClass nestedClass : javaClass.getInnerClasses()) {
-            if (SingleAbstractMethodUtils.isSamInterface(nestedClass)) {
+            if (memberResolver.getSamInterfaceCache().isSamInterface(nestedClass)) {
                 return true;
             }
             if (nestedClass.isStatic() && hasStaticMembers(nestedClass)) {
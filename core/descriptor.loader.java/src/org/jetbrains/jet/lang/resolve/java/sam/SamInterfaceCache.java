@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.jet.lang.resolve.java.sam;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
+import org.jetbrains.jet.lang.resolve.java.structure.JavaMethod;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the results of {@link SingleAbstractMethodUtils#getSamInterfaceMethod(JavaClass)}, so that the search for the only
+ * abstract method over the hierarchy of an interface is done once per resolve session, not once per scope seeing the interface.
+ */
+public final class SamInterfaceCache {
+    private final ConcurrentMap<JavaClass, JavaMethod> samInterfaceMethods = new ConcurrentHashMap<JavaClass, JavaMethod>();
+    private final Set<JavaClass> notSamInterfaces = Collections.newSetFromMap(new ConcurrentHashMap<JavaClass, Boolean>());
+
+    @Nullable
+    public JavaMethod getSamInterfaceMethod(@NotNull JavaClass javaClass) {
+        JavaMethod cached = samInterfaceMethods.get(javaClass);
+        if (cached != null) return cached;
+        if (notSamInterfaces.contains(javaClass)) return null;
+
+        JavaMethod method = SingleAbstractMethodUtils.getSamInterfaceMethod(javaClass);
+        if (method != null) {
+            samInterfaceMethods.put(javaClass, method);
+        }
+        else {
+            notSamInterfaces.add(javaClass);
+        }
+        return method;
+    }
+
+    public boolean isSamInterface(@NotNull JavaClass javaClass) {
+        return getSamInterfaceMethod(javaClass) != null;
+    }
+}
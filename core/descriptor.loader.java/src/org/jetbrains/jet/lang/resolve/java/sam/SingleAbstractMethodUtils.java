@@ -22,6 +22,7 @@ import org.jetbrains.jet.lang.descriptors.*;
 import org.jetbrains.jet.lang.descriptors.annotations.AnnotationDescriptor;
 import org.jetbrains.jet.lang.descriptors.impl.TypeParameterDescriptorImpl;
 import org.jetbrains.jet.lang.descriptors.impl.ValueParameterDescriptorImpl;
+import org.jetbrains.jet.lang.resolve.java.descriptor.ClassDescriptorFromJvmBytecode;
 import org.jetbrains.jet.lang.resolve.java.descriptor.JavaClassDescriptor;
 import org.jetbrains.jet.lang.resolve.java.descriptor.SamAdapterDescriptor;
 import org.jetbrains.jet.lang.resolve.java.descriptor.SamConstructorDescriptor;
@@ -94,6 +95,11 @@ public class SingleAbstractMethodUtils {
             JetType functionTypeDefault = ((JavaClassDescriptor) classifier).getFunctionTypeForSamInterface();
 
             if (functionTypeDefault != null) {
+                if (samType.getArguments().isEmpty()) {
+                    // Not a generic interface (Runnable, listeners): nothing to substitute, projections of the function type are invariant
+                    return TypeUtils.makeNullableAsSpecified(functionTypeDefault, samType.isNullable());
+                }
+
                 // Function2<String, String, Int>?
                 JetType substitute = TypeSubstitutor.create(samType).substitute(functionTypeDefault, Variance.INVARIANT);
 
@@ -295,6 +301,15 @@ public class SingleAbstractMethodUtils {
 
     @NotNull
     public static SimpleFunctionDescriptor getAbstractMethodOfSamInterface(@NotNull ClassDescriptor samInterface) {
+        if (samInterface instanceof ClassDescriptorFromJvmBytecode) {
+            ClassDescriptorFromJvmBytecode javaClassDescriptor = (ClassDescriptorFromJvmBytecode) samInterface;
+            SimpleFunctionDescriptor cached = javaClassDescriptor.getAbstractMethodOfSamInterface();
+            if (cached == null) {
+                cached = getAbstractMethodOfSamType(samInterface.getDefaultType());
+                javaClassDescriptor.setAbstractMethodOfSamInterface(cached);
+            }
+            return cached;
+        }
         return getAbstractMethodOfSamType(samInterface.getDefaultType());
     }
 
@@ -40,7 +40,7 @@ public final class JavaClassNonStaticMembersScope extends JavaClassMembersScope
             @NotNull JavaClass javaClass,
             @NotNull JavaMemberResolver memberResolver
     ) {
-        super(descriptor, MembersProvider.forClass(javaClass, false), memberResolver);
+        super(descriptor, MembersProvider.forClass(javaClass, false, memberResolver.getSamInterfaceCache()), memberResolver);
         this.descriptor = descriptor;
         this.javaClass = javaClass;
     }
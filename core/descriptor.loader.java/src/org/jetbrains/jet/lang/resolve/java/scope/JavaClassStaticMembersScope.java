@@ -42,7 +42,7 @@ public final class JavaClassStaticMembersScope extends JavaClassMembersScope {
             @NotNull JavaClass javaClass,
             @NotNull JavaMemberResolver memberResolver
     ) {
-        super(descriptor, MembersProvider.forClass(javaClass, true), memberResolver);
+        super(descriptor, MembersProvider.forClass(javaClass, true, memberResolver.getSamInterfaceCache()), memberResolver);
         this.packageFQN = packageFQN;
         this.javaClass = javaClass;
     }
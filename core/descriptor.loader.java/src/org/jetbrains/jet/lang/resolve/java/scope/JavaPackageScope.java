@@ -48,7 +48,7 @@ public final class JavaPackageScope extends JavaBaseScope {
             @NotNull FqName packageFQN,
             @NotNull JavaMemberResolver memberResolver
     ) {
-        super(descriptor, memberResolver, MembersProvider.forPackage(javaPackage));
+        super(descriptor, memberResolver, MembersProvider.forPackage(javaPackage, memberResolver.getSamInterfaceCache()));
         this.javaPackage = javaPackage;
         this.packageFQN = packageFQN;
     }
@@ -20,239 +20,191 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.jet.lang.descriptors.Visibilities;
 import org.jetbrains.jet.lang.resolve.java.resolver.DescriptorResolverUtils;
-import org.jetbrains.jet.lang.resolve.java.sam.SingleAbstractMethodUtils;
+import org.jetbrains.jet.lang.resolve.java.sam.SamInterfaceCache;
 import org.jetbrains.jet.lang.resolve.java.structure.*;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 import org.jetbrains.jet.lang.resolve.name.Name;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * Groups members of a Java class or package by name. Members are only indexed by name when the cache is built,
+ * all the processing (filtering, SAM interface detection) happens for a name when it's requested for the first time
+ */
 /* package */ final class MembersCache {
-    private final Map<Name, Collection<Runnable>> memberProcessingTasks = new HashMap<Name, Collection<Runnable>>();
+    // Elements which may contribute to the group of each name and haven't been processed yet
+    private final Map<Name, List<JavaNamedElement>> unprocessedMembers = new HashMap<Name, List<JavaNamedElement>>();
     private final Map<Name, NamedMembers> namedMembersMap = new HashMap<Name, NamedMembers>();
 
     @Nullable
-    public NamedMembers get(@NotNull Name name) {
-        runTasksByName(name);
-        return namedMembersMap.get(name);
-    }
-
+    private final JavaClass javaClass;
+    private final boolean staticMembers;
     @NotNull
-    public Collection<NamedMembers> allMembers() {
-        runAllTasks();
-        memberProcessingTasks.clear();
-        return namedMembersMap.values();
+    private final SamInterfaceCache samInterfaceCache;
+    // Names of all methods including inherited ones: a group must exist for each of them, even if no members are included into it
+    private Set<Name> allMethodNames;
+
+    private MembersCache(@Nullable JavaClass javaClass, boolean staticMembers, @NotNull SamInterfaceCache samInterfaceCache) {
+        this.javaClass = javaClass;
+        this.staticMembers = staticMembers;
+        this.samInterfaceCache = samInterfaceCache;
     }
 
-    @NotNull
-    private NamedMembers getOrCreateEmpty(@NotNull JavaNamedElement element) {
-        Name name = element.getName();
-        NamedMembers r = namedMembersMap.get(name);
-        if (r == null) {
-            r = new NamedMembers(name);
-            namedMembersMap.put(name, r);
+    @Nullable
+    public NamedMembers get(@NotNull Name name) {
+        NamedMembers members = namedMembersMap.get(name);
+        if (members != null) return members;
+
+        List<JavaNamedElement> elements = unprocessedMembers.remove(name);
+        if (elements == null) {
+            if (!getAllMethodNames().contains(name)) return null;
+            elements = Collections.emptyList();
         }
-        return r;
-    }
 
-    private void addTask(@NotNull JavaNamedElement member, @NotNull RunOnce task) {
-        Name name = member.getName();
-        Collection<Runnable> tasks = memberProcessingTasks.get(name);
-        if (tasks == null) {
-            tasks = new HashSet<Runnable>();
-            memberProcessingTasks.put(name, tasks);
+        members = new NamedMembers(name);
+        // The group is created for any field or method, even if it's excluded, but not for a class which is not a SAM interface
+        boolean groupRequired = false;
+        for (JavaNamedElement element : elements) {
+            groupRequired |= processMember(element, members);
         }
-        tasks.add(task);
+        if (!groupRequired && !getAllMethodNames().contains(name)) return null;
+
+        namedMembersMap.put(name, members);
+        return members;
     }
 
-    private void runTasksByName(Name name) {
-        if (!memberProcessingTasks.containsKey(name)) return;
-        Collection<Runnable> tasks = memberProcessingTasks.get(name);
-        for (Runnable task : tasks) {
-            task.run();
+    @NotNull
+    public Collection<NamedMembers> allMembers() {
+        for (Name name : new ArrayList<Name>(unprocessedMembers.keySet())) {
+            get(name);
+        }
+        for (Name name : getAllMethodNames()) {
+            get(name);
         }
-        // Delete tasks
-        tasks.clear();
+        return namedMembersMap.values();
     }
 
-    private void runAllTasks() {
-        for (Collection<Runnable> tasks : memberProcessingTasks.values()) {
-            for (Runnable task : tasks) {
-                task.run();
+    @NotNull
+    private Set<Name> getAllMethodNames() {
+        if (allMethodNames == null) {
+            if (javaClass == null) {
+                allMethodNames = Collections.emptySet();
+            }
+            else {
+                Collection<JavaMethod> methods = javaClass.getAllMethods();
+                allMethodNames = new HashSet<Name>(methods.size());
+                for (JavaMethod method : methods) {
+                    allMethodNames.add(method.getName());
+                }
             }
         }
+        return allMethodNames;
     }
 
-    @NotNull
-    public static MembersCache buildForClass(@NotNull JavaClass javaClass, boolean staticMembers) {
-        MembersCache membersCache = new MembersCache();
-
-        membersCache.new ClassMemberProcessor(javaClass, staticMembers).process();
-        membersCache.new ExtraPackageMembersProcessor(javaClass.getInnerClasses()).process();
-
-        return membersCache;
+    private void index(@NotNull JavaNamedElement element) {
+        Name name = element.getName();
+        List<JavaNamedElement> elements = unprocessedMembers.get(name);
+        if (elements == null) {
+            elements = new ArrayList<JavaNamedElement>(1);
+            unprocessedMembers.put(name, elements);
+        }
+        elements.add(element);
     }
 
     @NotNull
-    public static MembersCache buildForPackage(@NotNull JavaPackage javaPackage) {
-        MembersCache membersCache = new MembersCache();
-
-        Collection<JavaClass> classes = DescriptorResolverUtils.getClassesInPackage(javaPackage);
-        membersCache.new ExtraPackageMembersProcessor(classes).process();
+    public static MembersCache buildForClass(
+            @NotNull JavaClass javaClass,
+            boolean staticMembers,
+            @NotNull SamInterfaceCache samInterfaceCache
+    ) {
+        MembersCache membersCache = new MembersCache(javaClass, staticMembers, samInterfaceCache);
 
-        return membersCache;
-    }
-
-    private class ExtraPackageMembersProcessor { // 'extra' means that PSI elements for these members are not just top-level classes
-        @NotNull
-        private final Collection<JavaClass> javaClasses;
-
-        private ExtraPackageMembersProcessor(@NotNull Collection<JavaClass> javaClasses) {
-            this.javaClasses = javaClasses;
+        for (JavaField field : javaClass.getAllFields()) {
+            membersCache.index(field);
         }
-
-        private void process() {
-            for (JavaClass javaClass : javaClasses) {
-                if (javaClass.getOriginKind() != JavaClass.OriginKind.KOTLIN_LIGHT_CLASS) {
-                    if (SingleAbstractMethodUtils.isSamInterface(javaClass)) {
-                        processSamInterface(javaClass);
-                    }
-                }
-            }
+        for (JavaMethod method : javaClass.getMethods()) {
+            membersCache.index(method);
         }
-
-        private void processSamInterface(@NotNull JavaClass javaClass) {
-            getOrCreateEmpty(javaClass).setSamInterface(javaClass);
+        for (JavaClass nested : javaClass.getInnerClasses()) {
+            membersCache.index(nested);
         }
+
+        return membersCache;
     }
 
-    private class ClassMemberProcessor {
-        @NotNull
-        private final JavaClass javaClass;
-        private final boolean staticMembers;
+    @NotNull
+    public static MembersCache buildForPackage(@NotNull JavaPackage javaPackage, @NotNull SamInterfaceCache samInterfaceCache) {
+        MembersCache membersCache = new MembersCache(null, true, samInterfaceCache);
 
-        private ClassMemberProcessor(@NotNull JavaClass javaClass, boolean staticMembers) {
-            this.javaClass = javaClass;
-            this.staticMembers = staticMembers;
+        for (JavaClass javaClass : DescriptorResolverUtils.getClassesInPackage(javaPackage)) {
+            membersCache.index(javaClass);
         }
 
-        private void process() {
-            processFields();
-            processMethods();
-            processNestedClasses();
-        }
+        return membersCache;
+    }
 
-        private void processFields() {
-            for (final JavaField field : javaClass.getAllFields()) {
-                addTask(field, new RunOnce() {
-                    @Override
-                    public void doRun() {
-                        processField(field);
-                    }
-                });
+    /**
+     * @return true if the element requires a group for its name to exist
+     */
+    private boolean processMember(@NotNull JavaNamedElement element, @NotNull NamedMembers members) {
+        if (element instanceof JavaField) {
+            if (includeMember((JavaField) element)) {
+                members.addField((JavaField) element);
             }
+            return true;
         }
-
-        private void processMethods() {
-            createEntriesForAllMethods();
-            processOwnMethods();
-        }
-
-        private void createEntriesForAllMethods() {
-            for (JavaMethod method : javaClass.getAllMethods()) {
-                getOrCreateEmpty(method);
+        else if (element instanceof JavaMethod) {
+            if (includeMember((JavaMethod) element)) {
+                members.addMethod((JavaMethod) element);
             }
+            return true;
         }
-
-        private void processOwnMethods() {
-            for (final JavaMethod method : javaClass.getMethods()) {
-                addTask(method, new RunOnce() {
-                    @Override
-                    public void doRun() {
-                        processOwnMethod(method);
-                    }
-                });
+        else if (element instanceof JavaClass) {
+            // Nested classes and classes in packages are 'extra' members: they only contribute SAM constructors.
+            // Light classes are skipped, unless they're nested classes looked up in static members of their outer class
+            JavaClass nested = (JavaClass) element;
+            boolean lookAtLightClasses = javaClass != null && staticMembers;
+            if ((lookAtLightClasses || nested.getOriginKind() != JavaClass.OriginKind.KOTLIN_LIGHT_CLASS) &&
+                samInterfaceCache.isSamInterface(nested)) {
+                members.setSamInterface(nested);
+                return true;
             }
+            return false;
         }
-
-        private void processNestedClasses() {
-            if (!staticMembers) {
-                return;
-            }
-            for (final JavaClass nested : javaClass.getInnerClasses()) {
-                addTask(nested, new RunOnce() {
-                    @Override
-                    public void doRun() {
-                        processNestedClass(nested);
-                    }
-                });
-            }
+        else {
+            throw new IllegalStateException("Unexpected member: " + element);
         }
+    }
 
-        private boolean includeMember(@NotNull JavaMember member) {
-            if (javaClass.isEnum() && staticMembers) {
-                return member.isStatic();
-            }
-
-            if (member.isStatic() != staticMembers) {
-                return false;
-            }
-
-            if (!isInCurrentClass(member)) {
-                return false;
-            }
-
-            if (member.getVisibility() == Visibilities.PRIVATE) {
-                return false;
-            }
-
-            if (DescriptorResolverUtils.isObjectMethodInInterface(member)) {
-                return false;
-            }
+    private boolean includeMember(@NotNull JavaMember member) {
+        assert javaClass != null : "Fields and methods are only indexed for classes: " + member;
 
-            return true;
+        if (javaClass.isEnum() && staticMembers) {
+            return member.isStatic();
         }
 
-        private boolean isInCurrentClass(@NotNull JavaMember member) {
-            FqName fqName = member.getContainingClass().getFqName();
-            return fqName != null && fqName.equals(javaClass.getFqName());
+        if (member.isStatic() != staticMembers) {
+            return false;
         }
 
-        private void processField(@NotNull JavaField field) {
-            // group must be created even for excluded field
-            NamedMembers namedMembers = getOrCreateEmpty(field);
-
-            if (includeMember(field)) {
-                namedMembers.addField(field);
-            }
+        if (!isInCurrentClass(member)) {
+            return false;
         }
 
-        private void processOwnMethod(@NotNull JavaMethod ownMethod) {
-            if (includeMember(ownMethod)) {
-                getOrCreateEmpty(ownMethod).addMethod(ownMethod);
-            }
+        if (member.getVisibility() == Visibilities.PRIVATE) {
+            return false;
         }
 
-        private void processNestedClass(@NotNull JavaClass nested) {
-            if (SingleAbstractMethodUtils.isSamInterface(nested)) {
-                getOrCreateEmpty(nested).setSamInterface(nested);
-            }
+        if (DescriptorResolverUtils.isObjectMethodInInterface(member)) {
+            return false;
         }
-    }
-
-    private static abstract class RunOnce implements Runnable {
-        private boolean hasRun = false;
 
-        @Override
-        public final void run() {
-            if (hasRun) return;
-            hasRun = true;
-            doRun();
-        }
+        return true;
+    }
 
-        protected abstract void doRun();
+    private boolean isInCurrentClass(@NotNull JavaMember member) {
+        assert javaClass != null : "Fields and methods are only indexed for classes: " + member;
+        FqName fqName = member.getContainingClass().getFqName();
+        return fqName != null && fqName.equals(javaClass.getFqName());
     }
 }
@@ -18,6 +18,7 @@ package org.jetbrains.jet.lang.resolve.java.scope;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.java.sam.SamInterfaceCache;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaClass;
 import org.jetbrains.jet.lang.resolve.java.structure.JavaPackage;
 import org.jetbrains.jet.lang.resolve.name.Name;
@@ -30,23 +31,31 @@ import java.util.Collection;
     @Nullable
     private final JavaPackage javaPackage;
     private final boolean staticMembers;
+    @NotNull
+    private final SamInterfaceCache samInterfaceCache;
 
     private MembersCache membersCache;
 
-    private MembersProvider(@Nullable JavaClass javaClass, @Nullable JavaPackage javaPackage, boolean staticMembers) {
+    private MembersProvider(
+            @Nullable JavaClass javaClass,
+            @Nullable JavaPackage javaPackage,
+            boolean staticMembers,
+            @NotNull SamInterfaceCache samInterfaceCache
+    ) {
         this.javaClass = javaClass;
         this.javaPackage = javaPackage;
         this.staticMembers = staticMembers;
+        this.samInterfaceCache = samInterfaceCache;
     }
 
     @NotNull
-    public static MembersProvider forPackage(@NotNull JavaPackage javaPackage) {
-        return new MembersProvider(null, javaPackage, true);
+    public static MembersProvider forPackage(@NotNull JavaPackage javaPackage, @NotNull SamInterfaceCache samInterfaceCache) {
+        return new MembersProvider(null, javaPackage, true, samInterfaceCache);
     }
 
     @NotNull
-    public static MembersProvider forClass(@NotNull JavaClass javaClass, boolean staticMembers) {
-        return new MembersProvider(javaClass, null, staticMembers);
+    public static MembersProvider forClass(@NotNull JavaClass javaClass, boolean staticMembers, @NotNull SamInterfaceCache samInterfaceCache) {
+        return new MembersProvider(javaClass, null, staticMembers, samInterfaceCache);
     }
 
     @Nullable
@@ -63,10 +72,10 @@ import java.util.Collection;
     private MembersCache getMembersCache() {
         if (membersCache == null) {
             if (javaClass != null) {
-                membersCache = MembersCache.buildForClass(javaClass, staticMembers);
+                membersCache = MembersCache.buildForClass(javaClass, staticMembers, samInterfaceCache);
             }
             else if (javaPackage != null) {
-                membersCache = MembersCache.buildForPackage(javaPackage);
+                membersCache = MembersCache.buildForPackage(javaPackage, samInterfaceCache);
             }
             else {
                 throw new IllegalStateException("MembersProvider should be created either for a class or for a package");
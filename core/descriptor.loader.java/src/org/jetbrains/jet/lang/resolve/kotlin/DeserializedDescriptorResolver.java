@@ -18,9 +18,12 @@ package org.jetbrains.jet.lang.resolve.kotlin;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.descriptors.serialization.ClassData;
 import org.jetbrains.jet.descriptors.serialization.ClassId;
 import org.jetbrains.jet.descriptors.serialization.DescriptorFinder;
 import org.jetbrains.jet.descriptors.serialization.JavaProtoBufUtil;
+import org.jetbrains.jet.descriptors.serialization.NameResolver;
+import org.jetbrains.jet.descriptors.serialization.PackageData;
 import org.jetbrains.jet.descriptors.serialization.descriptors.DeserializedClassDescriptor;
 import org.jetbrains.jet.descriptors.serialization.descriptors.DeserializedPackageMemberScope;
 import org.jetbrains.jet.lang.descriptors.ClassDescriptor;
@@ -96,23 +99,47 @@ public final class DeserializedDescriptorResolver {
 
     @Nullable
     public ClassDescriptor resolveClass(@NotNull KotlinJvmBinaryClass kotlinClass) {
-        String[] data = readData(kotlinClass);
-        return data == null ? null : new DeserializedClassDescriptor(storageManager, annotationDeserializer, javaDescriptorFinder,
-                                                                     JavaProtoBufUtil.readClassDataFrom(data));
+        SerializedDataHeader header = readHeader(kotlinClass);
+        if (header == null) return null;
+
+        byte[] data = header.getData();
+        ClassData classData;
+        if (header.getSharedNameTableChecksum() != null) {
+            NameResolver nameResolver = loadSharedNameResolver(kotlinClass, header);
+            if (nameResolver == null) return null;
+            classData = JavaProtoBufUtil.readClassDataFrom(data, nameResolver);
+        }
+        else {
+            classData = JavaProtoBufUtil.readClassDataFrom(data);
+        }
+
+        return new DeserializedClassDescriptor(storageManager, annotationDeserializer, javaDescriptorFinder, classData);
     }
 
     @Nullable
     public JetScope createKotlinPackageScope(@NotNull NamespaceDescriptor descriptor, @NotNull KotlinJvmBinaryClass kotlinClass) {
-        String[] data = readData(kotlinClass);
-        return data == null ? null : new DeserializedPackageMemberScope(storageManager, descriptor, annotationDeserializer,
-                                                                        javaDescriptorFinder, JavaProtoBufUtil.readPackageDataFrom(data));
+        SerializedDataHeader header = readHeader(kotlinClass);
+        if (header == null) return null;
+
+        byte[] data = header.getData();
+        PackageData packageData;
+        if (header.getSharedNameTableChecksum() != null) {
+            NameResolver nameResolver = loadSharedNameResolver(kotlinClass, header);
+            if (nameResolver == null) return null;
+            packageData = JavaProtoBufUtil.readPackageDataFrom(data, nameResolver);
+        }
+        else {
+            packageData = JavaProtoBufUtil.readPackageDataFrom(data);
+        }
+
+        return new DeserializedPackageMemberScope(storageManager, descriptor, annotationDeserializer, javaDescriptorFinder, packageData);
     }
 
     @Nullable
-    private String[] readData(@NotNull KotlinJvmBinaryClass kotlinClass) {
-        KotlinClassHeader header = KotlinClassHeader.read(kotlinClass);
+    private SerializedDataHeader readHeader(@NotNull KotlinJvmBinaryClass kotlinClass) {
+        KotlinClassHeader header = kotlinClass.getClassHeader();
         if (header instanceof SerializedDataHeader) {
-            return ((SerializedDataHeader) header).getAnnotationData();
+            return (SerializedDataHeader) header;
         }
 
         if (header != null) {
@@ -121,4 +148,17 @@ public final class DeserializedDescriptorResolver {
 
         return null;
     }
+
+    @Nullable
+    private NameResolver loadSharedNameResolver(@NotNull KotlinJvmBinaryClass kotlinClass, @NotNull SerializedDataHeader header) {
+        Integer checksum = header.getSharedNameTableChecksum();
+        assert checksum != null : "No shared name table for " + kotlinClass;
+        NameResolver nameResolver = kotlinClass.loadSharedNameResolver(checksum);
+        if (nameResolver == null) {
+            // The name table is missing or was overwritten by another compilation: the class can't be read, same as
+            // a class compiled by an incompatible compiler
+            errorReporter.reportIncompatibleAbiVersion(kotlinClass, header.getVersion());
+        }
+        return nameResolver;
+    }
 }
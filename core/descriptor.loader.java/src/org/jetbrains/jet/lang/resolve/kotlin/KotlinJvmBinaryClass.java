@@ -18,15 +18,33 @@ package org.jetbrains.jet.lang.resolve.kotlin;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.descriptors.serialization.NameResolver;
 import org.jetbrains.jet.lang.resolve.java.JvmClassName;
+import org.jetbrains.jet.lang.resolve.kotlin.header.KotlinClassHeader;
 import org.jetbrains.jet.lang.resolve.name.Name;
 
 public interface KotlinJvmBinaryClass {
     @NotNull
     JvmClassName getClassName();
 
+    /**
+     * @return the header of this class, or null if this is not a Kotlin class. Implementations are expected to cache the result
+     */
+    @Nullable
+    KotlinClassHeader getClassHeader();
+
     void loadClassAnnotations(@NotNull AnnotationVisitor visitor);
 
+    /**
+     * @return names from the file {@link org.jetbrains.jet.lang.resolve.java.JvmAbi#SHARED_NAME_TABLE_FILE_NAME} located next to
+     * this class, or null if there's no such file or its checksum differs from the given one
+     */
+    @Nullable
+    NameResolver loadSharedNameResolver(int checksum);
+
+    /**
+     * Only fields and methods which have annotations are guaranteed to be visited
+     */
     void loadMemberAnnotations(@NotNull MemberVisitor visitor);
 
     interface MemberVisitor {
@@ -46,6 +64,17 @@ public interface KotlinJvmBinaryClass {
         void visitEnd();
     }
 
+    /**
+     * A visitor of class annotations which is also given the contents of the class file attribute
+     * {@link org.jetbrains.jet.lang.resolve.java.JvmAnnotationNames#DATA_ATTRIBUTE_NAME} and
+     * {@link org.jetbrains.jet.lang.resolve.java.JvmAnnotationNames#NAME_TABLE_ATTRIBUTE_NAME}, if they're present
+     */
+    interface ClassAnnotationVisitor extends AnnotationVisitor {
+        void visitDataAttribute(@NotNull byte[] data);
+
+        void visitNameTableAttribute(int checksum);
+    }
+
     interface MethodAnnotationVisitor extends AnnotationVisitor {
         @Nullable
         AnnotationArgumentVisitor visitParameterAnnotation(int index, @NotNull JvmClassName className);
@@ -30,9 +30,9 @@ import java.util.List;
 
 import static org.jetbrains.jet.lang.resolve.java.AbiVersionUtil.isAbiVersionCompatible;
 import static org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass.AnnotationArgumentVisitor;
-import static org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass.AnnotationVisitor;
+import static org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass.ClassAnnotationVisitor;
 
-/* package */ class ReadKotlinClassHeaderAnnotationVisitor implements AnnotationVisitor {
+/* package */ class ReadKotlinClassHeaderAnnotationVisitor implements ClassAnnotationVisitor {
     @SuppressWarnings("deprecation")
     private enum HeaderType {
         CLASS(JvmAnnotationNames.KOTLIN_CLASS),
@@ -64,6 +64,10 @@ import static org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass.Annotat
     @Nullable
     private String[] annotationData = null;
     @Nullable
+    private byte[] binaryData = null;
+    @Nullable
+    private Integer nameTableChecksum = null;
+    @Nullable
     private HeaderType foundType = null;
 
     private ReadKotlinClassHeaderAnnotationVisitor() {
@@ -102,12 +106,15 @@ import static org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass.Annotat
 
     @Nullable
     private SerializedDataHeader serializedDataHeader(@NotNull SerializedDataHeader.Kind kind) {
-        if (annotationData == null) {
-            // This means that the annotation is found and its ABI version is compatible, but there's no "data" string array in it.
-            // We tell the outside world that there's really no annotation at all
-            return null;
+        if (annotationData != null) {
+            return new SerializedDataHeader(version, annotationData, kind);
         }
-        return new SerializedDataHeader(version, annotationData, kind);
+        if (binaryData != null) {
+            return new SerializedDataHeader(version, binaryData, nameTableChecksum, kind);
+        }
+        // This means that the annotation is found and its ABI version is compatible, but there's no "data" string array in it
+        // and no data attribute in the class. We tell the outside world that there's really no annotation at all
+        return null;
     }
 
     @Nullable
@@ -133,6 +140,16 @@ import static org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass.Annotat
         return null;
     }
 
+    @Override
+    public void visitDataAttribute(@NotNull byte[] data) {
+        binaryData = data;
+    }
+
+    @Override
+    public void visitNameTableAttribute(int checksum) {
+        nameTableChecksum = checksum;
+    }
+
     @Override
     public void visitEnd() {
     }
@@ -17,6 +17,8 @@
 package org.jetbrains.jet.lang.resolve.kotlin.header;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.descriptors.serialization.BitEncoding;
 
 public class SerializedDataHeader extends KotlinClassHeader {
     public enum Kind {
@@ -24,18 +26,47 @@ public class SerializedDataHeader extends KotlinClassHeader {
         PACKAGE
     }
 
-    private final String[] data;
+    // Exactly one of these is not null: strings from the annotation or raw bytes from the class file attribute
+    @Nullable
+    private final String[] annotationData;
+    @Nullable
+    private final byte[] binaryData;
+    // Not null if names in the binary data refer to the table shared by classes in the same directory
+    @Nullable
+    private final Integer nameTableChecksum;
     private final Kind kind;
 
     protected SerializedDataHeader(int version, @NotNull String[] annotationData, @NotNull Kind kind) {
         super(version);
-        this.data = annotationData;
+        this.annotationData = annotationData;
+        this.binaryData = null;
+        this.nameTableChecksum = null;
+        this.kind = kind;
+    }
+
+    protected SerializedDataHeader(int version, @NotNull byte[] binaryData, @Nullable Integer nameTableChecksum, @NotNull Kind kind) {
+        super(version);
+        this.annotationData = null;
+        this.binaryData = binaryData;
+        this.nameTableChecksum = nameTableChecksum;
         this.kind = kind;
     }
 
     @NotNull
-    public String[] getAnnotationData() {
-        return data;
+    public byte[] getData() {
+        if (binaryData != null) {
+            return binaryData;
+        }
+        assert annotationData != null : "No data in the header";
+        return BitEncoding.decodeBytes(annotationData);
+    }
+
+    /**
+     * @return checksum of the shared name table the data refers to, or null if the data contains its own name table
+     */
+    @Nullable
+    public Integer getSharedNameTableChecksum() {
+        return nameTableChecksum;
     }
 
     @NotNull
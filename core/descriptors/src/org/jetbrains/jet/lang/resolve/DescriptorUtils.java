@@ -42,6 +42,8 @@ import static org.jetbrains.jet.lang.descriptors.ReceiverParameterDescriptor.NO_
 public class DescriptorUtils {
     public static final Name ROOT_NAMESPACE_NAME = Name.special("<root namespace>");
 
+    private static final FqNameUnsafe TAIL_RECURSIVE_ANNOTATION_FQ_NAME = new FqNameUnsafe("kotlin.tailRecursive");
+
     private DescriptorUtils() {
     }
 
@@ -449,6 +451,16 @@ public class DescriptorUtils {
                && methodTypeParameters.isEmpty();
     }
 
+    public static boolean isTailRecursive(@NotNull FunctionDescriptor functionDescriptor) {
+        for (AnnotationDescriptor annotation : functionDescriptor.getOriginal().getAnnotations()) {
+            ClassifierDescriptor annotationClass = annotation.getType().getConstructor().getDeclarationDescriptor();
+            if (annotationClass != null && TAIL_RECURSIVE_ANNOTATION_FQ_NAME.equals(getFQName(annotationClass))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @NotNull
     public static Set<ClassDescriptor> getAllSuperClasses(@NotNull ClassDescriptor klass) {
         Set<JetType> allSupertypes = TypeUtils.getAllSupertypes(klass.getDefaultType());
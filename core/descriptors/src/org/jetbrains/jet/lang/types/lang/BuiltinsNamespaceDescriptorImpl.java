@@ -1,5 +1,6 @@
 package org.jetbrains.jet.lang.types.lang;
 
+import com.google.protobuf.ExtensionRegistryLite;
 import jet.Function0;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -14,6 +15,7 @@ import org.jetbrains.jet.lang.resolve.scopes.JetScope;
 import org.jetbrains.jet.storage.NotNullLazyValue;
 import org.jetbrains.jet.storage.StorageManager;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,11 +40,27 @@ class BuiltinsNamespaceDescriptorImpl extends AbstractNamespaceDescriptorImpl {
     }
 
     @NotNull
-    private ProtoBuf.Package loadPackage() {
+    private MemberProtoIndex loadPackage() {
         String packageFilePath = BuiltInsSerializationUtil.getPackageFilePath(this);
-        InputStream stream = getStream(packageFilePath);
+        byte[] bytes = readBytes(getStream(packageFilePath));
+        return PackageData.read(nameResolver, bytes, 0, bytes.length, ExtensionRegistryLite.getEmptyRegistry()).getMembers();
+    }
+
+    @NotNull
+    private static byte[] readBytes(@NotNull InputStream stream) {
         try {
-            return ProtoBuf.Package.parseFrom(stream);
+            try {
+                ByteArrayOutputStream result = new ByteArrayOutputStream(stream.available());
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = stream.read(buffer)) > 0) {
+                    result.write(buffer, 0, read);
+                }
+                return result.toByteArray();
+            }
+            finally {
+                stream.close();
+            }
         }
         catch (IOException e) {
             throw new IllegalStateException(e);
@@ -116,22 +134,19 @@ class BuiltinsNamespaceDescriptorImpl extends AbstractNamespaceDescriptorImpl {
                 return null;
             }
 
-            try {
-                ProtoBuf.Class classProto = ProtoBuf.Class.parseFrom(stream);
-
-                Name expectedShortName = classId.getRelativeClassName().shortName();
-                Name actualShortName = nameResolver.getClassId(classProto.getFqName()).getRelativeClassName().shortName();
-                if (!actualShortName.isSpecial() && !actualShortName.equals(expectedShortName)) {
-                    // Workaround for case-insensitive file systems,
-                    // otherwise we'd find "Collection" for "collection" etc
-                    return null;
-                }
+            byte[] bytes = readBytes(stream);
+            ClassData classData = ClassData.read(nameResolver, bytes, 0, bytes.length, ExtensionRegistryLite.getEmptyRegistry());
 
-                return new ClassData(nameResolver, classProto);
-            }
-            catch (IOException e) {
-                throw new IllegalStateException(e);
+            Name expectedShortName = classId.getRelativeClassName().shortName();
+            int fqName = classData.getClassProtoWithoutMembers().getFqName();
+            Name actualShortName = nameResolver.getClassId(fqName).getRelativeClassName().shortName();
+            if (!actualShortName.isSpecial() && !actualShortName.equals(expectedShortName)) {
+                // Workaround for case-insensitive file systems,
+                // otherwise we'd find "Collection" for "collection" etc
+                return null;
             }
+
+            return classData;
         }
 
         @Nullable
@@ -70,7 +70,6 @@ public class KotlinBuiltIns {
             initializing = true;
             try {
                 instance = new KotlinBuiltIns();
-                instance.doInitialize();
             }
             catch (Throwable e) {
                 initializationFailed = e;
@@ -98,35 +97,40 @@ public class KotlinBuiltIns {
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-    private final ModuleDescriptorImpl builtInsModule;
-
-    private volatile ImmutableSet<ClassDescriptor> nonPhysicalClasses;
+    // Names of FunctionN and ExtensionFunctionN: function types are recognized by name, so that these classes are only
+    // deserialized when they are actually used
+    private static final ImmutableSet<Name> FUNCTION_CLASS_NAMES = computeIndexedNames("Function", FUNCTION_TRAIT_COUNT);
+    private static final ImmutableSet<Name> EXTENSION_FUNCTION_CLASS_NAMES = computeIndexedNames("ExtensionFunction", FUNCTION_TRAIT_COUNT);
 
-    private final ImmutableSet<ClassDescriptor> functionClassesSet;
-
-    private final ImmutableSet<ClassDescriptor> extensionFunctionClassesSet;
+    private final ModuleDescriptorImpl builtInsModule;
 
-    private final EnumMap<PrimitiveType, ClassDescriptor> primitiveTypeToClass;
-    private final EnumMap<PrimitiveType, ClassDescriptor> primitiveTypeToArrayClass;
-    private final EnumMap<PrimitiveType, JetType> primitiveTypeToJetType;
-    private final EnumMap<PrimitiveType, JetType> primitiveTypeToNullableJetType;
-    private final EnumMap<PrimitiveType, JetType> primitiveTypeToArrayJetType;
-    private final Map<JetType, JetType> primitiveJetTypeToJetArrayType;
-    private final Map<JetType, JetType> jetArrayTypeToPrimitiveJetType;
+    private final NamespaceDescriptor builtInsPackage;
 
-    private final ClassDescriptor nothingClass;
-    private final ClassDescriptor arrayClass;
-    private final ClassDescriptor deprecatedAnnotationClass;
-    private final ClassDescriptor dataAnnotationClass;
-    private final ClassDescriptor[] functionClasses;
+    // Everything below is computed on first access, since the built-ins are deserialized class by class on demand
+    private volatile ImmutableSet<ClassDescriptor> nonPhysicalClasses;
 
-    private volatile JetType anyType;
-    private volatile JetType nullableAnyType;
-    private volatile JetType nothingType;
-    private volatile JetType nullableNothingType;
-    private volatile JetType unitType;
-    private volatile JetType stringType;
-    private volatile JetType annotationType;
+    private volatile PrimitiveTypes primitiveTypes;
+
+    private static class PrimitiveTypes {
+        private final EnumMap<PrimitiveType, JetType> primitiveTypeToNullableJetType =
+                new EnumMap<PrimitiveType, JetType>(PrimitiveType.class);
+        private final EnumMap<PrimitiveType, JetType> primitiveTypeToArrayJetType =
+                new EnumMap<PrimitiveType, JetType>(PrimitiveType.class);
+        private final Map<JetType, JetType> primitiveJetTypeToJetArrayType = new HashMap<JetType, JetType>();
+        private final Map<JetType, JetType> jetArrayTypeToPrimitiveJetType = new HashMap<JetType, JetType>();
+
+        private PrimitiveTypes(@NotNull KotlinBuiltIns builtIns) {
+            for (PrimitiveType primitiveType : PrimitiveType.values()) {
+                JetType type = new JetTypeImpl(builtIns.getPrimitiveClassDescriptor(primitiveType));
+                JetType arrayType = new JetTypeImpl(builtIns.getPrimitiveArrayClassDescriptor(primitiveType));
+
+                primitiveTypeToNullableJetType.put(primitiveType, TypeUtils.makeNullable(type));
+                primitiveTypeToArrayJetType.put(primitiveType, arrayType);
+                primitiveJetTypeToJetArrayType.put(type, arrayType);
+                jetArrayTypeToPrimitiveJetType.put(arrayType, type);
+            }
+        }
+    }
 
     private KotlinBuiltIns() {
         try {
@@ -134,34 +138,15 @@ public class KotlinBuiltIns {
                                                            DefaultModuleConfiguration.DEFAULT_JET_IMPORTS,
                                                            PlatformToKotlinClassMap.EMPTY);
             builtInsModule.setModuleConfiguration(ModuleConfiguration.EMPTY);
-            loadBuiltIns(builtInsModule);
-
-            this.functionClassesSet = computeIndexedClasses("Function", FUNCTION_TRAIT_COUNT);
-            this.extensionFunctionClassesSet = computeIndexedClasses("ExtensionFunction", FUNCTION_TRAIT_COUNT);
-
-            this.primitiveTypeToClass = new EnumMap<PrimitiveType, ClassDescriptor>(PrimitiveType.class);
-            this.primitiveTypeToJetType = new EnumMap<PrimitiveType, JetType>(PrimitiveType.class);
-            this.primitiveTypeToNullableJetType = new EnumMap<PrimitiveType, JetType>(PrimitiveType.class);
-            this.primitiveTypeToArrayClass = new EnumMap<PrimitiveType, ClassDescriptor>(PrimitiveType.class);
-            this.primitiveTypeToArrayJetType = new EnumMap<PrimitiveType, JetType>(PrimitiveType.class);
-            this.primitiveJetTypeToJetArrayType = new HashMap<JetType, JetType>();
-            this.jetArrayTypeToPrimitiveJetType = new HashMap<JetType, JetType>();
-
-            this.nothingClass = getBuiltInClassByName("Nothing");
-            this.arrayClass = getBuiltInClassByName("Array");
-            this.deprecatedAnnotationClass = getBuiltInClassByName("deprecated");
-            this.dataAnnotationClass = getBuiltInClassByName("data");
-            this.functionClasses = new ClassDescriptor[FUNCTION_TRAIT_COUNT];
-            for (int i = 0; i < functionClasses.length; i++) {
-                functionClasses[i] = getBuiltInClassByName("Function" + i);
-            }
+            this.builtInsPackage = loadBuiltIns(builtInsModule);
         }
         catch (IOException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    private static void loadBuiltIns(@NotNull ModuleDescriptorImpl module) throws IOException {
+    @NotNull
+    private static NamespaceDescriptor loadBuiltIns(@NotNull ModuleDescriptorImpl module) throws IOException {
         NamespaceDescriptorImpl rootNamespace =
                         new NamespaceDescriptorImpl(module, Collections.<AnnotationDescriptor>emptyList(), DescriptorUtils.ROOT_NAMESPACE_NAME);
         rootNamespace.initialize(
@@ -169,39 +154,21 @@ public class KotlinBuiltIns {
 
         module.setRootNamespace(rootNamespace);
 
-        rootNamespace.getMemberScope().addNamespace(new BuiltinsNamespaceDescriptorImpl(new LockBasedStorageManager(), rootNamespace));
+        NamespaceDescriptor builtInsPackage = new BuiltinsNamespaceDescriptorImpl(new LockBasedStorageManager(), rootNamespace);
+        rootNamespace.getMemberScope().addNamespace(builtInsPackage);
         rootNamespace.getMemberScope().changeLockLevel(WritableScope.LockLevel.READING);
+        return builtInsPackage;
     }
 
-    private void doInitialize() {
-        anyType = getBuiltInTypeByClassName("Any");
-        nullableAnyType = TypeUtils.makeNullable(anyType);
-        nothingType = getBuiltInTypeByClassName("Nothing");
-        nullableNothingType = TypeUtils.makeNullable(nothingType);
-        unitType = getBuiltInTypeByClassName("Unit");
-        stringType = getBuiltInTypeByClassName("String");
-        annotationType = getBuiltInTypeByClassName("Annotation");
-
-        for (PrimitiveType primitive : PrimitiveType.values()) {
-            makePrimitive(primitive);
+    @NotNull
+    private PrimitiveTypes getPrimitiveTypes() {
+        PrimitiveTypes result = primitiveTypes;
+        if (result == null) {
+            // Computing it twice in different threads is harmless: the types are equal
+            result = new PrimitiveTypes(this);
+            primitiveTypes = result;
         }
-
-        nonPhysicalClasses = computeNonPhysicalClasses();
-    }
-
-    private void makePrimitive(PrimitiveType primitiveType) {
-        ClassDescriptor theClass = getBuiltInClassByName(primitiveType.getTypeName().asString());
-        JetType type = new JetTypeImpl(theClass);
-        ClassDescriptor arrayClass = getBuiltInClassByName(primitiveType.getArrayTypeName().asString());
-        JetType arrayType = new JetTypeImpl(arrayClass);
-
-        primitiveTypeToClass.put(primitiveType, theClass);
-        primitiveTypeToJetType.put(primitiveType, type);
-        primitiveTypeToNullableJetType.put(primitiveType, TypeUtils.makeNullable(type));
-        primitiveTypeToArrayClass.put(primitiveType, arrayClass);
-        primitiveTypeToArrayJetType.put(primitiveType, arrayType);
-        primitiveJetTypeToJetArrayType.put(type, arrayType);
-        jetArrayTypeToPrimitiveJetType.put(arrayType, type);
+        return result;
     }
 
     ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -213,9 +180,7 @@ public class KotlinBuiltIns {
 
     @NotNull
     public NamespaceDescriptor getBuiltInsPackage() {
-        NamespaceDescriptor namespace = getBuiltInsModule().getNamespace(BUILT_INS_PACKAGE_FQ_NAME);
-        assert namespace != null : "Built ins namespace not found: " + BUILT_INS_PACKAGE_FQ_NAME;
-        return namespace;
+        return builtInsPackage;
     }
 
     @NotNull
@@ -307,17 +272,6 @@ public class KotlinBuiltIns {
 
     // Recognized
 
-    @NotNull
-    public Set<DeclarationDescriptor> getIntegralRanges() {
-        return ImmutableSet.<DeclarationDescriptor>of(
-                getBuiltInClassByName("ByteRange"),
-                getBuiltInClassByName("ShortRange"),
-                getBuiltInClassByName("CharRange"),
-                getBuiltInClassByName("IntRange"),
-                getBuiltInClassByName("LongRange")
-        );
-    }
-
     @NotNull
     public ClassDescriptor getArray() {
         return getBuiltInClassByName("Array");
@@ -509,7 +463,12 @@ public class KotlinBuiltIns {
      */
     @NotNull
     public Set<ClassDescriptor> getNonPhysicalClasses() {
-        return nonPhysicalClasses;
+        ImmutableSet<ClassDescriptor> result = nonPhysicalClasses;
+        if (result == null) {
+            result = computeNonPhysicalClasses();
+            nonPhysicalClasses = result;
+        }
+        return result;
     }
 
     @NotNull
@@ -605,7 +564,7 @@ public class KotlinBuiltIns {
 
     @NotNull
     public JetType getNullablePrimitiveJetType(@NotNull PrimitiveType primitiveType) {
-        return primitiveTypeToNullableJetType.get(primitiveType);
+        return getPrimitiveTypes().primitiveTypeToNullableJetType.get(primitiveType);
     }
 
     @NotNull
@@ -668,7 +627,7 @@ public class KotlinBuiltIns {
             }
             return arrayType.getArguments().get(0).getType();
         }
-        JetType primitiveType = jetArrayTypeToPrimitiveJetType.get(TypeUtils.makeNotNullable(arrayType));
+        JetType primitiveType = getPrimitiveTypes().jetArrayTypeToPrimitiveJetType.get(TypeUtils.makeNotNullable(arrayType));
         if (primitiveType == null) {
             throw new IllegalStateException("not array: " + arrayType);
         }
@@ -677,7 +636,7 @@ public class KotlinBuiltIns {
 
     @NotNull
     public JetType getPrimitiveArrayJetType(@NotNull PrimitiveType primitiveType) {
-        return primitiveTypeToArrayJetType.get(primitiveType);
+        return getPrimitiveTypes().primitiveTypeToArrayJetType.get(primitiveType);
     }
 
     /**
@@ -685,7 +644,7 @@ public class KotlinBuiltIns {
      */
     @Nullable
     public JetType getPrimitiveArrayJetTypeByPrimitiveJetType(@NotNull JetType jetType) {
-        return primitiveJetTypeToJetArrayType.get(jetType);
+        return getPrimitiveTypes().primitiveJetTypeToJetArrayType.get(jetType);
     }
 
     @NotNull
@@ -817,20 +776,20 @@ public class KotlinBuiltIns {
     }
 
     public boolean isPrimitiveArray(@NotNull JetType type) {
-        return jetArrayTypeToPrimitiveJetType.containsKey(TypeUtils.makeNotNullable(type));
+        return getPrimitiveTypes().jetArrayTypeToPrimitiveJetType.containsKey(TypeUtils.makeNotNullable(type));
     }
 
     public boolean isPrimitiveType(@NotNull JetType type) {
-        return primitiveJetTypeToJetArrayType.containsKey(type);
+        return getPrimitiveTypes().primitiveJetTypeToJetArrayType.containsKey(type);
     }
 
     // Functions
 
     @NotNull
-    private ImmutableSet<ClassDescriptor> computeIndexedClasses(@NotNull String prefix, int count) {
-        ImmutableSet.Builder<ClassDescriptor> builder = ImmutableSet.builder();
+    private static ImmutableSet<Name> computeIndexedNames(@NotNull String prefix, int count) {
+        ImmutableSet.Builder<Name> builder = ImmutableSet.builder();
         for (int i = 0; i < count; i++) {
-            builder.add(getBuiltInClassByName(prefix + i));
+            builder.add(Name.identifier(prefix + i));
         }
         return builder.build();
     }
@@ -840,7 +799,7 @@ public class KotlinBuiltIns {
     }
 
     public boolean isFunctionType(@NotNull JetType type) {
-        if (setContainsClassOf(functionClassesSet, type)) return true;
+        if (isBuiltInClassWithNameFrom(FUNCTION_CLASS_NAMES, type)) return true;
 
         for (JetType superType : type.getConstructor().getSupertypes()) {
             if (isFunctionType(superType)) return true;
@@ -850,7 +809,7 @@ public class KotlinBuiltIns {
     }
 
     public boolean isExtensionFunctionType(@NotNull JetType type) {
-        if (setContainsClassOf(extensionFunctionClassesSet, type)) return true;
+        if (isBuiltInClassWithNameFrom(EXTENSION_FUNCTION_CLASS_NAMES, type)) return true;
 
         for (JetType superType : type.getConstructor().getSupertypes()) {
             if (isExtensionFunctionType(superType)) return true;
@@ -961,8 +920,10 @@ public class KotlinBuiltIns {
         return getNullableAnyType();
     }
 
-    private static boolean setContainsClassOf(ImmutableSet<ClassDescriptor> set, JetType type) {
-        //noinspection SuspiciousMethodCalls
-        return set.contains(type.getConstructor().getDeclarationDescriptor());
+    private boolean isBuiltInClassWithNameFrom(@NotNull Set<Name> names, @NotNull JetType type) {
+        ClassifierDescriptor descriptor = type.getConstructor().getDeclarationDescriptor();
+        return descriptor instanceof ClassDescriptor
+               && names.contains(descriptor.getName())
+               && descriptor.getContainingDeclaration() == builtInsPackage;
     }
 }
@@ -32,11 +32,37 @@ public class JavaProtoBufUtil {
 
     @NotNull
     public static ClassData readClassDataFrom(@NotNull String[] data) {
-        return ClassData.read(BitEncoding.decodeBytes(data), getExtensionRegistry());
+        return readClassDataFrom(BitEncoding.decodeBytes(data));
+    }
+
+    @NotNull
+    public static ClassData readClassDataFrom(@NotNull byte[] data) {
+        return ClassData.read(data, getExtensionRegistry());
+    }
+
+    /**
+     * Reads the class data which doesn't contain a name table, names are taken from the given shared resolver
+     */
+    @NotNull
+    public static ClassData readClassDataFrom(@NotNull byte[] data, @NotNull NameResolver sharedNameResolver) {
+        return ClassData.read(sharedNameResolver, data, 0, data.length, getExtensionRegistry());
     }
 
     @NotNull
     public static PackageData readPackageDataFrom(@NotNull String[] data) {
-        return PackageData.read(BitEncoding.decodeBytes(data), getExtensionRegistry());
+        return readPackageDataFrom(BitEncoding.decodeBytes(data));
+    }
+
+    @NotNull
+    public static PackageData readPackageDataFrom(@NotNull byte[] data) {
+        return PackageData.read(data, getExtensionRegistry());
+    }
+
+    /**
+     * Reads the package data which doesn't contain a name table, names are taken from the given shared resolver
+     */
+    @NotNull
+    public static PackageData readPackageDataFrom(@NotNull byte[] data, @NotNull NameResolver sharedNameResolver) {
+        return PackageData.read(sharedNameResolver, data, 0, data.length, getExtensionRegistry());
     }
 }
@@ -97,32 +97,49 @@ public class JetFromJavaDescriptorHelper {
     public static ClassKind getCompiledClassKind(@NotNull PsiClass psiClass) {
         ClassData classData = getClassData(psiClass);
         if (classData == null) return null;
-        return DescriptorDeserializer.classKind(Flags.CLASS_KIND.get(classData.getClassProto().getFlags()));
+        return DescriptorDeserializer.classKind(Flags.CLASS_KIND.get(classData.getClassProtoWithoutMembers().getFlags()));
     }
 
 
     @Nullable
     private static ClassData getClassData(@NotNull PsiClass psiClass) {
-        String[] data = getAnnotationDataForKotlinClass(psiClass);
-        return data == null ? null : JavaProtoBufUtil.readClassDataFrom(data);
+        VirtualFileKotlinClass kotlinClass = getKotlinClass(psiClass);
+        SerializedDataHeader header = kotlinClass == null ? null : getSerializedDataHeader(kotlinClass);
+        if (header == null) return null;
+
+        Integer checksum = header.getSharedNameTableChecksum();
+        if (checksum == null) {
+            return JavaProtoBufUtil.readClassDataFrom(header.getData());
+        }
+        // The data can't be read if the shared name table is missing or stale, such classes are skipped like classes without data
+        NameResolver nameResolver = kotlinClass.loadSharedNameResolver(checksum);
+        return nameResolver == null ? null : JavaProtoBufUtil.readClassDataFrom(header.getData(), nameResolver);
     }
 
     @Nullable
     private static PackageData getPackageData(@NotNull PsiClass psiClass) {
-        String[] data = getAnnotationDataForKotlinClass(psiClass);
-        return data == null ? null : JavaProtoBufUtil.readPackageDataFrom(data);
+        VirtualFileKotlinClass kotlinClass = getKotlinClass(psiClass);
+        SerializedDataHeader header = kotlinClass == null ? null : getSerializedDataHeader(kotlinClass);
+        if (header == null) return null;
+
+        Integer checksum = header.getSharedNameTableChecksum();
+        if (checksum == null) {
+            return JavaProtoBufUtil.readPackageDataFrom(header.getData());
+        }
+        NameResolver nameResolver = kotlinClass.loadSharedNameResolver(checksum);
+        return nameResolver == null ? null : JavaProtoBufUtil.readPackageDataFrom(header.getData(), nameResolver);
     }
 
     @Nullable
-    private static String[] getAnnotationDataForKotlinClass(@NotNull PsiClass psiClass) {
+    private static VirtualFileKotlinClass getKotlinClass(@NotNull PsiClass psiClass) {
         VirtualFile virtualFile = getVirtualFileForPsiClass(psiClass);
-        if (virtualFile != null) {
-            KotlinClassHeader header = KotlinClassHeader.read(new VirtualFileKotlinClass(virtualFile));
-            if (header instanceof SerializedDataHeader) {
-                return ((SerializedDataHeader) header).getAnnotationData();
-            }
-        }
-        return null;
+        return virtualFile == null ? null : new VirtualFileKotlinClass(virtualFile);
+    }
+
+    @Nullable
+    private static SerializedDataHeader getSerializedDataHeader(@NotNull VirtualFileKotlinClass kotlinClass) {
+        KotlinClassHeader header = kotlinClass.getClassHeader();
+        return header instanceof SerializedDataHeader ? (SerializedDataHeader) header : null;
     }
 
     //TODO: common utility
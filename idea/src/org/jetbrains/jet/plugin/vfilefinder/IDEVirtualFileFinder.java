@@ -18,12 +18,15 @@ package org.jetbrains.jet.plugin.vfilefinder;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.indexing.FileBasedIndex;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.jet.lang.resolve.kotlin.KotlinJvmBinaryClass;
 import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileFinder;
+import org.jetbrains.jet.lang.resolve.kotlin.VirtualFileKotlinClass;
 import org.jetbrains.jet.lang.resolve.name.FqName;
 
 import java.util.Collection;
@@ -32,6 +35,18 @@ public final class IDEVirtualFileFinder implements VirtualFileFinder {
 
     private static final Logger LOG = Logger.getInstance(IDEVirtualFileFinder.class);
 
+    private static final Key<CachedKotlinClass> KOTLIN_CLASS = Key.create("KOTLIN_CLASS");
+
+    private static class CachedKotlinClass {
+        private final long modificationStamp;
+        private final VirtualFileKotlinClass kotlinClass;
+
+        private CachedKotlinClass(long modificationStamp, @NotNull VirtualFileKotlinClass kotlinClass) {
+            this.modificationStamp = modificationStamp;
+            this.kotlinClass = kotlinClass;
+        }
+    }
+
     @NotNull private final Project project;
 
     public IDEVirtualFileFinder(@NotNull Project project) {
@@ -51,4 +66,30 @@ public final class IDEVirtualFileFinder implements VirtualFileFinder {
         }
         return files.iterator().next();
     }
+
+    @Nullable
+    @Override
+    public KotlinJvmBinaryClass findKotlinClass(@NotNull FqName className) {
+        VirtualFile file = find(className);
+        return file == null ? null : getKotlinClass(file);
+    }
+
+    // The instance keeps the parsed header, so it's reused until the file changes
+    @NotNull
+    private static VirtualFileKotlinClass getKotlinClass(@NotNull VirtualFile file) {
+        CachedKotlinClass cached = file.getUserData(KOTLIN_CLASS);
+        long modificationStamp = file.getModificationStamp();
+        if (cached == null || cached.modificationStamp != modificationStamp) {
+            cached = new CachedKotlinClass(modificationStamp, new VirtualFileKotlinClass(file));
+            file.putUserData(KOTLIN_CLASS, cached);
+        }
+        return cached.kotlinClass;
+    }
+
+    @Nullable
+    @Override
+    public VirtualFile findBinaryJavaClassFile(@NotNull FqName className) {
+        // Java classes in the IDE are always taken from PSI, which is indexed anyway
+        return null;
+    }
 }
@@ -7,3 +7,9 @@ public fun <T : Annotation> T.annotationType() : Class<out T> {
     val method = this.javaClass.getMethod("annotationType")
     return invocationHandler.invoke(this, method, array<Object>())!! as Class<out T>
 }
+
+/**
+ * Marks a function whose recursive calls in tail position should be compiled into a loop,
+ * so that the recursion depth is not limited by the size of the stack
+ */
+public annotation class tailRecursive